@@ -0,0 +1,409 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor which runs each task on a thread of its own, using virtual threads when the
+ * runtime provides them. Instead of a fixed number of threads and a queue in front of them, the
+ * number of tasks running at once is capped by a concurrency limit, so that tasks blocking on
+ * I/O, e.g. a callout or a database lookup, do not need a platform thread each while waiting.
+ * Tasks submitted while the limit is reached are held in a pending queue and picked up, in
+ * submission order, by the threads of the completing tasks.
+ * <p>
+ * Virtual threads are looked up reflectively, since this code is compiled for Java 8. On a
+ * runtime without them, the tasks run on a pool of platform threads growing with the number
+ * of running tasks and shrinking when idle.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private static final Log log = LogFactory.getLog(VirtualThreadExecutor.class);
+
+    private static final long PLATFORM_THREAD_KEEP_ALIVE_SEC = 60;
+
+    private static final Method VIRTUAL_THREAD_BUILDER = lookupVirtualThreadBuilder();
+
+    private final String threadNamePrefix;
+
+    private final int maxConcurrency;
+
+    private final boolean virtualThreads;
+
+    private final Executor threads;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<Task> pendingTasks = new ConcurrentLinkedQueue<Task>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicInteger peakActiveCount = new AtomicInteger();
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder totalWaitTime = new LongAdder();
+
+    private final LongAdder totalExecutionTime = new LongAdder();
+
+    private final AtomicLong resetTime = new AtomicLong(System.currentTimeMillis());
+
+    private final Object terminationLock = new Object();
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param threadNamePrefix prefix of the names of the threads running the tasks
+     * @param maxConcurrency   maximum number of tasks running at once, a non positive value
+     *                         meaning no limit
+     */
+    public VirtualThreadExecutor(String threadNamePrefix, int maxConcurrency) {
+        this.threadNamePrefix = threadNamePrefix;
+        this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency : Integer.MAX_VALUE;
+        ThreadFactory virtualThreadFactory = createVirtualThreadFactory(threadNamePrefix);
+        if (virtualThreadFactory != null) {
+            final ThreadFactory factory = virtualThreadFactory;
+            this.virtualThreads = true;
+            this.threads = new Executor() {
+                public void execute(Runnable command) {
+                    factory.newThread(command).start();
+                }
+            };
+        } else {
+            log.info("Virtual threads are not supported by this runtime, tasks of " + threadNamePrefix
+                    + " will run on platform threads");
+            this.virtualThreads = false;
+            // not bounded by the limit, a thread may still be on its way back to the pool
+            // after releasing its permit
+            this.threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, PLATFORM_THREAD_KEEP_ALIVE_SEC,
+                    TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, VirtualThreadExecutor.this.threadNamePrefix
+                                    + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * @return whether the runtime provides virtual threads
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_BUILDER != null;
+    }
+
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            rejectedCount.increment();
+            throw new RejectedExecutionException("Executor " + threadNamePrefix + " has been shut down");
+        }
+        Task task = new Task(command);
+        if (tryAcquire()) {
+            start(task);
+            return;
+        }
+        pendingTasks.offer(task);
+        pendingCount.incrementAndGet();
+        // a task may have completed between the failed acquire and the offer
+        if (tryAcquire()) {
+            Task next = pollPending();
+            if (next != null) {
+                start(next);
+            } else {
+                release();
+            }
+        }
+    }
+
+    private void start(Task task) {
+        try {
+            threads.execute(new Worker(task));
+        } catch (RuntimeException e) {
+            release();
+            rejectedCount.increment();
+            throw e;
+        } catch (Error e) {
+            release();
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    private boolean tryAcquire() {
+        int active;
+        do {
+            active = activeCount.get();
+            if (active >= maxConcurrency) {
+                return false;
+            }
+        } while (!activeCount.compareAndSet(active, active + 1));
+        int peak;
+        while ((peak = peakActiveCount.get()) <= active && !peakActiveCount.compareAndSet(peak, active + 1)) {
+            // retry until the peak covers this task
+        }
+        return true;
+    }
+
+    private void release() {
+        if (activeCount.decrementAndGet() == 0 && shutdown) {
+            synchronized (terminationLock) {
+                terminationLock.notifyAll();
+            }
+        }
+    }
+
+    private Task pollPending() {
+        Task task = pendingTasks.poll();
+        if (task != null) {
+            pendingCount.decrementAndGet();
+        }
+        return task;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        if (isTerminated()) {
+            synchronized (terminationLock) {
+                terminationLock.notifyAll();
+            }
+        }
+        if (threads instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) threads).shutdown();
+        }
+    }
+
+    /**
+     * Shuts down this executor and returns the pending tasks. The running tasks are not
+     * interrupted, as they are not on a thread pool of their own, and complete as usual.
+     *
+     * @return the tasks which were pending
+     */
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        Task task;
+        while ((task = pollPending()) != null) {
+            tasks.add(task.command);
+        }
+        if (threads instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) threads).shutdown();
+        }
+        synchronized (terminationLock) {
+            terminationLock.notifyAll();
+        }
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isTerminated() {
+        return shutdown && activeCount.get() == 0 && pendingCount.get() == 0;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (terminationLock) {
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(terminationLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    /**
+     * @return whether the tasks run on virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return number of tasks running at the moment
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return highest number of tasks run at once since the last reset
+     */
+    public int getPeakActiveCount() {
+        return peakActiveCount.get();
+    }
+
+    /**
+     * @return number of tasks waiting for the concurrency limit
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getCompletedTaskCount() {
+        return completedCount.sum();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return average time in milliseconds the completed tasks waited before running
+     */
+    public double getAverageWaitTime() {
+        long completed = completedCount.sum();
+        return completed == 0 ? 0 : totalWaitTime.sum() / (completed * 1000000.0);
+    }
+
+    /**
+     * @return average time in milliseconds the completed tasks took to run
+     */
+    public double getAverageExecutionTime() {
+        long completed = completedCount.sum();
+        return completed == 0 ? 0 : totalExecutionTime.sum() / (completed * 1000000.0);
+    }
+
+    public long getLastResetTime() {
+        return resetTime.get();
+    }
+
+    public void resetStatistics() {
+        peakActiveCount.set(activeCount.get());
+        completedCount.reset();
+        rejectedCount.reset();
+        totalWaitTime.reset();
+        totalExecutionTime.reset();
+        resetTime.set(System.currentTimeMillis());
+    }
+
+    private static Method lookupVirtualThreadBuilder() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory createVirtualThreadFactory(String threadNamePrefix) {
+        if (VIRTUAL_THREAD_BUILDER == null) {
+            return null;
+        }
+        try {
+            Object builder = VIRTUAL_THREAD_BUILDER.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, threadNamePrefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            log.warn("Unable to create virtual threads for " + threadNamePrefix, e);
+            return null;
+        }
+    }
+
+    /**
+     * A submitted task and the time it was submitted at.
+     */
+    private static final class Task {
+
+        private final Runnable command;
+
+        private final long submitTime = System.nanoTime();
+
+        private Task(Runnable command) {
+            this.command = command;
+        }
+    }
+
+    /**
+     * Runs a task, and then the pending tasks as long as there are any, while holding a single
+     * permit of the concurrency limit.
+     */
+    private final class Worker implements Runnable {
+
+        private Task task;
+
+        private Worker(Task task) {
+            this.task = task;
+        }
+
+        public void run() {
+            while (task != null) {
+                long startTime = System.nanoTime();
+                totalWaitTime.add(startTime - task.submitTime);
+                try {
+                    task.command.run();
+                } catch (Throwable t) {
+                    log.error("Uncaught exception in a task of " + threadNamePrefix, t);
+                } finally {
+                    totalExecutionTime.add(System.nanoTime() - startTime);
+                    completedCount.increment();
+                }
+                task = pollPending();
+                if (task == null) {
+                    release();
+                    // a task may have been queued after the poll, while the permit was held
+                    if (!pendingTasks.isEmpty() && tryAcquire()) {
+                        task = pollPending();
+                        if (task == null) {
+                            release();
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.jmx;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.executors.VirtualThreadExecutor;
+
+import java.util.Date;
+
+/**
+ * WorkerPoolView can be used to monitor a {@link VirtualThreadExecutor} over JMX. Virtual
+ * threads are not reported by the thread MX bean, so unlike the {@link ThreadingView} the
+ * figures are taken from the executor itself rather than by sampling the thread states.
+ */
+public class WorkerPoolView implements WorkerPoolViewMBean {
+
+    private static final String SYNAPSE_WORKER_POOL_VIEW = "WorkerPool";
+
+    private static final Log log = LogFactory.getLog(WorkerPoolView.class);
+
+    private final VirtualThreadExecutor executor;
+
+    public WorkerPoolView(VirtualThreadExecutor executor) {
+        this.executor = executor;
+        if (log.isDebugEnabled()) {
+            log.debug("Starting a new Synapse worker pool view for the worker pool: " +
+                    executor.getThreadNamePrefix());
+        }
+        MBeanRegistrar.getInstance().registerMBean(this, SYNAPSE_WORKER_POOL_VIEW,
+                executor.getThreadNamePrefix());
+    }
+
+    public void destroy() {
+        if (log.isDebugEnabled()) {
+            log.debug("Un-registering the Synapse worker pool view for the worker pool: " +
+                    executor.getThreadNamePrefix());
+        }
+        MBeanRegistrar.getInstance().unRegisterMBean(SYNAPSE_WORKER_POOL_VIEW,
+                executor.getThreadNamePrefix());
+    }
+
+    public boolean isVirtualThreads() {
+        return executor.isVirtualThreads();
+    }
+
+    public int getMaxConcurrency() {
+        return executor.getMaxConcurrency();
+    }
+
+    public int getActiveWorkerCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getPeakWorkerCount() {
+        return executor.getPeakActiveCount();
+    }
+
+    public int getPendingTaskCount() {
+        return executor.getPendingCount();
+    }
+
+    public long getCompletedTaskCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public long getRejectedTaskCount() {
+        return executor.getRejectedTaskCount();
+    }
+
+    public double getAvgTaskWaitTime() {
+        return executor.getAverageWaitTime();
+    }
+
+    public double getAvgTaskExecutionTime() {
+        return executor.getAverageExecutionTime();
+    }
+
+    public double getWorkerUtilizationPercentage() {
+        return ((double) executor.getActiveCount() / (double) executor.getMaxConcurrency()) * 100;
+    }
+
+    public void reset() {
+        executor.resetStatistics();
+    }
+
+    public Date getLastResetTime() {
+        return new Date(executor.getLastResetTime());
+    }
+}
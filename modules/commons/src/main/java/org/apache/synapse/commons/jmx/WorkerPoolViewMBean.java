@@ -0,0 +1,42 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.jmx;
+
+import java.util.Date;
+
+/**
+ * Provides metrics related to a worker pool limiting the concurrency of its tasks instead of
+ * the number of its threads.
+ */
+public interface WorkerPoolViewMBean {
+
+    public boolean isVirtualThreads();
+    public int getMaxConcurrency();
+    public int getActiveWorkerCount();
+    public int getPeakWorkerCount();
+    public int getPendingTaskCount();
+    public long getCompletedTaskCount();
+    public long getRejectedTaskCount();
+    public double getAvgTaskWaitTime();
+    public double getAvgTaskExecutionTime();
+    public double getWorkerUtilizationPercentage();
+    public void reset();
+    public Date getLastResetTime();
+
+}
@@ -0,0 +1,600 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+import org.apache.synapse.commons.staxon.core.json.stream.JsonStreamSource;
+import org.apache.synapse.commons.staxon.core.json.stream.JsonStreamToken;
+import org.apache.synapse.commons.staxon.core.json.stream.impl.JsonStreamFactoryImpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates a subset of JSONPath directly over a JSON token stream, without building the
+ * document. Supported expressions are made of child names ($.a.b, $['a']), non negative array
+ * indices ([2]), wildcards ([*], .*) and simple filters over array items comparing a relative
+ * path with a literal ([?(@.price &lt; 10)], [?(@.isbn)]).
+ * <p>
+ * Only the matched values are built. Definite paths stop reading the stream as soon as the
+ * single location the path can point to has been visited, so the remainder of the stream is
+ * never read. Indefinite paths collect all the matches into an array, in document order.
+ * <p>
+ * Use {@link #compile(String)} to check whether an expression is supported. Payloads the
+ * evaluator cannot handle (e.g. nested arrays or malformed JSON) are reported through an
+ * {@link IOException}, in which case the caller is expected to evaluate the expression with
+ * a regular JSONPath implementation.
+ */
+public final class StreamingJsonPath {
+
+    private static final JsonStreamFactoryImpl STREAM_FACTORY = new JsonStreamFactoryImpl();
+
+    private final String path;
+
+    private final List<Step> steps;
+
+    private final boolean definite;
+
+    private StreamingJsonPath(String path, List<Step> steps) {
+        this.path = path;
+        this.steps = steps;
+        boolean isDefinite = true;
+        for (Step step : steps) {
+            if (step.type == StepType.WILDCARD || step.type == StepType.FILTER) {
+                isDefinite = false;
+            }
+        }
+        this.definite = isDefinite;
+    }
+
+    /**
+     * Compile the given JSONPath expression.
+     *
+     * @param path JSONPath expression
+     * @return compiled path, or null if the expression is not supported for streaming evaluation
+     */
+    public static StreamingJsonPath compile(String path) {
+        if (path == null) {
+            return null;
+        }
+        path = path.trim();
+        if (!path.startsWith("$")) {
+            return null;
+        }
+        List<Step> steps = parseSteps(path, 1, false);
+        if (steps == null || steps.isEmpty()) {
+            return null;
+        }
+        return new StreamingJsonPath(path, steps);
+    }
+
+    /**
+     * Checks whether the path points to at most one location in the document.
+     *
+     * @return true if the path has no wildcards or filters
+     */
+    public boolean isDefinite() {
+        return definite;
+    }
+
+    /**
+     * Evaluate the path over the given JSON stream. The stream is not closed and, for definite
+     * paths, is left positioned somewhere after the matched value.
+     *
+     * @param jsonStream UTF-8 encoded JSON stream
+     * @return the matched value, or null if nothing matched, for definite paths. An array of
+     * the matched values for indefinite paths
+     * @throws IOException if the stream could not be evaluated in streaming mode
+     */
+    public JsonElement evaluate(InputStream jsonStream) throws IOException {
+        JsonStreamSource source = STREAM_FACTORY.createJsonStreamSource(jsonStream);
+        if (source.peek() == JsonStreamToken.NONE) {
+            throw new IOException("Empty JSON stream");
+        }
+        List<JsonElement> matches = new ArrayList<JsonElement>();
+        walk(source, 0, matches);
+        if (definite) {
+            return matches.isEmpty() ? null : matches.get(0);
+        }
+        JsonArray result = new JsonArray();
+        for (JsonElement match : matches) {
+            result.add(match);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Walk the value at the current position of the stream.
+     *
+     * @return true if the evaluation is complete and the stream must not be read any further
+     */
+    private boolean walk(JsonStreamSource source, int index, List<JsonElement> matches) throws IOException {
+        if (index == steps.size()) {
+            matches.add(read(source));
+            return definite;
+        }
+        Step step = steps.get(index);
+        JsonStreamToken token = source.peek();
+        if (token == JsonStreamToken.START_OBJECT) {
+            if (step.type == StepType.FILTER) {
+                throw new IOException("Filters over objects are not supported in streaming mode");
+            }
+            source.startObject();
+            while (source.peek() == JsonStreamToken.NAME) {
+                String name = source.name();
+                if (step.type == StepType.WILDCARD || (step.type == StepType.NAME && step.name.equals(name))) {
+                    if (walk(source, index + 1, matches) || definite) {
+                        return true;
+                    }
+                } else {
+                    skip(source);
+                }
+            }
+            source.endObject();
+        } else if (token == JsonStreamToken.START_ARRAY) {
+            source.startArray();
+            int position = 0;
+            while (source.peek() != JsonStreamToken.END_ARRAY) {
+                if (step.type == StepType.WILDCARD || (step.type == StepType.INDEX && step.index == position)) {
+                    if (walk(source, index + 1, matches) || definite) {
+                        return true;
+                    }
+                } else if (step.type == StepType.FILTER) {
+                    JsonElement item = read(source);
+                    if (step.filter.matches(item)) {
+                        select(item, index + 1, matches);
+                    }
+                } else {
+                    skip(source);
+                }
+                position++;
+            }
+            source.endArray();
+        } else {
+            skip(source);
+        }
+        return false;
+    }
+
+    /**
+     * Continue the evaluation over a value which has already been built.
+     */
+    private void select(JsonElement element, int index, List<JsonElement> matches) throws IOException {
+        if (index == steps.size()) {
+            matches.add(element);
+            return;
+        }
+        Step step = steps.get(index);
+        switch (step.type) {
+            case NAME:
+                if (element.isJsonObject() && element.getAsJsonObject().has(step.name)) {
+                    select(element.getAsJsonObject().get(step.name), index + 1, matches);
+                }
+                break;
+            case INDEX:
+                if (element.isJsonArray() && step.index < element.getAsJsonArray().size()) {
+                    select(element.getAsJsonArray().get(step.index), index + 1, matches);
+                }
+                break;
+            case WILDCARD:
+                if (element.isJsonObject()) {
+                    for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                        select(entry.getValue(), index + 1, matches);
+                    }
+                } else if (element.isJsonArray()) {
+                    for (JsonElement item : element.getAsJsonArray()) {
+                        select(item, index + 1, matches);
+                    }
+                }
+                break;
+            case FILTER:
+                if (element.isJsonObject()) {
+                    throw new IOException("Filters over objects are not supported in streaming mode");
+                } else if (element.isJsonArray()) {
+                    for (JsonElement item : element.getAsJsonArray()) {
+                        if (step.filter.matches(item)) {
+                            select(item, index + 1, matches);
+                        }
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * Build the value at the current position of the stream.
+     */
+    private static JsonElement read(JsonStreamSource source) throws IOException {
+        JsonStreamToken token = source.peek();
+        if (token == JsonStreamToken.START_OBJECT) {
+            JsonObject object = new JsonObject();
+            source.startObject();
+            while (source.peek() == JsonStreamToken.NAME) {
+                String name = source.name();
+                object.add(name, read(source));
+            }
+            source.endObject();
+            return object;
+        } else if (token == JsonStreamToken.START_ARRAY) {
+            JsonArray array = new JsonArray();
+            source.startArray();
+            while (source.peek() != JsonStreamToken.END_ARRAY) {
+                array.add(read(source));
+            }
+            source.endArray();
+            return array;
+        }
+        JsonStreamSource.Value value = source.value();
+        if (value.text == null) {
+            return JsonNull.INSTANCE;
+        } else if (value.data instanceof Number) {
+            // keep the number as written, the same way it is done when parsing with gson
+            return new JsonPrimitive(new LazilyParsedNumber(value.text));
+        } else if (value.data instanceof Boolean) {
+            return new JsonPrimitive((Boolean) value.data);
+        }
+        return new JsonPrimitive(value.text);
+    }
+
+    /**
+     * Consume the value at the current position of the stream without building it.
+     */
+    private static void skip(JsonStreamSource source) throws IOException {
+        int depth = 0;
+        do {
+            switch (source.peek()) {
+                case START_OBJECT:
+                    source.startObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    source.endObject();
+                    depth--;
+                    break;
+                case START_ARRAY:
+                    source.startArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    source.endArray();
+                    depth--;
+                    break;
+                case NAME:
+                    source.name();
+                    break;
+                case VALUE:
+                    source.value();
+                    break;
+                default:
+                    throw new IOException("Unexpected end of JSON stream");
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Parse the steps of a path, starting after the root ('$' or '@') symbol.
+     *
+     * @return parsed steps, or null if the path is not supported
+     */
+    private static List<Step> parseSteps(String path, int start, boolean relative) {
+        List<Step> steps = new ArrayList<Step>();
+        int i = start;
+        int length = path.length();
+        while (i < length) {
+            char ch = path.charAt(i);
+            if (ch == '.') {
+                int end = i + 1;
+                while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                String name = path.substring(i + 1, end);
+                if ("*".equals(name) && !relative) {
+                    steps.add(new Step(StepType.WILDCARD));
+                } else if (isPlainName(name)) {
+                    steps.add(new Step(name));
+                } else {
+                    // deep scan, functions and other constructs
+                    return null;
+                }
+                i = end;
+            } else if (ch == '[') {
+                int end = findClosingBracket(path, i);
+                if (end == -1) {
+                    return null;
+                }
+                Step step = parseBracket(path.substring(i + 1, end).trim(), relative);
+                if (step == null) {
+                    return null;
+                }
+                steps.add(step);
+                i = end + 1;
+            } else {
+                return null;
+            }
+        }
+        return steps;
+    }
+
+    private static Step parseBracket(String content, boolean relative) {
+        if (content.isEmpty()) {
+            return null;
+        }
+        char first = content.charAt(0);
+        if (first == '\'' || first == '"') {
+            if (content.length() < 2 || content.charAt(content.length() - 1) != first) {
+                return null;
+            }
+            String name = content.substring(1, content.length() - 1);
+            if (name.indexOf('\'') != -1 || name.indexOf('"') != -1 || name.indexOf('\\') != -1) {
+                return null;
+            }
+            return new Step(name);
+        }
+        if (relative) {
+            return null;
+        }
+        if ("*".equals(content)) {
+            return new Step(StepType.WILDCARD);
+        }
+        if (content.startsWith("?(") && content.endsWith(")")) {
+            Filter filter = Filter.parse(content.substring(2, content.length() - 1).trim());
+            return filter == null ? null : new Step(filter);
+        }
+        for (int i = 0; i < content.length(); i++) {
+            if (!Character.isDigit(content.charAt(i))) {
+                // negative indices, slices and unions
+                return null;
+            }
+        }
+        try {
+            return new Step(Integer.parseInt(content));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int findClosingBracket(String path, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < path.length(); i++) {
+            char ch = path.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"') {
+                quote = ch;
+            } else if (ch == '[') {
+                return -1;
+            } else if (ch == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isPlainName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (!Character.isLetterOrDigit(ch) && ch != '_' && ch != '-' && ch != ':' && ch != '$') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private enum StepType {
+        NAME, INDEX, WILDCARD, FILTER
+    }
+
+    private static final class Step {
+
+        private final StepType type;
+
+        private final String name;
+
+        private final int index;
+
+        private final Filter filter;
+
+        private Step(StepType type) {
+            this(type, null, -1, null);
+        }
+
+        private Step(String name) {
+            this(StepType.NAME, name, -1, null);
+        }
+
+        private Step(int index) {
+            this(StepType.INDEX, null, index, null);
+        }
+
+        private Step(Filter filter) {
+            this(StepType.FILTER, null, -1, filter);
+        }
+
+        private Step(StepType type, String name, int index, Filter filter) {
+            this.type = type;
+            this.name = name;
+            this.index = index;
+            this.filter = filter;
+        }
+    }
+
+    /**
+     * Filter of the form "@.path operator literal" or "@.path". Comparisons between values of
+     * different kinds are not decided here, and are reported as not supported so that the
+     * expression is evaluated by the regular JSONPath implementation instead.
+     */
+    private static final class Filter {
+
+        private static final String[] OPERATORS = new String[] { "==", "!=", "<=", ">=", "<", ">" };
+
+        private final List<Step> steps;
+
+        private final String operator;
+
+        private final JsonPrimitive literal;
+
+        private final boolean nullLiteral;
+
+        private Filter(List<Step> steps, String operator, JsonPrimitive literal, boolean nullLiteral) {
+            this.steps = steps;
+            this.operator = operator;
+            this.literal = literal;
+            this.nullLiteral = nullLiteral;
+        }
+
+        private static Filter parse(String expression) {
+            String operator = null;
+            int position = -1;
+            for (String candidate : OPERATORS) {
+                position = indexOfOutsideQuotes(expression, candidate);
+                if (position != -1) {
+                    operator = candidate;
+                    break;
+                }
+            }
+            String left = operator == null ? expression : expression.substring(0, position).trim();
+            if (!left.startsWith("@") || left.length() < 2) {
+                return null;
+            }
+            List<Step> steps = parseSteps(left, 1, true);
+            if (steps == null || steps.isEmpty()) {
+                return null;
+            }
+            if (operator == null) {
+                return new Filter(steps, null, null, false);
+            }
+            String right = expression.substring(position + operator.length()).trim();
+            if ("null".equals(right)) {
+                return new Filter(steps, operator, null, true);
+            } else if ("true".equals(right) || "false".equals(right)) {
+                return new Filter(steps, operator, new JsonPrimitive(Boolean.valueOf(right)), false);
+            } else if (right.length() >= 2 && (right.charAt(0) == '\'' || right.charAt(0) == '"')
+                    && right.charAt(right.length() - 1) == right.charAt(0)) {
+                String text = right.substring(1, right.length() - 1);
+                if (text.indexOf(right.charAt(0)) != -1 || text.indexOf('\\') != -1) {
+                    return null;
+                }
+                return new Filter(steps, operator, new JsonPrimitive(text), false);
+            }
+            try {
+                return new Filter(steps, operator, new JsonPrimitive(new BigDecimal(right)), false);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static int indexOfOutsideQuotes(String expression, String token) {
+            char quote = 0;
+            for (int i = 0; i < expression.length(); i++) {
+                char ch = expression.charAt(i);
+                if (quote != 0) {
+                    if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '\'' || ch == '"') {
+                    quote = ch;
+                } else if (expression.startsWith(token, i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean matches(JsonElement item) throws IOException {
+            JsonElement value = resolve(item);
+            if (operator == null) {
+                return value != null;
+            }
+            if (value == null) {
+                if ("!=".equals(operator)) {
+                    throw new IOException("Comparison with a missing value is not supported in streaming mode");
+                }
+                return false;
+            }
+            boolean equality = "==".equals(operator) || "!=".equals(operator);
+            if (nullLiteral || value.isJsonNull()) {
+                if (!equality) {
+                    throw new IOException("Ordering against null is not supported in streaming mode");
+                }
+                return (nullLiteral == value.isJsonNull()) == "==".equals(operator);
+            }
+            if (!value.isJsonPrimitive()) {
+                throw new IOException("Comparison with a structured value is not supported in streaming mode");
+            }
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            int comparison;
+            if (primitive.isNumber() && literal.isNumber()) {
+                comparison = new BigDecimal(primitive.getAsString()).compareTo(literal.getAsBigDecimal());
+            } else if (primitive.isString() && literal.isString()) {
+                comparison = primitive.getAsString().compareTo(literal.getAsString());
+            } else if (primitive.isBoolean() && literal.isBoolean() && equality) {
+                comparison = primitive.getAsBoolean() == literal.getAsBoolean() ? 0 : 1;
+            } else {
+                throw new IOException("Comparison of different value types is not supported in streaming mode");
+            }
+            if ("==".equals(operator)) {
+                return comparison == 0;
+            } else if ("!=".equals(operator)) {
+                return comparison != 0;
+            } else if ("<".equals(operator)) {
+                return comparison < 0;
+            } else if ("<=".equals(operator)) {
+                return comparison <= 0;
+            } else if (">".equals(operator)) {
+                return comparison > 0;
+            }
+            return comparison >= 0;
+        }
+
+        private JsonElement resolve(JsonElement item) {
+            JsonElement current = item;
+            for (Step step : steps) {
+                if (step.type == StepType.NAME && current.isJsonObject()
+                        && current.getAsJsonObject().has(step.name)) {
+                    current = current.getAsJsonObject().get(step.name);
+                } else if (step.type == StepType.INDEX && current.isJsonArray()
+                        && step.index < current.getAsJsonArray().size()) {
+                    current = current.getAsJsonArray().get(step.index);
+                } else {
+                    return null;
+                }
+            }
+            return current;
+        }
+    }
+}
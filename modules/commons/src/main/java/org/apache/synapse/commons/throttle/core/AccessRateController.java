@@ -32,7 +32,7 @@ public class AccessRateController {
 
     private static Log log = LogFactory.getLog(AccessRateController.class.getName());
 
-    private static final String ACCESS_DENIED_TEMPORALLY =
+    protected static final String ACCESS_DENIED_TEMPORALLY =
             "You cannot access this service since you have exceeded the allocated quota.";
 
     private static final String ACCESS_DENIED =
@@ -41,7 +41,7 @@ public class AccessRateController {
     /* The Object for used to lock in synchronizing */
     private final Object lock = new Object();
 
-    private boolean debugOn = false;  //is debug enable
+    protected boolean debugOn = false;  //is debug enable
     private static final String SYMBOL_UNDERSCORE = "_";
 
     public AccessRateController() {
@@ -103,40 +103,58 @@ public class AccessRateController {
             accessInformation.setAccessAllowed(true);
             return accessInformation;
         } else if (configuration.getAccessState() == ThrottleConstants.ACCESS_CONTROLLED) {
-            synchronized (lock) {
-                CallerContext caller = throttleContext.getCallerContext(callerID);
-                if (caller == null) {
-                    //if caller has not already registered ,then create new caller description and
-                    //set it in throttle
-                    caller = CallerContextFactory.createCaller(callerType, callerID);
-                }
-                if (caller != null) {
-                    long currentTime = System.currentTimeMillis();
-
-                    if (!caller.canAccess(throttleContext, configuration, currentTime)) {
-                        //if current caller cannot access , then perform cleaning
-                        log.info(ACCESS_DENIED_TEMPORALLY);
-                        throttleContext.processCleanList(currentTime);
-                        accessInformation.setAccessAllowed(false);
-                        accessInformation.setFaultReason(ACCESS_DENIED_TEMPORALLY);
-                        return accessInformation;
-                    } else {
-                        if (debugOn) {
-                            log.debug("Access  from " + type + " " + callerID + " is successful.");
-                        }
-                        accessInformation.setAccessAllowed(true);
-                        return accessInformation;
-                    }
+            return controlAccess(throttleContext, callerID, callerType, configuration, type, accessInformation);
+        }
+        accessInformation.setAccessAllowed(true);
+        return accessInformation;
+    }
+
+    /**
+     * Decides the access of a caller whose access is controlled by the given configuration
+     *
+     * @param throttleContext   - current states of throttle - RunTime Data
+     * @param callerID          - Identifier for remote caller - ex: ip or domainname
+     * @param callerType        - the type of the caller
+     * @param configuration     - the configuration of the caller
+     * @param type              - the type of the caller, for logging
+     * @param accessInformation - the access information to fill
+     * @return access information
+     * @throws ThrottleException
+     */
+    protected AccessInformation controlAccess(ThrottleContext throttleContext, String callerID, int callerType,
+                                              CallerConfiguration configuration, String type,
+                                              AccessInformation accessInformation) throws ThrottleException {
+        synchronized (lock) {
+            CallerContext caller = throttleContext.getCallerContext(callerID);
+            if (caller == null) {
+                //if caller has not already registered ,then create new caller description and
+                //set it in throttle
+                caller = CallerContextFactory.createCaller(callerType, callerID);
+            }
+            if (caller != null) {
+                long currentTime = System.currentTimeMillis();
+
+                if (!caller.canAccess(throttleContext, configuration, currentTime)) {
+                    //if current caller cannot access , then perform cleaning
+                    log.info(ACCESS_DENIED_TEMPORALLY);
+                    throttleContext.processCleanList(currentTime);
+                    accessInformation.setAccessAllowed(false);
+                    accessInformation.setFaultReason(ACCESS_DENIED_TEMPORALLY);
+                    return accessInformation;
                 } else {
                     if (debugOn) {
-                        log.debug("Caller " + type + " not found! " + callerID);
+                        log.debug("Access  from " + type + " " + callerID + " is successful.");
                     }
                     accessInformation.setAccessAllowed(true);
                     return accessInformation;
                 }
+            } else {
+                if (debugOn) {
+                    log.debug("Caller " + type + " not found! " + callerID);
+                }
+                accessInformation.setAccessAllowed(true);
+                return accessInformation;
             }
         }
-        accessInformation.setAccessAllowed(true);
-        return accessInformation;
     }
 }
\ No newline at end of file
@@ -37,6 +37,12 @@ public abstract class CallerConfiguration {
     /* The int value that indicate that access is fully denied/allowed or controlled for this IP */
     private int accessState = ThrottleConstants.ACCESS_CONTROLLED;
 
+    /* The algorithm used to limit the access rate of the caller */
+    private int algorithm = ThrottleConstants.FIXED_WINDOW_ALGORITHM;
+
+    /* The number of requests a token bucket can hold, zero if it is the Maximum number of Request */
+    private int burstCapacity;
+
     protected CallerConfiguration() {
         super();
 
@@ -133,6 +139,42 @@ public abstract class CallerConfiguration {
         this.accessState = accessState;
     }
 
+    /**
+     * To get the rate limiting algorithm
+     *
+     * @return one of the algorithm constants of {@link ThrottleConstants}
+     */
+    public int getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * To set the rate limiting algorithm
+     *
+     * @param algorithm one of the algorithm constants of {@link ThrottleConstants}
+     */
+    public void setAlgorithm(int algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * To get the burst capacity of a token bucket
+     *
+     * @return int value of the burst capacity, the Maximum Request if not set
+     */
+    public int getBurstCapacity() {
+        return burstCapacity > 0 ? burstCapacity : maximumRequest;
+    }
+
+    /**
+     * To set the burst capacity of a token bucket
+     *
+     * @param burstCapacity -int value
+     */
+    public void setBurstCapacity(int burstCapacity) {
+        this.burstCapacity = burstCapacity;
+    }
+
     /**
      * To get ID
      *
@@ -59,6 +59,9 @@ public abstract class CallerContext implements Serializable, Cloneable {
     /* The Id of caller */
     private String id;
 
+    /* The state of the caller if an algorithm other than the fixed time window is configured */
+    private transient volatile RateLimiter rateLimiter;
+
     public CallerContext clone() throws CloneNotSupportedException {
         super.clone();
         CallerContext clone = new CallerContext(this.id) {
@@ -312,6 +315,17 @@ public abstract class CallerContext implements Serializable, Cloneable {
             }
             return;
         }
+        // callers limited by other algorithms are removed once their requests no longer matter
+        RateLimiter limiter = rateLimiter;
+        if (limiter != null) {
+            if (limiter.isIdle(currentTime)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Removing caller with id " + this.id);
+                }
+                throttleContext.removeAndDestroyShareParamsOfCaller(id);
+            }
+            return;
+        }
         // if number of access for a unit time is less than MAX and
         // if the unit time period (session time) has over
 
@@ -369,6 +383,10 @@ public abstract class CallerContext implements Serializable, Cloneable {
             throw new ThrottleException("Invalid Throttle Configuration");
         }
 
+        if (configuration.getAlgorithm() != ThrottleConstants.FIXED_WINDOW_ALGORITHM) {
+            return canAccessWithRateLimiter(configuration, throttleContext, currentTime);
+        }
+
         // if caller access first time in his new session
         if (this.firstAccessTime == 0) {
             initAccess(configuration, throttleContext, currentTime);
@@ -384,6 +402,33 @@ public abstract class CallerContext implements Serializable, Cloneable {
 
     }
 
+    /**
+     * Check whether that caller can access or not, using the rate limiting algorithm of the configuration
+     *
+     * @param configuration   -The Configuration for this caller - data from policy
+     * @param throttleContext -The Context for this caller - runtime state
+     * @param currentTime     -The current system time
+     * @return boolean        -The boolean value which say access will allow or not
+     */
+    private boolean canAccessWithRateLimiter(CallerConfiguration configuration,
+                                             ThrottleContext throttleContext, long currentTime) {
+        RateLimiter limiter = rateLimiter;
+        if (limiter == null || !limiter.isCreatedFor(configuration)) {
+            synchronized (this) {
+                limiter = rateLimiter;
+                if (limiter == null || !limiter.isCreatedFor(configuration)) {
+                    limiter = RateLimiter.create(configuration, currentTime);
+                    rateLimiter = limiter;
+                }
+            }
+        }
+        // register the caller with the throttle context so that the next requests find its state
+        if (this.firstAccessTime == 0) {
+            initAccess(configuration, throttleContext, currentTime);
+        }
+        return limiter.canAccess(currentTime);
+    }
+
     /**
      * Returns the next time window
      *
@@ -0,0 +1,165 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.throttle.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The runtime state of a caller whose access rate is limited by an algorithm other than the
+ * fixed time window of {@link CallerContext}. The state of a limiter is updated with atomic
+ * operations only and deciding the access of a request does not allocate, so a limiter can be
+ * used concurrently without any locking.
+ * <p>
+ * As with the fixed time window, once a request is denied the caller is prohibited for the
+ * prohibit time period of its configuration, if there is one.
+ */
+public abstract class RateLimiter {
+
+    private final int callerType;
+
+    private final int algorithm;
+
+    private final int maximumRequest;
+
+    private final long unitTime;
+
+    private final int burstCapacity;
+
+    private final long prohibitTimePeriod;
+
+    /* The end of the prohibition of the caller */
+    private final AtomicLong prohibitedUntil = new AtomicLong();
+
+    protected RateLimiter(CallerConfiguration configuration) {
+        this.callerType = configuration.getType();
+        this.algorithm = configuration.getAlgorithm();
+        this.maximumRequest = configuration.getMaximumRequestPerUnitTime();
+        this.unitTime = configuration.getUnitTime();
+        this.burstCapacity = configuration.getBurstCapacity();
+        this.prohibitTimePeriod = configuration.getProhibitTimePeriod();
+    }
+
+    /**
+     * Creates the limiter for the algorithm of the given configuration
+     *
+     * @param configuration -The Configuration for the caller
+     * @param currentTime   -The system current time in milliseconds
+     * @return the limiter, or null if the configuration uses the fixed time window
+     */
+    public static RateLimiter create(CallerConfiguration configuration, long currentTime) {
+        switch (configuration.getAlgorithm()) {
+            case ThrottleConstants.TOKEN_BUCKET_ALGORITHM:
+                return new TokenBucketRateLimiter(configuration, currentTime);
+            case ThrottleConstants.SLIDING_WINDOW_ALGORITHM:
+                return new SlidingWindowRateLimiter(configuration, currentTime);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the algorithm with the given name, as used in throttle policies
+     *
+     * @param name name of the algorithm
+     * @return the algorithm constant, or -1 if there is no algorithm with the given name
+     */
+    public static int getAlgorithm(String name) {
+        if (ThrottleConstants.FIXED_WINDOW_ALGORITHM_NAME.equals(name)) {
+            return ThrottleConstants.FIXED_WINDOW_ALGORITHM;
+        } else if (ThrottleConstants.TOKEN_BUCKET_ALGORITHM_NAME.equals(name)) {
+            return ThrottleConstants.TOKEN_BUCKET_ALGORITHM;
+        } else if (ThrottleConstants.SLIDING_WINDOW_ALGORITHM_NAME.equals(name)) {
+            return ThrottleConstants.SLIDING_WINDOW_ALGORITHM;
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether the caller can access, consuming a request of its quota if it can
+     *
+     * @param currentTime -The system current time in milliseconds
+     * @return true if access is allowed
+     */
+    public boolean canAccess(long currentTime) {
+        boolean canAccess;
+        long prohibitedTime = prohibitedUntil.get();
+        if (prohibitedTime > currentTime) {
+            canAccess = false;
+        } else {
+            canAccess = maximumRequest > 0 && tryAcquire(currentTime);
+            if (!canAccess && prohibitTimePeriod > 0) {
+                prohibitedUntil.compareAndSet(prohibitedTime, currentTime + prohibitTimePeriod);
+            }
+        }
+        RateLimiterStatistics.getInstance().record(callerType, canAccess);
+        return canAccess;
+    }
+
+    /**
+     * Check whether this limiter was created for the given configuration
+     *
+     * @param configuration -The Configuration for the caller
+     * @return true if the configuration has not changed since this limiter was created
+     */
+    public boolean isCreatedFor(CallerConfiguration configuration) {
+        return algorithm == configuration.getAlgorithm()
+                && maximumRequest == configuration.getMaximumRequestPerUnitTime()
+                && unitTime == configuration.getUnitTime()
+                && burstCapacity == configuration.getBurstCapacity()
+                && prohibitTimePeriod == configuration.getProhibitTimePeriod();
+    }
+
+    /**
+     * Returns the time from which the limiter is in the same state as a newly created one, i.e.
+     * the time after which an idle caller can be forgotten
+     *
+     * @param currentTime -The system current time in milliseconds
+     * @return the time in milliseconds
+     */
+    public long getExpiryTime(long currentTime) {
+        return Math.max(getIdleTime(currentTime), prohibitedUntil.get());
+    }
+
+    /**
+     * @param currentTime -The system current time in milliseconds
+     * @return true if the caller can be forgotten without affecting its future access
+     */
+    public boolean isIdle(long currentTime) {
+        return getExpiryTime(currentTime) <= currentTime;
+    }
+
+    public int getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Consume a request of the quota if there is one left
+     *
+     * @param currentTime -The system current time in milliseconds
+     * @return true if a request was consumed
+     */
+    protected abstract boolean tryAcquire(long currentTime);
+
+    /**
+     * @param currentTime -The system current time in milliseconds
+     * @return the time in milliseconds from which the requests made so far no longer affect the
+     * access of the caller
+     */
+    protected abstract long getIdleTime(long currentTime);
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.throttle.core;
+
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the requests allowed and denied by the {@link RateLimiter}s of each caller type. The
+ * counts are exposed over JMX through {@link RateLimiterView}.
+ */
+public class RateLimiterStatistics {
+
+    private static final RateLimiterStatistics instance = new RateLimiterStatistics();
+
+    static {
+        MBeanRegistrar.getInstance().registerMBean(new RateLimiterView(instance), "Throttle", "RateLimiters");
+    }
+
+    private final LongAdder[] allowed = new LongAdder[ThrottleConstants.ROLE_BASE + 1];
+
+    private final LongAdder[] denied = new LongAdder[ThrottleConstants.ROLE_BASE + 1];
+
+    private RateLimiterStatistics() {
+        for (int i = 0; i < allowed.length; i++) {
+            allowed[i] = new LongAdder();
+            denied[i] = new LongAdder();
+        }
+    }
+
+    public static RateLimiterStatistics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Record an access decision
+     *
+     * @param callerType the type of the caller, ex: ip/domain/role
+     * @param allowed    whether access was allowed
+     */
+    public void record(int callerType, boolean allowed) {
+        if (callerType < 0 || callerType >= this.allowed.length) {
+            return;
+        }
+        if (allowed) {
+            this.allowed[callerType].increment();
+        } else {
+            denied[callerType].increment();
+        }
+    }
+
+    public long getAllowedCount(int callerType) {
+        return allowed[callerType].sum();
+    }
+
+    public long getDeniedCount(int callerType) {
+        return denied[callerType].sum();
+    }
+
+    public void reset() {
+        for (int i = 0; i < allowed.length; i++) {
+            allowed[i].reset();
+            denied[i].reset();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.throttle.core;
+
+public class RateLimiterView implements RateLimiterViewMBean {
+
+    private RateLimiterStatistics statistics;
+
+    public RateLimiterView(RateLimiterStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public long getIpAllowedCount() {
+        return statistics.getAllowedCount(ThrottleConstants.IP_BASE);
+    }
+
+    public long getIpDeniedCount() {
+        return statistics.getDeniedCount(ThrottleConstants.IP_BASE);
+    }
+
+    public long getDomainAllowedCount() {
+        return statistics.getAllowedCount(ThrottleConstants.DOMAIN_BASE);
+    }
+
+    public long getDomainDeniedCount() {
+        return statistics.getDeniedCount(ThrottleConstants.DOMAIN_BASE);
+    }
+
+    public long getRoleAllowedCount() {
+        return statistics.getAllowedCount(ThrottleConstants.ROLE_BASE);
+    }
+
+    public long getRoleDeniedCount() {
+        return statistics.getDeniedCount(ThrottleConstants.ROLE_BASE);
+    }
+
+    public void reset() {
+        statistics.reset();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.throttle.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sliding window counter allowing up to Maximum Count requests within any Unit Time. The
+ * number of requests in the window ending at the current time is estimated from the counts of
+ * the current and the previous fixed windows, weighting the previous count by the part of the
+ * previous window still covered, which smooths out the bursts of up to twice the limit a fixed
+ * time window lets through at its boundaries.
+ * <p>
+ * The count of each of the two fixed windows is packed with the index of its window into a
+ * single atomic value, so moving to a new window and counting a request are the same compare
+ * and set.
+ */
+public class SlidingWindowRateLimiter extends RateLimiter {
+
+    private static final long INDEX_MASK = 0x7fffffffL;
+
+    private static final long COUNT_MASK = 0xffffffffL;
+
+    /* The time from which the windows are measured */
+    private final long origin;
+
+    private final long unitTime;
+
+    private final int maximumRequest;
+
+    /* Counts of the windows with even and odd indexes */
+    private final AtomicLong evenWindow = new AtomicLong();
+
+    private final AtomicLong oddWindow = new AtomicLong();
+
+    public SlidingWindowRateLimiter(CallerConfiguration configuration, long currentTime) {
+        super(configuration);
+        this.origin = currentTime;
+        this.unitTime = configuration.getUnitTime();
+        this.maximumRequest = configuration.getMaximumRequestPerUnitTime();
+    }
+
+    @Override
+    protected boolean tryAcquire(long currentTime) {
+        long elapsed = Math.max(currentTime - origin, 0);
+        long index = elapsed / unitTime;
+        // the part of the previous window which is still within the sliding window
+        double previousWeight = (double) (unitTime - elapsed % unitTime) / unitTime;
+        AtomicLong window = getWindow(index);
+        AtomicLong previousWindow = getWindow(index - 1);
+        while (true) {
+            long current = window.get();
+            long count = getCount(current, index);
+            double estimate = getCount(previousWindow.get(), index - 1) * previousWeight + count;
+            if (estimate + 1 > maximumRequest) {
+                return false;
+            }
+            if (window.compareAndSet(current, pack(index, count + 1))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    protected long getIdleTime(long currentTime) {
+        long index = Math.max(currentTime - origin, 0) / unitTime;
+        long lastIndex = Math.max(getIndex(evenWindow.get(), index), getIndex(oddWindow.get(), index));
+        if (lastIndex < 0) {
+            return origin;
+        }
+        // the requests of a window affect the access until the end of the following window
+        return origin + (lastIndex + 2) * unitTime;
+    }
+
+    private AtomicLong getWindow(long index) {
+        return (index & 1) == 0 ? evenWindow : oddWindow;
+    }
+
+    private static long pack(long index, long count) {
+        return ((index & INDEX_MASK) << 32) | (count & COUNT_MASK);
+    }
+
+    /**
+     * Returns the index of the given window, which is at most the current index
+     *
+     * @return the index, or -1 if there were no requests in the window
+     */
+    private static long getIndex(long window, long currentIndex) {
+        if ((window & COUNT_MASK) == 0) {
+            return -1;
+        }
+        return currentIndex - ((currentIndex - (window >>> 32)) & INDEX_MASK);
+    }
+
+    private static long getCount(long window, long index) {
+        if (index < 0 || (window >>> 32) != (index & INDEX_MASK)) {
+            return 0;
+        }
+        return window & COUNT_MASK;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.throttle.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An access rate controller which does not serialize the access decisions of all callers on a
+ * single lock. Each caller has its own fixed window counter, which is updated with atomic
+ * operations only, so concurrent requests of different callers never contend and those of the
+ * same caller only contend on the caller's counter.
+ * <p>
+ * The windows follow the same policy as {@link CallerContext}: a window of unit time starts with
+ * the first access of a caller, at most the maximum count of requests are allowed within it, and
+ * once the count is exceeded the caller is prohibited for the prohibit time period, or until the
+ * end of the window if there is no prohibit time period. Callers configured with another
+ * algorithm, e.g. a token bucket, are limited by their {@link RateLimiter}. Idle callers are removed by a timing
+ * wheel, which is advanced by the requests themselves, instead of scanning the callers of the
+ * throttle context.
+ * <p>
+ * The caller state is kept in this controller only and is not replicated, hence this controller
+ * is meant for standalone deployments.
+ */
+public class StripedAccessRateController extends AccessRateController {
+
+    private static Log log = LogFactory.getLog(StripedAccessRateController.class.getName());
+
+    private static final long DEFAULT_TICK_DURATION = 1000;
+
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int ALLOWED = 0;
+
+    private static final int DENIED = 1;
+
+    private static final int RETIRED = 2;
+
+    /* Marks the window of a caller which has been removed by the cleanup */
+    private static final Window RETIRED_WINDOW = new Window(0);
+
+    private final ConcurrentHashMap<String, CallerWindow> callers = new ConcurrentHashMap<String, CallerWindow>();
+
+    private final CleanupWheel cleanupWheel;
+
+    public StripedAccessRateController() {
+        this(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param tickDuration duration of a tick of the cleanup wheel in milliseconds
+     * @param wheelSize    number of slots in the cleanup wheel, rounded up to a power of two
+     */
+    StripedAccessRateController(long tickDuration, int wheelSize) {
+        this.cleanupWheel = new CleanupWheel(tickDuration, wheelSize, System.currentTimeMillis());
+    }
+
+    @Override
+    protected AccessInformation controlAccess(ThrottleContext throttleContext, String callerID, int callerType,
+                                              CallerConfiguration configuration, String type,
+                                              AccessInformation accessInformation) throws ThrottleException {
+        if (configuration.getMaximumRequestPerUnitTime() < 0
+                || configuration.getUnitTime() <= 0
+                || configuration.getProhibitTimePeriod() < 0) {
+            throw new ThrottleException("Invalid Throttle Configuration");
+        }
+        long currentTime = System.currentTimeMillis();
+        String key = callerType + ":" + callerID;
+        int result;
+        do {
+            CallerWindow caller = callers.get(key);
+            if (caller == null) {
+                CallerWindow newCaller = new CallerWindow(key);
+                caller = callers.putIfAbsent(key, newCaller);
+                if (caller == null) {
+                    caller = newCaller;
+                }
+            }
+            result = caller.tryAcquire(configuration, currentTime);
+            if (result == RETIRED) {
+                // removed by the cleanup in the meantime, start over with a new caller
+                callers.remove(key, caller);
+            } else {
+                cleanupWheel.schedule(caller, currentTime);
+            }
+        } while (result == RETIRED);
+
+        cleanupWheel.advance(currentTime);
+
+        if (result == DENIED) {
+            log.info(ACCESS_DENIED_TEMPORALLY);
+            accessInformation.setAccessAllowed(false);
+            accessInformation.setFaultReason(ACCESS_DENIED_TEMPORALLY);
+        } else {
+            if (debugOn) {
+                log.debug("Access  from " + type + " " + callerID + " is successful.");
+            }
+            accessInformation.setAccessAllowed(true);
+        }
+        return accessInformation;
+    }
+
+    /**
+     * @return the number of callers with a live window or prohibition
+     */
+    public int getCallerCount() {
+        return callers.size();
+    }
+
+    private void retire(CallerWindow caller, long currentTime) {
+        Window window = caller.window.get();
+        if (window != RETIRED_WINDOW && caller.isIdle(window, currentTime)
+                && caller.window.compareAndSet(window, RETIRED_WINDOW)) {
+            callers.remove(caller.key, caller);
+            if (debugOn) {
+                log.debug("Removed the idle caller " + caller.key);
+            }
+        } else if (caller.window.get() != RETIRED_WINDOW) {
+            cleanupWheel.schedule(caller, currentTime);
+        }
+    }
+
+    /**
+     * A unit time window and the number of requests made within it.
+     */
+    private static final class Window {
+
+        private final long end;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private Window(long end) {
+            this.end = end;
+        }
+    }
+
+    /**
+     * The runtime state of a caller. A new window is installed with a CAS when the current one is
+     * over, so that the requests counted against an old window can never leak into the new one.
+     */
+    private static final class CallerWindow {
+
+        private final String key;
+
+        private final AtomicReference<Window> window = new AtomicReference<Window>();
+
+        private final AtomicLong prohibitedUntil = new AtomicLong();
+
+        private final AtomicReference<RateLimiter> rateLimiter = new AtomicReference<RateLimiter>();
+
+        /* Whether this caller has an entry in the cleanup wheel */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private CallerWindow(String key) {
+            this.key = key;
+        }
+
+        private int tryAcquire(CallerConfiguration configuration, long currentTime) {
+            if (configuration.getAlgorithm() != ThrottleConstants.FIXED_WINDOW_ALGORITHM) {
+                return tryAcquireWithRateLimiter(configuration, currentTime);
+            }
+            long prohibitedTime = prohibitedUntil.get();
+            if (prohibitedTime > currentTime) {
+                return DENIED;
+            }
+            Window current = window.get();
+            if (current == RETIRED_WINDOW) {
+                return RETIRED;
+            }
+            if (prohibitedTime != 0 && prohibitedUntil.compareAndSet(prohibitedTime, 0)) {
+                // prohibition is over, the next access is the same as a first access
+                window.compareAndSet(current, new Window(currentTime + configuration.getUnitTime()));
+                current = window.get();
+            }
+            while (current == null || current.end <= currentTime) {
+                if (current == RETIRED_WINDOW) {
+                    return RETIRED;
+                }
+                Window next = new Window(currentTime + configuration.getUnitTime());
+                if (window.compareAndSet(current, next)) {
+                    current = next;
+                } else {
+                    current = window.get();
+                }
+            }
+            if (current.count.incrementAndGet() <= configuration.getMaximumRequestPerUnitTime()) {
+                return ALLOWED;
+            }
+            long prohibitTime = configuration.getProhibitTimePeriod();
+            if (prohibitTime != 0) {
+                prohibitedUntil.compareAndSet(0, currentTime + prohibitTime);
+            }
+            // without a prohibit time period access is denied until the end of the window
+            return DENIED;
+        }
+
+        private int tryAcquireWithRateLimiter(CallerConfiguration configuration, long currentTime) {
+            RateLimiter limiter = rateLimiter.get();
+            while (limiter == null || !limiter.isCreatedFor(configuration)) {
+                RateLimiter newLimiter = RateLimiter.create(configuration, currentTime);
+                if (rateLimiter.compareAndSet(limiter, newLimiter)) {
+                    limiter = newLimiter;
+                } else {
+                    limiter = rateLimiter.get();
+                }
+            }
+            if (window.get() == RETIRED_WINDOW) {
+                return RETIRED;
+            }
+            boolean canAccess = limiter.canAccess(currentTime);
+            // the request must be counted again if the caller was removed in the meantime
+            if (window.get() == RETIRED_WINDOW) {
+                return RETIRED;
+            }
+            return canAccess ? ALLOWED : DENIED;
+        }
+
+        private long getExpiryTime(Window current, long currentTime) {
+            long end = current == null ? 0 : current.end;
+            RateLimiter limiter = rateLimiter.get();
+            if (limiter != null) {
+                end = Math.max(end, limiter.getExpiryTime(currentTime));
+            }
+            return Math.max(end, prohibitedUntil.get());
+        }
+
+        private boolean isIdle(Window current, long currentTime) {
+            return getExpiryTime(current, currentTime) <= currentTime;
+        }
+    }
+
+    /**
+     * A hashed timing wheel holding at most one entry per caller, placed in the slot of the
+     * caller's expiry time. Advancing the wheel visits the slots of the ticks passed since the
+     * last advance; callers which are still live when visited, e.g. because their window was
+     * renewed or their expiry is more than a wheel round away, are placed back in the wheel.
+     */
+    private final class CleanupWheel {
+
+        private final long tickDuration;
+
+        private final ConcurrentLinkedQueue<CallerWindow>[] slots;
+
+        private final int mask;
+
+        private final AtomicLong lastTick;
+
+        @SuppressWarnings("unchecked")
+        private CleanupWheel(long tickDuration, int wheelSize, long currentTime) {
+            int size = 1;
+            while (size < wheelSize) {
+                size <<= 1;
+            }
+            this.tickDuration = tickDuration;
+            this.slots = new ConcurrentLinkedQueue[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = new ConcurrentLinkedQueue<CallerWindow>();
+            }
+            this.mask = size - 1;
+            this.lastTick = new AtomicLong(currentTime / tickDuration);
+        }
+
+        private void schedule(CallerWindow caller, long currentTime) {
+            if (caller.scheduled.get() || !caller.scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            long tick = Math.max(caller.getExpiryTime(caller.window.get(), currentTime) / tickDuration,
+                    lastTick.get() + 1);
+            slots[(int) (tick & mask)].add(caller);
+        }
+
+        private void advance(long currentTime) {
+            long currentTick = currentTime / tickDuration;
+            long last = lastTick.get();
+            if (currentTick <= last || !lastTick.compareAndSet(last, currentTick)) {
+                return;
+            }
+            long from = Math.max(last + 1, currentTick - mask);
+            for (long tick = from; tick <= currentTick; tick++) {
+                ConcurrentLinkedQueue<CallerWindow> slot = slots[(int) (tick & mask)];
+                // only visit the entries present now, live callers may be placed back in this slot
+                int pending = slot.size();
+                CallerWindow caller;
+                while (pending-- > 0 && (caller = slot.poll()) != null) {
+                    caller.scheduled.set(false);
+                    retire(caller, currentTime);
+                }
+            }
+        }
+    }
+}
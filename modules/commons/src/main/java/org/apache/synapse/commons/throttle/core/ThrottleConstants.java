@@ -95,6 +95,10 @@ public final class ThrottleConstants {
 
     public static final String PROHIBIT_TIME_PERIOD_PARAMETER_NAME = "ProhibitTimePeriod";
 
+    public static final String ALGORITHM_PARAMETER_NAME = "Algorithm";
+
+    public static final String BURST_CAPACITY_PARAMETER_NAME = "BurstCapacity";
+
     public static final String ID_PARAMETER_NAME = "ID";
 
     public static final String MAXIMUM_CONCURRENT_ACCESS_PARAMETER_NAME = "MaximumConcurrentAccess";
@@ -113,6 +117,20 @@ public final class ThrottleConstants {
 
     public static final int ACCESS_ALLOWED = 2;
 
+    /* Rate limiting algorithms of a controlled caller */
+
+    public static final int FIXED_WINDOW_ALGORITHM = 0;
+
+    public static final int TOKEN_BUCKET_ALGORITHM = 1;
+
+    public static final int SLIDING_WINDOW_ALGORITHM = 2;
+
+    public static final String FIXED_WINDOW_ALGORITHM_NAME = "FixedWindow";
+
+    public static final String TOKEN_BUCKET_ALGORITHM_NAME = "TokenBucket";
+
+    public static final String SLIDING_WINDOW_ALGORITHM_NAME = "SlidingWindow";
+
     /* The default clean up time indicates how often cleaning up process should execute  */
 
     public static final long DEFAULT_THROTTLE_CLEAN_PERIOD = 5 * 1000 * 60;
@@ -183,4 +201,13 @@ public final class ThrottleConstants {
     public static final String WINDOW_REPLICATOR_POOL_SIZE = "throttlingWindowReplicator.pool.size";
     public static final String WINDOW_REPLICATOR_FREQUENCY = "throttlingWindowReplicator.replication.frequency";
 
+    /**
+     * The property used to select the access rate controller used by the throttle mediator
+     */
+    public static final String ACCESS_RATE_CONTROLLER = "synapse.throttle.access.rate.controller";
+
+    public static final String DEFAULT_ACCESS_RATE_CONTROLLER = "default";
+
+    public static final String STRIPED_ACCESS_RATE_CONTROLLER = "striped";
+
 }
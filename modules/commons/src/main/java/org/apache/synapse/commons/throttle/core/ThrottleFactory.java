@@ -510,6 +510,26 @@ public class ThrottleFactory {
                                                     " number for prohibit time ",
                                             ignored);
                                 }
+                            } else if (name.equals(
+                                    ThrottleConstants.
+                                            ALGORITHM_PARAMETER_NAME)) {
+                                int algorithm = RateLimiter.getAlgorithm(value.trim());
+                                if (algorithm < 0) {
+                                    handleException("Undefined throttling algorithm " +
+                                            value + " - invalid throttle policy configuration");
+                                }
+                                callerConfiguration.setAlgorithm(algorithm);
+                            } else if (name.equals(
+                                    ThrottleConstants.
+                                            BURST_CAPACITY_PARAMETER_NAME)) {
+                                try {
+                                    callerConfiguration.setBurstCapacity(
+                                            Integer.parseInt(value.trim()));
+                                } catch (NumberFormatException ignored) {
+                                    log.error("Error occurred - Invalid" +
+                                                    " number for burst capacity ",
+                                            ignored);
+                                }
                             } else {
                                 handleException("Undefined Policy" +
                                         " property for Throttle Policy");
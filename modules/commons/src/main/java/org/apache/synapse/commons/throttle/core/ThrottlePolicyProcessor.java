@@ -252,6 +252,27 @@ public class ThrottlePolicyProcessor {
                                                                     " number for prohibit time ",
                                                             ignored);
                                                 }
+                                            } else if (n.equals(
+                                                    ThrottleConstants.
+                                                            ALGORITHM_PARAMETER_NAME)) {
+                                                int algorithm = RateLimiter.getAlgorithm(v.trim());
+                                                if (algorithm < 0) {
+                                                    handleException("Undefined throttling " +
+                                                            "algorithm " + v + " - invalid " +
+                                                            "throttle policy configuration");
+                                                }
+                                                cn.setAlgorithm(algorithm);
+                                            } else if (n.equals(
+                                                    ThrottleConstants.
+                                                            BURST_CAPACITY_PARAMETER_NAME)) {
+                                                try {
+                                                    cn.setBurstCapacity(
+                                                            Integer.parseInt(v.trim()));
+                                                } catch (NumberFormatException ignored) {
+                                                    log.error("Error occurred - Invalid" +
+                                                                    " number for burst capacity ",
+                                                            ignored);
+                                                }
                                             } else {
                                                 handleException("Undefined Policy" +
                                                         " property for Throttle Policy");
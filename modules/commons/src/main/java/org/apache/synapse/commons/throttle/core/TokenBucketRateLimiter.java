@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.throttle.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket which is refilled with Maximum Count tokens per Unit Time and holds up to the
+ * Burst Capacity of tokens. A caller may send a burst of requests up to the capacity, after
+ * which its requests are allowed at the refill rate, without the boundary effects of a fixed
+ * time window.
+ * <p>
+ * The bucket is kept as a theoretical arrival time, as in the generic cell rate algorithm: each
+ * allowed request moves the time forward by the refill interval of a token, and a request is
+ * allowed as long as that time stays within the capacity of the bucket ahead of the current
+ * time. This allows the whole bucket to be updated with a single compare and set.
+ */
+public class TokenBucketRateLimiter extends RateLimiter {
+
+    /* The time from which the arrival times are measured */
+    private final long origin;
+
+    /* The time to refill a token, in nanoseconds */
+    private final long interval;
+
+    /* How far the arrival time may run ahead of the current time, in nanoseconds */
+    private final long tolerance;
+
+    /* The theoretical arrival time of the next request, in nanoseconds from the origin */
+    private final AtomicLong arrivalTime = new AtomicLong();
+
+    public TokenBucketRateLimiter(CallerConfiguration configuration, long currentTime) {
+        super(configuration);
+        this.origin = currentTime;
+        int maximumRequest = Math.max(configuration.getMaximumRequestPerUnitTime(), 1);
+        int capacity = Math.max(configuration.getBurstCapacity(), 1);
+        this.interval = Math.max(TimeUnit.MILLISECONDS.toNanos(configuration.getUnitTime()) / maximumRequest, 1);
+        this.tolerance = interval > Long.MAX_VALUE / 2 / capacity ? Long.MAX_VALUE / 2 : interval * capacity;
+    }
+
+    @Override
+    protected boolean tryAcquire(long currentTime) {
+        long now = TimeUnit.MILLISECONDS.toNanos(Math.max(currentTime - origin, 0));
+        while (true) {
+            long current = arrivalTime.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (arrivalTime.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    protected long getIdleTime(long currentTime) {
+        // the bucket is full again once the arrival time has been reached
+        return origin + TimeUnit.NANOSECONDS.toMillis(arrivalTime.get()) + 1;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.commons.executors;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VirtualThreadExecutorTest extends TestCase {
+
+    public void testConcurrencyLimit() throws Exception {
+        final VirtualThreadExecutor executor = new VirtualThreadExecutor("test-worker-", 4);
+        final CountDownLatch started = new CountDownLatch(4);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(20);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    int current = running.incrementAndGet();
+                    int max;
+                    while ((max = maxRunning.get()) < current && !maxRunning.compareAndSet(max, current)) {
+                        // retry
+                    }
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // the tasks beyond the limit wait in the pending queue
+        assertEquals(4, executor.getActiveCount());
+        assertEquals(16, executor.getPendingCount());
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(4, maxRunning.get());
+        assertEquals(4, executor.getPeakActiveCount());
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(20, executor.getCompletedTaskCount());
+        assertEquals(0, executor.getPendingCount());
+    }
+
+    public void testFailingTaskReleasesPermit() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-worker-", 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        });
+        executor.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(2, executor.getCompletedTaskCount());
+    }
+
+    public void testShutdown() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-worker-", 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        };
+        executor.execute(blocking);
+        executor.execute(blocking);
+        List<Runnable> pending = executor.shutdownNow();
+        assertEquals(1, pending.size());
+        try {
+            executor.execute(blocking);
+            fail("Tasks must be rejected after a shutdown");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(1, executor.getRejectedTaskCount());
+        }
+        assertFalse(executor.isTerminated());
+        release.countDown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
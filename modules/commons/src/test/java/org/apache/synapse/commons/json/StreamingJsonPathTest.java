@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.commons.json;
+
+import com.google.gson.JsonElement;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class StreamingJsonPathTest extends TestCase {
+
+    private static final String PAYLOAD = "{\"header\":{\"id\":\"A-1\",\"count\":1.50e2},"
+            + "\"store\":{\"book\":["
+            + "{\"title\":\"Sayings of the Century\",\"price\":8.95},"
+            + "{\"title\":\"Sword of Honour\",\"price\":12.99,\"isbn\":\"0-553\"},"
+            + "{\"title\":\"Moby Dick\",\"price\":8.99,\"isbn\":null}],"
+            + "\"bicycle\":{\"color\":\"red\",\"price\":19.95}}}";
+
+    public void testCompile() {
+        assertNotNull(StreamingJsonPath.compile("$.header.id"));
+        assertNotNull(StreamingJsonPath.compile("$['store']['book'][1]"));
+        assertNotNull(StreamingJsonPath.compile("$.store.book[?(@.price < 10)].title"));
+        assertNull(StreamingJsonPath.compile("$"));
+        assertNull(StreamingJsonPath.compile("$..price"));
+        assertNull(StreamingJsonPath.compile("$.store.book[-1]"));
+        assertNull(StreamingJsonPath.compile("$.store.book[0:2]"));
+        assertNull(StreamingJsonPath.compile("$.store.book.length()"));
+        assertNull(StreamingJsonPath.compile("$.store.book[?(@.title =~ /.*Dick/)]"));
+    }
+
+    public void testDefinitePath() throws Exception {
+        assertEquals("A-1", evaluate("$.header.id").getAsString());
+        assertEquals("1.50e2", evaluate("$.header.count").getAsString());
+        assertEquals("Sword of Honour", evaluate("$.store.book[1].title").getAsString());
+        assertEquals("{\"color\":\"red\",\"price\":19.95}", evaluate("$['store']['bicycle']").toString());
+        assertTrue(evaluate("$.store.book[2].isbn").isJsonNull());
+        assertNull(evaluate("$.store.book[5].title"));
+        assertNull(evaluate("$.header.id.value"));
+    }
+
+    public void testStopsAtDefiniteMatch() throws Exception {
+        InputStream stream = new ByteArrayInputStream(("{\"header\":{\"id\":7},\"body\":" + "[ not json").getBytes());
+        assertEquals("7", StreamingJsonPath.compile("$.header.id").evaluate(stream).getAsString());
+    }
+
+    public void testIndefinitePath() throws Exception {
+        assertEquals("[\"Sayings of the Century\",\"Sword of Honour\",\"Moby Dick\"]",
+                evaluate("$.store.book[*].title").toString());
+        assertEquals("[\"0-553\",null]", evaluate("$.store.book[*].isbn").toString());
+        assertEquals("[\"red\",19.95]", evaluate("$.store.bicycle.*").toString());
+        assertEquals("[\"Sayings of the Century\",\"Moby Dick\"]",
+                evaluate("$.store.book[?(@.price < 10)].title").toString());
+        assertEquals("[\"Sword of Honour\"]", evaluate("$.store.book[?(@.isbn == '0-553')].title").toString());
+        assertEquals("[\"Sword of Honour\",\"Moby Dick\"]", evaluate("$.store.book[?(@.isbn)].title").toString());
+        assertEquals("[]", evaluate("$.store.book[?(@.price > 100)]").toString());
+    }
+
+    public void testUnsupportedPayload() throws Exception {
+        try {
+            StreamingJsonPath.compile("$.matrix[0]").evaluate(
+                    new ByteArrayInputStream("{\"matrix\":[[1,2],[3,4]]}".getBytes()));
+            fail("Nested arrays must be reported as not supported");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            evaluate("$.store.book[?(@.price != 'cheap')]");
+            fail("Comparison of different value types must be reported as not supported");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private JsonElement evaluate(String path) throws IOException {
+        StreamingJsonPath streamingJsonPath = StreamingJsonPath.compile(path);
+        assertNotNull(streamingJsonPath);
+        return streamingJsonPath.evaluate(new ByteArrayInputStream(PAYLOAD.getBytes()));
+    }
+}
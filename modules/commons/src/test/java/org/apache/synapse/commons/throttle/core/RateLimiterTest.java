@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.commons.throttle.core;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.neethi.PolicyEngine;
+import org.apache.synapse.commons.throttle.core.impl.ipbase.IPBaseCallerConfiguration;
+
+public class RateLimiterTest extends TestCase {
+
+    public void testTokenBucket() {
+        CallerConfiguration configuration = createConfiguration(ThrottleConstants.TOKEN_BUCKET_ALGORITHM, 10, 1000, 5, 0);
+        RateLimiter limiter = RateLimiter.create(configuration, 0);
+        assertTrue(limiter instanceof TokenBucketRateLimiter);
+        // a burst up to the capacity
+        assertEquals(5, acquire(limiter, 0, 10));
+        // then one token every 100 ms
+        assertEquals(1, acquire(limiter, 100, 10));
+        assertEquals(0, acquire(limiter, 150, 10));
+        // the bucket never holds more than its capacity
+        assertEquals(5, acquire(limiter, 10000, 10));
+    }
+
+    public void testTokenBucketIdleTime() {
+        CallerConfiguration configuration = createConfiguration(ThrottleConstants.TOKEN_BUCKET_ALGORITHM, 10, 1000, 0, 0);
+        RateLimiter limiter = RateLimiter.create(configuration, 0);
+        assertEquals(5, acquire(limiter, 0, 5));
+        assertFalse(limiter.isIdle(400));
+        assertTrue(limiter.isIdle(600));
+    }
+
+    public void testSlidingWindow() {
+        CallerConfiguration configuration = createConfiguration(ThrottleConstants.SLIDING_WINDOW_ALGORITHM, 10, 1000, 0, 0);
+        RateLimiter limiter = RateLimiter.create(configuration, 0);
+        assertTrue(limiter instanceof SlidingWindowRateLimiter);
+        assertEquals(10, acquire(limiter, 900, 20));
+        // unlike a fixed window, no new burst is allowed right after the boundary
+        assertEquals(0, acquire(limiter, 1000, 20));
+        // half of the previous window is still within the sliding window
+        assertEquals(5, acquire(limiter, 1500, 20));
+        assertFalse(limiter.isIdle(2500));
+        assertTrue(limiter.isIdle(3000));
+    }
+
+    public void testProhibitTimePeriod() {
+        CallerConfiguration configuration = createConfiguration(ThrottleConstants.TOKEN_BUCKET_ALGORITHM, 10, 1000, 1, 2000);
+        RateLimiter limiter = RateLimiter.create(configuration, 0);
+        assertEquals(1, acquire(limiter, 0, 2));
+        assertEquals(0, acquire(limiter, 1000, 2));
+        assertEquals(1, acquire(limiter, 2000, 2));
+    }
+
+    public void testConfigurationChange() {
+        CallerConfiguration configuration = createConfiguration(ThrottleConstants.SLIDING_WINDOW_ALGORITHM, 10, 1000, 0, 0);
+        RateLimiter limiter = RateLimiter.create(configuration, 0);
+        assertTrue(limiter.isCreatedFor(configuration));
+        configuration.setMaximumRequestPerUnitTime(20);
+        assertFalse(limiter.isCreatedFor(configuration));
+        configuration.setAlgorithm(ThrottleConstants.FIXED_WINDOW_ALGORITHM);
+        assertNull(RateLimiter.create(configuration, 0));
+    }
+
+    public void testPolicyAlgorithm() throws Exception {
+        String policy = "<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2004/09/policy\"" +
+                " xmlns:throttle=\"http://www.wso2.org/products/wso2commons/throttle\">" +
+                "<throttle:ModuleThrottleAssertion><wsp:Policy>" +
+                "<throttle:ID throttle:type=\"IP\">other</throttle:ID>" +
+                "<wsp:Policy><throttle:Control><wsp:Policy>" +
+                "<throttle:MaximumCount>10</throttle:MaximumCount>" +
+                "<throttle:UnitTime>60000</throttle:UnitTime>" +
+                "<throttle:Algorithm>TokenBucket</throttle:Algorithm>" +
+                "<throttle:BurstCapacity>2</throttle:BurstCapacity>" +
+                "</wsp:Policy></throttle:Control></wsp:Policy>" +
+                "</wsp:Policy></throttle:ModuleThrottleAssertion></wsp:Policy>";
+        Throttle throttle = ThrottleFactory.createModuleThrottle(PolicyEngine.getPolicy(AXIOMUtil.stringToOM(policy)));
+        ThrottleContext context = throttle.getThrottleContext(ThrottleConstants.IP_BASED_THROTTLE_KEY);
+        CallerConfiguration configuration = context.getThrottleConfiguration().getCallerConfiguration("10.0.0.1");
+        assertEquals(ThrottleConstants.TOKEN_BUCKET_ALGORITHM, configuration.getAlgorithm());
+        assertEquals(2, configuration.getBurstCapacity());
+
+        long denied = RateLimiterStatistics.getInstance().getDeniedCount(ThrottleConstants.IP_BASE);
+        AccessRateController controller = new AccessRateController();
+        assertTrue(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        assertTrue(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        assertFalse(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        assertTrue(RateLimiterStatistics.getInstance().getDeniedCount(ThrottleConstants.IP_BASE) > denied);
+    }
+
+    private static int acquire(RateLimiter limiter, long currentTime, int requests) {
+        int allowed = 0;
+        for (int i = 0; i < requests; i++) {
+            if (limiter.canAccess(currentTime)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private static CallerConfiguration createConfiguration(int algorithm, int maximumRequest, long unitTime,
+                                                           int burstCapacity, long prohibitTimePeriod) {
+        CallerConfiguration configuration =
+                new IPBaseCallerConfiguration(unitTime, maximumRequest, prohibitTimePeriod, "other");
+        configuration.setAlgorithm(algorithm);
+        configuration.setBurstCapacity(burstCapacity);
+        return configuration;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.commons.throttle.core;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.neethi.PolicyEngine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StripedAccessRateControllerTest extends TestCase {
+
+    public void testMaximumCountPerUnitTime() throws Exception {
+        ThrottleContext context = createContext(3, 60000, 0);
+        StripedAccessRateController controller = new StripedAccessRateController();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        }
+        AccessInformation denied = controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE);
+        assertFalse(denied.isAccessAllowed());
+        assertNotNull(denied.getFaultReason());
+        // other callers have their own windows
+        assertTrue(controller.canAccess(context, "10.0.0.2", ThrottleConstants.IP_BASE).isAccessAllowed());
+    }
+
+    public void testNewWindowAfterUnitTime() throws Exception {
+        ThrottleContext context = createContext(1, 100, 0);
+        StripedAccessRateController controller = new StripedAccessRateController();
+        assertTrue(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        assertFalse(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        Thread.sleep(150);
+        assertTrue(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+    }
+
+    public void testProhibitTimePeriod() throws Exception {
+        ThrottleContext context = createContext(1, 100, 400);
+        StripedAccessRateController controller = new StripedAccessRateController();
+        assertTrue(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        assertFalse(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        Thread.sleep(150);
+        // the window is over but the caller is still prohibited
+        assertFalse(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+        Thread.sleep(350);
+        assertTrue(controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE).isAccessAllowed());
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final ThrottleContext context = createContext(50, 60000, 0);
+        final StripedAccessRateController controller = new StripedAccessRateController();
+        final AtomicInteger allowed = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executorService.submit(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 100; j++) {
+                            if (controller.canAccess(context, "10.0.0.1", ThrottleConstants.IP_BASE)
+                                    .isAccessAllowed()) {
+                                allowed.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        allowed.set(-1000);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(20, TimeUnit.SECONDS));
+        assertEquals(50, allowed.get());
+    }
+
+    public void testIdleCallersAreRemoved() throws Exception {
+        ThrottleContext context = createContext(5, 50, 0);
+        StripedAccessRateController controller = new StripedAccessRateController(10, 8);
+        for (int i = 0; i < 10; i++) {
+            controller.canAccess(context, "10.0.0." + i, ThrottleConstants.IP_BASE);
+        }
+        assertEquals(10, controller.getCallerCount());
+        Thread.sleep(200);
+        controller.canAccess(context, "10.0.1.1", ThrottleConstants.IP_BASE);
+        assertEquals(1, controller.getCallerCount());
+    }
+
+    private ThrottleContext createContext(int maximumCount, long unitTime, long prohibitTimePeriod)
+            throws Exception {
+        String policy = "<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2004/09/policy\"" +
+                " xmlns:throttle=\"http://www.wso2.org/products/wso2commons/throttle\">" +
+                "<throttle:ModuleThrottleAssertion><wsp:Policy>" +
+                "<throttle:ID throttle:type=\"IP\">other</throttle:ID>" +
+                "<wsp:Policy><throttle:Control><wsp:Policy>" +
+                "<throttle:MaximumCount>" + maximumCount + "</throttle:MaximumCount>" +
+                "<throttle:UnitTime>" + unitTime + "</throttle:UnitTime>" +
+                "<throttle:ProhibitTimePeriod wsp:Optional=\"true\">" + prohibitTimePeriod +
+                "</throttle:ProhibitTimePeriod>" +
+                "</wsp:Policy></throttle:Control></wsp:Policy>" +
+                "</wsp:Policy></throttle:ModuleThrottleAssertion></wsp:Policy>";
+        Throttle throttle = ThrottleFactory.createModuleThrottle(PolicyEngine.getPolicy(AXIOMUtil.stringToOM(policy)));
+        return throttle.getThrottleContext(ThrottleConstants.IP_BASED_THROTTLE_KEY);
+    }
+}
@@ -476,6 +476,9 @@ public class Axis2SynapseController implements SynapseController {
                 handleFatal("Error while shutting down the Synapse environment", e);
             }
             synapseEnvironment.setInitialized(false);
+            if (synapseEnvironment instanceof Axis2SynapseEnvironment) {
+                ((Axis2SynapseEnvironment) synapseEnvironment).shutdownWorkerPool();
+            }
         }
     }
 
@@ -532,6 +532,12 @@ public final class SynapseConstants {
     //Streaming Json Path
     public static final String STREAMING_JSONPATH_PROCESSING = "synapse.streaming.jsonpath.enabled";
 
+    //Maximum number of compiled dynamic Json Path expressions to be cached
+    public static final String JSONPATH_CACHE_SIZE = "synapse.jsonpath.cache.size";
+
+    //Evaluate supported Json Path expressions over the payload stream without building the payload
+    public static final String STREAMING_JSONPATH_EVALUATION = "synapse.jsonpath.streaming.evaluation.enabled";
+
     //Enable message building when doing failover
     public static final String BUILD_MESSAGE_ON_FAILOVER = "build.message.on.failover.enable";
 
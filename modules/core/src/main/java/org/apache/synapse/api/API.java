@@ -39,6 +39,7 @@ import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.api.dispatch.DispatcherHelper;
 import org.apache.synapse.api.dispatch.RESTDispatcher;
+import org.apache.synapse.api.dispatch.ResourceDispatchIndex;
 import org.apache.synapse.api.version.DefaultStrategy;
 import org.apache.synapse.api.version.URLBasedVersionStrategy;
 import org.apache.synapse.api.version.VersionStrategy;
@@ -68,6 +69,11 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
     private String context;
     private Map<String,Resource> resources = new LinkedHashMap<String,Resource>();
     private List<Handler> handlers = new ArrayList<Handler>();
+
+    /**
+     * Routing index over the resources, built lazily and discarded whenever a resource is added
+     */
+    private volatile ResourceDispatchIndex resourceDispatchIndex;
     private String swaggerResourcePath;
 
     /**
@@ -226,6 +232,7 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
             }
         }
         resources.put(resource.getName(), resource);
+        resourceDispatchIndex = null;
     }
 
     private boolean resourceMatches(Resource r1, Resource r2) {
@@ -430,11 +437,17 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
         }
 
         Set<Resource> acceptableResources = new LinkedHashSet<Resource>();
-        for (Resource r : resources.values()) {
+        for (Resource r : getResourceDispatchIndex().getCandidateResources(subPath)) {
             if (isBound(r, synCtx) && r.canProcess(synCtx)) {
                 acceptableResources.add(r);
             }
         }
+        if (acceptableResources.isEmpty() && hasAcceptableResource(synCtx)) {
+            // Resources outside the candidate set cannot match the request path, so this is
+            // the same outcome as running the dispatchers over all the acceptable resources.
+            handleResourceNotFound(synCtx);
+            return;
+        }
 
         boolean processed = false;
         if (!acceptableResources.isEmpty()) {
@@ -493,6 +506,24 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
         }
     }
 
+    private ResourceDispatchIndex getResourceDispatchIndex() {
+        ResourceDispatchIndex dispatchIndex = resourceDispatchIndex;
+        if (dispatchIndex == null) {
+            dispatchIndex = new ResourceDispatchIndex(resources.values());
+            resourceDispatchIndex = dispatchIndex;
+        }
+        return dispatchIndex;
+    }
+
+    private boolean hasAcceptableResource(MessageContext synCtx) {
+        for (Resource r : resources.values()) {
+            if (isBound(r, synCtx) && r.canProcess(synCtx)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Checks whether the provided resource is capable of processing the message from the provided message context.
      * The resource becomes capable to do this when the it contains either the name of the api caller,
@@ -25,6 +25,8 @@ import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.aspects.flow.statistics.collectors.CloseEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.OpenEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.api.dispatch.ApiDispatchIndex;
 import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.api.version.ContextVersionStrategy;
 import org.apache.synapse.api.version.DefaultStrategy;
@@ -32,6 +34,7 @@ import org.apache.synapse.api.version.URLBasedVersionStrategy;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -82,6 +85,28 @@ public abstract class AbstractApiHandler {
         return false;
     }
 
+    /**
+     * Get the APIs bound to the given inbound which may be able to process the message. For
+     * requests, the API dispatch index of the configuration is used to narrow down the APIs to
+     * those whose context matches the request path, preserving the order in which they would
+     * have been evaluated otherwise.
+     *
+     * @param synCtx MessageContext of the message to be dispatched
+     * @param bindTo Name of inbound/binds-to
+     * @return APIs to be evaluated for the given message
+     */
+    protected Collection<API> getCandidateAPIs(MessageContext synCtx, String bindTo) {
+        SynapseConfiguration synapseConfig = synCtx.getEnvironment().getSynapseConfiguration();
+        if (synCtx.isResponse() || synCtx.getProperty(RESTConstants.IS_PROMETHEUS_ENGAGED) != null) {
+            return synapseConfig.getAPIs(bindTo);
+        }
+        ApiDispatchIndex dispatchIndex = synapseConfig.getApiDispatchIndex(bindTo);
+        if (dispatchIndex == null || dispatchIndex.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return dispatchIndex.getCandidateAPIs(ApiUtils.getFullRequestPath(synCtx));
+    }
+
     protected void apiProcess(MessageContext synCtx, API api) {
         Integer statisticReportingIndex = 0;
         if (RuntimeStatisticCollector.isStatisticsEnabled()) {
@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.api.dispatch;
+
+import org.apache.synapse.api.API;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Routing index over the contexts of the APIs bound to a particular endpoint. APIs are stored
+ * in a path segment trie keyed by their context, so locating the APIs whose context is a
+ * prefix of a request path takes time proportional to the length of the path rather than the
+ * number of deployed APIs. The index is updated incrementally as APIs are added to or removed
+ * from the {@link org.apache.synapse.config.SynapseConfiguration}.
+ * <p>
+ * Candidates are returned longest context first, which is the same order in which the APIs
+ * are kept by the configuration, so dispatching over the candidates yields the same API as
+ * dispatching over the complete API collection.
+ */
+public class ApiDispatchIndex {
+
+    private final SegmentTrie<API> trie = new SegmentTrie<API>();
+
+    /**
+     * APIs with a context which cannot be broken into path segments
+     */
+    private final List<API> unindexedAPIs = new CopyOnWriteArrayList<API>();
+
+    private static final Comparator<API> LONGEST_CONTEXT_FIRST = new Comparator<API>() {
+        public int compare(API api1, API api2) {
+            return api2.getContext().length() - api1.getContext().length();
+        }
+    };
+
+    public synchronized void addAPI(API api) {
+        String context = api.getContext();
+        if (isIndexable(context)) {
+            trie.insert(SegmentTrie.splitPath(context), api);
+        } else {
+            unindexedAPIs.add(api);
+        }
+    }
+
+    public synchronized void removeAPI(API api) {
+        String context = api.getContext();
+        if (isIndexable(context)) {
+            trie.remove(SegmentTrie.splitPath(context), api);
+        } else {
+            unindexedAPIs.remove(api);
+        }
+    }
+
+    public boolean isEmpty() {
+        return trie.isEmpty() && unindexedAPIs.isEmpty();
+    }
+
+    /**
+     * Find the APIs whose context may match the given request path.
+     *
+     * @param path full request path
+     * @return candidate APIs, longest context first
+     */
+    public List<API> getCandidateAPIs(String path) {
+        List<List<API>> matches = trie.collect(SegmentTrie.splitPath(path), false);
+        List<API> candidates = new ArrayList<API>();
+        for (int i = matches.size() - 1; i >= 0; i--) {
+            candidates.addAll(matches.get(i));
+        }
+        if (!unindexedAPIs.isEmpty()) {
+            candidates.addAll(unindexedAPIs);
+            Collections.sort(candidates, LONGEST_CONTEXT_FIRST);
+        }
+        return candidates;
+    }
+
+    private boolean isIndexable(String context) {
+        return context.indexOf('?') == -1 && context.indexOf('#') == -1;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.api.dispatch;
+
+import org.apache.synapse.api.Resource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precompiled routing index over the resources of an API. Resources dispatched through URI
+ * templates are indexed by the leading path segments of their templates, where a segment is
+ * either a literal or a simple "{var}" expression, and every other resource (URL mappings,
+ * default resources and templates which cannot be indexed) is returned as a candidate for all
+ * requests. A lookup therefore returns a superset of the resources which could match a given
+ * sub request path, in the order the resources were defined in the API, and the regular
+ * {@link RESTDispatcher} chain is run over that much smaller set.
+ */
+public class ResourceDispatchIndex {
+
+    private static final String[] OPERATORS = new String[] { "+", ".", "/", ";", "?", "&", "#" };
+
+    private final SegmentTrie<Resource> trie = new SegmentTrie<Resource>();
+
+    private final List<Resource> unindexedResources = new ArrayList<Resource>();
+
+    private final Map<Resource, Integer> order = new IdentityHashMap<Resource, Integer>();
+
+    private final Comparator<Resource> definitionOrder = new Comparator<Resource>() {
+        public int compare(Resource r1, Resource r2) {
+            return order.get(r1) - order.get(r2);
+        }
+    };
+
+    public ResourceDispatchIndex(Collection<Resource> resources) {
+        int position = 0;
+        for (Resource resource : resources) {
+            order.put(resource, position++);
+            DispatcherHelper helper = resource.getDispatcherHelper();
+            List<String> segments = null;
+            if (helper instanceof URITemplateHelper) {
+                segments = getTemplateSegments(helper.getString());
+            }
+            if (segments != null) {
+                trie.insert(segments, resource);
+            } else {
+                unindexedResources.add(resource);
+            }
+        }
+    }
+
+    /**
+     * Find the resources which may be able to serve the given sub request path.
+     *
+     * @param subRequestPath request path relative to the API context
+     * @return candidate resources in their definition order
+     */
+    public List<Resource> getCandidateResources(String subRequestPath) {
+        List<List<Resource>> matches = trie.collect(SegmentTrie.splitPath(subRequestPath), true);
+        if (matches.isEmpty()) {
+            return Collections.unmodifiableList(unindexedResources);
+        }
+        List<Resource> candidates = new ArrayList<Resource>(unindexedResources);
+        for (List<Resource> resources : matches) {
+            candidates.addAll(resources);
+        }
+        Collections.sort(candidates, definitionOrder);
+        return candidates;
+    }
+
+    /**
+     * Break a URI template into indexable path segments. Only the leading segments which are
+     * plain literals or a single simple string expression are returned, since a template can
+     * only match a request whose path starts with those literal segments. Returns null if the
+     * template does not start with '/' and hence cannot be indexed at all.
+     *
+     * @param template URI template string
+     * @return list of indexable segments, simple expressions being denoted as wildcards
+     */
+    static List<String> getTemplateSegments(String template) {
+        if (!"/".equals(template) && template.endsWith("/")) {
+            // same normalization as done by the URITemplate itself
+            template = template.substring(0, template.length() - 1);
+        }
+        if (!template.startsWith("/")) {
+            return null;
+        }
+
+        List<String> segments = new ArrayList<String>();
+        int start = 1;
+        int length = template.length();
+        while (start <= length) {
+            int end = template.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+            String segment = template.substring(start, end);
+            int terminator = indexOfPathTerminator(segment);
+            if (terminator != -1) {
+                // a literal followed by a query or fragment still completes the segment
+                String literal = segment.substring(0, terminator);
+                if (isLiteral(literal)) {
+                    segments.add(literal);
+                }
+                break;
+            }
+            if (isLiteral(segment)) {
+                segments.add(segment);
+            } else if (isSimpleExpression(segment)) {
+                segments.add(SegmentTrie.WILDCARD_SEGMENT);
+            } else {
+                break;
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static int indexOfPathTerminator(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char ch = segment.charAt(i);
+            if (ch == '{') {
+                return -1;
+            } else if (ch == '?' || ch == '#') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLiteral(String segment) {
+        return segment.indexOf('{') == -1 && segment.indexOf('}') == -1 && segment.indexOf('*') == -1;
+    }
+
+    private static boolean isSimpleExpression(String segment) {
+        if (segment.length() < 3 || segment.charAt(0) != '{' ||
+                segment.indexOf('}') != segment.length() - 1 || segment.indexOf('{', 1) != -1) {
+            return false;
+        }
+        for (String operator : OPERATORS) {
+            if (segment.startsWith(operator, 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.api.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A trie keyed by URL path segments. Each node may hold any number of values and may have
+ * literal children as well as a single wildcard child which matches any one segment.
+ * Lookups are lock free and may run concurrently with modifications, which are expected
+ * to be serialized by the owner of the trie.
+ *
+ * @param <T> type of the values stored in the trie
+ */
+class SegmentTrie<T> {
+
+    /**
+     * Segment key used to denote a path segment which matches any single request segment.
+     */
+    static final String WILDCARD_SEGMENT = "{}";
+
+    private final Node<T> root = new Node<T>();
+
+    void insert(List<String> segments, T value) {
+        Node<T> node = root;
+        for (String segment : segments) {
+            node = node.getOrCreateChild(segment);
+        }
+        node.values.add(value);
+    }
+
+    boolean remove(List<String> segments, T value) {
+        return remove(root, segments, 0, value);
+    }
+
+    private boolean remove(Node<T> node, List<String> segments, int index, T value) {
+        if (index == segments.size()) {
+            return node.values.remove(value);
+        }
+        String segment = segments.get(index);
+        Node<T> child = node.getChild(segment);
+        if (child == null) {
+            return false;
+        }
+        boolean removed = remove(child, segments, index + 1, value);
+        if (removed && child.isEmpty()) {
+            node.removeChild(segment);
+        }
+        return removed;
+    }
+
+    /**
+     * Collects the nodes visited while walking the given request segments, starting from
+     * the root. Nodes are returned in the order they were visited, so for a walk over literal
+     * segments only, the deepest match is the last element of the list.
+     *
+     * @param segments request path segments
+     * @param followWildcards whether wildcard children should be followed
+     * @return list of value lists of the visited nodes, which have at least one value
+     */
+    List<List<T>> collect(List<String> segments, boolean followWildcards) {
+        List<List<T>> result = new ArrayList<List<T>>();
+        collect(root, segments, 0, followWildcards, result);
+        return result;
+    }
+
+    private void collect(Node<T> node, List<String> segments, int index, boolean followWildcards,
+                         List<List<T>> result) {
+        if (!node.values.isEmpty()) {
+            result.add(node.values);
+        }
+        if (index == segments.size()) {
+            return;
+        }
+        Node<T> child = node.children.get(segments.get(index));
+        if (child != null) {
+            collect(child, segments, index + 1, followWildcards, result);
+        }
+        if (followWildcards) {
+            Node<T> wildcard = node.wildcard;
+            if (wildcard != null) {
+                collect(wildcard, segments, index + 1, true, result);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return root.isEmpty();
+    }
+
+    /**
+     * Splits the path portion of the given URL (everything before the first '?' or '#') into
+     * segments. The leading '/' is dropped and empty segments are retained, so "/a//b/"
+     * results in [a, "", b, ""]. A path which does not begin with '/' yields no segments.
+     *
+     * @param url request URL or URL fragment
+     * @return list of path segments
+     */
+    static List<String> splitPath(String url) {
+        if (url == null || !url.startsWith("/")) {
+            return Collections.emptyList();
+        }
+        int end = url.length();
+        for (int i = 1; i < end; i++) {
+            char ch = url.charAt(i);
+            if (ch == '?' || ch == '#') {
+                end = i;
+                break;
+            }
+        }
+        List<String> segments = new ArrayList<String>();
+        int start = 1;
+        while (true) {
+            int index = url.indexOf('/', start);
+            if (index == -1 || index >= end) {
+                segments.add(url.substring(start, end));
+                return segments;
+            }
+            segments.add(url.substring(start, index));
+            start = index + 1;
+        }
+    }
+
+    private static class Node<T> {
+
+        private final Map<String, Node<T>> children = new ConcurrentHashMap<String, Node<T>>();
+        private volatile Node<T> wildcard;
+        private final List<T> values = new CopyOnWriteArrayList<T>();
+
+        private Node<T> getChild(String segment) {
+            return WILDCARD_SEGMENT.equals(segment) ? wildcard : children.get(segment);
+        }
+
+        private Node<T> getOrCreateChild(String segment) {
+            Node<T> child = getChild(segment);
+            if (child == null) {
+                child = new Node<T>();
+                if (WILDCARD_SEGMENT.equals(segment)) {
+                    wildcard = child;
+                } else {
+                    children.put(segment, child);
+                }
+            }
+            return child;
+        }
+
+        private void removeChild(String segment) {
+            if (WILDCARD_SEGMENT.equals(segment)) {
+                wildcard = null;
+            } else {
+                children.remove(segment);
+            }
+        }
+
+        private boolean isEmpty() {
+            return values.isEmpty() && children.isEmpty() && wildcard == null;
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.api.API;
 import org.apache.synapse.api.ApiConstants;
+import org.apache.synapse.api.dispatch.ApiDispatchIndex;
 import org.apache.synapse.api.inbound.InboundApiUtils;
 import org.apache.synapse.aspects.flow.statistics.store.CompletedStructureStore;
 import org.apache.synapse.carbonext.TenantInfoConfigProvider;
@@ -62,6 +63,7 @@ import org.apache.synapse.libraries.imports.SynapseImport;
 import org.apache.synapse.libraries.model.Library;
 import org.apache.synapse.libraries.util.LibDeployerUtils;
 import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.mediators.eip.aggregator.AggregateTimeoutScheduler;
 import org.apache.synapse.mediators.template.TemplateMediator;
 import org.apache.synapse.message.processor.MessageProcessor;
 import org.apache.synapse.message.processor.impl.AbstractMessageProcessor;
@@ -151,6 +153,11 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
      */
     private Timer synapseTimer = new Timer(true);
 
+    /**
+     * Fires the completion timeouts of the aggregates, created on first use.
+     */
+    private AggregateTimeoutScheduler aggregateTimeoutScheduler;
+
     /**
      * Hold reference to the Axis2 ConfigurationContext
      */
@@ -215,6 +222,12 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     private Map<String, Map<String, API>> apiTableWithBindsTo =
             Collections.synchronizedMap(new LinkedHashMap<String, Map<String, API>>());
 
+    /**
+     * Routing indexes over the API contexts, mapped against the inbound endpoint names to which
+     * the APIs are bound to. Kept in sync with {@link #apiTableWithBindsTo}.
+     */
+    private Map<String, ApiDispatchIndex> apiDispatchIndexes = new ConcurrentHashMap<String, ApiDispatchIndex>();
+
     /**
      * Description/documentation of the configuration
      */
@@ -464,6 +477,12 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                 apis.put(name, api);
                 apiTableWithBindsTo.put(inboundEndpointName, apis);
             }
+            ApiDispatchIndex dispatchIndex = apiDispatchIndexes.get(inboundEndpointName);
+            if (dispatchIndex == null) {
+                dispatchIndex = new ApiDispatchIndex();
+                apiDispatchIndexes.put(inboundEndpointName, dispatchIndex);
+            }
+            dispatchIndex.addAPI(api);
         }
     }
 
@@ -541,6 +560,18 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         return apis != null ? apis.values() : Collections.emptyList();
     }
 
+    /**
+     * Get the routing index over the contexts of the APIs bound to the specified inbound.
+     * Unlike {@link #getAPIs(String)} this does not lock the configuration, hence it is
+     * suitable for use in the message dispatching path.
+     *
+     * @param bindTo Name of inbound/binds-to
+     * @return API dispatch index or null if no API is bound to the specified inbound
+     */
+    public ApiDispatchIndex getApiDispatchIndex(String bindTo) {
+        return apiDispatchIndexes.get(bindTo);
+    }
+
     public synchronized API getAPI(String name) {
         return apiTable.get(name);
     }
@@ -563,9 +594,14 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         while (iterator.hasNext()) {
             Map.Entry<String, Map<String, API>> mappings = iterator.next();
             Map<String, API> apis = mappings.getValue();
-            apis.remove(apiName);
+            API removedAPI = apis.remove(apiName);
+            ApiDispatchIndex dispatchIndex = apiDispatchIndexes.get(mappings.getKey());
+            if (removedAPI != null && dispatchIndex != null) {
+                dispatchIndex.removeAPI(removedAPI);
+            }
             if (apis.isEmpty()) {
                 iterator.remove(); // Clean-up if empty map is left after removal
+                apiDispatchIndexes.remove(mappings.getKey());
             }
         }
     }
@@ -1377,6 +1413,20 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         return synapseTimer;
     }
 
+    /**
+     * Get the scheduler of the aggregate completion timeouts of the Synapse Configuration, which
+     * is started on first use and shut down when the configuration is destroyed
+     *
+     * @return aggregate timeout scheduler of the configuration
+     */
+    public synchronized AggregateTimeoutScheduler getAggregateTimeoutScheduler() {
+        if (aggregateTimeoutScheduler == null) {
+            aggregateTimeoutScheduler = new AggregateTimeoutScheduler();
+            aggregateTimeoutScheduler.start();
+        }
+        return aggregateTimeoutScheduler;
+    }
+
     /**
      * Set the SynapseTimer of the Synapse Configuration
      *
@@ -1561,6 +1611,12 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         synapseTimer.cancel();
         synapseTimer = null;
 
+        // the scheduler is kept, shut down, so that late aggregates do not start a new one
+        if (aggregateTimeoutScheduler == null) {
+            aggregateTimeoutScheduler = new AggregateTimeoutScheduler();
+        }
+        aggregateTimeoutScheduler.shutdown();
+
         // stop and shutdown all the proxy services
         for (ProxyService p : getProxyServices()) {
 
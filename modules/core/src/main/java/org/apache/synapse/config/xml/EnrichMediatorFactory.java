@@ -126,6 +126,12 @@ public class EnrichMediatorFactory extends AbstractMediatorFactory {
             if (!StringUtils.isEmpty(inlineString)) {
                 enrich.setContainsInlineExpressions(InlineExpressionUtil.checkForInlineExpressions(inlineString));
             }
+            if (enrich.containsInlineExpressions()) {
+                // compile the inline source once, rather than resolving the expressions from scratch per message
+                String inlineSource = source.getInlineOMNode() instanceof OMElement ?
+                        source.getInlineOMNode().toString() : inlineString;
+                enrich.setInlineExpressionTemplate(InlineExpressionUtil.getTemplate(inlineSource));
+            }
         }
 
         // Check the enrich mediator configuration to see whether it can support JSON natively
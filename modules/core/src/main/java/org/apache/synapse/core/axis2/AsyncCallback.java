@@ -53,6 +53,9 @@ public class AsyncCallback implements AxisCallback {
 
     private SynapseConstants.ENDPOINT_TIMEOUT_TYPE timeoutType;
 
+    /** Tick of the callback timeout wheel slot holding this callback */
+    private volatile long timeoutTick;
+
     public AsyncCallback( org.apache.axis2.context.MessageContext messageContext,MessageContext synapseOutMsgCtx) {
         this.synapseOutMsgCtx = synapseOutMsgCtx;
         this.axis2OutMsgCtx = messageContext;
@@ -120,6 +123,14 @@ public class AsyncCallback implements AxisCallback {
         this.timeoutType = timeoutType;
     }
 
+    long getTimeoutTick() {
+        return timeoutTick;
+    }
+
+    void setTimeoutTick(long timeoutTick) {
+        this.timeoutTick = timeoutTick;
+    }
+
     /**
      * Check whether callback is marked for removal from the callback store
      *
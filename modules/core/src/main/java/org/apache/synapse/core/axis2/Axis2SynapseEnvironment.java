@@ -44,6 +44,8 @@ import org.apache.synapse.aspects.flow.statistics.collectors.OpenEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.aspects.flow.statistics.store.MessageDataStore;
 import org.apache.synapse.carbonext.TenantInfoConfigurator;
+import org.apache.synapse.commons.executors.VirtualThreadExecutor;
+import org.apache.synapse.commons.jmx.WorkerPoolView;
 import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.commons.util.ext.TenantInfoInitiator;
 import org.apache.synapse.config.SynapseConfigUtils;
@@ -95,6 +97,7 @@ public class Axis2SynapseEnvironment implements SynapseEnvironment {
     private ConfigurationContext configContext;
     private ExecutorService executorService;
     private ExecutorService executorServiceInbound;
+    private WorkerPoolView workerPoolView;
     private boolean initialized = false;
     private SynapseTaskManager taskManager;
     private RESTRequestHandler restHandler;
@@ -173,11 +176,24 @@ public class Axis2SynapseEnvironment implements SynapseEnvironment {
             keepAlive = Long.parseLong(synCfg.getProperty(SynapseThreadPool.SYN_THREAD_ALIVE));
         } catch (Exception ignore) {}
 
-        this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive, qLength,
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
-                SynapseThreadPool.SYNAPSE_THREAD_GROUP),
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
-                SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX));
+        String threadIdPrefix = synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
+                SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX);
+        if (Boolean.parseBoolean(synCfg.getProperty(SynapseThreadPool.SYN_THREAD_VIRTUAL))) {
+            // the concurrency limit takes the place of the pool sizes and the queue length
+            int concurrency = SynapseThreadPool.SYNAPSE_MAX_CONCURRENCY;
+            try {
+                concurrency = Integer.parseInt(synCfg.getProperty(SynapseThreadPool.SYN_THREAD_CONCURRENCY));
+            } catch (Exception ignore) {}
+
+            VirtualThreadExecutor virtualThreadExecutor = new VirtualThreadExecutor(threadIdPrefix, concurrency);
+            this.workerPoolView = new WorkerPoolView(virtualThreadExecutor);
+            this.executorService = virtualThreadExecutor;
+        } else {
+            this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive, qLength,
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
+                    SynapseThreadPool.SYNAPSE_THREAD_GROUP),
+                threadIdPrefix);
+        }
 
 		int ibCoreThreads = InboundThreadPool.INBOUND_CORE_THREADS;
 		int ibMaxThreads = InboundThreadPool.INBOUND_MAX_THREADS;
@@ -683,6 +699,18 @@ public class Axis2SynapseEnvironment implements SynapseEnvironment {
         this.initialized = state;
     }
 
+    /**
+     * Shuts down the virtual thread executor used for mediation, if one is in use, and
+     * unregisters its worker pool view
+     */
+    public void shutdownWorkerPool() {
+        if (workerPoolView != null) {
+            workerPoolView.destroy();
+            workerPoolView = null;
+            executorService.shutdown();
+        }
+    }
+
     /**
      * Retrieves the {@link SynapseConfiguration} from the <code>environment</code>
      *
@@ -0,0 +1,154 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A hashed timing wheel holding the outstanding callbacks by their timeout. Each slot of the
+ * wheel covers a tick of time and holds the callbacks timing out within that tick, or within the
+ * same tick of a later round of the wheel. Registering and cancelling a callback only touches the
+ * slot of the callback, and the slots are independent concurrent maps, so that the
+ * SynapseCallbackReceiver never contends with the TimeoutHandler, and only rarely with other
+ * threads registering or completing callbacks.
+ * <p>
+ * Expiring the callbacks only visits the slots of the ticks passed since the last expiry, instead
+ * of every outstanding callback.
+ */
+public class CallbackTimeoutWheel {
+
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickDuration;
+
+    private final ConcurrentHashMap<String, AsyncCallback>[] slots;
+
+    private final int mask;
+
+    /** The last tick which has completely passed and whose slot has been visited */
+    private volatile long lastTick;
+
+    public CallbackTimeoutWheel(long tickDuration) {
+        this(tickDuration, DEFAULT_WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    /**
+     * @param tickDuration duration of a tick in milliseconds
+     * @param wheelSize    number of slots, rounded up to a power of two
+     * @param currentTime  time the wheel starts at
+     */
+    @SuppressWarnings("unchecked")
+    CallbackTimeoutWheel(long tickDuration, int wheelSize, long currentTime) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickDuration = Math.max(1, tickDuration);
+        this.slots = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ConcurrentHashMap<String, AsyncCallback>();
+        }
+        this.mask = size - 1;
+        this.lastTick = currentTime / this.tickDuration - 1;
+    }
+
+    /**
+     * Add a callback to the slot of its timeout. A callback which has already timed out is added
+     * to the slot of the next tick to be visited.
+     *
+     * @param messageID message ID the callback is registered for
+     * @param callback  the callback
+     */
+    public void schedule(String messageID, AsyncCallback callback) {
+        long tick = Math.max(callback.getTimeOutOn() / tickDuration, lastTick + 1);
+        callback.setTimeoutTick(tick);
+        slot(tick).put(messageID, callback);
+        // the slot may have been visited while the callback was being added
+        long last = lastTick;
+        while (last >= tick) {
+            if (!slot(tick).remove(messageID, callback)) {
+                // already expired
+                return;
+            }
+            tick = last + 1;
+            callback.setTimeoutTick(tick);
+            slot(tick).put(messageID, callback);
+            last = lastTick;
+        }
+    }
+
+    /**
+     * Remove a callback which has completed before its timeout.
+     *
+     * @param messageID message ID the callback is registered for
+     * @param callback  the callback
+     */
+    public void cancel(String messageID, AsyncCallback callback) {
+        slot(callback.getTimeoutTick()).remove(messageID, callback);
+    }
+
+    /**
+     * Remove and return the callbacks which have timed out before the last completely passed
+     * tick. Must not be invoked concurrently.
+     *
+     * @param currentTime the current time
+     * @return the expired callbacks by their message IDs
+     */
+    public List<Map.Entry<String, AsyncCallback>> expire(long currentTime) {
+        List<Map.Entry<String, AsyncCallback>> expired = new ArrayList<Map.Entry<String, AsyncCallback>>();
+        long last = lastTick;
+        long currentTick = currentTime / tickDuration - 1;
+        if (currentTick <= last) {
+            return expired;
+        }
+        lastTick = currentTick;
+        long from = Math.max(last + 1, currentTick - mask);
+        for (long tick = from; tick <= currentTick; tick++) {
+            Iterator<Map.Entry<String, AsyncCallback>> entries = slot(tick).entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, AsyncCallback> entry = entries.next();
+                AsyncCallback callback = entry.getValue();
+                // callbacks of a later round of the wheel stay in the slot
+                if (callback.getTimeoutTick() <= currentTick && slot(tick).remove(entry.getKey(), callback)) {
+                    expired.add(entry);
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return the number of callbacks in the wheel
+     */
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AsyncCallback> slot : slots) {
+            size += slot.size();
+        }
+        return size;
+    }
+
+    private ConcurrentHashMap<String, AsyncCallback> slot(long tick) {
+        return slots[(int) (tick & mask)];
+    }
+}
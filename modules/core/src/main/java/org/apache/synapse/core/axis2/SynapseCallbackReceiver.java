@@ -49,6 +49,7 @@ import org.apache.synapse.config.SynapseConfigUtils;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.endpoints.AbstractEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.EndpointCall;
 import org.apache.synapse.endpoints.FailoverEndpoint;
 import org.apache.synapse.endpoints.OAuthConfiguredHTTPEndpoint;
 import org.apache.synapse.endpoints.dispatch.Dispatcher;
@@ -59,6 +60,7 @@ import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.Pipe;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.util.PipeFactory;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.util.ConcurrencyThrottlingUtils;
 import org.apache.synapse.util.ResponseAcceptEncodingProcessor;
@@ -79,6 +81,12 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
 
     private static final Log log = LogFactory.getLog(SynapseCallbackReceiver.class);
 
+    /** Longest tick of the callback timeout wheel, in milliseconds */
+    private static final long MAX_TIMEOUT_TICK = 1000;
+
+    /** The callbacks of the callbackStore by their timeouts, shared with the TimeoutHandler */
+    private final CallbackTimeoutWheel timeoutWheel;
+
     /**
      * Create the *single* instance of this class that would be used by all anonymous services
      * used for outgoing messaging.
@@ -88,11 +96,13 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
     public SynapseCallbackReceiver(SynapseConfiguration synCfg,
                                    ServerContextInformation contextInformation) {
 
+        long timeoutHandlerInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
+        timeoutWheel = new CallbackTimeoutWheel(Math.min(timeoutHandlerInterval, MAX_TIMEOUT_TICK));
+
         // create the Timer object and a TimeoutHandler task
-        TimeoutHandler timeoutHandler = new TimeoutHandler(callbackStore, contextInformation);
-        
+        TimeoutHandler timeoutHandler = new TimeoutHandler(callbackStore, timeoutWheel, contextInformation);
+
         Timer timeOutTimer = synCfg.getSynapseTimer();
-        long timeoutHandlerInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
 
         // schedule timeout handler to run every n seconds (n : specified or defaults to 15s)
         timeOutTimer.schedule(timeoutHandler, 0, timeoutHandlerInterval);
@@ -104,6 +114,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
 
     public void addCallback(String MsgID, AxisCallback callback) {
         callbackStore.put(MsgID, callback);
+        timeoutWheel.schedule(MsgID, (AsyncCallback) callback);
         if (log.isDebugEnabled()) {
             log.debug("Callback added. Total callbacks waiting for : " + callbackStore.size());
         }
@@ -134,6 +145,10 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 messageCtx.getProperty(NhttpConstants.HTTP_202_RECEIVED))) {
             if (callbackStore.containsKey(messageCtx.getMessageID())) {
                 AsyncCallback callback = (AsyncCallback) callbackStore.remove(messageCtx.getMessageID());
+                if (callback != null) {
+                    timeoutWheel.cancel(messageCtx.getMessageID(), callback);
+                    EndpointCall.complete(callback.getSynapseOutMsgCtx(), true);
+                }
                 if (RuntimeStatisticCollector.isStatisticsEnabled()) {
                     CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(),
                             messageCtx.getMessageID());
@@ -164,6 +179,9 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
 
         if (messageID != null) {
             AsyncCallback callback = (AsyncCallback)callbackStore.remove(messageID);
+            if (callback != null) {
+                timeoutWheel.cancel(messageID, callback);
+            }
             if (log.isDebugEnabled()) {
                 log.debug("Callback removed for request message id : " + messageID +
                         ". Pending callbacks count : " + callbackStore.size());
@@ -266,6 +284,8 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 MessageCache.getInstance().removeMessageContext(synapseOutMsgCtx.getMessageID());
 
         Object o = response.getProperty(SynapseConstants.SENDING_FAULT);
+        // the endpoint call is over, its response time is only recorded if the endpoint responded
+        EndpointCall.complete(synapseOutMsgCtx, !Boolean.TRUE.equals(o));
         if (o != null && Boolean.TRUE.equals(o)) {
             //This path hits with a fault. Sequence mediator threads should not remove faultSequence.
             //SynapseCallbackReceiver thread should handle the faultStack.
@@ -276,8 +296,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
             if (pipe != null && pipe.isSerializationComplete() && sourceConfiguration != null) {
                 NHttpServerConnection conn = (NHttpServerConnection) ((Axis2MessageContext) synapseOutMsgCtx).
                         getAxis2MessageContext().getProperty("pass-through.Source-Connection");
-                Pipe newPipe = new Pipe(conn, sourceConfiguration.getBufferFactory().getBuffer(), "source",
-                        sourceConfiguration);
+                Pipe newPipe = PipeFactory.create(conn, "source", sourceConfiguration);
                 newPipe.setDiscardable(true);
                 ((Axis2MessageContext) synapseOutMsgCtx).getAxis2MessageContext()
                         .setProperty(PassThroughConstants.PASS_THROUGH_PIPE, newPipe);
@@ -509,8 +528,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                     NHttpServerConnection conn = (NHttpServerConnection) axis2OUTMC.getProperty("pass-through.Source-Connection");
                     SourceConfiguration sourceConfiguration = (SourceConfiguration) axis2OUTMC.getProperty("PASS_THROUGH_SOURCE_CONFIGURATION");
                     if (conn != null && sourceConfiguration != null) {
-                        Pipe pipe = new Pipe(conn, sourceConfiguration.getBufferFactory().getBuffer(), "source",
-                                sourceConfiguration);
+                        Pipe pipe = PipeFactory.create(conn, "source", sourceConfiguration);
                         axis2OUTMC.setProperty(PassThroughConstants.PASS_THROUGH_PIPE, pipe);
                     }
 
@@ -31,6 +31,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.CallbackStatisticCo
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.commons.CorrelationConstants;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.endpoints.EndpointCall;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
 import org.apache.synapse.commons.logger.ContextAwareLogger;
 import org.apache.synapse.rest.RESTConstants;
@@ -46,9 +47,11 @@ import java.util.TimerTask;
 /**
  * An object of this class is registered to be invoked in some predefined time intervals. This
  * checks the timeouts of callbacks stored in the SynapseCallbackReceiver and removes all expired
- * callbacks. Timeouts of the callbacks are stored as the time, not the duration. So that the
- * time or the interval of invoking this class does not affect the correctness of the timeouts,
- * although longer intervals would introduce larger error between the actual timeout and the
+ * callbacks. The callbacks are looked up by their timeouts in a {@link CallbackTimeoutWheel}, which
+ * is maintained by the SynapseCallbackReceiver along with the callback store, so that only the
+ * callbacks timing out since the previous invocation are visited. Timeouts of the callbacks are
+ * stored as the time, not the duration. So that the time or the interval of invoking this class
+ * does not affect the correctness of the timeouts, although longer intervals would introduce larger error between the actual timeout and the
  * specified timeout.
  *
  * For each invocation this gets a time value to be compared against the timeouts of the callback
@@ -61,6 +64,8 @@ public class TimeoutHandler extends TimerTask {
 
     /** The callback map - already a Collections.synchronized() hash map */
     private final Map callbackStore;
+    /** The callbacks of the callback map by their timeouts */
+    private final CallbackTimeoutWheel timeoutWheel;
     /** a lock to prevent concurrent execution while ensuring least overhead */
     private final Object lock = new Object();
     private boolean alreadyExecuting = false;
@@ -69,8 +74,9 @@ public class TimeoutHandler extends TimerTask {
     private static final String SEND_TIMEOUT_MESSAGE = "Send timeout";
     private ServerContextInformation contextInfo = null;
 
-    public TimeoutHandler(Map callbacks, ServerContextInformation contextInfo) {
+    public TimeoutHandler(Map callbacks, CallbackTimeoutWheel timeoutWheel, ServerContextInformation contextInfo) {
         this.callbackStore = callbacks;
+        this.timeoutWheel = timeoutWheel;
         this.contextInfo = contextInfo;
         this.globalTimeout = SynapseConfigUtils.getGlobalTimeoutInterval();
         log.info("This engine will expire all callbacks after " +
@@ -105,126 +111,116 @@ public class TimeoutHandler extends TimerTask {
         //clear all the expired sessions
         SALSessions.getInstance().clearSessions();
 
-        // checks if callback store contains at least one entry before proceeding. otherwise getting
-        // the time for doing nothing would be a inefficient task.
+        // only the callbacks in the slots of the timeout wheel passed since the last run are
+        // visited, the callback store is not locked or iterated.
+        long currentTime = currentTime();
 
-        // we have to synchronize this on the callbackStore as iterators of thread safe collections
-        // are not thread safe. callbackStore can be modified
-        // concurrently by the SynapseCallbackReceiver.
-        synchronized(callbackStore) {
+        List toRemove = new ArrayList();
 
-            if (callbackStore.size() > 0) {
+        for (Map.Entry<String, AsyncCallback> entry : timeoutWheel.expire(currentTime)) {
 
-                long currentTime = currentTime();
-
-                List toRemove = new ArrayList();
-
-                for (Object key : callbackStore.keySet()) {
+            String key = entry.getKey();
+            AsyncCallback callback = entry.getValue();
+            if (callbackStore.get(key) != callback) {
+                if (log.isDebugEnabled()) {
+                    log.debug("There is no callback for key :" + key);
+                }
+                continue;
+            }
 
-                    AsyncCallback callback = (AsyncCallback) callbackStore.get(key);
-                    if (callback == null) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("There is no callback for key :" + key);
-                        }
-                        continue;
-                    }
+            synchronized (callback) {
+                if (callback.isMarkedForRemoval()) {
+                    continue;
+                }
+                callback.setMarkedForRemoval();
+                toRemove.add(key);
+            }
+            // a timed out call took at least the timeout, which is what the endpoint is charged with
+            EndpointCall.complete(callback.getSynapseOutMsgCtx(), true);
+            if (!"true".equals(callback.getSynapseOutMsgCtx().getProperty(SynapseConstants.OUT_ONLY))) {
+                org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
+                ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                        .warn("Expiring message ID : " + key + "; dropping message after "
+                                + callback.getTimeoutType().toString() + " of : "
+                                + (callback.getTimeoutDuration() / 1000) + " seconds for "
+                                + getEndpointLogMessage(callback.getSynapseOutMsgCtx(),
+                                callback.getAxis2OutMsgCtx()) + ", "
+                                + getServiceLogMessage(callback.getSynapseOutMsgCtx())
+                                + "Correlation ID : " + callback.getAxis2OutMsgCtx().getProperty(
+                                CorrelationConstants.CORRELATION_ID));
+            }
 
-                    if (callback.getTimeOutOn() <= currentTime) {
+            if (callback.getTimeOutAction() != SynapseConstants.NONE) {
+
+                // activate the fault sequence of the current sequence mediator
+                MessageContext msgContext = callback.getSynapseOutMsgCtx();
+                org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
+
+                /* Clear the pipe to prevent release of the associated writer buffer
+                   to the buffer factory.
+                   This is to prevent same buffer is getting released to both source
+                   and target buffer factories. Otherwise when a late response arrives,
+                   buffer is released to both factories and makes system unstable
+                */
+                ((Axis2MessageContext) msgContext).getAxis2MessageContext().
+                        removeProperty(PassThroughConstants.PASS_THROUGH_PIPE);
+
+                // add an error code to the message context, so that error sequences
+                // can identify the cause of error
+                msgContext.setProperty(SynapseConstants.ERROR_CODE,
+                                       SynapseConstants.HANDLER_TIME_OUT);
+                msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
+                                       SEND_TIMEOUT_MESSAGE);
+
+                SOAPEnvelope soapEnvelope;
+                if (msgContext.isSOAP11()) {
+                    soapEnvelope = OMAbstractFactory.
+                            getSOAP11Factory().createSOAPEnvelope();
+                    soapEnvelope.addChild(
+                            OMAbstractFactory.getSOAP11Factory().createSOAPBody());
+                } else {
+                    soapEnvelope = OMAbstractFactory.
+                            getSOAP12Factory().createSOAPEnvelope();
+                    soapEnvelope.addChild(
+                            OMAbstractFactory.getSOAP12Factory().createSOAPBody());
+                }
+                try {
+                    msgContext.setEnvelope(soapEnvelope);
+                } catch (Throwable ex) {
+                    ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                            .error("Exception or Error occurred resetting SOAP Envelope", ex);
+                    continue;
+                }
 
-                        synchronized (callback) {
-                            if (callback.isMarkedForRemoval()) {
-                                continue;
-                            }
-                            callback.setMarkedForRemoval();
-                            toRemove.add(key);
-                        }
-                        if (!"true".equals(callback.getSynapseOutMsgCtx().getProperty(SynapseConstants.OUT_ONLY))) {
-                            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
+                Stack<FaultHandler> faultStack = msgContext.getFaultStack();
+                if (!faultStack.isEmpty()) {
+                    FaultHandler faultHandler = faultStack.pop();
+                    if (faultHandler != null) {
+                        try {
+                            faultHandler.handleFault(msgContext);
+                        } catch (Throwable ex) {
                             ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                    .warn("Expiring message ID : " + key + "; dropping message after "
-                                            + callback.getTimeoutType().toString() + " of : "
-                                            + (callback.getTimeoutDuration() / 1000) + " seconds for "
-                                            + getEndpointLogMessage(callback.getSynapseOutMsgCtx(),
-                                            callback.getAxis2OutMsgCtx()) + ", "
-                                            + getServiceLogMessage(callback.getSynapseOutMsgCtx())
-                                            + "Correlation ID : " + callback.getAxis2OutMsgCtx().getProperty(
-                                            CorrelationConstants.CORRELATION_ID));
-                        }
-
-                        if (callback.getTimeOutAction() != SynapseConstants.NONE) {
-
-                            // activate the fault sequence of the current sequence mediator
-                            MessageContext msgContext = callback.getSynapseOutMsgCtx();
-                            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
-
-                            /* Clear the pipe to prevent release of the associated writer buffer
-                               to the buffer factory.
-                               This is to prevent same buffer is getting released to both source
-                               and target buffer factories. Otherwise when a late response arrives,
-                               buffer is released to both factories and makes system unstable
-                            */
-                            ((Axis2MessageContext) msgContext).getAxis2MessageContext().
-                                    removeProperty(PassThroughConstants.PASS_THROUGH_PIPE);
-
-                            // add an error code to the message context, so that error sequences
-                            // can identify the cause of error
-                            msgContext.setProperty(SynapseConstants.ERROR_CODE,
-                                                   SynapseConstants.HANDLER_TIME_OUT);
-                            msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
-                                                   SEND_TIMEOUT_MESSAGE);
-
-                            SOAPEnvelope soapEnvelope;
-                            if (msgContext.isSOAP11()) {
-                                soapEnvelope = OMAbstractFactory.
-                                        getSOAP11Factory().createSOAPEnvelope();
-                                soapEnvelope.addChild(
-                                        OMAbstractFactory.getSOAP11Factory().createSOAPBody());
-                            } else {
-                                soapEnvelope = OMAbstractFactory.
-                                        getSOAP12Factory().createSOAPEnvelope();
-                                soapEnvelope.addChild(
-                                        OMAbstractFactory.getSOAP12Factory().createSOAPBody());
-                            }
-                            try {
-                                msgContext.setEnvelope(soapEnvelope);
-                            } catch (Throwable ex) {
-                                ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                        .error("Exception or Error occurred resetting SOAP Envelope", ex);
-                                continue;
-                            }
-
-                            Stack<FaultHandler> faultStack = msgContext.getFaultStack();
-                            if (!faultStack.isEmpty()) {
-                                FaultHandler faultHandler = faultStack.pop();
-                                if (faultHandler != null) {
-                                    try {
-                                        faultHandler.handleFault(msgContext);
-                                    } catch (Throwable ex) {
-                                        ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                                .warn("Exception or Error occurred while "
-                                                        + "executing the fault handler", ex);
-                                        continue;
-                                    }
-                                }
-                            }
+                                    .warn("Exception or Error occurred while "
+                                            + "executing the fault handler", ex);
+                            continue;
                         }
                     }
                 }
+            }
+        }
 
-                for(Object key : toRemove) {
+        for(Object key : toRemove) {
 
-                    AsyncCallback callback = (AsyncCallback) callbackStore.get(key);
-                    if (callback == null) {
-                        // we will get here if we get a response from the Backend while clearing callbacks
-                        continue;
-                    }
-                    org.apache.synapse.MessageContext synapseOutMsgCtx = callback.getSynapseOutMsgCtx();
-                    ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synapseOutMsgCtx);
-                    callbackStore.remove(key);
-                    if (RuntimeStatisticCollector.isStatisticsEnabled()) {
-                        CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(), (String) key);
-                    }
-                }
+            AsyncCallback callback = (AsyncCallback) callbackStore.get(key);
+            if (callback == null) {
+                // we will get here if we get a response from the Backend while clearing callbacks
+                continue;
+            }
+            org.apache.synapse.MessageContext synapseOutMsgCtx = callback.getSynapseOutMsgCtx();
+            ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synapseOutMsgCtx);
+            callbackStore.remove(key);
+            if (RuntimeStatisticCollector.isStatisticsEnabled()) {
+                CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(), (String) key);
             }
         }
     }
@@ -405,8 +405,23 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
             synCtx.getEnvelope().build();
         }
 
+        // keep track of the call for the latency aware load balancing algorithms, unless no
+        // response is expected
+        boolean trackCall = context != null
+                && !"true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY));
+        if (trackCall) {
+            EndpointCall.start(synCtx, context);
+        }
+
         // Send the message through this endpoint
-        synCtx.getEnvironment().send(definition, synCtx);
+        try {
+            synCtx.getEnvironment().send(definition, synCtx);
+        } catch (RuntimeException e) {
+            if (trackCall) {
+                EndpointCall.complete(synCtx, false);
+            }
+            throw e;
+        }
 
         if (isStatisticsEnabled) {
             CloseEventCollector.closeEntryEvent(synCtx, getReportingName(), ComponentType.ENDPOINT,
@@ -553,6 +568,7 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
      * @param synCtx the message at hand
      */
     public void onFault(MessageContext synCtx) {
+        EndpointCall.complete(synCtx, false);
         EndpointDefinition endpointDefinition = getDefinition();
         if (endpointDefinition != null && endpointDefinition.getTimeoutAction() == SynapseConstants.DISCARD) {
             log.info("Ignoring fault handlers since the timeout action is set to DISCARD");
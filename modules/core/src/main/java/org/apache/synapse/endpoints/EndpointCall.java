@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.endpoints;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A call made through a leaf endpoint, kept in the message until the endpoint responds, fails
+ * or times out. Completing the call reports it to the {@link EndpointContext} of the endpoint,
+ * which keeps the number of outstanding requests and the average response time used by the
+ * latency aware load balancing algorithms. A call is completed only once, hence each of the
+ * paths a response or a fault may take can complete it.
+ */
+public final class EndpointCall {
+
+    /** The message property holding the current call */
+    public static final String ENDPOINT_CALL = "ENDPOINT_CALL";
+
+    private final EndpointContext context;
+
+    private final long startTime;
+
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    private EndpointCall(EndpointContext context, long startTime) {
+        this.context = context;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Start a call through the endpoint of the given context.
+     *
+     * @param synCtx  the message being sent
+     * @param context the context of the endpoint
+     */
+    static void start(MessageContext synCtx, EndpointContext context) {
+        // a previous call of the message which was never completed, e.g. on a failover, has failed
+        complete(synCtx, false);
+        context.onRequestSent();
+        synCtx.setProperty(ENDPOINT_CALL, new EndpointCall(context, System.currentTimeMillis()));
+    }
+
+    /**
+     * Complete the current call of the message, if any.
+     *
+     * @param synCtx             the message sent
+     * @param recordResponseTime whether the endpoint responded, in which case the time taken
+     *                           is added to the average response time of the endpoint
+     */
+    public static void complete(MessageContext synCtx, boolean recordResponseTime) {
+        if (synCtx == null) {
+            return;
+        }
+        Object call = synCtx.getProperty(ENDPOINT_CALL);
+        if (call instanceof EndpointCall) {
+            ((EndpointCall) call).complete(recordResponseTime);
+        }
+    }
+
+    private void complete(boolean recordResponseTime) {
+        if (completed.compareAndSet(false, true)) {
+            context.onRequestCompleted(
+                    recordResponseTime ? System.currentTimeMillis() - startTime : -1);
+        }
+    }
+}
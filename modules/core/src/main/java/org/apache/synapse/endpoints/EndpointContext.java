@@ -29,6 +29,8 @@ import org.apache.synapse.util.Replicator;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is one of the key classes of the Endpoint management in Synapse. It maintains the
@@ -45,6 +47,9 @@ public class EndpointContext {
     private static final String LAST_SUSPEND_DURATION = ".last_suspend_duration";
     private static final String MAXIMUM_REMAINING_RETRIES = ".maximum_remaining_retries";
 
+    /** The default time in ms after which a response time has lost most of its weight */
+    public static final long DEFAULT_RESPONSE_TIME_DECAY = 10000;
+
     // The different states an endpoint could exist at any point in time
     /** And active endpoint known to be functioning properly */
     public static final int ST_ACTIVE      = 1;
@@ -95,6 +100,13 @@ public class EndpointContext {
     /** Endpoint is in switch off status or not */
     private boolean isSwitchOff  = false;
 
+    /** The number of requests sent through the endpoint which have not completed yet */
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    /** The moving average of the response times of the endpoint, null until the first response */
+    private final AtomicReference<ResponseTime> responseTime = new AtomicReference<ResponseTime>();
+    /** The time in ms after which a response time has lost most of its weight in the average */
+    private volatile long responseTimeDecay = DEFAULT_RESPONSE_TIME_DECAY;
+
     // for clustered mode operation, keys pre-computed and used for replication
     private final String STATE_KEY;
     private final String NEXT_RETRY_TIME_KEY;
@@ -647,4 +659,77 @@ public class EndpointContext {
                 "duration is : " +
                 suspendDurationOnMaximumFailover + "ms - Next retry after : " + new Date(nextRetryTime));
     }
+
+    /**
+     * A request has been sent through the endpoint
+     */
+    public void onRequestSent() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    /**
+     * A request sent through the endpoint has completed. The response times are kept as an
+     * exponentially weighted moving average, weighting each response time by the time passed
+     * since the previous one, so that the average follows the recent behaviour of the endpoint
+     * irrespective of its load.
+     *
+     * @param elapsedTime time in ms taken by the request, or a negative value if the request
+     *                    failed before the endpoint could respond
+     */
+    public void onRequestCompleted(long elapsedTime) {
+        int outstanding = outstandingRequests.get();
+        while (outstanding > 0 && !outstandingRequests.compareAndSet(outstanding, outstanding - 1)) {
+            outstanding = outstandingRequests.get();
+        }
+        if (elapsedTime < 0) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        ResponseTime current;
+        ResponseTime next;
+        do {
+            current = responseTime.get();
+            if (current == null) {
+                next = new ResponseTime(elapsedTime, currentTime);
+            } else {
+                double weight = Math.exp(-(double) Math.max(0, currentTime - current.time) / responseTimeDecay);
+                next = new ResponseTime(current.average * weight + elapsedTime * (1 - weight), currentTime);
+            }
+        } while (!responseTime.compareAndSet(current, next));
+    }
+
+    /**
+     * @return the number of requests sent through the endpoint which have not completed yet
+     */
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    /**
+     * @return the moving average of the response times in ms, or -1 if the endpoint has not
+     * responded yet
+     */
+    public double getAverageResponseTime() {
+        ResponseTime current = responseTime.get();
+        return current == null ? -1 : current.average;
+    }
+
+    public void setResponseTimeDecay(long responseTimeDecay) {
+        this.responseTimeDecay = responseTimeDecay > 0 ? responseTimeDecay : DEFAULT_RESPONSE_TIME_DECAY;
+    }
+
+    /**
+     * The moving average of the response times and the time it was last updated at
+     */
+    private static final class ResponseTime {
+
+        private final double average;
+
+        private final long time;
+
+        private ResponseTime(double average, long time) {
+            this.average = average;
+            this.time = time;
+        }
+    }
 }
@@ -25,6 +25,7 @@ import org.apache.synapse.util.Replicator;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Keeps the runtime state of the algorithm
@@ -49,7 +50,7 @@ public class AlgorithmContext {
     private String PROPERTY_KEY_PREFIX;
 
     /* The pointer to current epr - The position of the current EPR */
-    private int currentEPR = 0;
+    private final AtomicInteger currentEPR = new AtomicInteger();
 
     /* The map of properties stored locally */
     private Map<String, Object> localProperties;
@@ -83,7 +84,7 @@ public class AlgorithmContext {
                 return ((Integer) value);
             }
         } else {
-            return currentEPR;
+            return currentEPR.get();
         }
         return 0;
     }
@@ -94,10 +95,40 @@ public class AlgorithmContext {
      * @param currentEPR The current position
      */
     public void setCurrentEndpointIndex(int currentEPR) {
-        this.currentEPR = currentEPR;
+        this.currentEPR.set(currentEPR);
         cfgCtx.setNonReplicableProperty(CURRENT_EPR_PROP_KEY, currentEPR);
     }
 
+    /**
+     * Atomically take the position of the current EPR and move the pointer to the next one,
+     * wrapping around at the given number of endpoints. Unlike a get followed by a set, two
+     * concurrent callers never take the same position without holding a lock.
+     *
+     * @param endpointCount The number of endpoints
+     * @return The position of the current EPR, before moving the pointer
+     */
+    public int getAndIncrementEndpointIndex(int endpointCount) {
+        if (isClusteringEnabled) {
+            synchronized (this) {
+                int current = getCurrentEndpointIndex();
+                if (current < 0 || current >= endpointCount) {
+                    current = 0;
+                }
+                setCurrentEndpointIndex(current + 1 == endpointCount ? 0 : current + 1);
+                return current;
+            }
+        }
+        while (true) {
+            int value = currentEPR.get();
+            // start over from the first endpoint if the list of endpoints has shrunk
+            int current = value < 0 || value >= endpointCount ? 0 : value;
+            int next = current + 1 == endpointCount ? 0 : current + 1;
+            if (currentEPR.compareAndSet(value, next)) {
+                return current;
+            }
+        }
+    }
+
     /**
      * Get the configuration context instance . This is only available for cluster env.
      *
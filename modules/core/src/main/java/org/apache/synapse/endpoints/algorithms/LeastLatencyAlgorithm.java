@@ -0,0 +1,196 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.axis2.clustering.Member;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.ManagedLifecycle;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.PropertyInclude;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.endpoints.AbstractEndpoint;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.EndpointContext;
+import org.apache.synapse.mediators.MediatorProperty;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A load balancing algorithm which prefers the endpoints responding faster. Each endpoint keeps
+ * a moving average of its response times and the number of its outstanding requests in its
+ * {@link EndpointContext}. For every message two distinct endpoints are picked at random and
+ * the one with the lower cost, i.e. average response time weighted by the outstanding requests,
+ * is chosen. Comparing two random endpoints instead of choosing the fastest one of all keeps
+ * concurrent messages from all landing on the same endpoint before its statistics catch up.
+ * <p>
+ * The algorithm is configured on the load balance endpoint as follows, where the optional
+ * decay time is the time in ms after which a response time has lost most of its weight in
+ * the average.
+ * <pre>
+ * &lt;endpoint name="LBEndpoint"&gt;
+ *     &lt;loadbalance algorithm="org.apache.synapse.endpoints.algorithms.LeastLatencyAlgorithm"&gt;
+ *         ...
+ *     &lt;/loadbalance&gt;
+ *     &lt;property name="loadbalance.latency.decayTime" value="10000"/&gt;
+ * &lt;/endpoint&gt;
+ * </pre>
+ */
+public class LeastLatencyAlgorithm implements LoadbalanceAlgorithm, ManagedLifecycle {
+
+    private static final Log log = LogFactory.getLog(LeastLatencyAlgorithm.class);
+
+    /** Configuration key used by the load balance endpoint for the decay time of the averages */
+    public static final String LB_LATENCY_DECAY_TIME = "loadbalance.latency.decayTime";
+
+    /** Endpoint list */
+    private List<Endpoint> endpoints;
+
+    private Endpoint loadBalanceEndpoint;
+
+    /** we are not supporting members */
+    public void setApplicationMembers(List<Member> members) {
+        throw new UnsupportedOperationException("This algorithm doesn't operate on Members");
+    }
+
+    public void setEndpoints(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public void setLoadBalanceEndpoint(Endpoint endpoint) {
+        this.loadBalanceEndpoint = endpoint;
+    }
+
+    /**
+     * Choose the cheaper one of two random active endpoints. If there are no active endpoints
+     * available, returns null.
+     *
+     * @param synCtx           MessageContext instance which holds all per-message properties
+     * @param algorithmContext The context in which holds run time states related to the algorithm
+     * @return endpoint to send the next message
+     */
+    public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
+        int size = endpoints.size();
+        if (size == 0) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        int start = random.nextInt(size);
+        Endpoint first = null;
+        for (int i = 0; i < size && first == null; i++) {
+            Endpoint endpoint = endpoints.get((start + i) % size);
+            if (endpoint.readyToSend()) {
+                first = endpoint;
+            }
+        }
+        if (first == null || size == 1) {
+            return first;
+        }
+
+        Endpoint second = endpoints.get(random.nextInt(size));
+        if (second == first) {
+            // pick another endpoint, the next one is as random as any other
+            second = endpoints.get((endpoints.indexOf(first) + 1) % size);
+        }
+        if (!second.readyToSend()) {
+            return first;
+        }
+
+        EndpointContext firstContext = getContext(first);
+        EndpointContext secondContext = getContext(second);
+        if (firstContext == null || secondContext == null) {
+            return first;
+        }
+        double firstAverage = firstContext.getAverageResponseTime();
+        double secondAverage = secondContext.getAverageResponseTime();
+        // an endpoint which has not responded yet is assumed to be as fast as the other one
+        if (firstAverage < 0) {
+            firstAverage = Math.max(secondAverage, 0);
+        }
+        if (secondAverage < 0) {
+            secondAverage = firstAverage;
+        }
+        double firstCost = (firstAverage + 1) * (firstContext.getOutstandingRequests() + 1);
+        double secondCost = (secondAverage + 1) * (secondContext.getOutstandingRequests() + 1);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Cost of endpoint " + first.getName() + " : " + firstCost
+                    + ", cost of endpoint " + second.getName() + " : " + secondCost);
+        }
+        return secondCost < firstCost ? second : first;
+    }
+
+    public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
+        throw new UnsupportedOperationException("This algorithm doesn't operate on Members");
+    }
+
+    public void reset(AlgorithmContext algorithmContext) {
+        // the statistics are kept by the endpoints
+    }
+
+    public String getName() {
+        return LeastLatencyAlgorithm.class.getName();
+    }
+
+    public LoadbalanceAlgorithm clone() {
+        return new LeastLatencyAlgorithm();
+    }
+
+    public void init(SynapseEnvironment se) {
+        if (endpoints == null) {
+            String msg = "Endpoints are not set, cannot initialize the algorithm";
+            log.error(msg);
+            throw new SynapseException(msg);
+        }
+
+        if (loadBalanceEndpoint instanceof PropertyInclude) {
+            MediatorProperty decayTime =
+                    ((PropertyInclude) loadBalanceEndpoint).getProperty(LB_LATENCY_DECAY_TIME);
+            if (decayTime != null) {
+                long decay;
+                try {
+                    decay = Long.parseLong(decayTime.getValue().trim());
+                } catch (NumberFormatException e) {
+                    String msg = "Invalid value for " + LB_LATENCY_DECAY_TIME + " : " + decayTime.getValue();
+                    log.error(msg);
+                    throw new SynapseException(msg, e);
+                }
+                if (decay <= 0) {
+                    String msg = LB_LATENCY_DECAY_TIME + " must be greater than zero";
+                    log.error(msg);
+                    throw new SynapseException(msg);
+                }
+                for (Endpoint endpoint : endpoints) {
+                    EndpointContext context = getContext(endpoint);
+                    if (context != null) {
+                        context.setResponseTimeDecay(decay);
+                    }
+                }
+            }
+        }
+    }
+
+    public void destroy() {}
+
+    private static EndpointContext getContext(Endpoint endpoint) {
+        return endpoint instanceof AbstractEndpoint ? ((AbstractEndpoint) endpoint).getContext() : null;
+    }
+}
@@ -25,12 +25,12 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.endpoints.Endpoint;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This is the implementation of the round robin load balancing algorithm. It simply iterates
- * through the endpoint list one by one for until an active endpoint is found.
+ * through the endpoint list one by one for until an active endpoint is found. The position of
+ * the current endpoint is moved atomically, hence concurrent messages do not serialize on the
+ * algorithm context.
  */
 public class RoundRobin implements LoadbalanceAlgorithm {
 
@@ -43,8 +43,6 @@ public class RoundRobin implements LoadbalanceAlgorithm {
 
     private List<Member> members;
 
-    private final Lock lock = new ReentrantLock();
-
     public RoundRobin() {
 
     }
@@ -74,61 +72,31 @@ public class RoundRobin implements LoadbalanceAlgorithm {
      */
     public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
 
-        Endpoint nextEndpoint;
-        int attempts = 0;
-        synchronized (algorithmContext) {
-            int currentEPR = algorithmContext.getCurrentEndpointIndex();
-            do {
-                // two successive clients could get the same endpoint if not synchronized.
-                nextEndpoint = (Endpoint) endpoints.get(currentEPR);
-
-                if (currentEPR == endpoints.size() - 1) {
-                    currentEPR = 0;
-                } else {
-                    currentEPR++;
-                }
-                algorithmContext.setCurrentEndpointIndex(currentEPR);
-
-                attempts++;
-                if (attempts > endpoints.size()) {
-                    return null;
-                }
-
-            } while (!nextEndpoint.readyToSend());
+        int size = endpoints.size();
+        for (int attempts = 0; attempts < size; attempts++) {
+            Endpoint nextEndpoint = (Endpoint) endpoints.get(
+                    algorithmContext.getAndIncrementEndpointIndex(size));
+            if (nextEndpoint.readyToSend()) {
+                return nextEndpoint;
+            }
         }
-
-        return nextEndpoint;
+        return null;
     }
 
     public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
         if (members.size() == 0) {
             return null;
         }
-        Member current = null;
-        lock.lock();
-        try {
-            int currentMemberIndex = algorithmContext.getCurrentEndpointIndex();
-            if (currentMemberIndex >= members.size()) {
-                currentMemberIndex = 0;
-            }
-            int index = members.size();
-            do {
-                current = members.get(currentMemberIndex);
-                if (currentMemberIndex == members.size() - 1) {
-                    currentMemberIndex = 0;
-                } else {
-                    currentMemberIndex++;
-                }
-                index--;
-            } while (current.isSuspended() && index > 0);
-            algorithmContext.setCurrentEndpointIndex(currentMemberIndex);
-            if (log.isDebugEnabled()) {
-                log.debug("Members       : " + members.size());
-                log.debug("Current member: " + current);
-            }
-
-        } finally {
-            lock.unlock();
+        Member current;
+        int size = members.size();
+        int index = size;
+        do {
+            current = members.get(algorithmContext.getAndIncrementEndpointIndex(size));
+            index--;
+        } while (current.isSuspended() && index > 0);
+        if (log.isDebugEnabled()) {
+            log.debug("Members       : " + size);
+            log.debug("Current member: " + current);
         }
         return current;
     }
@@ -142,9 +110,7 @@ public class RoundRobin implements LoadbalanceAlgorithm {
         if (log.isDebugEnabled()) {
             log.debug("Resetting the Round Robin loadbalancing algorithm ...");
         }
-        synchronized (algorithmContext) {
-            algorithmContext.setCurrentEndpointIndex(0);
-        }
+        algorithmContext.setCurrentEndpointIndex(0);
     }
 
     public String getName() {
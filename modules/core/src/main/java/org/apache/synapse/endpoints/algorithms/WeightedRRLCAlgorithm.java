@@ -35,6 +35,7 @@ import org.apache.commons.logging.LogFactory;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.net.URL;
 import java.net.MalformedURLException;
 
@@ -50,6 +51,11 @@ import java.net.MalformedURLException;
  * to endpoint weight to total weights ratio. If the ratios are different it tries to align them
  * by changing the weights dynamically.</p>
  *
+ * <p> The rounds between two recalculations are kept as an immutable schedule with an atomic
+ * message counter, hence endpoints are selected without holding a lock. The message which
+ * completes the rounds recalculates the weights and installs the schedule of the next rounds,
+ * while the messages arriving in the meantime continue with the previous schedule.</p>
+ *
  */
 public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifecycle {
     private static final Log log = LogFactory.getLog(WeightedRRLCAlgorithm.class);
@@ -63,13 +69,11 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
     /** We keep a sorted array of endpoint states, first state will point to the
      * endpoint with the highest weight */
     private WeightedState[] list;
-    /** Keep track of the current poistion we are operating on the endpointStates array */
-    private int endpointCursor = 0;
+    /** The rounds until the next recalculation of the weights */
+    private volatile Schedule schedule;
     /** How many rounds should go before re-calculating the dynamic weights based
      * on number of active connections */
     private int roundsPerRecalculation = 1;
-    /** How many rounds we have gone throug */
-    private int currentRound = 0;
     /** total weight of the endpoints */
     private int totalWeight = 0;
     /** current connection count */
@@ -92,33 +96,27 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
         this.loadBalanceEndpoint = endpoint;        
     }
 
-    public synchronized Endpoint getNextEndpoint(MessageContext messageContext,
-                                                 AlgorithmContext algorithmContext) {                
-        WeightedState s = list[endpointCursor];
-
-        // once we choose an endpoit we countinue to use that until all
-        // the chances are over for this round
-        if (!s.isSendsAvailable()) {
-            // reset this state for this round
-            s.resetPerRound();
-            do {
-                if (++endpointCursor == list.length) {
-                    endpointCursor = 0;             
-                    // if we we have gone through enough cycles to recalculate the weights based
-                    // on the current connection count recalculate the current weights
-                    if (++currentRound == roundsPerRecalculation) {
-                        currentRound = 0;
-                        // we recalculate the current weights based on the connections and weights
-                        reCalcuateWeights(messageContext);
-                    }
+    public Endpoint getNextEndpoint(MessageContext messageContext,
+                                    AlgorithmContext algorithmContext) {
+        Schedule current = schedule;
+        long message = current.counter.getAndIncrement();
+
+        while (message == current.limit) {
+            // we have gone through enough rounds, recalculate the current weights based on
+            // the connections and weights and start the next rounds
+            synchronized (this) {
+                try {
+                    reCalcuateWeights(messageContext);
+                } finally {
+                    schedule = new Schedule(list, roundsPerRecalculation);
                 }
-                s = list[endpointCursor];
-            } while (!s.isSendsAvailable());
+            }
+            current = schedule;
+            message = current.counter.getAndIncrement();
         }
 
-        s.chosenToSend();
-        // get the endpoint correspondint to the current poistion and return it
-        return endpoints.get(s.getEndpointPosition());
+        // get the endpoint corresponding to the current position and return it
+        return endpoints.get(list[current.getStateIndex(message)].getEndpointPosition());
     }
 
     /**
@@ -220,6 +218,8 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
                 return o2.getFixedWeight() - o1.getFixedWeight();
             }
         });
+
+        schedule = new Schedule(list, roundsPerRecalculation);
     }
 
     public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
@@ -227,10 +227,11 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
         return null;
     }
 
-    public void reset(AlgorithmContext algorithmContext) {
+    public synchronized void reset(AlgorithmContext algorithmContext) {
         for (WeightedState state : list) {
             state.reset();
         }
+        schedule = new Schedule(list, roundsPerRecalculation);
     }
 
     public String getName() {
@@ -242,7 +243,9 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
     }
 
     public int getEndpointCursor() {
-        return endpointCursor;
+        Schedule current = schedule;
+        long message = current.counter.get();
+        return message == 0 ? 0 : current.getStateIndex(message - 1);
     }
 
     public int getRoundsPerRecalculation() {
@@ -250,7 +253,10 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
     }
 
     public int getCurrentRound() {
-        return currentRound;
+        Schedule current = schedule;
+        long message = current.counter.get();
+        return message == 0 ? 0 : (int) Math.min((message - 1) / current.stateIndexes.length,
+                roundsPerRecalculation - 1);
     }
 
     public int getTotalWeight() {
@@ -310,6 +316,47 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
 
     public void destroy() {}
 
+    /**
+     * The rounds between two recalculations of the weights. A round holds the index of each
+     * state in the list as many times as its current weight, and the number of messages sent
+     * in these rounds is counted atomically.
+     */
+    private static class Schedule {
+        /** indexes of the states, in the order the endpoints are chosen within a round */
+        private final int[] stateIndexes;
+        /** number of messages to send before recalculating the weights */
+        private final long limit;
+        /** number of messages sent in these rounds */
+        private final AtomicLong counter = new AtomicLong();
+
+        public Schedule(WeightedState[] list, int rounds) {
+            int length = 0;
+            for (WeightedState state : list) {
+                length += Math.max(state.getCurrentWeight(), 0);
+            }
+            // if every dynamic weight has dropped to zero, fall back to the fixed weights
+            boolean fixed = length == 0;
+            if (fixed) {
+                for (WeightedState state : list) {
+                    length += state.getFixedWeight();
+                }
+            }
+            stateIndexes = new int[length];
+            int position = 0;
+            for (int i = 0; i < list.length; i++) {
+                int weight = fixed ? list[i].getFixedWeight() : list[i].getCurrentWeight();
+                for (int j = 0; j < weight; j++) {
+                    stateIndexes[position++] = i;
+                }
+            }
+            limit = (long) length * Math.max(rounds, 1);
+        }
+
+        public int getStateIndex(long message) {
+            return stateIndexes[(int) (message % stateIndexes.length)];
+        }
+    }
+
     /**
      * Simple class for holding the states about the endpoints.
      */
@@ -320,8 +367,6 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
         private int endpointPosition = 0;
         /** current weight of the algorithm, this is calculated based on sends through this epr */
         private int currentWeight = 1;
-        /** calculated weight for this round */
-        private int currentCalcWeight = 0;
         /** current connection count */
         private int currentConnectionCount = 0;
         /** minimum possible weight */
@@ -335,7 +380,6 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
             this.fixedWeight = weight;
             this.endpointPosition = endpointPosition;
             this.currentWeight = fixedWeight;
-            this.currentCalcWeight = fixedWeight;
             this.keyToConnectionCount = keyToConnectionCount;
             this.maxWeight = fixedWeight + LB_WEIGHTED_RRLC_WEIGHT_SKEW;
             this.minWeight = fixedWeight - LB_WEIGHTED_RRLC_WEIGHT_SKEW > 0 ?
@@ -350,14 +394,6 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
             return fixedWeight;
         }
 
-        public boolean isSendsAvailable() {
-            return currentCalcWeight > 0;
-        }
-
-        public void chosenToSend() {
-            currentCalcWeight--;
-        }
-
         public int getCurrentWeight() {
             return currentWeight;
         }
@@ -416,18 +452,12 @@ public class WeightedRRLCAlgorithm implements LoadbalanceAlgorithm, ManagedLifec
                     // we always return the min from maxWeight and calculated Current weight
                     currentWeight = maxWeight < currentWeight ? maxWeight : currentWeight;
                 }
-                currentCalcWeight = currentWeight;
             }
         }
 
-        public void resetPerRound() {
-            currentCalcWeight = currentWeight;
-        }
-
         public void reset() {
             currentWeight = fixedWeight;
             currentConnectionCount = 0;
-            currentCalcWeight = fixedWeight;
         }
     }
 }
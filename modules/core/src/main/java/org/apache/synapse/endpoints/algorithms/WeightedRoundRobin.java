@@ -34,9 +34,7 @@ import org.apache.commons.logging.LogFactory;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This algorithm sends messages based on the weights of the endpoints. For example we may
@@ -48,7 +46,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * </ul>
  * <p> This algorithm will send the first 5 messages through Epr1, next 3 messages through
  * Epr2 and next 2 messages with Epr3. Then algorithm moves again to the first endpoint
- * and cycle continues.</p>  
+ * and cycle continues.</p>
+ * <p>The cycle is kept as an immutable schedule with an atomic message counter, so that the
+ * endpoint of a message is selected without holding a lock. Changing a weight installs a new
+ * schedule.</p>
  */
 public class WeightedRoundRobin implements LoadbalanceAlgorithm, ManagedLifecycle {
 
@@ -63,8 +64,8 @@ public class WeightedRoundRobin implements LoadbalanceAlgorithm, ManagedLifecycl
 
     private Endpoint loadBalanceEndpoint;
 
-    /** Keep track of the current poistion we are operating on the endpointStates array */
-    private int endpointCursor = 0;
+    /** The current cycle over the endpoint states */
+    private volatile Schedule schedule;
 
     /** If a weight is not specified by the user, we use the default as 1 */
     private static final int DEFAULT_WEIGHT = 1;
@@ -79,8 +80,6 @@ public class WeightedRoundRobin implements LoadbalanceAlgorithm, ManagedLifecycl
 
     private AlgorithmThreadLocal threadedAlgorithm = null;
 
-    private ReadWriteLock lock = new ReentrantReadWriteLock();
-
     private WeightedRoundRobinViewMBean view;
 
     /** we are not supporting members */
@@ -99,60 +98,31 @@ public class WeightedRoundRobin implements LoadbalanceAlgorithm, ManagedLifecycl
     public Endpoint getNextEndpoint(MessageContext synapseMessageContext,
                                     AlgorithmContext algorithmContext) {
 
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            if (!isThreadLocal) {
-                synchronized (this) {
-                    EndpointState state = endpointStates[endpointCursor];
-                    if (state.getCurrentWeight() == 0) {
-                        // reset the current state
-                        state.reset();
-
-                        // go to the next endpoint
-                        if (endpointCursor == endpointStates.length - 1) {
-                            endpointCursor = 0;
-                        } else {
-                            ++endpointCursor;
-                        }
-
-                        state = endpointStates[endpointCursor];
-                    }
+        if (!isThreadLocal) {
+            Schedule current = schedule;
+            // return the endpoint corresponding to the next position of the cycle
+            return endpoints.get(current.getEndpointPosition(current.counter.getAndIncrement()));
+        } else {
+            if (threadedAlgorithm != null) {
+                Algorithm algo = threadedAlgorithm.get();
 
-                    // we are about to use this endpoint, so decrement its current count
-                    state.decrementCurrentWeight();
+                int position = algo.getNextEndpoint();
 
-                    // return the endpoint corresponding to the current position
-                    return endpoints.get(state.getEndpointPosition());
-                }
+                return endpoints.get(position);
             } else {
-                if (threadedAlgorithm != null) {
-                    Algorithm algo = threadedAlgorithm.get();
-
-                    int position = algo.getNextEndpoint();
-
-                    return endpoints.get(position);
-                } else {
-                    String msg = "Algorithm: WeightedRoundRobin algorithm not initialized properly";
-                    log.error(msg);
-                    throw new SynapseException(msg);
-                }
+                String msg = "Algorithm: WeightedRoundRobin algorithm not initialized properly";
+                log.error(msg);
+                throw new SynapseException(msg);
             }
-        } finally {
-            readLock.unlock();
         }
-    }        
+    }
 
     public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
         throw new UnsupportedOperationException("This algorithm doesn't operate on Members");
     }
 
     public void reset(AlgorithmContext algorithmContext) {
-        for (EndpointState state : endpointStates) {
-            state.reset();
-        }
-
-        endpointCursor = 0;
+        schedule = new Schedule(endpointStates);
     }
 
     public String getName() {
@@ -199,6 +169,8 @@ public class WeightedRoundRobin implements LoadbalanceAlgorithm, ManagedLifecycl
             }
         }
 
+        schedule = new Schedule(endpointStates);
+
         if (loadBalanceEndpoint instanceof PropertyInclude) {
             MediatorProperty threadLocalProperty = ((PropertyInclude) loadBalanceEndpoint).
                     getProperty(LOADBALANCE_ThEADLOCAL);
@@ -276,6 +248,47 @@ public class WeightedRoundRobin implements LoadbalanceAlgorithm, ManagedLifecycl
     }
 
 
+    /**
+     * An immutable cycle over the endpoint states, in which each endpoint takes as many
+     * successive positions as its weight, and the number of messages sent in the cycle.
+     */
+    private static class Schedule {
+
+        /** Positions of the endpoints, in the order of the states */
+        private final int[] endpointPositions;
+
+        /** The first position of the cycle after each endpoint */
+        private final long[] cumulativeWeights;
+
+        private final AtomicLong counter = new AtomicLong();
+
+        public Schedule(EndpointState[] states) {
+            endpointPositions = new int[states.length];
+            cumulativeWeights = new long[states.length];
+            long total = 0;
+            for (int i = 0; i < states.length; i++) {
+                endpointPositions[i] = states[i].getEndpointPosition();
+                total += states[i].getWeight();
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        public int getEndpointPosition(long message) {
+            long position = message % cumulativeWeights[cumulativeWeights.length - 1];
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulativeWeights[middle] > position) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return endpointPositions[low];
+        }
+    }
+
     /**
      * Simple class for holding the states about the endpoints. 
      */
@@ -325,29 +338,27 @@ public class WeightedRoundRobin implements LoadbalanceAlgorithm, ManagedLifecycl
         });
     }
 
-    public void changeWeight(int pos, int weight) {
-        Lock writeLock = lock.writeLock();
-        writeLock.lock();
-        try {
-            EndpointState state = null;
-            for (EndpointState s : endpointStates) {
-                if (s.getEndpointPosition() == pos) {
-                    state = s;
-                }
-            }
+    public synchronized void changeWeight(int pos, int weight) {
+        if (weight <= 0) {
+            throw new SynapseException("Weight must be greater than zero");
+        }
 
-            if (state == null) {
-                throw new SynapseException("The specified endpoint position cannot be found");
+        EndpointState state = null;
+        for (EndpointState s : endpointStates) {
+            if (s.getEndpointPosition() == pos) {
+                state = s;
             }
+        }
+
+        if (state == null) {
+            throw new SynapseException("The specified endpoint position cannot be found");
+        }
 
-            state.weight = weight;
+        state.weight = weight;
 
-            calculate();
+        calculate();
 
-            reset(null);
-        } finally {
-            writeLock.unlock();
-        }
+        reset(null);
     }
 
     public int[] getCurrentWeights() {
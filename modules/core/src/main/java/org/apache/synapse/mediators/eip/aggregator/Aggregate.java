@@ -34,7 +34,7 @@ import java.util.TimerTask;
 /**
  * An instance of this class is created to manage each aggregation group, and it holds
  * the aggregation properties and the messages collected during aggregation. This class also
- * times out itself after the timeout expires it
+ * times out itself after the timeout expires it, when run by the {@link AggregateTimeoutScheduler}
  */
 public class Aggregate extends TimerTask {
 
@@ -52,8 +52,12 @@ public class Aggregate extends TimerTask {
     private AggregateMediator aggregateMediator = null;
     private List<MessageContext> messages = new ArrayList<MessageContext>();
     private boolean locked = false;
-    private boolean completed = false;
+    private volatile boolean completed = false;
     private SynapseEnvironment synEnv = null;
+    /** The scheduler of the timeout of this aggregate, if it has a timeout */
+    private AggregateTimeoutScheduler timeoutScheduler = null;
+    /** The tick of the timeout wheel slot holding this aggregate, only used by the scheduler thread */
+    private long timeoutTick = -1;
 
     /**
      * Fault handler for the aggregate mediator
@@ -227,19 +231,54 @@ public class Aggregate extends TimerTask {
     }
 
     public void run() {
-        while (true) {
-            if (completed) {
-                break;
-            }
-            if (getLock()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Time : " + System.currentTimeMillis() + " and this aggregator " +
-                            "expired at : " + expiryTimeMillis);
-                }
-                synEnv.getExecutorService().execute(new AggregateTimeout(this));
-                break;
-            }
+        timeout();
+    }
+
+    /**
+     * Hand this aggregate over to the Synapse executor to be completed on its timeout, unless it
+     * has been completed already. This never waits for a mediating thread holding the aggregate.
+     *
+     * @return false if the aggregate is held by a mediating thread and must be timed out later
+     */
+    boolean timeout() {
+        if (completed) {
+            return true;
+        }
+        if (!getLock()) {
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Time : " + System.currentTimeMillis() + " and this aggregator " +
+                    "expired at : " + expiryTimeMillis);
         }
+        synEnv.getExecutorService().execute(new AggregateTimeout(this));
+        return true;
+    }
+
+    /**
+     * Cancel the timeout of this aggregate, removing it from its timeout scheduler.
+     *
+     * @return as {@link TimerTask#cancel()}
+     */
+    @Override
+    public boolean cancel() {
+        if (timeoutScheduler != null) {
+            timeoutScheduler.cancel(this);
+            timeoutScheduler = null;
+        }
+        return super.cancel();
+    }
+
+    void setTimeoutScheduler(AggregateTimeoutScheduler timeoutScheduler) {
+        this.timeoutScheduler = timeoutScheduler;
+    }
+
+    long getTimeoutTick() {
+        return timeoutTick;
+    }
+
+    void setTimeoutTick(long timeoutTick) {
+        this.timeoutTick = timeoutTick;
     }
 
     /**
@@ -63,6 +63,7 @@ import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Aggregate a number of messages that are determined to be for a particular group, and combine
@@ -70,9 +71,9 @@ import java.util.*;
  * an aggregator acts like a filter, and may look at a correlation XPath expression to select
  * messages for aggregation - or look at messageSequence number properties for aggregation or
  * let any other (i.e. non aggregatable) messages flow through
- * An instance of this mediator will register with a Timer to be notified after a specified timeout,
- * so that aggregations that never would complete could be timed out and cleared from memory and
- * any fault conditions handled
+ * An instance of this mediator will register with the {@link AggregateTimeoutScheduler} of the
+ * Synapse configuration to be notified after a specified timeout, so that aggregations that never
+ * would complete could be timed out and cleared from memory and any fault conditions handled
  */
 public class AggregateMediator extends AbstractMediator implements ManagedLifecycle,
                                                                    FlowContinuableMediator {
@@ -112,17 +113,15 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
     /** Inline sequence definition holder that holds the onComplete sequence */
     private SequenceMediator onCompleteSequence = null;
 
-    /** The active aggregates currently being processd */
-    private Map<String, Aggregate> activeAggregates =
-        Collections.synchronizedMap(new HashMap<String, Aggregate>());
+    /** The active aggregates currently being processd, each of them is locked on its own */
+    private Map<String, Aggregate> activeAggregates = new ConcurrentHashMap<String, Aggregate>();
 
     private String id = null;
 
     /** Property which contains the Enclosing element of the aggregated message */
     private String enclosingElementPropertyName = null;
 
-    /** Lock object to provide the synchronized access to the activeAggregates on checking */
-    private final Object lock = new Object();
+    private final AggregateStatistics statistics = AggregateStatistics.getInstance();
 
     /** Reference to the synapse environment */
     private SynapseEnvironment synapseEnv;
@@ -222,48 +221,37 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
             }
             if (result != null) {
 
+                String correlation = correlateExpression.toString();
                 while (aggregate == null) {
 
-                    synchronized (lock) {
-
-                        if (activeAggregates.containsKey(correlateExpression.toString())) {
-
-                            aggregate = activeAggregates.get(correlateExpression.toString());
-                            if (aggregate != null) {
-                                if (!aggregate.getLock()) {
-                                    aggregate = null;
-                                }
-                            }
+                    aggregate = activeAggregates.get(correlation);
+                    if (aggregate != null) {
+                        if (!aggregate.getLock()) {
+                            aggregate = null;
+                        }
 
-                        } else {
+                    } else {
 
-                            if (synLog.isTraceOrDebugEnabled()) {
-                                synLog.traceOrDebug("Creating new Aggregator - " +
-                                        (completionTimeoutMillis > 0 ? "expires in : "
-                                                + (completionTimeoutMillis / 1000) + "secs" :
-                                                "without expiry time"));
-                            }
-                            if (isAggregationCompleted(synCtx)) {
-                                return false;
-                            }
+                        if (synLog.isTraceOrDebugEnabled()) {
+                            synLog.traceOrDebug("Creating new Aggregator - " +
+                                    (completionTimeoutMillis > 0 ? "expires in : "
+                                            + (completionTimeoutMillis / 1000) + "secs" :
+                                            "without expiry time"));
+                        }
+                        if (isAggregationCompleted(synCtx)) {
+                            return false;
+                        }
 
-                            Double minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
-                            Double maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
-                    
-                            aggregate = new Aggregate(
-                                    synCtx.getEnvironment(),
-                                    correlateExpression.toString(),
-                                    completionTimeoutMillis,
-                                    minMsg.intValue(),
-                                    maxMsg.intValue(), this, synCtx.getFaultStack().peek());
+                        Double minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
+                        Double maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
 
-                            if (completionTimeoutMillis > 0) {
-                                synCtx.getConfiguration().getSynapseTimer().
-                                        schedule(aggregate, completionTimeoutMillis);
-                            }
-                            aggregate.getLock();
-                            activeAggregates.put(correlateExpression.toString(), aggregate);
-                        }
+                        aggregate = new Aggregate(
+                                synCtx.getEnvironment(),
+                                correlation,
+                                completionTimeoutMillis,
+                                minMsg.intValue(),
+                                maxMsg.intValue(), this, synCtx.getFaultStack().peek());
+                        aggregate = addActiveAggregate(correlation, aggregate, synCtx);
                     }
                 }
 
@@ -279,62 +267,39 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
                 if (o != null && o instanceof String) {
                     correlation = (String) o;
                     while (aggregate == null) {
-                        synchronized (lock) {
-                            if (activeAggregates.containsKey(correlation)) {
-                                aggregate = activeAggregates.get(correlation);
-                                if (aggregate != null) {
-                                    if (!aggregate.getLock()) {
-                                        aggregate = null;
-                                    }
-                                } else {
-                                    break;
-                                }
-                            } else {
-                                if (synLog.isTraceOrDebugEnabled()) {
-                                    synLog.traceOrDebug("Creating new Aggregator - " +
-                                            (completionTimeoutMillis > 0 ? "expires in : "
-                                                    + (completionTimeoutMillis / 1000) + "secs" :
-                                                    "without expiry time"));
-                                }
-
-                                if (isAggregationCompleted(synCtx)) {
-                                    return false;
-                                }
+                        aggregate = activeAggregates.get(correlation);
+                        if (aggregate != null) {
+                            if (!aggregate.getLock()) {
+                                aggregate = null;
+                            }
+                        } else {
+                            if (synLog.isTraceOrDebugEnabled()) {
+                                synLog.traceOrDebug("Creating new Aggregator - " +
+                                        (completionTimeoutMillis > 0 ? "expires in : "
+                                                + (completionTimeoutMillis / 1000) + "secs" :
+                                                "without expiry time"));
+                            }
 
-                                Double minMsg = -1.0;
-                                if (minMessagesToComplete != null) {
-                                    minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
-                                }
-                                Double maxMsg = -1.0;
-                                if (maxMessagesToComplete != null) {
-                                    maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
-                                }
+                            if (isAggregationCompleted(synCtx)) {
+                                return false;
+                            }
 
-                                aggregate = new Aggregate(
-                                        synCtx.getEnvironment(),
-                                        correlation,
-                                        completionTimeoutMillis,
-                                        minMsg.intValue(),
-                                        maxMsg.intValue(), this, synCtx.getFaultStack().peek());
-
-                                if (completionTimeoutMillis > 0) {
-                                    synchronized(aggregate) {
-                                        if (!aggregate.isCompleted()) {
-                                            try {
-                                                synCtx.getConfiguration().getSynapseTimer().
-                                                        schedule(aggregate, completionTimeoutMillis);
-                                            } catch (IllegalStateException e) {
-                                                log.warn("Synapse timer already cancelled. Resetting Synapse timer");
-                                                synCtx.getConfiguration().setSynapseTimer(new Timer(true));
-                                                synCtx.getConfiguration().getSynapseTimer().
-                                                        schedule(aggregate, completionTimeoutMillis);
-                                            }
-                                        }
-                                    }
-                                }
-                                aggregate.getLock();
-                                activeAggregates.put(correlation, aggregate);
+                            Double minMsg = -1.0;
+                            if (minMessagesToComplete != null) {
+                                minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
+                            }
+                            Double maxMsg = -1.0;
+                            if (maxMessagesToComplete != null) {
+                                maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
                             }
+
+                            aggregate = new Aggregate(
+                                    synCtx.getEnvironment(),
+                                    correlation,
+                                    completionTimeoutMillis,
+                                    minMsg.intValue(),
+                                    maxMsg.intValue(), this, synCtx.getFaultStack().peek());
+                            aggregate = addActiveAggregate(correlation, aggregate, synCtx);
                         }
                     }
                     
@@ -392,6 +357,34 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         return false;
     }
 
+    /**
+     * Register a new aggregate for the given correlation and schedule its completion timeout,
+     * unless another message of the same correlation has registered an aggregate in the meantime.
+     *
+     * @param correlation correlation of the aggregate
+     * @param aggregate   the new aggregate
+     * @param synCtx      the message creating the aggregate
+     * @return the aggregate registered for the correlation
+     */
+    private Aggregate addActiveAggregate(String correlation, Aggregate aggregate, MessageContext synCtx) {
+        Aggregate existing = activeAggregates.putIfAbsent(correlation, aggregate);
+        if (existing != null) {
+            return existing.getLock() ? existing : null;
+        }
+        statistics.aggregateOpened();
+        if (completionTimeoutMillis > 0) {
+            synCtx.getConfiguration().getAggregateTimeoutScheduler().schedule(aggregate);
+        }
+        aggregate.getLock();
+        return aggregate;
+    }
+
+    private void removeActiveAggregate(String correlation, Aggregate aggregate) {
+        if (activeAggregates.remove(correlation, aggregate)) {
+            statistics.aggregateClosed();
+        }
+    }
+
     /*
      * Check whether aggregation is already completed by time-out/receiving required number of min/max messages,
       * and we are receiving a message after the aggregation is completed.
@@ -462,10 +455,11 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         }
 
         // cancel the timer
-        synchronized(this) {
+        synchronized(aggregate) {
             if (!aggregate.isCompleted()) {
                 aggregate.cancel();
                 aggregate.setCompleted(true);
+                statistics.aggregateCompleted();
 
                 MessageContext lastMessage = aggregate.getLastMessage();
                 if (lastMessage != null) {
@@ -507,7 +501,7 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         }
 
         aggregate.clear();
-        activeAggregates.remove(aggregate.getCorrelation());
+        removeActiveAggregate(aggregate.getCorrelation(), aggregate);
 
         if ((correlateExpression != null &&
             correlateExpression.toString().equals(aggregate.getCorrelation())) ||
@@ -821,7 +815,9 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
     
     private void handleException(Aggregate aggregate, String msg, Exception exception, MessageContext msgContext) {
         aggregate.clear();
-        activeAggregates.clear();
+        for (Map.Entry<String, Aggregate> entry : activeAggregates.entrySet()) {
+            removeActiveAggregate(entry.getKey(), entry.getValue());
+        }
         if (exception != null) {
             super.handleException(msg, exception, msgContext);
         } else {
@@ -0,0 +1,131 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.mediators.eip.aggregator;
+
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the open aggregates of all the aggregate mediators and of how late the
+ * completion timeouts of the aggregates fire compared to their expiry times. The statistics are
+ * exposed over JMX through {@link AggregateView}.
+ */
+public class AggregateStatistics {
+
+    private static final AggregateStatistics instance = new AggregateStatistics();
+
+    static {
+        MBeanRegistrar.getInstance().registerMBean(new AggregateView(instance), "Aggregate", "Aggregates");
+    }
+
+    private final AtomicLong openAggregateCount = new AtomicLong();
+
+    private final AtomicLong pendingTimeoutCount = new AtomicLong();
+
+    private final AtomicLong createdCount = new AtomicLong();
+
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    private final AtomicLong totalTimeoutLatency = new AtomicLong();
+
+    private final AtomicLong maxTimeoutLatency = new AtomicLong();
+
+    private AggregateStatistics() {
+    }
+
+    public static AggregateStatistics getInstance() {
+        return instance;
+    }
+
+    public void aggregateOpened() {
+        openAggregateCount.incrementAndGet();
+        createdCount.incrementAndGet();
+    }
+
+    public void aggregateClosed() {
+        openAggregateCount.decrementAndGet();
+    }
+
+    public void aggregateCompleted() {
+        completedCount.incrementAndGet();
+    }
+
+    public void timeoutScheduled() {
+        pendingTimeoutCount.incrementAndGet();
+    }
+
+    public void timeoutCancelled() {
+        pendingTimeoutCount.decrementAndGet();
+    }
+
+    /**
+     * @param latency time in milliseconds between the expiry of the aggregate and the timeout
+     */
+    public void timedOut(long latency) {
+        pendingTimeoutCount.decrementAndGet();
+        timedOutCount.incrementAndGet();
+        totalTimeoutLatency.addAndGet(latency);
+        long max = maxTimeoutLatency.get();
+        while (latency > max && !maxTimeoutLatency.compareAndSet(max, latency)) {
+            max = maxTimeoutLatency.get();
+        }
+    }
+
+    public long getOpenAggregateCount() {
+        return openAggregateCount.get();
+    }
+
+    public long getPendingTimeoutCount() {
+        return pendingTimeoutCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    public long getTotalTimeoutLatency() {
+        return totalTimeoutLatency.get();
+    }
+
+    public long getMaxTimeoutLatency() {
+        return maxTimeoutLatency.get();
+    }
+
+    /**
+     * Reset the counters. The open aggregates and pending timeouts are the current state rather
+     * than counters, hence they are not reset.
+     */
+    public void reset() {
+        createdCount.set(0);
+        completedCount.set(0);
+        timedOutCount.set(0);
+        totalTimeoutLatency.set(0);
+        maxTimeoutLatency.set(0);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.mediators.eip.aggregator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires the completion timeouts of the aggregates of the aggregate mediators of a Synapse
+ * configuration, which owns the scheduler and shuts it down when it is destroyed. The aggregates
+ * are kept in a hashed timing wheel, owned by a single scheduler thread which advances the wheel
+ * every tick, so that scheduling an aggregate is a lock free enqueue and the cost of a tick only
+ * depends on the aggregates expiring within it. A timed out aggregate is handed over to the
+ * Synapse executor by {@link Aggregate#timeout()}, hence the scheduler thread never runs mediation.
+ * An aggregate which is being mediated when it times out is tried again on the next tick.
+ * <p>
+ * Aggregates completed before their timeout are cancelled, which removes them from their slot on
+ * the next tick so that long timeouts do not keep completed aggregates in memory.
+ */
+public class AggregateTimeoutScheduler {
+
+    private static final Log log = LogFactory.getLog(AggregateTimeoutScheduler.class);
+
+    private static final long DEFAULT_TICK_DURATION = 100;
+
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickDuration;
+
+    private final Set<Aggregate>[] slots;
+
+    private final int mask;
+
+    /** Aggregates scheduled since the last tick, placed in the wheel by the scheduler thread */
+    private final ConcurrentLinkedQueue<Aggregate> pending = new ConcurrentLinkedQueue<Aggregate>();
+
+    /** Aggregates cancelled since the last tick, removed from the wheel by the scheduler thread */
+    private final ConcurrentLinkedQueue<Aggregate> cancelled = new ConcurrentLinkedQueue<Aggregate>();
+
+    private final AggregateStatistics statistics = AggregateStatistics.getInstance();
+
+    /** The last tick which has completely passed and whose slot has been visited */
+    private long lastTick;
+
+    private ScheduledExecutorService executor;
+
+    private volatile boolean shutdown = false;
+
+    public AggregateTimeoutScheduler() {
+        this(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    /**
+     * @param tickDuration duration of a tick in milliseconds
+     * @param wheelSize    number of slots, rounded up to a power of two
+     * @param currentTime  time the wheel starts at
+     */
+    @SuppressWarnings("unchecked")
+    AggregateTimeoutScheduler(long tickDuration, int wheelSize, long currentTime) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickDuration = tickDuration;
+        this.slots = new Set[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new HashSet<Aggregate>();
+        }
+        this.mask = size - 1;
+        this.lastTick = currentTime / tickDuration - 1;
+    }
+
+    /**
+     * Schedule the timeout of an aggregate at its expiry time.
+     *
+     * @param aggregate the aggregate
+     */
+    public void schedule(Aggregate aggregate) {
+        if (shutdown) {
+            if (log.isDebugEnabled()) {
+                log.debug("Timeout scheduler is shut down, the aggregate for " + aggregate.getCorrelation()
+                        + " will not time out");
+            }
+            return;
+        }
+        statistics.timeoutScheduled();
+        aggregate.setTimeoutScheduler(this);
+        pending.add(aggregate);
+    }
+
+    /**
+     * Cancel the timeout of a completed aggregate.
+     *
+     * @param aggregate the aggregate
+     */
+    public void cancel(Aggregate aggregate) {
+        if (!shutdown) {
+            cancelled.add(aggregate);
+        }
+    }
+
+    /**
+     * Start the scheduler thread advancing the wheel.
+     */
+    public synchronized void start() {
+        if (executor != null || shutdown) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "aggregate-timeout-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    expire(System.currentTimeMillis());
+                } catch (Throwable t) {
+                    log.error("Error while expiring the aggregates", t);
+                }
+            }
+        }, tickDuration, tickDuration, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the scheduler thread and drop the aggregates waiting for their timeouts.
+     */
+    public void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            pending.clear();
+            cancelled.clear();
+            for (Set<Aggregate> slot : slots) {
+                slot.clear();
+            }
+        }
+    }
+
+    /**
+     * Place the newly scheduled aggregates in the wheel, remove the cancelled ones and fire the
+     * timeouts of the aggregates expired before the last completely passed tick.
+     *
+     * @param currentTime the current time
+     * @return the number of aggregates timed out
+     */
+    synchronized int expire(long currentTime) {
+        if (shutdown) {
+            return 0;
+        }
+        Aggregate aggregate;
+        while ((aggregate = pending.poll()) != null) {
+            if (aggregate.isCompleted()) {
+                statistics.timeoutCancelled();
+            } else {
+                place(aggregate, Math.max(aggregate.getExpiryTimeMillis() / tickDuration, lastTick + 1));
+            }
+        }
+        while ((aggregate = cancelled.poll()) != null) {
+            if (aggregate.getTimeoutTick() >= 0 && slot(aggregate.getTimeoutTick()).remove(aggregate)) {
+                aggregate.setTimeoutTick(-1);
+                statistics.timeoutCancelled();
+            }
+        }
+        long currentTick = currentTime / tickDuration - 1;
+        if (currentTick <= lastTick) {
+            return 0;
+        }
+        int timedOut = 0;
+        List<Aggregate> busy = new ArrayList<Aggregate>();
+        long from = Math.max(lastTick + 1, currentTick - mask);
+        lastTick = currentTick;
+        for (long tick = from; tick <= currentTick; tick++) {
+            Iterator<Aggregate> aggregates = slot(tick).iterator();
+            while (aggregates.hasNext()) {
+                aggregate = aggregates.next();
+                if (aggregate.isCompleted()) {
+                    aggregates.remove();
+                    aggregate.setTimeoutTick(-1);
+                    statistics.timeoutCancelled();
+                } else if (aggregate.getTimeoutTick() <= currentTick) {
+                    // aggregates of a later round of the wheel stay in the slot
+                    aggregates.remove();
+                    aggregate.setTimeoutTick(-1);
+                    boolean handedOver;
+                    try {
+                        handedOver = aggregate.timeout();
+                    } catch (Throwable t) {
+                        log.error("Error while timing out the aggregate for " + aggregate.getCorrelation(), t);
+                        continue;
+                    }
+                    if (handedOver) {
+                        statistics.timedOut(Math.max(0, currentTime - aggregate.getExpiryTimeMillis()));
+                        timedOut++;
+                    } else {
+                        busy.add(aggregate);
+                    }
+                }
+            }
+        }
+        for (Aggregate retry : busy) {
+            // locked by a mediating thread, try again on the next tick rather than waiting for it
+            place(retry, currentTick + 1);
+        }
+        return timedOut;
+    }
+
+    private void place(Aggregate aggregate, long tick) {
+        aggregate.setTimeoutTick(tick);
+        slot(tick).add(aggregate);
+    }
+
+    private Set<Aggregate> slot(long tick) {
+        return slots[(int) (tick & mask)];
+    }
+}
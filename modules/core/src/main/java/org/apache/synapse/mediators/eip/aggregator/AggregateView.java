@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.mediators.eip.aggregator;
+
+public class AggregateView implements AggregateViewMBean {
+
+    private AggregateStatistics statistics;
+
+    public AggregateView(AggregateStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public long getOpenAggregateCount() {
+        return statistics.getOpenAggregateCount();
+    }
+
+    public long getPendingTimeoutCount() {
+        return statistics.getPendingTimeoutCount();
+    }
+
+    public long getCreatedCount() {
+        return statistics.getCreatedCount();
+    }
+
+    public long getCompletedCount() {
+        return statistics.getCompletedCount();
+    }
+
+    public long getTimedOutCount() {
+        return statistics.getTimedOutCount();
+    }
+
+    public double getAverageTimeoutLatency() {
+        long timedOut = statistics.getTimedOutCount();
+        return timedOut == 0 ? 0 : (double) statistics.getTotalTimeoutLatency() / timedOut;
+    }
+
+    public long getMaxTimeoutLatency() {
+        return statistics.getMaxTimeoutLatency();
+    }
+
+    public void reset() {
+        statistics.reset();
+    }
+}
@@ -39,6 +39,7 @@ import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.util.InlineExpressionTemplate;
 import org.apache.synapse.util.InlineExpressionUtil;
 import org.apache.synapse.util.xpath.SynapseJsonPath;
 import org.jaxen.JaxenException;
@@ -93,6 +94,11 @@ public class EnrichMediator extends AbstractMediator {
 
     private boolean containsInlineExpressions = false;
 
+    /**
+     * Compiled form of the inline source, used when the inline source contains expressions
+     */
+    private InlineExpressionTemplate inlineExpressionTemplate = null;
+
     public static final String ACTION_REMOVE = "remove";
 
     public boolean mediate(MessageContext synCtx) {
@@ -184,13 +190,12 @@ public class EnrichMediator extends AbstractMediator {
             OMNode inlineOMNode = source.getInlineOMNode();
             source.setInitialInlineOMNode(inlineOMNode);
             if (inlineOMNode != null) {
-                if (inlineOMNode instanceof OMText) {
-                    // If the node type is text, it can either be a JSON string or an expression
-                    // If it is an expression we must check again after resolving the expressions
-                    // whether it is XML or JSON
-                    isInlineTextXML = setDynamicValuesInNode(synCtx, ((OMTextImpl) inlineOMNode).getText());
-                } else if (inlineOMNode instanceof OMElement) {
-                    isInlineTextXML = setDynamicValuesInNode(synCtx, inlineOMNode.toString());
+                // If the node type is text, it can either be a JSON string or an expression
+                // If it is an expression we must check again after resolving the expressions
+                // whether it is XML or JSON
+                InlineExpressionTemplate template = getInlineExpressionTemplate(inlineOMNode);
+                if (template != null) {
+                    isInlineTextXML = setDynamicValuesInNode(synCtx, template);
                 }
             }
         }
@@ -276,14 +281,14 @@ public class EnrichMediator extends AbstractMediator {
     /**
      * Sets the dynamic value resolved inline text in the source
      *
-     * @param messageContext              Message Context
-     * @param inlineStringWithExpressions Inline String
+     * @param messageContext Message Context
+     * @param template       Compiled inline String
      * @return true if the inline text is XML, false otherwise
      */
-    private boolean setDynamicValuesInNode(MessageContext messageContext, String inlineStringWithExpressions) {
+    private boolean setDynamicValuesInNode(MessageContext messageContext, InlineExpressionTemplate template) {
 
         boolean isInlineTextXML = false;
-        String inlineString = InlineExpressionUtil.replaceDynamicValues(messageContext, inlineStringWithExpressions);
+        String inlineString = template.render(messageContext, true);
         try {
             // After the expressions in the inline text is replaced with the value, the string must be parsed
             // again to identify whether it has changed to a XML
@@ -296,6 +301,26 @@ public class EnrichMediator extends AbstractMediator {
         return isInlineTextXML;
     }
 
+    /**
+     * Get the compiled inline source. If it has not been compiled when the mediator was built,
+     * it is compiled from the given inline node.
+     *
+     * @param inlineOMNode Inline source node
+     * @return compiled inline source or null if the node is neither a text nor an element
+     */
+    private InlineExpressionTemplate getInlineExpressionTemplate(OMNode inlineOMNode) {
+
+        if (inlineExpressionTemplate == null) {
+            if (inlineOMNode instanceof OMText) {
+                inlineExpressionTemplate =
+                        InlineExpressionUtil.getTemplate(((OMTextImpl) inlineOMNode).getText());
+            } else if (inlineOMNode instanceof OMElement) {
+                inlineExpressionTemplate = InlineExpressionUtil.getTemplate(inlineOMNode.toString());
+            }
+        }
+        return inlineExpressionTemplate;
+    }
+
     public Source getSource() {
         return source;
     }
@@ -330,4 +355,9 @@ public class EnrichMediator extends AbstractMediator {
 
         this.containsInlineExpressions = containsInlineExpressions;
     }
+
+    public void setInlineExpressionTemplate(InlineExpressionTemplate inlineExpressionTemplate) {
+
+        this.inlineExpressionTemplate = inlineExpressionTemplate;
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.List;
+
+/**
+ * A message consumer which can hand out several messages of the store before any of them is
+ * acknowledged, and acknowledge each of them on its own. Used by the message processors which
+ * keep more than one message in flight.
+ */
+public interface MessageBatchConsumer extends MessageConsumer {
+    /**
+     * Receives the messages following the ones already received and not yet acknowledged.
+     * @param count maximum number of messages to receive
+     * @return the messages in the order of the store, an empty list if there are no more messages.
+     */
+    List<MessageContext> receive(int count);
+
+    /**
+     * Acknowledges one of the messages received so that it will be removed from the store.
+     * @param messageContext a message returned by {@link #receive(int)}
+     * @return {@code true} if the acknowledgement is successful. {@code false} otherwise.
+     */
+    boolean ack(MessageContext messageContext);
+
+    /**
+     * Releases the messages received and not acknowledged, so that they are received again.
+     */
+    void release();
+}
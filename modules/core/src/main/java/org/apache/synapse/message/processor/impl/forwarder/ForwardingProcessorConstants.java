@@ -81,4 +81,15 @@ public final class ForwardingProcessorConstants {
      * Message store to keep un-processable messages of message processor
      */
     public static final String FAIL_MESSAGES_STORE = "message.processor.failMessagesStore";
+
+    /**
+     * Maximum number of messages forwarded concurrently, messages are forwarded one at a time by default
+     */
+    public static final String MAX_IN_FLIGHT_MESSAGES = "max.in.flight.messages";
+
+    /**
+     * Whether the messages forwarded concurrently are removed from the store in the order they were received.
+     * Defaults to true
+     */
+    public static final String ORDERED_ACKNOWLEDGEMENT = "ordered.acknowledgement";
 }
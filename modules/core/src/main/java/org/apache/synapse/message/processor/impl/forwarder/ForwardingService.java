@@ -45,6 +45,7 @@ import org.apache.synapse.endpoints.AbstractEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.endpoints.TemplateEndpoint;
+import org.apache.synapse.message.MessageBatchConsumer;
 import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.StoreForwardException;
 import org.apache.synapse.message.processor.MessageProcessor;
@@ -73,7 +74,9 @@ import java.util.regex.Pattern;
 /**
  * This task is responsible for forwarding a request to a given endpoint. This
  * is based on a blocking implementation and can send only one message at a
- * time. Also this supports Throttling and reliable messaging.
+ * time. Also this supports Throttling and reliable messaging. If more than one
+ * message may be in flight and the consumer of the store supports it, the
+ * messages are forwarded concurrently through a {@link ForwardingWindow}.
  */
 public class ForwardingService implements Task, ManagedLifecycle {
 	private static final Log log = LogFactory.getLog(ForwardingService.class);
@@ -177,6 +180,21 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	 */
 	private boolean isResponseValidationNotRequired = false;
 
+	// Observes the messages added to the store, to wait for them and measure their latency
+	private MessageArrivalMonitor arrivalMonitor = null;
+
+	/*
+	 * Maximum number of messages forwarded concurrently, and whether they are
+	 * removed from the store in the order they were received
+	 */
+	private int maxInFlightMessages = 1;
+	private boolean isOrderedAck = true;
+
+	private ForwardingWindow window = null;
+
+	// Whether this service forwards the messages handed to it by the window of another service
+	private boolean isWindowLane = false;
+
 	Pattern httpPattern = Pattern.compile("^(http|https|hl7):");
 
 	public ForwardingService(MessageProcessor messageProcessor, BlockingMsgSender sender,
@@ -231,10 +249,23 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		do {
 			resetService();
 			MessageContext messageContext = null;
+			// taken before fetching, so that a message stored meanwhile is not waited for
+			long arrivalMark = arrivalMonitor != null ? arrivalMonitor.getArrivals() : 0;
+			boolean isStoreEmpty = false;
 			try {
 				if (!this.messageProcessor.isDeactivated()) {
-					messageContext = fetch();
-					if (messageContext != null) {
+					messageContext = window == null ? fetch() : null;
+					if (window != null) {
+						// messages received for up to a second are forwarded concurrently
+						int received = window.dispatch(new Date().getTime()
+								+ MessageProcessorConstants.THRESHOULD_INTERVAL);
+						isTerminated = isTerminated || messageProcessor.isDeactivated();
+						isStoreEmpty = received == 0;
+						// this means we have consumed all the messages
+						if (received == 0 && isRunningUnderCronExpression()) {
+							break;
+						}
+					} else if (messageContext != null) {
 
 						Set proSet = messageContext.getPropertyKeySet();
 						if (proSet != null) {
@@ -248,6 +279,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 					} else {
 						// either the connection is broken or there are no new
 						// massages.
+						isStoreEmpty = true;
 						if (log.isDebugEnabled()) {
 							log.debug("No messages were received for message processor ["
 									+ messageProcessor.getName() + "]");
@@ -309,7 +341,11 @@ public class ForwardingService implements Task, ManagedLifecycle {
 			if (interval > 0 && interval < MessageProcessorConstants.THRESHOULD_INTERVAL &&
 					!isRunningUnderCronExpression()) {
 				try {
-					Thread.sleep(interval);
+					if (isStoreEmpty && arrivalMonitor != null) {
+						waitForMessage(arrivalMark, startTime);
+					} else {
+						Thread.sleep(interval);
+					}
 				} catch (InterruptedException e) {
 					log.debug("Current Thread was interrupted while it is sleeping.");
 				}
@@ -340,11 +376,17 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	}
 
 	public void init(SynapseEnvironment se) throws SynapseException {
-		// Setting up the JMS consumer here.
-		try {
-			setMessageConsumer();
-		} catch (StoreForwardException e) {
-			throw new SynapseException("Error while initializing consumer " + messageProcessor.getName(), e);
+		if (messageProcessor instanceof ScheduledMessageForwardingProcessor) {
+			arrivalMonitor = ((ScheduledMessageForwardingProcessor) messageProcessor).getArrivalMonitor();
+		}
+
+		// Setting up the JMS consumer here. Lanes of a window use the consumer of the window.
+		if (!isWindowLane) {
+			try {
+				setMessageConsumer();
+			} catch (StoreForwardException e) {
+				throw new SynapseException("Error while initializing consumer " + messageProcessor.getName(), e);
+			}
 		}
 
 		// Defaults to -1.
@@ -416,6 +458,21 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		// Setting the interval value.
 		interval = Long.parseLong((String) parametersMap.get(MessageProcessorConstants.INTERVAL));
 
+		if (parametersMap.get(ForwardingProcessorConstants.MAX_IN_FLIGHT_MESSAGES) != null) {
+			maxInFlightMessages = Integer.parseInt(
+					((String) parametersMap.get(ForwardingProcessorConstants.MAX_IN_FLIGHT_MESSAGES)).trim());
+		}
+
+		// Default value should be true.
+		if (parametersMap.get(ForwardingProcessorConstants.ORDERED_ACKNOWLEDGEMENT) != null) {
+			isOrderedAck = Boolean.parseBoolean(
+					(String) parametersMap.get(ForwardingProcessorConstants.ORDERED_ACKNOWLEDGEMENT));
+		}
+
+		if (maxInFlightMessages > 1 && !isWindowLane) {
+			initWindow(se);
+		}
+
 		/*
 		 * Make sure to set the isInitialized flag to TRUE in order to avoid
 		 * re-initialization.
@@ -423,6 +480,54 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		initialized = true;
 	}
 
+	/*
+	 * Sets up the window forwarding messages concurrently, each lane of the
+	 * window being a service configured the same as this one.
+	 */
+	private void initWindow(SynapseEnvironment se) {
+		if (!(messageConsumer instanceof MessageBatchConsumer)) {
+			log.warn("The consumer of the message store of message processor [" + messageProcessor.getName()
+					+ "] can not keep more than one message in flight, hence messages are forwarded one at a time");
+			return;
+		}
+		List<ForwardingService> lanes = new ArrayList<ForwardingService>(maxInFlightMessages);
+		for (int i = 0; i < maxInFlightMessages; i++) {
+			ForwardingService lane = new ForwardingService(messageProcessor, sender, synapseEnvironment, interval);
+			lane.isWindowLane = true;
+			lane.messageConsumer = messageConsumer;
+			lane.init(se);
+			lanes.add(lane);
+		}
+		window = new ForwardingWindow(messageProcessor, (MessageBatchConsumer) messageConsumer, lanes, isOrderedAck);
+		if (log.isDebugEnabled()) {
+			log.debug("Message processor [" + messageProcessor.getName() + "] forwards up to "
+					+ maxInFlightMessages + " messages concurrently");
+		}
+	}
+
+	/**
+	 * Forwards a message handed to this lane by a {@link ForwardingWindow}.
+	 *
+	 * @param messageContext message to forward
+	 * @param consumer       consumer through which the message is acknowledged
+	 */
+	void dispatchInWindow(MessageContext messageContext, MessageConsumer consumer) {
+		messageConsumer = consumer;
+		resetService();
+		try {
+			Set proSet = messageContext.getPropertyKeySet();
+			if (proSet != null) {
+				proSet.remove(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR);
+			}
+			isTerminated = messageProcessor.isDeactivated();
+			dispatch(messageContext);
+		} catch (Throwable e) {
+			log.fatal("Deactivating the message processor [" + this.messageProcessor.getName()
+					+ "]", e);
+			deactivateMessageProcessor(messageContext);
+		}
+	}
+
 	private Set<Integer> getNonRetryStatusCodes() {
 		Set<Integer> nonRetryCodes = new HashSet<Integer>();
 		if (nonRetryStatusCodes != null) {
@@ -639,7 +744,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 			//For Protocols like JMS etc no need of validating response
 			if (isResponseValidationNotRequired) {
 				isSuccessful = true;
-				onForwardSuccess(endpoint);
+				onForwardSuccess(messageToDispatch, endpoint);
 				return;
 			}
 
@@ -648,7 +753,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 				if (validateResponse(messageToDispatch)) {
 					// This Means we have invoked an out only operation
 					// remove the message and reset the count
-					onForwardSuccess(endpoint);
+					onForwardSuccess(messageToDispatch, endpoint);
 				} else {
 					// This means some error has occurred in out only scenario.
 					isSuccessful = false;
@@ -665,7 +770,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 					// if onforwardsuccess is executed, isSuccessful will become true
 					isSuccessful = false;
 					if (sendThroughReplySeq(outCtx)) {
-						onForwardSuccess(endpoint);
+						onForwardSuccess(messageToDispatch, endpoint);
 					}
 				} else {
 					isSuccessful = false;
@@ -694,12 +799,16 @@ public class ForwardingService implements Task, ManagedLifecycle {
 
 	/**
 	 * Steps after successfully forwarding the message to backend
+	 * @param messageContext
 	 * @param endpoint
 	 */
-	private void onForwardSuccess(Endpoint endpoint) {
+	private void onForwardSuccess(MessageContext messageContext, Endpoint endpoint) {
 		messageConsumer.ack();
 		attemptCount = 0;
 		isSuccessful = true;
+		if (arrivalMonitor != null) {
+			arrivalMonitor.forwarded(messageContext.getMessageID());
+		}
 
 		if (log.isDebugEnabled()) {
 			log.debug("Successfully forwarded the message to endpoint ["
@@ -860,6 +969,9 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		try {
 			isTerminated = true;
 			// Thread.currentThread().interrupt();
+			if (window != null) {
+				window.terminate();
+			}
 
 			if (log.isDebugEnabled()) {
 				log.debug("Successfully terminated job of message processor ["
@@ -953,6 +1065,21 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		return isNonRetryErrCode;
 	}
 
+	/*
+	 * Waits for a message to be stored instead of polling the empty store. If
+	 * all the messages of the store are observed, the wait may last until the
+	 * control is given back to the scheduler, otherwise it is cut at the interval
+	 * to poll for the messages stored by other servers.
+	 */
+	private void waitForMessage(long arrivalMark, long startTime) throws InterruptedException {
+		long timeout = interval;
+		if (arrivalMonitor.isObservingAllMessages()) {
+			timeout = Math.max(interval,
+					startTime + MessageProcessorConstants.THRESHOULD_INTERVAL - new Date().getTime());
+		}
+		arrivalMonitor.await(arrivalMark, timeout);
+	}
+
 	private boolean isRunningUnderCronExpression() {
 		return (cronExpression != null) && (throttlingInterval > -1);
 	}
@@ -1026,6 +1153,10 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		 */
 		messageProcessor.setMessageConsumer(messageConsumer);
 
+		if (arrivalMonitor != null) {
+			arrivalMonitor.register(synapseEnvironment.getSynapseConfiguration().getMessageStore(messageStore));
+		}
+
 	}
 
 	/**
@@ -1040,6 +1171,9 @@ public class ForwardingService implements Task, ManagedLifecycle {
 
 	public void destroy() {
 		terminate();
+		if (window != null) {
+			window.destroy();
+		}
 
 	}
 
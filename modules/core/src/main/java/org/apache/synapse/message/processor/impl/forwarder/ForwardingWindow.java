@@ -0,0 +1,284 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.message.MessageBatchConsumer;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.processor.MessageProcessor;
+import org.apache.synapse.message.processor.impl.ScheduledMessageProcessor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a bounded number of messages of a forwarding processor in flight. Each message is
+ * forwarded by a lane, a {@link ForwardingService} of its own running on a thread of the window,
+ * so the retries, the delivery attempts counted against the maximum, the drop or the move to the
+ * fail messages store and the deactivation through the deactivate sequence apply to every message
+ * just as if it was forwarded alone.
+ * <p>
+ * With ordered acknowledgement a message is removed from the store only once all the messages
+ * received before it are, hence the messages left in the store after a failure always follow the
+ * ones removed. Otherwise each message is removed as soon as it is forwarded. Messages which are
+ * not removed at the end of a run, e.g. because the processor was deactivated, are received again
+ * on the next run.
+ */
+class ForwardingWindow {
+
+	private static final Log log = LogFactory.getLog(ForwardingWindow.class);
+
+	private final MessageProcessor messageProcessor;
+
+	private final MessageBatchConsumer consumer;
+
+	private final boolean isOrderedAck;
+
+	private final List<ForwardingService> lanes;
+
+	private final Deque<ForwardingService> idleLanes;
+
+	private final ExecutorService executor;
+
+	// Messages received and not yet removed from the store, in the order they were received
+	private final LinkedList<Slot> slots = new LinkedList<Slot>();
+
+	ForwardingWindow(final MessageProcessor messageProcessor, MessageBatchConsumer consumer,
+					 List<ForwardingService> lanes, boolean isOrderedAck) {
+		this.messageProcessor = messageProcessor;
+		this.consumer = consumer;
+		this.lanes = lanes;
+		this.isOrderedAck = isOrderedAck;
+		this.idleLanes = new ArrayDeque<ForwardingService>(lanes);
+		this.executor = Executors.newFixedThreadPool(lanes.size(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, messageProcessor.getName() + "-forwarder-"
+						+ count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Forwards the messages of the store, receiving a new message whenever a lane is free, until
+	 * the store has no more messages, the processor is deactivated or the given time is reached.
+	 * Returns once all the messages received are done with, even if it is interrupted, so that all
+	 * the lanes are free again and the messages which are not removed are given back to the store.
+	 *
+	 * @param receiveUntil time after which no more messages are received
+	 * @return number of messages received
+	 */
+	int dispatch(long receiveUntil) {
+		CompletionService<ForwardingService> completionService =
+				new ExecutorCompletionService<ForwardingService>(executor);
+		int received = 0;
+		int inFlight = 0;
+		boolean hasMore = true;
+		boolean isInterrupted = false;
+		try {
+			while (true) {
+				if (hasMore && !idleLanes.isEmpty() && isActive() && System.currentTimeMillis() < receiveUntil) {
+					int count = idleLanes.size();
+					List<MessageContext> messages = consumer.receive(count);
+					hasMore = messages.size() == count;
+					for (MessageContext message : messages) {
+						submit(completionService, idleLanes.pop(), message);
+						inFlight++;
+					}
+					received += messages.size();
+				}
+				if (inFlight == 0) {
+					break;
+				}
+				Future<ForwardingService> completed = completionService.take();
+				inFlight--;
+				idleLanes.push(completed.get());
+			}
+		} catch (InterruptedException e) {
+			log.warn("Message processor [" + messageProcessor.getName() + "] was interrupted while "
+					+ inFlight + " messages are in flight");
+			isInterrupted = true;
+			terminate();
+		} catch (ExecutionException e) {
+			// lanes handle their own failures, this is not expected
+			log.error("Message processor [" + messageProcessor.getName() + "] failed to forward a message", e);
+		} finally {
+			// a lane still in flight may acknowledge its message, so the messages are given back only
+			// once all the lanes are done
+			isInterrupted |= await(completionService, inFlight);
+			idleLanes.clear();
+			idleLanes.addAll(lanes);
+			release();
+			if (isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Message processor [" + messageProcessor.getName() + "] forwarded " + received
+					+ " messages concurrently");
+		}
+		return received;
+	}
+
+	/**
+	 * Stops the retries of the messages in flight.
+	 */
+	void terminate() {
+		for (ForwardingService lane : lanes) {
+			lane.terminate();
+		}
+	}
+
+	void destroy() {
+		terminate();
+		executor.shutdownNow();
+	}
+
+	/*
+	 * Waits until the given number of lanes complete, whatever the outcome. Returns whether the
+	 * thread was interrupted meanwhile.
+	 */
+	private boolean await(CompletionService<ForwardingService> completionService, int inFlight) {
+		boolean isInterrupted = false;
+		while (inFlight > 0) {
+			try {
+				completionService.take();
+				inFlight--;
+			} catch (InterruptedException e) {
+				isInterrupted = true;
+			}
+		}
+		return isInterrupted;
+	}
+
+	private void submit(CompletionService<ForwardingService> completionService, final ForwardingService lane,
+						MessageContext message) {
+		final Slot slot = new Slot(message);
+		synchronized (slots) {
+			slots.add(slot);
+		}
+		completionService.submit(new Callable<ForwardingService>() {
+			public ForwardingService call() {
+				lane.dispatchInWindow(slot.message, slot);
+				return lane;
+			}
+		});
+	}
+
+	/*
+	 * Removes a forwarded message from the store, or with ordered acknowledgement, the forwarded
+	 * messages at the head of the window.
+	 */
+	private boolean acknowledge(Slot slot) {
+		if (!isOrderedAck) {
+			synchronized (slots) {
+				slots.remove(slot);
+			}
+			return consumer.ack(slot.message);
+		}
+		synchronized (slots) {
+			slot.isForwarded = true;
+			boolean isAcked = true;
+			while (!slots.isEmpty() && slots.getFirst().isForwarded) {
+				isAcked &= consumer.ack(slots.removeFirst().message);
+			}
+			return isAcked;
+		}
+	}
+
+	/*
+	 * Gives the messages not removed from the store back to it, so they are received again.
+	 */
+	private void release() {
+		synchronized (slots) {
+			if (!slots.isEmpty() && log.isDebugEnabled()) {
+				log.debug("Message processor [" + messageProcessor.getName() + "] releases " + slots.size()
+						+ " messages which are not forwarded");
+			}
+			slots.clear();
+		}
+		consumer.release();
+	}
+
+	private boolean isActive() {
+		if (messageProcessor.isDeactivated()) {
+			return false;
+		}
+		return !(messageProcessor instanceof ScheduledMessageProcessor)
+				|| ((ScheduledMessageProcessor) messageProcessor).isActive();
+	}
+
+	/**
+	 * The consumer of a lane, which receives the message given to the lane and acknowledges it
+	 * through the window.
+	 */
+	private final class Slot implements MessageConsumer {
+
+		private final MessageContext message;
+
+		// Guarded by the slots of the window
+		private boolean isForwarded = false;
+
+		private Slot(MessageContext message) {
+			this.message = message;
+		}
+
+		public MessageContext receive() {
+			return message;
+		}
+
+		public boolean ack() {
+			return acknowledge(this);
+		}
+
+		public boolean cleanup() {
+			return true;
+		}
+
+		public boolean isAlive() {
+			return consumer.isAlive();
+		}
+
+		public void setAlive(boolean isAlive) {
+			consumer.setAlive(isAlive);
+		}
+
+		public void setId(int i) {
+		}
+
+		public String getId() {
+			return consumer.getId();
+		}
+	}
+}
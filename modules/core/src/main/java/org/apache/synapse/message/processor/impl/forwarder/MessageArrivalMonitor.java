@@ -0,0 +1,157 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.MessageStore;
+import org.apache.synapse.message.store.MessageStoreObserver;
+import org.apache.synapse.transport.passthru.jmx.LatencyHistogram;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Observes the message store of a forwarding processor, so that the processor can wait for a
+ * message to be stored instead of polling the store, and measures the time from storing a
+ * message to forwarding it.
+ * <p>
+ * Only the messages stored by this server are observed. A processor waits for one of them no
+ * longer than its polling interval unless all the messages of its store are observed, i.e. the
+ * store is local to this server. The latency is measured for the messages observed only, not for
+ * the ones stored before the processor started, and the messages observed are forgotten once
+ * too many of them await forwarding.
+ */
+public class MessageArrivalMonitor implements MessageStoreObserver {
+
+	private static final int MAX_TRACKED_MESSAGES = 10000;
+
+	private final Object lock = new Object();
+
+	// Number of messages observed, guarded by the lock
+	private long arrivals = 0;
+
+	private volatile AbstractMessageStore store = null;
+
+	// Times the observed messages were stored at, by their ids
+	private final ConcurrentMap<String, Long> arrivalTimes = new ConcurrentHashMap<String, Long>();
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	/**
+	 * Starts observing the given message store, if it notifies the messages added to it.
+	 *
+	 * @param messageStore message store of the processor
+	 */
+	public void register(MessageStore messageStore) {
+		if (!(messageStore instanceof AbstractMessageStore) || messageStore == store) {
+			return;
+		}
+		close();
+		store = (AbstractMessageStore) messageStore;
+		store.registerObserver(this);
+	}
+
+	/**
+	 * Stops observing the message store.
+	 */
+	public void close() {
+		AbstractMessageStore current = store;
+		if (current != null) {
+			current.unregisterObserver(this);
+			store = null;
+		}
+		arrivalTimes.clear();
+	}
+
+	/**
+	 * @return whether every message added to the store is observed
+	 */
+	public boolean isObservingAllMessages() {
+		AbstractMessageStore current = store;
+		return current != null && current.isAdditionNotified();
+	}
+
+	/**
+	 * @return a mark to wait for the messages observed after it
+	 */
+	public long getArrivals() {
+		synchronized (lock) {
+			return arrivals;
+		}
+	}
+
+	/**
+	 * Waits until a message is observed after the given mark, or the given time passes.
+	 *
+	 * @param mark    value of {@link #getArrivals()} taken before finding the store empty
+	 * @param timeout maximum time to wait in milliseconds
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void await(long mark, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (lock) {
+			long remaining = timeout;
+			while (arrivals == mark && remaining > 0) {
+				lock.wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+	}
+
+	public void messageAdded(String messageId) {
+		if (messageId != null) {
+			if (arrivalTimes.size() >= MAX_TRACKED_MESSAGES) {
+				// messages removed by other means than forwarding are never forgotten otherwise
+				arrivalTimes.clear();
+			}
+			arrivalTimes.put(messageId, System.currentTimeMillis());
+		}
+		synchronized (lock) {
+			arrivals++;
+			lock.notifyAll();
+		}
+	}
+
+	public void messageRemoved(String messageId) {
+		if (messageId != null) {
+			arrivalTimes.remove(messageId);
+		}
+	}
+
+	/**
+	 * Records the time from storing to forwarding the given message, if it was observed.
+	 *
+	 * @param messageId id of the message forwarded
+	 */
+	public void forwarded(String messageId) {
+		if (messageId == null) {
+			return;
+		}
+		Long arrivalTime = arrivalTimes.remove(messageId);
+		if (arrivalTime != null) {
+			latencies.record(System.currentTimeMillis() - arrivalTime);
+		}
+	}
+
+	/**
+	 * @return the times from storing to forwarding messages, in milliseconds
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+}
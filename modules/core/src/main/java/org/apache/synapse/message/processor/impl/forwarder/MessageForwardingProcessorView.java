@@ -67,4 +67,28 @@ public class MessageForwardingProcessorView implements MessageForwardingProcesso
         assert processor != null;
         processor.deactivate();
     }
+
+    public long getP50StoreToForwardLatency() {
+        return getStoreToForwardLatency(50);
+    }
+
+    public long getP90StoreToForwardLatency() {
+        return getStoreToForwardLatency(90);
+    }
+
+    public long getP99StoreToForwardLatency() {
+        return getStoreToForwardLatency(99);
+    }
+
+    public long getMaxStoreToForwardLatency() {
+        return processor.getArrivalMonitor().getLatencies().getMax();
+    }
+
+    public void resetStoreToForwardLatency() {
+        processor.getArrivalMonitor().getLatencies().reset();
+    }
+
+    private long getStoreToForwardLatency(double percentile) {
+        return processor.getArrivalMonitor().getLatencies().getSnapshot().getValueAtPercentile(percentile);
+    }
 }
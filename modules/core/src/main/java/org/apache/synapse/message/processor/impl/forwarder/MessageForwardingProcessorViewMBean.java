@@ -86,4 +86,32 @@ public interface MessageForwardingProcessorViewMBean {
      * This will stop the processing of Messages.
      */
     public void deactivate();
+
+    /**
+     * Get the median time from storing a message to forwarding it, in milliseconds.
+     * Only the messages stored by this server since the processor started are considered.
+     *
+     * @return median store to forward latency
+     */
+    public long getP50StoreToForwardLatency();
+
+    /**
+     * @return 90th percentile of the store to forward latency in milliseconds
+     */
+    public long getP90StoreToForwardLatency();
+
+    /**
+     * @return 99th percentile of the store to forward latency in milliseconds
+     */
+    public long getP99StoreToForwardLatency();
+
+    /**
+     * @return maximum store to forward latency in milliseconds
+     */
+    public long getMaxStoreToForwardLatency();
+
+    /**
+     * Reset the store to forward latencies recorded so far.
+     */
+    public void resetStoreToForwardLatency();
 }
@@ -30,6 +30,8 @@ import org.apache.synapse.task.Task;
 public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcessor {
     private MessageForwardingProcessorView view;
 
+    private final MessageArrivalMonitor arrivalMonitor = new MessageArrivalMonitor();
+
 	@Override
 	public void init(SynapseEnvironment se) {
 		parameters.put(ForwardingProcessorConstants.THROTTLE,
@@ -71,6 +73,19 @@ public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcess
     public MessageForwardingProcessorView getView() {
         return view;
     }
+
+    /**
+     * @return the monitor of the messages added to the message store of this processor
+     */
+    public MessageArrivalMonitor getArrivalMonitor() {
+        return arrivalMonitor;
+    }
+
+	@Override
+	public void destroy(boolean preserveState, boolean isArtifactUpdate) {
+		super.destroy(preserveState, isArtifactUpdate);
+		arrivalMonitor.close();
+	}
     
 	@Override
 	protected Task getTask() {
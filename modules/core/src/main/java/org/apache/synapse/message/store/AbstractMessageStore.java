@@ -25,11 +25,11 @@ import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.core.SynapseEnvironment;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
@@ -87,7 +87,7 @@ public abstract class AbstractMessageStore implements MessageStore {
      * List that holds the MessageStore observers registered with the Message Store
      */
     protected List<MessageStoreObserver> messageStoreObservers =
-            new ArrayList<MessageStoreObserver>();
+            new CopyOnWriteArrayList<MessageStoreObserver>();
 
     protected Lock lock = new ReentrantLock();
 
@@ -106,7 +106,29 @@ public abstract class AbstractMessageStore implements MessageStore {
 
     private static final long maxEnDequeuable = Long.MAX_VALUE;
 
-    private final Object messageCountLock = new Object();
+    /** Minimum interval in milliseconds over which the enqueue and drain rates are measured */
+    private static final long RATE_INTERVAL = 10000;
+
+    /**
+     * Guards the rate snapshot below, which is only used when the rates are read, so that
+     * counting the messages never locks
+     */
+    private final Object rateLock = new Object();
+
+    /** Time of the last rate snapshot */
+    private long rateSnapshotTime = System.currentTimeMillis();
+
+    /** Messages enqueued at the last rate snapshot */
+    private long enqueuedAtSnapshot = 0;
+
+    /** Messages dequeued at the last rate snapshot */
+    private long dequeuedAtSnapshot = 0;
+
+    /** Messages dequeued per second between the last two rate snapshots */
+    private double drainRate = 0;
+
+    /** Messages enqueued per second between the last two rate snapshots */
+    private double enqueueRate = 0;
 
     /** Name of the artifact container from which the message store deployed */
     private String artifactContainerName;
@@ -173,6 +195,16 @@ public abstract class AbstractMessageStore implements MessageStore {
         return -1;
     }
 
+    /**
+     * Whether the observers are notified of every message added to this store, so that a
+     * message processor can wait for a notification instead of polling the store.
+     *
+     * @return true if the messages can only be added through this store instance
+     */
+    public boolean isAdditionNotified() {
+        return false;
+    }
+
     public Map<String, Object> getParameters() {
         return Collections.unmodifiableMap(parameters);
     }
@@ -254,26 +286,69 @@ public abstract class AbstractMessageStore implements MessageStore {
 
 
     public void enqueued() {
-        synchronized (messageCountLock) {
-            enqueued.compareAndSet(maxEnDequeuable, 0);
-            enqueued.incrementAndGet();
-        }
+        increment(enqueued);
     }
 
     public void dequeued() {
-        synchronized (messageCountLock) {
-            dequeued.compareAndSet(maxEnDequeuable, 0);
-            dequeued.incrementAndGet();
+        increment(dequeued);
+    }
+
+    /**
+     * Get the number of messages dequeued per second, measured between the last two reads of
+     * the rates which are at least ten seconds apart.
+     *
+     * @return messages dequeued per second
+     */
+    public double getDrainRate() {
+        synchronized (rateLock) {
+            updateRates(System.currentTimeMillis());
+            return drainRate;
         }
     }
 
-    public long difference() {
-        synchronized (messageCountLock) {
-            long diff = enqueued.get() - dequeued.get();
-            return diff;
+    /**
+     * Get the number of messages enqueued per second, measured between the last two reads of
+     * the rates which are at least ten seconds apart.
+     *
+     * @return messages enqueued per second
+     */
+    public double getEnqueueRate() {
+        synchronized (rateLock) {
+            updateRates(System.currentTimeMillis());
+            return enqueueRate;
+        }
+    }
+
+    private void updateRates(long currentTime) {
+        long elapsed = currentTime - rateSnapshotTime;
+        if (elapsed >= RATE_INTERVAL) {
+            long enqueuedNow = enqueued.get();
+            long dequeuedNow = dequeued.get();
+            // a counter which has wrapped around since the last snapshot is counted from zero
+            enqueueRate = (enqueuedNow >= enqueuedAtSnapshot ? enqueuedNow - enqueuedAtSnapshot : enqueuedNow)
+                    * 1000d / elapsed;
+            drainRate = (dequeuedNow >= dequeuedAtSnapshot ? dequeuedNow - dequeuedAtSnapshot : dequeuedNow)
+                    * 1000d / elapsed;
+            enqueuedAtSnapshot = enqueuedNow;
+            dequeuedAtSnapshot = dequeuedNow;
+            rateSnapshotTime = currentTime;
         }
     }
 
+    /*
+     * Count a message, starting over from zero once the counter reaches its maximum.
+     */
+    private static void increment(AtomicLong counter) {
+        long current;
+        do {
+            current = counter.get();
+        } while (!counter.compareAndSet(current, current == maxEnDequeuable ? 1 : current + 1));
+    }
+
+    public long difference() {
+        return enqueued.get() - dequeued.get();
+    }
+
     /**
      * Whether the message store edited through the management console
      * @return isEdited
@@ -29,6 +29,8 @@ public final class Constants {
     public static final int INMEMORY_MS  = 2;
     /** RabbitMQ Message Store */
     public static final int RABBIT_MS  = 3;
+    /** Journal Message Store */
+    public static final int JOURNAL_MS  = 4;
 
     /** Deprecated message store implementation class names**/
     public static final String DEPRECATED_INMEMORY_CLASS = "org.apache.synapse.message.store.InMemoryMessageStore";
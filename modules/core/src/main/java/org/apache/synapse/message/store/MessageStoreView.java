@@ -22,9 +22,13 @@ package org.apache.synapse.message.store;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.message.store.impl.jdbc.JDBCMessageStore;
+import org.apache.synapse.message.store.impl.journal.JournalMessageStore;
+import org.apache.synapse.message.store.impl.memory.PriorityInMemoryStore;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class MessageStoreView implements MessageStoreViewMBean {
 
@@ -77,17 +81,57 @@ public class MessageStoreView implements MessageStoreViewMBean {
 
     /**
      * The message count in the store will be returned.
-     * The message count of the JDBC store taken from the table. The message count of other stores
+     * The message count of the JDBC store taken from the table and the one of the journal store
+     * from the journal, while the priority in memory store keeps a count of its own. The message count of other stores
      * taken as the difference between the enqueue and the dequeue, which calculated in memory.
      *
      * @return message count in the store
      */
     public long getSize() {
-        if (messageStore instanceof JDBCMessageStore) {
+        if (messageStore instanceof JDBCMessageStore || messageStore instanceof JournalMessageStore
+                || messageStore instanceof PriorityInMemoryStore) {
             return messageStore.size();
         } else {
             return ((AbstractMessageStore) messageStore).difference();
         }
     }
 
+    /**
+     * The rate at which the messages are dequeued from the store, measured over at least the
+     * last ten seconds.
+     *
+     * @return messages dequeued per second
+     */
+    public double getDrainRate() {
+        if (messageStore instanceof AbstractMessageStore) {
+            return ((AbstractMessageStore) messageStore).getDrainRate();
+        }
+        return 0;
+    }
+
+    /**
+     * The rate at which the messages are enqueued to the store, measured over at least the
+     * last ten seconds.
+     *
+     * @return messages enqueued per second
+     */
+    public double getEnqueueRate() {
+        if (messageStore instanceof AbstractMessageStore) {
+            return ((AbstractMessageStore) messageStore).getEnqueueRate();
+        }
+        return 0;
+    }
+
+    /**
+     * The message count of each priority in the store, only kept by the priority in memory store.
+     *
+     * @return message count by priority
+     */
+    public Map<Integer, Integer> getSizeByPriority() {
+        if (messageStore instanceof PriorityInMemoryStore) {
+            return ((PriorityInMemoryStore) messageStore).getSizeByPriority();
+        }
+        return Collections.emptyMap();
+    }
+
 }
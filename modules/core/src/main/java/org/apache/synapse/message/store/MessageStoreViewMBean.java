@@ -20,6 +20,7 @@
 package org.apache.synapse.message.store;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MessageStoreViewMBean {
     /**
@@ -54,4 +55,23 @@ public interface MessageStoreViewMBean {
      * @return the number of Messages stored in the store.
      */
     public long getSize();
+
+    /**
+     *
+     * @return the number of Messages dequeued from the store per second.
+     */
+    public double getDrainRate();
+
+    /**
+     *
+     * @return the number of Messages enqueued to the store per second.
+     */
+    public double getEnqueueRate();
+
+    /**
+     *
+     * @return the number of Messages of each priority in the store, empty if the store does not
+     * keep messages by priority.
+     */
+    public Map<Integer, Integer> getSizeByPriority();
 }
@@ -54,6 +54,7 @@ import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.util.UUIDGenerator;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -76,6 +77,8 @@ public final class MessageConverter {
 
     private static final Log logger = LogFactory.getLog(MessageConverter.class.getName());
 
+    private static final StorableMessageCodec CODEC = new StorableMessageCodec();
+
     private MessageConverter() {}
 
     /**
@@ -210,6 +213,52 @@ public final class MessageConverter {
         }
     }
 
+    /**
+     * Encodes a storable message with the binary message codec.
+     *
+     * @param message Storable message.
+     * @return Encoded message.
+     * @throws IOException if a property of the message can not be encoded
+     */
+    public static byte[] toBytes(StorableMessage message) throws IOException {
+        return CODEC.encode(message);
+    }
+
+    /**
+     * Decodes a storable message encoded with the binary message codec or with Java serialization.
+     *
+     * @param data Encoded message.
+     * @return Storable message.
+     * @throws IOException if the data is not a valid encoded message
+     */
+    public static StorableMessage fromBytes(byte[] data) throws IOException {
+        return CODEC.decode(data);
+    }
+
+    /**
+     * Gets the priority of a message, which is kept as the priority of its storable representation.
+     *
+     * @param synCtx       Synapse message context.
+     * @param defaultValue Priority of a message which does not have a valid priority.
+     * @return Priority of the message.
+     */
+    public static int getPriority(MessageContext synCtx, int defaultValue) {
+        if (!(synCtx instanceof Axis2MessageContext)) {
+            return defaultValue;
+        }
+        Object value = ((Axis2MessageContext) synCtx).getAxis2MessageContext().getProperty(JMS_PRIORITY);
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof String) {
+            try {
+                return Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * Converts a Synapse Message Context to a representation that can be stored in the
      * Message store queue.
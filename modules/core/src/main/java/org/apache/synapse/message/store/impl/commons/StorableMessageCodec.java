@@ -0,0 +1,522 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact binary codec for {@link StorableMessage}s. The fields are written one after the
+ * other with length prefixed values, the payload being kept as raw UTF-8 bytes, which is
+ * smaller and much cheaper to produce and read than the Java serialized form of the message.
+ * Payloads larger than the compression threshold are deflated when that makes them smaller.
+ * <p>
+ * The encoded form starts with a magic number and a format version. Messages stored in the Java
+ * serialized form, which starts with the serialization stream magic number instead, are still
+ * decoded, so that the messages stored before switching to this codec can be read.
+ */
+public final class StorableMessageCodec {
+
+    /** Payloads of this many bytes or more are compressed by default */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 8 * 1024;
+
+    private static final byte MAGIC_0 = 'S';
+    private static final byte MAGIC_1 = 'M';
+    private static final byte VERSION = 1;
+
+    private static final byte JAVA_SERIALIZATION_MAGIC_0 = (byte) 0xAC;
+    private static final byte JAVA_SERIALIZATION_MAGIC_1 = (byte) 0xED;
+
+    // Payload codings
+    private static final byte PAYLOAD_ABSENT = 0;
+    private static final byte PAYLOAD_RAW = 1;
+    private static final byte PAYLOAD_DEFLATE = 2;
+
+    // Value types
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_CHARACTER = 6;
+    private static final byte TYPE_BYTES = 7;
+    private static final byte TYPE_MAP = 8;
+    private static final byte TYPE_SORTED_MAP = 9;
+    private static final byte TYPE_SERIALIZED = 10;
+
+    // Flags of the Axis2 message
+    private static final int FLAG_MTOM = 1;
+    private static final int FLAG_SWA = 1 << 1;
+    private static final int FLAG_POX = 1 << 2;
+    private static final int FLAG_GET = 1 << 3;
+
+    // Flags of the Synapse message
+    private static final int FLAG_RESPONSE = 1;
+    private static final int FLAG_FAULT_RESPONSE = 1 << 1;
+
+    private final int compressionThreshold;
+
+    /**
+     * @param compressionThreshold size in bytes from which on the payloads are compressed, a
+     *                             negative value disabling compression
+     */
+    public StorableMessageCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public StorableMessageCodec() {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Encode a message.
+     *
+     * @param message message to encode
+     * @return the encoded message
+     * @throws IOException if a property value can not be serialized
+     */
+    public byte[] encode(StorableMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(estimateSize(message));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(VERSION);
+        out.writeInt(message.getPriority());
+        writeAxis2Message(out, message.getAxis2message());
+        writeSynapseMessage(out, message.getSynapseMessage());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a message encoded by this codec or stored in the Java serialized form.
+     *
+     * @param data encoded message
+     * @return the decoded message
+     * @throws IOException if the data is not a valid encoded message
+     */
+    public StorableMessage decode(byte[] data) throws IOException {
+        if (isJavaSerialized(data)) {
+            return readJavaSerialized(data);
+        }
+        if (data.length < 3 || data[0] != MAGIC_0 || data[1] != MAGIC_1) {
+            throw new IOException("Not an encoded message");
+        }
+        if (data[2] != VERSION) {
+            throw new IOException("Unsupported message format version : " + data[2]);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 3, data.length - 3));
+        StorableMessage message = new StorableMessage();
+        message.setPriority(in.readInt());
+        message.setAxis2message(readAxis2Message(in));
+        message.setSynapseMessage(readSynapseMessage(in));
+        return message;
+    }
+
+    /**
+     * @param data stored message
+     * @return whether the message is stored in the Java serialized form
+     */
+    public static boolean isJavaSerialized(byte[] data) {
+        return data.length >= 2 && data[0] == JAVA_SERIALIZATION_MAGIC_0 && data[1] == JAVA_SERIALIZATION_MAGIC_1;
+    }
+
+    private void writeAxis2Message(DataOutputStream out, Axis2Message message) throws IOException {
+        if (message == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        writeString(out, message.getMessageID());
+        writeString(out, message.getOperationAction());
+        QName operationName = message.getOperationName();
+        out.writeBoolean(operationName != null);
+        if (operationName != null) {
+            writeString(out, operationName.getNamespaceURI());
+            writeString(out, operationName.getLocalPart());
+            writeString(out, operationName.getPrefix());
+        }
+        writeString(out, message.getAction());
+        writeString(out, message.getService());
+        writeString(out, message.getRelatesToMessageId());
+        writeString(out, message.getReplyToAddress());
+        writeString(out, message.getFaultToAddress());
+        writeString(out, message.getFromAddress());
+        writeString(out, message.getToAddress());
+        writeString(out, message.getTransportInName());
+        writeString(out, message.getTransportOutName());
+        int flags = (message.isDoingMTOM() ? FLAG_MTOM : 0) | (message.isDoingSWA() ? FLAG_SWA : 0)
+                | (message.isDoingPOX() ? FLAG_POX : 0) | (message.isDoingGET() ? FLAG_GET : 0);
+        out.writeByte(flags);
+        out.writeInt(message.getFLOW());
+        String envelope = message.getSoapEnvelope();
+        writePayload(out, envelope == null ? null : envelope.getBytes(StandardCharsets.UTF_8));
+        writePayload(out, message.getJsonStream());
+        writeMap(out, message.getProperties());
+    }
+
+    private Axis2Message readAxis2Message(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Axis2Message message = new Axis2Message();
+        message.setMessageID(readString(in));
+        message.setOperationAction(readString(in));
+        if (in.readBoolean()) {
+            String namespace = readString(in);
+            String localPart = readString(in);
+            String prefix = readString(in);
+            message.setOperationName(new QName(namespace, localPart, prefix));
+        }
+        message.setAction(readString(in));
+        message.setService(readString(in));
+        message.setRelatesToMessageId(readString(in));
+        message.setReplyToAddress(readString(in));
+        message.setFaultToAddress(readString(in));
+        message.setFromAddress(readString(in));
+        message.setToAddress(readString(in));
+        message.setTransportInName(readString(in));
+        message.setTransportOutName(readString(in));
+        int flags = in.readByte();
+        message.setDoingMTOM((flags & FLAG_MTOM) != 0);
+        message.setDoingSWA((flags & FLAG_SWA) != 0);
+        message.setDoingPOX((flags & FLAG_POX) != 0);
+        message.setDoingGET((flags & FLAG_GET) != 0);
+        message.setFLOW(in.readInt());
+        byte[] envelope = readPayload(in);
+        if (envelope != null) {
+            message.setSoapEnvelope(new String(envelope, StandardCharsets.UTF_8));
+        }
+        message.setJsonStream(readPayload(in));
+        Map<String, Object> properties = readMap(in, new HashMap<String, Object>());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            message.addProperty(property.getKey(), property.getValue());
+        }
+        return message;
+    }
+
+    private void writeSynapseMessage(DataOutputStream out, SynapseMessage message) throws IOException {
+        if (message == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        int flags = (message.isResponse() ? FLAG_RESPONSE : 0)
+                | (message.isFaultResponse() ? FLAG_FAULT_RESPONSE : 0);
+        out.writeByte(flags);
+        out.writeInt(message.getTracingState());
+        out.writeInt(message.getMessageFlowTracingState());
+        List<String> localEntries = message.getLocalEntries();
+        out.writeInt(localEntries.size());
+        for (String localEntry : localEntries) {
+            writeString(out, localEntry);
+        }
+        Map<String, String> properties = message.getProperties();
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            writeString(out, property.getKey());
+            writeString(out, property.getValue());
+        }
+        Map<String, byte[]> propertyObjects = message.getPropertyObjects();
+        out.writeInt(propertyObjects.size());
+        for (Map.Entry<String, byte[]> property : propertyObjects.entrySet()) {
+            writeString(out, property.getKey());
+            writePayload(out, property.getValue());
+        }
+    }
+
+    private SynapseMessage readSynapseMessage(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        SynapseMessage message = new SynapseMessage();
+        int flags = in.readByte();
+        message.setResponse((flags & FLAG_RESPONSE) != 0);
+        message.setFaultResponse((flags & FLAG_FAULT_RESPONSE) != 0);
+        message.setTracingState(in.readInt());
+        message.setMessageFlowTracingState(in.readInt());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            message.addLocalEntry(readString(in));
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            message.addProperty(readString(in), readString(in));
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            message.addPropertyObject(readString(in), readPayload(in));
+        }
+        return message;
+    }
+
+    private void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, (String) entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private Map<String, Object> readMap(DataInputStream in, Map<String, Object> map) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TYPE_CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value instanceof byte[]) {
+            out.writeByte(TYPE_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Map && hasStringKeys((Map<?, ?>) value)) {
+            boolean sorted = value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() == null;
+            out.writeByte(sorted ? TYPE_SORTED_MAP : TYPE_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof Serializable) {
+            out.writeByte(TYPE_SERIALIZED);
+            writeBytes(out, serialize(value));
+        } else {
+            throw new IOException("Property value of type " + value.getClass().getName()
+                    + " can not be stored");
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_CHARACTER:
+                return in.readChar();
+            case TYPE_BYTES:
+                return readBytes(in);
+            case TYPE_MAP:
+                return readMap(in, new HashMap<String, Object>());
+            case TYPE_SORTED_MAP:
+                return readMap(in, new TreeMap<String, Object>());
+            case TYPE_SERIALIZED:
+                return deserialize(readBytes(in));
+            default:
+                throw new IOException("Unknown property value type : " + type);
+        }
+    }
+
+    private void writePayload(DataOutputStream out, byte[] payload) throws IOException {
+        if (payload == null) {
+            out.writeByte(PAYLOAD_ABSENT);
+            return;
+        }
+        if (compressionThreshold >= 0 && payload.length >= compressionThreshold) {
+            byte[] compressed = deflate(payload);
+            if (compressed.length < payload.length) {
+                out.writeByte(PAYLOAD_DEFLATE);
+                out.writeInt(payload.length);
+                writeBytes(out, compressed);
+                return;
+            }
+        }
+        out.writeByte(PAYLOAD_RAW);
+        writeBytes(out, payload);
+    }
+
+    private byte[] readPayload(DataInputStream in) throws IOException {
+        byte coding = in.readByte();
+        switch (coding) {
+            case PAYLOAD_ABSENT:
+                return null;
+            case PAYLOAD_RAW:
+                return readBytes(in);
+            case PAYLOAD_DEFLATE:
+                int length = in.readInt();
+                return inflate(readBytes(in), length);
+            default:
+                throw new IOException("Unknown payload coding : " + coding);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new IOException("Truncated message, expected " + length + " more bytes");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static boolean hasStringKeys(Map<?, ?> map) {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int count = inflater.inflate(result, offset, length - offset);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += count;
+            }
+            if (offset != length || !inflater.finished()) {
+                throw new IOException("Corrupted compressed payload");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted compressed payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(value);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not find the class of a stored property value", e);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static StorableMessage readJavaSerialized(byte[] data) throws IOException {
+        Object message = deserialize(data);
+        if (!(message instanceof StorableMessage)) {
+            throw new IOException("Not a stored message : " + message);
+        }
+        return (StorableMessage) message;
+    }
+
+    private static int estimateSize(StorableMessage message) {
+        int size = 256;
+        Axis2Message axis2Message = message.getAxis2message();
+        if (axis2Message != null && axis2Message.getSoapEnvelope() != null) {
+            size += axis2Message.getSoapEnvelope().length();
+        }
+        if (axis2Message != null && axis2Message.getJsonStream() != null) {
+            size += axis2Message.getJsonStream().length;
+        }
+        return size;
+    }
+}
@@ -23,8 +23,25 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.message.MessageConsumer;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
 /**
  * JDBC Store Consumer
+ * <p>
+ * With a batch size larger than one, the consumer fetches that many messages in the order of
+ * their index with a single query and hands them out one by one. A message stays at the head of
+ * the batch until it is acknowledged, so a message which is not acknowledged is received again,
+ * and the acknowledged messages are removed from the table with a single statement once the
+ * whole batch is acknowledged or the consumer is cleaned up. Messages acknowledged but not yet
+ * removed are delivered again if the server stops in between.
+ * <p>
+ * The acknowledged messages of a batch are removed before the next batch is fetched, but until
+ * then they are still visible to the consumers of other nodes sharing the table, which may
+ * receive them again. Batches are meant for a table consumed by a single node.
  */
 public class JDBCConsumer implements MessageConsumer {
 
@@ -53,13 +70,39 @@ public class JDBCConsumer implements MessageConsumer {
      */
     private boolean isAlive;
 
+    /**
+     * Number of messages fetched at once
+     */
+    private final int batchSize;
+
+    /**
+     * Messages fetched but not yet acknowledged, in the order of their index
+     */
+    private final Deque<Map> prefetched = new ArrayDeque<Map>();
+
+    /**
+     * Indexes of the messages acknowledged but not yet removed from the table
+     */
+    private final List<Long> acknowledged = new ArrayList<Long>();
+
     /**
      * Initialize consumer
      *
      * @param store - JDBC message store
      */
     public JDBCConsumer(JDBCMessageStore store) {
+        this(store, 1);
+    }
+
+    /**
+     * Initialize consumer
+     *
+     * @param store     - JDBC message store
+     * @param batchSize - number of messages fetched at once
+     */
+    public JDBCConsumer(JDBCMessageStore store, int batchSize) {
         this.store = store;
+        this.batchSize = batchSize;
         isAlive = true;
     }
 
@@ -72,6 +115,9 @@ public class JDBCConsumer implements MessageConsumer {
     public MessageContext receive() {
         if (isAlive()) {
             // Message will get peeked from the table
+            if (batchSize > 1) {
+                return receivePrefetched();
+            }
             MessageContext msg = null;
             try {
                 msg = store.peek();
@@ -97,6 +143,9 @@ public class JDBCConsumer implements MessageConsumer {
      */
     @Override
     public boolean ack() {
+        if (batchSize > 1) {
+            return ackPrefetched();
+        }
         // Message will be removed at this point
         MessageContext msg = store.remove(currentMessageId);
         if (msg != null) {
@@ -115,9 +164,83 @@ public class JDBCConsumer implements MessageConsumer {
     @Override
     public boolean cleanup() {
         currentMessageId = null;
+        if (batchSize > 1) {
+            synchronized (prefetched) {
+                // messages not acknowledged are fetched again, they may have been removed meanwhile
+                prefetched.clear();
+                return removeAcknowledged();
+            }
+        }
         return true;
     }
 
+    /**
+     * Return the message at the head of the prefetched batch, fetching the next batch once all
+     * the messages of the previous one are acknowledged.
+     *
+     * @return the first message not acknowledged
+     */
+    private MessageContext receivePrefetched() {
+        synchronized (prefetched) {
+            try {
+                // the acknowledged messages must be removed before fetching, not to fetch them again
+                if (prefetched.isEmpty() && removeAcknowledged()) {
+                    prefetched.addAll(store.peek(batchSize));
+                }
+            } catch (SynapseException e) {
+                logger.error("Can't receive message ", e);
+            }
+            Map row = prefetched.peekFirst();
+            if (row == null) {
+                return null;
+            }
+            MessageContext msg = (MessageContext) row.get(JDBCMessageStore.MESSAGE_COLUMN_NAME);
+            currentMessageId = msg.getMessageID();
+            return msg;
+        }
+    }
+
+    /**
+     * Acknowledge the message at the head of the prefetched batch, removing the messages of the
+     * batch from the table once all of them are acknowledged.
+     *
+     * @return whether the message was acknowledged
+     */
+    private boolean ackPrefetched() {
+        synchronized (prefetched) {
+            Map row = prefetched.pollFirst();
+            if (row == null) {
+                return false;
+            }
+            acknowledged.add((Long) row.get(JDBCMessageStore.INDEX_COLUMN_NAME));
+            store.dequeued();
+            return !prefetched.isEmpty() || removeAcknowledged();
+        }
+    }
+
+    /**
+     * Remove the acknowledged messages from the table.
+     *
+     * @return whether all the acknowledged messages are removed
+     */
+    private boolean removeAcknowledged() {
+        if (acknowledged.isEmpty()) {
+            return true;
+        }
+        try {
+            if (store.removeByIndex(acknowledged)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(getId() + " removed " + acknowledged.size() + " acknowledged messages");
+                }
+                acknowledged.clear();
+                return true;
+            }
+        } catch (SynapseException e) {
+            logger.error("Can't remove the acknowledged messages ", e);
+        }
+        return false;
+    }
+
 
     /**
      * Check JDBC consumer is alive
@@ -30,13 +30,12 @@ import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.store.AbstractMessageStore;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
+import org.apache.synapse.message.store.impl.commons.StorableMessageCodec;
 import org.apache.synapse.message.store.impl.jdbc.util.JDBCConfiguration;
 import org.apache.synapse.message.store.impl.jdbc.util.Statement;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -71,6 +70,22 @@ public class JDBCMessageStore extends AbstractMessageStore {
     private final ReentrantLock cleanUpOfferLock = new ReentrantLock();
     private final AtomicBoolean cleaningFlag = new AtomicBoolean(false);
     protected static final String MESSAGE_COLUMN_NAME = "message";
+    protected static final String INDEX_COLUMN_NAME = "indexId";
+
+    /**
+     * Codec of the stored messages, which also reads the messages stored with Java serialization
+     */
+    private volatile StorableMessageCodec messageCodec = new StorableMessageCodec();
+
+    /**
+     * Whether new messages are stored with Java serialization, which can be read by older versions
+     */
+    private volatile boolean javaSerialization = false;
+
+    /**
+     * Number of messages fetched at once by the consumers
+     */
+    private volatile int consumerBatchSize = JDBCMessageStoreConstants.JDBC_DEFAULT_CONSUMER_BATCH_SIZE;
 
     /**
      * Initializes the JDBC Message Store
@@ -89,6 +104,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
         }
         jdbcConfiguration = new JDBCConfiguration();
         jdbcConfiguration.buildDataSource(parameters);
+        configureOptionalParameters(parameters);
 
 //        JDBCMessageConverter.setSynapseEnvironment(synapseEnvironment);
     }
@@ -97,6 +113,16 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return jdbcConfiguration;
     }
 
+    /**
+     * Get the number of messages the consumers fetch at once. Fetching more than one message
+     * relies on the messages being consumed in the order of their index.
+     *
+     * @return number of messages fetched at once
+     */
+    protected int getConsumerBatchSize() {
+        return consumerBatchSize;
+    }
+
     /**
      * @see org.apache.synapse.message.store.MessageStore#getProducer()
      */
@@ -115,7 +141,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
      */
     @Override
     public MessageConsumer getConsumer() {
-        JDBCConsumer consumer = new JDBCConsumer(this);
+        JDBCConsumer consumer = new JDBCConsumer(this, getConsumerBatchSize());
         consumer.setId(nextConsumerId());
         if (logger.isDebugEnabled()) {
             logger.debug(getNameString() + " created a new JDBC Message Consumer.");
@@ -136,6 +162,39 @@ public class JDBCMessageStore extends AbstractMessageStore {
         if (jdbcConfiguration != null) {
             jdbcConfiguration.buildDataSource(parameters);
         }
+        configureOptionalParameters(parameters);
+    }
+
+    /**
+     * Configure the format in which the messages are stored and how they are consumed.
+     *
+     * @param parameters store parameters
+     */
+    private void configureOptionalParameters(Map<String, Object> parameters) {
+        if (parameters == null) {
+            return;
+        }
+        Object format = parameters.get(JDBCMessageStoreConstants.JDBC_MESSAGE_FORMAT);
+        javaSerialization = format != null
+                && JDBCMessageStoreConstants.JDBC_MESSAGE_FORMAT_JAVA.equalsIgnoreCase(format.toString().trim());
+        messageCodec = new StorableMessageCodec(getIntParameter(parameters,
+                JDBCMessageStoreConstants.JDBC_COMPRESSION_THRESHOLD, StorableMessageCodec.DEFAULT_COMPRESSION_THRESHOLD));
+        consumerBatchSize = Math.max(1, getIntParameter(parameters,
+                JDBCMessageStoreConstants.JDBC_CONSUMER_BATCH_SIZE,
+                JDBCMessageStoreConstants.JDBC_DEFAULT_CONSUMER_BATCH_SIZE));
+    }
+
+    private int getIntParameter(Map<String, Object> parameters, String name, int defaultValue) {
+        Object value = parameters.get(name);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn(getNameString() + ". Invalid value : " + value + " for the parameter " + name
+                        + ", using the default value " + defaultValue);
+            }
+        }
+        return defaultValue;
     }
 
     /**
@@ -174,6 +233,10 @@ public class JDBCMessageStore extends AbstractMessageStore {
         try {
             con = jdbcConfiguration.getConnection();
             ps = con.prepareStatement(statement.getStatement());
+            if (statement.getMaxRows() > 0) {
+                ps.setMaxRows(statement.getMaxRows());
+                ps.setFetchSize(statement.getMaxRows());
+            }
             int index = 1;
             for (Object param : statement.getParameters()) {
                 if (param instanceof String) {
@@ -197,33 +260,22 @@ public class JDBCMessageStore extends AbstractMessageStore {
     }
 
     /**
-     * Will convert the byte[] message to store-able message.
+     * Will convert the byte[] message to store-able message. Messages stored with Java
+     * serialization are read as well as the ones stored with the binary message codec.
      *
      * @param msgObj serialized message read from the database.
      * @return converted message context.
      */
     protected MessageContext deserializeMessage(byte[] msgObj) {
-        MessageContext messageContext = null;
+        MessageContext messageContext;
         if (msgObj != null) {
-            ObjectInputStream ios = null;
             try {
-                // Convert back to MessageContext and add to list
-                ios = new ObjectInputStream(new ByteArrayInputStream(msgObj));
-                Object msg = ios.readObject();
-                if (msg instanceof StorableMessage) {
-                    StorableMessage jdbcMsg = (StorableMessage) msg;
-                    org.apache.axis2.context.MessageContext axis2Mc = this.newAxis2Mc();
-                    MessageContext synapseMc = this.newSynapseMc(axis2Mc);
-                    messageContext = MessageConverter.toMessageContext(jdbcMsg, axis2Mc, synapseMc);
-                }
+                StorableMessage jdbcMsg = messageCodec.decode(msgObj);
+                org.apache.axis2.context.MessageContext axis2Mc = this.newAxis2Mc();
+                MessageContext synapseMc = this.newSynapseMc(axis2Mc);
+                messageContext = MessageConverter.toMessageContext(jdbcMsg, axis2Mc, synapseMc);
             } catch (IOException e) {
-                throw new SynapseException("Error reading object input stream", e);
-            } catch (ClassNotFoundException e) {
-                throw new SynapseException("Could not find the class", e);
-            } finally {
-                if (ios != null) {
-                    closeStream(ios);
-                }
+                throw new SynapseException("Error reading the stored message", e);
             }
         } else {
             throw new SynapseException("Retrieved Object is null");
@@ -231,19 +283,6 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return messageContext;
     }
 
-    /**
-     * Closes the object stream after completing the DB operations.
-     *
-     * @param ios stream which should be closed.
-     */
-    private void closeStream(ObjectInputStream ios) {
-        try {
-            ios.close();
-        } catch (IOException e) {
-            logger.error("Error while closing object input stream", e);
-        }
-    }
-
     private org.apache.axis2.context.MessageContext newAxis2Mc() {
         return ((Axis2SynapseEnvironment) synapseEnvironment)
                 .getAxis2ConfigurationContext().createMessageContext();
@@ -328,7 +367,17 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return result;
     }
 
+    /**
+     * Convert a message to the form in which it is stored.
+     *
+     * @param obj message to store
+     * @return serialized message
+     * @throws IOException if the message could not be serialized
+     */
     public byte[] serialize(Object obj) throws IOException {
+        if (obj instanceof StorableMessage && !javaSerialization) {
+            return messageCodec.encode((StorableMessage) obj);
+        }
         ByteArrayOutputStream b = new ByteArrayOutputStream();
         ObjectOutputStream o = new ObjectOutputStream(b);
         o.writeObject(obj);
@@ -368,7 +417,12 @@ public class JDBCMessageStore extends AbstractMessageStore {
             ArrayList<Statement> statements = new ArrayList<>();
             Statement statement = getStoreMessageStatement(messageContext, null);
             statements.add(statement);
-            return processNonResultingStatement(statements);
+            boolean stored = processNonResultingStatement(statements);
+            if (stored) {
+                // only the messages stored by this server are notified, the table may be shared
+                notifyMessageAddition(messageContext.getMessageID());
+            }
+            return stored;
         } catch (Exception e) {
             throw new SynapseException("Error while creating StorableMessage", e);
         } finally {
@@ -446,6 +500,77 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return msg;
     }
 
+    /**
+     * Select and return the first messages in the table, in the order of their index. Each row
+     * holds the index of the message under {@link #INDEX_COLUMN_NAME} and the message under
+     * {@link #MESSAGE_COLUMN_NAME}.
+     *
+     * @param count maximum number of messages to return
+     * @return the first messages in the table
+     */
+    public List<Map> peek(int count) throws SynapseException {
+        try {
+            Statement statement = new Statement("SELECT indexId,message FROM " + jdbcConfiguration.getTableName()
+                    + " ORDER BY indexId ASC") {
+                @Override
+                public List<Map> getResult(ResultSet resultSet) throws SQLException {
+                    return indexedMessageContentResultSet(resultSet, this.getStatement());
+                }
+            };
+            statement.setMaxRows(count);
+            return getProcessedRows(statement);
+        } catch (SynapseException se) {
+            throw new SynapseException("Error while peek the messages", se);
+        }
+    }
+
+    /**
+     * Remove the messages with the given indexes with a single statement.
+     *
+     * @param indexIds indexes of the messages to remove
+     * @return whether the messages were removed
+     */
+    public boolean removeByIndex(List<Long> indexIds) throws SynapseException {
+        if (indexIds.isEmpty()) {
+            return true;
+        }
+        boolean cleaningState = false;
+        try {
+            if (cleaningFlag.get()) {
+                try {
+                    removeLock.lock();
+                    cleaningState = true;
+                } catch (Exception ie) {
+                    logger.error("Message Cleanup lock released unexpectedly", ie);
+                }
+            }
+            StringBuilder sql = new StringBuilder("DELETE FROM ").append(jdbcConfiguration.getTableName())
+                    .append(" WHERE indexId IN (");
+            for (int i = 0; i < indexIds.size(); i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(")");
+            Statement statement = new Statement(sql.toString()) {
+                @Override
+                public List<Map> getResult(ResultSet resultSet) throws SQLException {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            for (Long indexId : indexIds) {
+                statement.addParameter(indexId);
+            }
+            List<Statement> statements = new ArrayList<>();
+            statements.add(statement);
+            return processNonResultingStatement(statements);
+        } catch (Exception e) {
+            throw new SynapseException("Removing " + indexIds.size() + " messages failed !", e);
+        } finally {
+            if (cleaningState) {
+                removeLock.unlock();
+            }
+        }
+    }
+
     /**
      * Removes the first element from table
      *
@@ -640,6 +765,31 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return elements;
     }
 
+    /**
+     * Return the messages corresponding to the provided statement along with their index.
+     *
+     * @param resultSet the result-set obtained from the statement.
+     * @param statement the SQL statement results are obtained for.
+     * @return the index and the content of the messages.
+     * @throws SQLException during an error encountered when accessing the database.
+     */
+    protected List<Map> indexedMessageContentResultSet(ResultSet resultSet, String statement) throws SQLException {
+        ArrayList<Map> elements = new ArrayList<>();
+        while (resultSet.next()) {
+            try {
+                HashMap<String, Object> rowData = new HashMap<>();
+                rowData.put(INDEX_COLUMN_NAME, resultSet.getLong(INDEX_COLUMN_NAME));
+                rowData.put(MESSAGE_COLUMN_NAME, deserializeMessage(resultSet.getBytes(MESSAGE_COLUMN_NAME)));
+                elements.add(rowData);
+            } catch (SQLException e) {
+                String message = "Error executing statement : " + statement + " against DataSource : "
+                        + jdbcConfiguration.getDSName();
+                throw new SynapseException(message, e);
+            }
+        }
+        return elements;
+    }
+
     /**
      * Return number of messages in the store
      *
@@ -60,4 +60,35 @@ public class JDBCMessageStoreConstants {
      * Default name of the database table
      */
     public static final String JDBC_DEFAULT_TABLE_NAME = "jdbc_message_store";
+
+    /**
+     * Format of the stored messages, either binary (default) or java. Messages of both formats
+     * are read regardless of this parameter, java is meant for rolling upgrades where older
+     * versions still read the store
+     */
+    public static final String JDBC_MESSAGE_FORMAT = "store.jdbc.message.format";
+
+    /**
+     * Message format writing the messages with Java serialization
+     */
+    public static final String JDBC_MESSAGE_FORMAT_JAVA = "java";
+
+    /**
+     * Payload size in bytes from which on the stored payloads are compressed, -1 disables compression
+     */
+    public static final String JDBC_COMPRESSION_THRESHOLD = "store.jdbc.compression.threshold";
+
+    /**
+     * Number of messages a consumer fetches from the table at once and removes with a single
+     * statement once they are acknowledged. Until then the acknowledged messages stay in the
+     * table, so when several nodes consume the same table, another node may receive and forward
+     * them again. Keep the default of one for stores shared by several nodes, unless duplicates
+     * are acceptable.
+     */
+    public static final String JDBC_CONSUMER_BATCH_SIZE = "store.jdbc.consumer.batch.size";
+
+    /**
+     * Default number of messages fetched at once, which fetches each message when it is received
+     */
+    public static final int JDBC_DEFAULT_CONSUMER_BATCH_SIZE = 1;
 }
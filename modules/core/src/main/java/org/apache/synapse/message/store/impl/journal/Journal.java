@@ -0,0 +1,711 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.journal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of messages on the local disk. The journal is made of segment files of
+ * a fixed size, which are memory mapped, and records are only appended to the last segment. A
+ * message is appended as a message record, and acknowledging it appends an acknowledgement record
+ * holding the sequence of the message, so that nothing written is ever modified.
+ * <p>
+ * Appended records are forced to the disk by a sync thread, which forces all the records appended
+ * since its previous run at once, so that concurrent appends share a single sync. An append waits
+ * for its record to be synced, and the sync thread makes the synced messages visible in the order
+ * of their sequence before waking the appends up, unless the journal is opened without syncing on
+ * append, in which case a message is visible at once and synced in the background. An
+ * acknowledgement never waits, a message acknowledged right before a crash is delivered again.
+ * <p>
+ * The sync thread also compacts the journal. Once the live messages of the oldest segment take
+ * less than half of it, they are appended again to the last segment and the oldest segment is
+ * deleted. Only the oldest segment is deleted, so an acknowledgement record is never lost while
+ * the message it acknowledges is still in the journal.
+ * <p>
+ * Opening the journal recovers the messages not acknowledged by reading all the segments, a
+ * record which is torn or does not match its checksum ending the journal.
+ */
+public class Journal {
+
+    private static final Log log = LogFactory.getLog(Journal.class);
+
+    private static final byte MESSAGE = 1;
+
+    private static final byte ACK = 2;
+
+    /** Length, type and sequence before the content of a record */
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+
+    /** Checksum after the content of a record */
+    private static final int TRAILER_SIZE = 4;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final double COMPACTION_RATIO = 0.5;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final boolean syncOnAppend;
+
+    /** Messages not acknowledged by their sequence */
+    private final ConcurrentSkipListMap<Long, Entry> entries = new ConcurrentSkipListMap<Long, Entry>();
+
+    /** Sequences of the messages not acknowledged by their message ids */
+    private final ConcurrentHashMap<String, Long> sequences = new ConcurrentHashMap<String, Long>();
+
+    /** Guards the segments and appending to the last segment */
+    private final Object appendLock = new Object();
+
+    private final Deque<Segment> segments = new ArrayDeque<Segment>();
+
+    /** Segments with records not synced yet */
+    private final Set<Segment> dirty = new HashSet<Segment>();
+
+    private Segment active;
+
+    /** Messages appended and not synced yet, in the order of their sequence, made visible by the sync thread */
+    private final List<Entry> unsynced = new ArrayList<Entry>();
+
+    private long nextSequence = 1;
+
+    /** Number of records appended, written with the append lock */
+    private volatile long appended;
+
+    /** Guards the number of records synced */
+    private final Object syncLock = new Object();
+
+    private long synced;
+
+    private RuntimeException syncFailure;
+
+    private volatile boolean running;
+
+    private Thread syncThread;
+
+    /**
+     * @param directory    directory of the segment files
+     * @param segmentSize  size of a segment file in bytes
+     * @param syncOnAppend whether an append waits for its record to be synced
+     */
+    public Journal(File directory, int segmentSize, boolean syncOnAppend) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    /**
+     * Recover the messages of the journal and start syncing.
+     *
+     * @throws IOException if the segment files can not be read or created
+     */
+    public void open() throws IOException {
+        synchronized (appendLock) {
+            if (running) {
+                return;
+            }
+            entries.clear();
+            sequences.clear();
+            unsynced.clear();
+            segments.clear();
+            dirty.clear();
+            nextSequence = 1;
+            synchronized (syncLock) {
+                synced = appended;
+                syncFailure = null;
+            }
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create the journal directory " + directory);
+            }
+            File[] files = directory.listFiles(new FileFilter() {
+                public boolean accept(File file) {
+                    return file.isFile() && file.getName().endsWith(SEGMENT_SUFFIX);
+                }
+            });
+            if (files == null) {
+                throw new IOException("Could not list the journal directory " + directory);
+            }
+            Arrays.sort(files, new Comparator<File>() {
+                public int compare(File file1, File file2) {
+                    return Long.compare(segmentId(file1), segmentId(file2));
+                }
+            });
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].length() < HEADER_SIZE + TRAILER_SIZE) {
+                    // created but never written to
+                    delete(files[i]);
+                    continue;
+                }
+                Segment segment = map(files[i], segmentId(files[i]), (int) files[i].length());
+                recover(segment, i == files.length - 1);
+                segments.addLast(segment);
+            }
+            if (segments.isEmpty()) {
+                segments.addLast(create(0, segmentSize));
+            }
+            active = segments.peekLast();
+            running = true;
+            syncThread = new Thread(new Runnable() {
+                public void run() {
+                    sync();
+                }
+            }, "JournalSync-" + directory.getName());
+            syncThread.setDaemon(true);
+            syncThread.start();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Recovered " + entries.size() + " messages from the journal " + directory);
+        }
+    }
+
+    /**
+     * Stop syncing, after syncing the records appended so far.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (appendLock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = syncThread;
+        }
+        synchronized (syncLock) {
+            syncLock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (appendLock) {
+            for (Segment segment : dirty) {
+                segment.buffer.force();
+            }
+            dirty.clear();
+        }
+    }
+
+    /**
+     * Append a message to the journal.
+     *
+     * @param messageId id of the message
+     * @param message   content of the message
+     * @return the sequence of the message
+     * @throws IOException if the journal is closed or the message could not be written or synced
+     */
+    public long append(String messageId, byte[] message) throws IOException {
+        byte[] id = messageId.getBytes(StandardCharsets.UTF_8);
+        Entry entry;
+        long ticket;
+        synchronized (appendLock) {
+            if (!running) {
+                throw new IOException("Journal " + directory + " is closed");
+            }
+            int offset = reserve(HEADER_SIZE + 4 + id.length + message.length + TRAILER_SIZE);
+            ByteBuffer writer = active.writer;
+            int start = writer.position();
+            writer.put(MESSAGE);
+            writer.putLong(nextSequence);
+            writer.putInt(id.length);
+            writer.put(id);
+            writer.put(message);
+            entry = new Entry(nextSequence++, messageId, active, offset, complete(start));
+            active.liveBytes += entry.length;
+            ticket = ++appended;
+            if (syncOnAppend) {
+                unsynced.add(entry);
+            } else {
+                // visible in the order of the sequence, as it is assigned with the same lock
+                publish(entry);
+            }
+        }
+        synchronized (syncLock) {
+            syncLock.notifyAll();
+        }
+        if (syncOnAppend) {
+            // the sync thread has made the message visible when this returns
+            awaitSync(ticket);
+        }
+        return entry.sequence;
+    }
+
+    /**
+     * Acknowledge a message, which removes it from the journal.
+     *
+     * @param sequence sequence of the message
+     * @return whether the message was in the journal
+     * @throws IOException if the journal is closed or the acknowledgement could not be written
+     */
+    public boolean acknowledge(long sequence) throws IOException {
+        Entry entry = entries.remove(sequence);
+        if (entry == null) {
+            return false;
+        }
+        sequences.remove(entry.messageId, sequence);
+        synchronized (appendLock) {
+            if (!running) {
+                throw new IOException("Journal " + directory + " is closed");
+            }
+            reserve(HEADER_SIZE + TRAILER_SIZE);
+            ByteBuffer writer = active.writer;
+            int start = writer.position();
+            writer.put(ACK);
+            writer.putLong(sequence);
+            complete(start);
+            entry.segment.liveBytes -= entry.length;
+            ++appended;
+        }
+        synchronized (syncLock) {
+            syncLock.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * @return the first message not acknowledged, or null if there is none
+     */
+    public Entry first() {
+        Map.Entry<Long, Entry> first = entries.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    /**
+     * @param messageId id of a message
+     * @return the message with the given id if it is not acknowledged, or null
+     */
+    public Entry get(String messageId) {
+        Long sequence = sequences.get(messageId);
+        return sequence == null ? null : entries.get(sequence);
+    }
+
+    /**
+     * @return the messages not acknowledged in the order of their sequence
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * @param sequence sequence of a message
+     * @return the messages not acknowledged which follow the given sequence, in the order of their sequence
+     */
+    public Collection<Entry> getEntriesAfter(long sequence) {
+        return entries.tailMap(sequence, false).values();
+    }
+
+    /**
+     * @return the number of messages not acknowledged
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Read the content of a message.
+     *
+     * @param entry message
+     * @return content of the message
+     */
+    public byte[] read(Entry entry) {
+        ByteBuffer reader = entry.segment.buffer.duplicate();
+        reader.position(entry.offset + HEADER_SIZE);
+        int idLength = reader.getInt();
+        reader.position(reader.position() + idLength);
+        byte[] message = new byte[entry.length - HEADER_SIZE - 4 - idLength - TRAILER_SIZE];
+        reader.get(message);
+        return message;
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    int getSegmentCount() {
+        synchronized (appendLock) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Make room for a record in the last segment, starting a new segment if it is full.
+     *
+     * @param length length of the record
+     * @return offset of the record
+     */
+    private int reserve(int length) throws IOException {
+        if (active.writer.remaining() < length) {
+            active = create(active.id + 1, Math.max(segmentSize, length));
+            segments.addLast(active);
+        }
+        int offset = active.writer.position();
+        active.writer.putInt(length);
+        return offset;
+    }
+
+    /**
+     * Write the checksum of a record and mark the end of the journal after it.
+     *
+     * @param start position of the type of the record
+     * @return length of the record
+     */
+    private int complete(int start) {
+        ByteBuffer writer = active.writer;
+        ByteBuffer content = writer.duplicate();
+        content.position(start);
+        content.limit(writer.position());
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        writer.putInt((int) crc.getValue());
+        if (writer.remaining() >= 4) {
+            writer.putInt(writer.position(), 0);
+        }
+        dirty.add(active);
+        return writer.position() - start + 4;
+    }
+
+    /**
+     * Read the records of a segment.
+     *
+     * @param segment segment
+     * @param last    whether this is the last segment, which is appended to after recovery
+     */
+    private void recover(Segment segment, boolean last) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int offset = 0;
+        while (offset + 4 <= segment.size) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < HEADER_SIZE + TRAILER_SIZE || length > segment.size - offset
+                    || !isChecksumValid(buffer, offset, length)) {
+                log.warn("Journal " + directory + " ends with a torn record at " + offset + " in "
+                        + segment.file.getName());
+                if (last) {
+                    for (int i = offset; i < segment.size; i++) {
+                        buffer.put(i, (byte) 0);
+                    }
+                    dirty.add(segment);
+                }
+                break;
+            }
+            byte type = buffer.get(offset + 4);
+            long sequence = buffer.getLong(offset + 5);
+            if (type == MESSAGE) {
+                byte[] id = new byte[buffer.getInt(offset + HEADER_SIZE)];
+                ByteBuffer reader = buffer.duplicate();
+                reader.position(offset + HEADER_SIZE + 4);
+                reader.get(id);
+                Entry entry = new Entry(sequence, new String(id, StandardCharsets.UTF_8), segment, offset, length);
+                // a message appended again by the compaction replaces the earlier record
+                Entry previous = entries.put(sequence, entry);
+                if (previous != null) {
+                    previous.segment.liveBytes -= previous.length;
+                }
+                segment.liveBytes += length;
+                sequences.put(entry.messageId, sequence);
+            } else if (type == ACK) {
+                Entry entry = entries.remove(sequence);
+                if (entry != null) {
+                    entry.segment.liveBytes -= entry.length;
+                    sequences.remove(entry.messageId, sequence);
+                }
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            offset += length;
+        }
+        segment.writer.position(offset);
+    }
+
+    private boolean isChecksumValid(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer content = buffer.duplicate();
+        content.position(offset + 4);
+        content.limit(offset + length - TRAILER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue() == buffer.getInt(offset + length - TRAILER_SIZE);
+    }
+
+    /**
+     * Body of the sync thread, syncing the records appended since the previous run and compacting
+     * the journal.
+     */
+    private void sync() {
+        while (true) {
+            synchronized (syncLock) {
+                while (running && synced == appended) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running && synced == appended) {
+                    // fail the appends waiting for a sync which will never happen
+                    syncLock.notifyAll();
+                    return;
+                }
+            }
+            long target;
+            List<Segment> toSync;
+            List<Entry> toPublish;
+            synchronized (appendLock) {
+                target = appended;
+                toSync = new ArrayList<Segment>(dirty);
+                dirty.clear();
+                toPublish = new ArrayList<Entry>(unsynced);
+                unsynced.clear();
+            }
+            RuntimeException failure = null;
+            try {
+                for (Segment segment : toSync) {
+                    segment.buffer.force();
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not sync the journal " + directory, e);
+                failure = e;
+            }
+            if (failure == null) {
+                // only this thread publishes synced messages, so they become visible in order
+                for (Entry entry : toPublish) {
+                    publish(entry);
+                }
+            }
+            synchronized (syncLock) {
+                if (failure == null) {
+                    synced = target;
+                } else {
+                    syncFailure = failure;
+                }
+                syncLock.notifyAll();
+            }
+            if (failure != null) {
+                return;
+            }
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                log.error("Could not compact the journal " + directory, e);
+            } catch (IOException e) {
+                log.error("Could not compact the journal " + directory, e);
+            }
+        }
+    }
+
+    private void publish(Entry entry) {
+        entries.put(entry.sequence, entry);
+        sequences.put(entry.messageId, entry.sequence);
+    }
+
+    private void awaitSync(long ticket) throws IOException {
+        synchronized (syncLock) {
+            while (synced < ticket) {
+                if (syncFailure != null) {
+                    throw new IOException("Could not sync the journal " + directory, syncFailure);
+                }
+                if (!running && !syncThread.isAlive()) {
+                    throw new IOException("Journal " + directory + " is closed");
+                }
+                try {
+                    syncLock.wait(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while syncing the journal " + directory);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the oldest segments as long as their live messages take less than half of them, the
+     * live messages being appended again to the last segment before.
+     */
+    private void compact() throws IOException {
+        while (true) {
+            Segment oldest;
+            synchronized (appendLock) {
+                oldest = segments.peekFirst();
+                if (oldest == active || oldest.liveBytes > oldest.size * COMPACTION_RATIO) {
+                    return;
+                }
+                if (oldest.liveBytes > 0) {
+                    for (Entry entry : entries.values()) {
+                        if (entry.segment == oldest) {
+                            copy(entry);
+                        }
+                    }
+                    if (oldest.liveBytes > 0) {
+                        // messages appended but not yet visible, try again after the next sync
+                        return;
+                    }
+                    // the copies must be on the disk before the segment is deleted
+                    for (Segment segment : dirty) {
+                        segment.buffer.force();
+                    }
+                    dirty.clear();
+                }
+                segments.removeFirst();
+                dirty.remove(oldest);
+            }
+            delete(oldest.file);
+            if (log.isDebugEnabled()) {
+                log.debug("Compacted the journal segment " + oldest.file);
+            }
+        }
+    }
+
+    /**
+     * Append a message record again to the last segment, which is called with the append lock.
+     */
+    private void copy(Entry entry) throws IOException {
+        ByteBuffer reader = entry.segment.buffer.duplicate();
+        reader.position(entry.offset + 4);
+        reader.limit(entry.offset + entry.length);
+        int offset = reserve(entry.length);
+        active.writer.put(reader);
+        Entry copy = new Entry(entry.sequence, entry.messageId, active, offset, entry.length);
+        dirty.add(active);
+        if (active.writer.remaining() >= 4) {
+            active.writer.putInt(active.writer.position(), 0);
+        }
+        ++appended;
+        if (entries.replace(entry.sequence, entry, copy)) {
+            entry.segment.liveBytes -= entry.length;
+            active.liveBytes += entry.length;
+        }
+        // otherwise it was acknowledged meanwhile, the acknowledgement record follows the copy
+    }
+
+    private Segment create(long id, int size) throws IOException {
+        File file = new File(directory, String.format("%020d", id) + SEGMENT_SUFFIX);
+        return map(file, id, size);
+    }
+
+    private Segment map(File file, long id, int size) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(size);
+            FileChannel channel = randomAccessFile.getChannel();
+            // the mapping stays valid after the channel is closed
+            return new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static long segmentId(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void delete(File file) {
+        if (!file.delete()) {
+            log.warn("Could not delete the journal segment " + file + ", it will be deleted on exit");
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * A message in the journal.
+     */
+    public static final class Entry {
+
+        private final long sequence;
+
+        private final String messageId;
+
+        private final Segment segment;
+
+        private final int offset;
+
+        private final int length;
+
+        private Entry(long sequence, String messageId, Segment segment, int offset, int length) {
+            this.sequence = sequence;
+            this.messageId = messageId;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+    }
+
+    /**
+     * A memory mapped segment file. The buffer is only read with absolute positions or through
+     * duplicates, while the writer, a duplicate of it, is only used with the append lock.
+     */
+    private static final class Segment {
+
+        private final long id;
+
+        private final File file;
+
+        private final MappedByteBuffer buffer;
+
+        private final ByteBuffer writer;
+
+        private final int size;
+
+        /** Bytes taken by the messages not acknowledged, updated with the append lock */
+        private long liveBytes;
+
+        private Segment(long id, File file, MappedByteBuffer buffer, int size) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.writer = buffer.duplicate();
+            this.size = size;
+        }
+    }
+}
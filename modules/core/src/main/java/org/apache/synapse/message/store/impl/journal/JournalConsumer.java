@@ -0,0 +1,168 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.journal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.message.MessageBatchConsumer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumer of a {@link JournalMessageStore}. The first message of the store is received until it
+ * is acknowledged. Messages received in batches are handed out in the order of the journal,
+ * each batch following the messages received before it, and may be acknowledged in any order.
+ */
+public class JournalConsumer implements MessageBatchConsumer {
+
+    private static final Log logger = LogFactory.getLog(JournalConsumer.class.getName());
+
+    private final JournalMessageStore store;
+
+    private String idString;
+
+    /** Message received and not yet acknowledged */
+    private Journal.Entry current;
+
+    /** Messages received in batches and not yet acknowledged */
+    private final Map<MessageContext, Journal.Entry> received = new IdentityHashMap<MessageContext, Journal.Entry>();
+
+    /** Last message received in a batch, the next batch starts after it */
+    private Journal.Entry lastReceived;
+
+    private volatile boolean isAlive = true;
+
+    public JournalConsumer(JournalMessageStore store) {
+        this.store = store;
+    }
+
+    public MessageContext receive() {
+        if (!isAlive) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Trying to receive messages from a consumer that is not alive.");
+            }
+            return null;
+        }
+        try {
+            Journal.Entry entry = store.first();
+            current = entry;
+            if (entry == null) {
+                return null;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(getId() + " received MessageID : " + entry.getMessageId());
+            }
+            return store.toMessageContext(entry);
+        } catch (SynapseException e) {
+            logger.error("Can't receive message ", e);
+            return null;
+        }
+    }
+
+    public boolean ack() {
+        Journal.Entry entry = current;
+        if (entry == null) {
+            return false;
+        }
+        current = null;
+        try {
+            return store.acknowledge(entry);
+        } catch (SynapseException e) {
+            logger.error("Can't acknowledge message " + entry.getMessageId(), e);
+            return false;
+        }
+    }
+
+    public List<MessageContext> receive(int count) {
+        List<MessageContext> messages = new ArrayList<MessageContext>(count);
+        if (!isAlive) {
+            return messages;
+        }
+        synchronized (received) {
+            try {
+                for (Journal.Entry entry : store.after(lastReceived)) {
+                    if (messages.size() == count) {
+                        break;
+                    }
+                    MessageContext message = store.toMessageContext(entry);
+                    received.put(message, entry);
+                    messages.add(message);
+                    lastReceived = entry;
+                }
+            } catch (SynapseException e) {
+                logger.error("Can't receive message ", e);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " received " + messages.size() + " messages");
+        }
+        return messages;
+    }
+
+    public boolean ack(MessageContext messageContext) {
+        Journal.Entry entry;
+        synchronized (received) {
+            entry = received.remove(messageContext);
+        }
+        try {
+            if (entry == null) {
+                // released meanwhile, e.g. by a cleanup
+                return store.remove(messageContext.getMessageID()) != null;
+            }
+            return store.acknowledge(entry);
+        } catch (SynapseException e) {
+            logger.error("Can't acknowledge message " + messageContext.getMessageID(), e);
+            return false;
+        }
+    }
+
+    public void release() {
+        synchronized (received) {
+            received.clear();
+            lastReceived = null;
+        }
+    }
+
+    public boolean cleanup() {
+        current = null;
+        release();
+        return true;
+    }
+
+    public boolean isAlive() {
+        return isAlive;
+    }
+
+    public void setAlive(boolean isAlive) {
+        this.isAlive = isAlive;
+    }
+
+    public void setId(int id) {
+        idString = "[" + store.getName() + "-C-" + id + "]";
+    }
+
+    public String getId() {
+        return idString;
+    }
+}
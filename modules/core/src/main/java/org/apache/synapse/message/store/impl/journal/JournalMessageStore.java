@@ -0,0 +1,264 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.journal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageProducer;
+import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.Constants;
+import org.apache.synapse.message.store.impl.commons.MessageConverter;
+import org.apache.synapse.message.store.impl.commons.StorableMessage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A persistent message store which keeps the messages in a {@link Journal} on the local disk, so
+ * that store and forward does not need a database or a broker on a single node. The messages are
+ * stored with the binary message codec and are consumed in the order they were stored.
+ */
+public class JournalMessageStore extends AbstractMessageStore {
+
+    private static final Log logger = LogFactory.getLog(JournalMessageStore.class.getName());
+
+    private Journal journal;
+
+    @Override
+    public void init(SynapseEnvironment synapseEnvironment) {
+        super.init(synapseEnvironment);
+        File directory = getJournalDirectory();
+        int segmentSize = JournalMessageStoreConstants.JOURNAL_DEFAULT_SEGMENT_SIZE;
+        Object size = parameters == null ? null : parameters.get(JournalMessageStoreConstants.JOURNAL_SEGMENT_SIZE);
+        if (size != null) {
+            try {
+                segmentSize = Integer.parseInt(size.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn(nameString() + ". Invalid segment size : " + size + ", using the default of "
+                        + segmentSize + " bytes");
+            }
+        }
+        Object sync = parameters == null ? null : parameters.get(JournalMessageStoreConstants.JOURNAL_SYNC);
+        journal = new Journal(directory, segmentSize, sync == null || Boolean.parseBoolean(sync.toString().trim()));
+        try {
+            journal.open();
+        } catch (IOException e) {
+            throw new SynapseException("Could not open the journal of " + nameString() + " in " + directory, e);
+        }
+        logger.info("Initialized " + nameString() + " with " + journal.size() + " messages in " + directory);
+    }
+
+    @Override
+    public void destroy() {
+        if (journal != null) {
+            journal.close();
+        }
+        super.destroy();
+    }
+
+    public MessageProducer getProducer() {
+        JournalProducer producer = new JournalProducer(this);
+        producer.setId(nextProducerId());
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " created a new Journal Message Producer.");
+        }
+        return producer;
+    }
+
+    public MessageConsumer getConsumer() {
+        JournalConsumer consumer = new JournalConsumer(this);
+        consumer.setId(nextConsumerId());
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " created a new Journal Message Consumer.");
+        }
+        return consumer;
+    }
+
+    public int getType() {
+        return Constants.JOURNAL_MS;
+    }
+
+    /**
+     * Append a message to the journal.
+     *
+     * @param synCtx message to store
+     * @return whether the message was stored
+     * @throws SynapseException if the message has no message ID or could not be written
+     */
+    public boolean store(MessageContext synCtx) {
+        StorableMessage message = MessageConverter.toStorableMessage(synCtx);
+        String messageId = message.getAxis2message().getMessageID();
+        if (messageId == null) {
+            throw new SynapseException(nameString() + " can not store a message without a message ID");
+        }
+        try {
+            journal.append(messageId, MessageConverter.toBytes(message));
+        } catch (IOException e) {
+            throw new SynapseException("Error while storing the message in " + nameString(), e);
+        }
+        enqueued();
+        notifyMessageAddition(synCtx.getMessageID());
+        return true;
+    }
+
+    /**
+     * @return the first message not acknowledged, or null if the store is empty
+     */
+    public Journal.Entry first() {
+        return journal.first();
+    }
+
+    /**
+     * @param entry a message, or null to start from the first message
+     * @return the messages not acknowledged which follow the given message
+     */
+    public Collection<Journal.Entry> after(Journal.Entry entry) {
+        return entry == null ? journal.getEntries() : journal.getEntriesAfter(entry.getSequence());
+    }
+
+    /**
+     * Acknowledge a message, removing it from the store.
+     *
+     * @param entry message to acknowledge
+     * @return whether the message was in the store
+     */
+    public boolean acknowledge(Journal.Entry entry) {
+        try {
+            if (journal.acknowledge(entry.getSequence())) {
+                dequeued();
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new SynapseException("Error while removing the message " + entry.getMessageId()
+                    + " from " + nameString(), e);
+        }
+    }
+
+    /**
+     * Convert a message of the journal to a message context.
+     *
+     * @param entry message
+     * @return message context
+     */
+    public MessageContext toMessageContext(Journal.Entry entry) {
+        StorableMessage message;
+        try {
+            message = MessageConverter.fromBytes(journal.read(entry));
+        } catch (IOException e) {
+            throw new SynapseException("Error reading the message " + entry.getMessageId() + " of "
+                    + nameString(), e);
+        }
+        org.apache.axis2.context.MessageContext axis2Mc = ((Axis2SynapseEnvironment) synapseEnvironment)
+                .getAxis2ConfigurationContext().createMessageContext();
+        SynapseConfiguration configuration = synapseEnvironment.getSynapseConfiguration();
+        MessageContext synapseMc = new Axis2MessageContext(axis2Mc, configuration, synapseEnvironment);
+        return MessageConverter.toMessageContext(message, axis2Mc, synapseMc);
+    }
+
+    public int size() {
+        return journal.size();
+    }
+
+    @Override
+    public boolean isAdditionNotified() {
+        return true;
+    }
+
+    public MessageContext remove() throws NoSuchElementException {
+        while (true) {
+            Journal.Entry entry = journal.first();
+            if (entry == null) {
+                throw new NoSuchElementException("Store " + getName() + " is empty");
+            }
+            MessageContext message = toMessageContext(entry);
+            if (acknowledge(entry)) {
+                return message;
+            }
+            // removed by a consumer meanwhile
+        }
+    }
+
+    public void clear() {
+        for (Journal.Entry entry : journal.getEntries()) {
+            acknowledge(entry);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " cleared the journal");
+        }
+    }
+
+    public MessageContext remove(String messageID) {
+        Journal.Entry entry = journal.get(messageID);
+        if (entry == null) {
+            return null;
+        }
+        MessageContext message = toMessageContext(entry);
+        return acknowledge(entry) ? message : null;
+    }
+
+    public MessageContext get(int index) {
+        if (index < 0) {
+            return null;
+        }
+        int i = 0;
+        for (Journal.Entry entry : journal.getEntries()) {
+            if (i++ == index) {
+                return toMessageContext(entry);
+            }
+        }
+        return null;
+    }
+
+    public List<MessageContext> getAll() {
+        List<MessageContext> list = new ArrayList<MessageContext>();
+        for (Journal.Entry entry : journal.getEntries()) {
+            list.add(toMessageContext(entry));
+        }
+        return list;
+    }
+
+    public MessageContext get(String messageId) {
+        Journal.Entry entry = journal.get(messageId);
+        return entry == null ? null : toMessageContext(entry);
+    }
+
+    private File getJournalDirectory() {
+        Object directory = parameters == null ? null : parameters.get(JournalMessageStoreConstants.JOURNAL_DIRECTORY);
+        if (directory != null) {
+            return new File(directory.toString().trim());
+        }
+        return new File(JournalMessageStoreConstants.JOURNAL_DEFAULT_PARENT_DIRECTORY, getName());
+    }
+
+    private String nameString() {
+        return "Store [" + getName() + "]";
+    }
+}
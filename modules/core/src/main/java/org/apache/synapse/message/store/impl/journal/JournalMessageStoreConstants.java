@@ -0,0 +1,47 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.journal;
+
+public class JournalMessageStoreConstants {
+
+    /**
+     * Directory of the journal, by default a directory named after the store under journal
+     */
+    public static final String JOURNAL_DIRECTORY = "store.journal.directory";
+
+    /**
+     * Default parent directory of the journals
+     */
+    public static final String JOURNAL_DEFAULT_PARENT_DIRECTORY = "journal";
+
+    /**
+     * Size of a segment file of the journal in bytes
+     */
+    public static final String JOURNAL_SEGMENT_SIZE = "store.journal.segment.size";
+
+    /**
+     * Default size of a segment file, 64MB
+     */
+    public static final int JOURNAL_DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Whether storing a message waits until it is synced to the disk, true by default
+     */
+    public static final String JOURNAL_SYNC = "store.journal.sync";
+}
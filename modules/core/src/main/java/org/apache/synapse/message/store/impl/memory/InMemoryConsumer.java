@@ -21,11 +21,16 @@ package org.apache.synapse.message.store.impl.memory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
-import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageBatchConsumer;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 
-public class InMemoryConsumer implements MessageConsumer {
+public class InMemoryConsumer implements MessageBatchConsumer {
     private static final Log logger = LogFactory.getLog(InMemoryConsumer.class.getName());
     /** */
     private Queue<MessageContext> queue;
@@ -38,6 +43,10 @@ public class InMemoryConsumer implements MessageConsumer {
 
     private final Object queueLock;
 
+    /** Messages handed out by {@link #receive(int)} and not acknowledged yet */
+    private final Set<MessageContext> received =
+            Collections.newSetFromMap(new IdentityHashMap<MessageContext, Boolean>());
+
     public InMemoryConsumer(InMemoryStore store) {
         this.store = store;
         this.queueLock = store.getQLock();
@@ -72,10 +81,49 @@ public class InMemoryConsumer implements MessageConsumer {
         return true;
     }
 
+    public List<MessageContext> receive(int count) {
+        List<MessageContext> messages = new ArrayList<MessageContext>(count);
+        synchronized (queueLock) {
+            for (MessageContext message : queue) {
+                if (messages.size() == count) {
+                    break;
+                }
+                if (received.add(message)) {
+                    messages.add(message);
+                }
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " received " + messages.size() + " messages");
+        }
+        return messages;
+    }
+
+    public boolean ack(MessageContext messageContext) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " ack MessageID : " + messageContext.getMessageID());
+        }
+        synchronized (queueLock) {
+            received.remove(messageContext);
+            if (queue.remove(messageContext)) {
+                store.dequeued();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void release() {
+        synchronized (queueLock) {
+            received.clear();
+        }
+    }
+
     public boolean cleanup() {
         if (logger.isDebugEnabled()) {
             logger.debug(getId() + " cleanup");
         }
+        release();
         return true;
     }
 
@@ -57,6 +57,7 @@ public class InMemoryProducer implements MessageProducer {
         }
         if (result) {
             store.enqueued();
+            store.messageAdded(synCtx.getMessageID());
         }
         return result;
     }
@@ -64,6 +64,20 @@ public class InMemoryStore extends AbstractMessageStore {
         return Constants.INMEMORY_MS;
     }
 
+    @Override
+    public boolean isAdditionNotified() {
+        return true;
+    }
+
+    /**
+     * Notify the observers of a message added by a producer of this store.
+     *
+     * @param messageId of the message added
+     */
+    void messageAdded(String messageId) {
+        notifyMessageAddition(messageId);
+    }
+
     public int size() {
         synchronized (queueLock) {
             return queue.size();
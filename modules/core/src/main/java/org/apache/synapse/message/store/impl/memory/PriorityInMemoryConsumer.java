@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.store.impl.memory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.message.MessageBatchConsumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PriorityInMemoryConsumer implements MessageBatchConsumer {
+    private static final Log logger = LogFactory.getLog(PriorityInMemoryConsumer.class.getName());
+    /** */
+    private final PriorityInMemoryStore store;
+    /** ID of this message consumer instance */
+    private String idString;
+
+    private PriorityMessageQueue.Node lastMessage;
+
+    /** Messages handed out by {@link #receive(int)} and not acknowledged yet */
+    private final Map<MessageContext, PriorityMessageQueue.Node> received =
+            Collections.synchronizedMap(new IdentityHashMap<MessageContext, PriorityMessageQueue.Node>());
+
+    public PriorityInMemoryConsumer(PriorityInMemoryStore store) {
+        this.store = store;
+    }
+
+    public MessageContext receive() {
+        PriorityMessageQueue.Node node = store.first();
+        lastMessage = node;
+        if (node == null) {
+            return null;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " received MessageID : " + node.messageId);
+        }
+        return node.message;
+    }
+
+    public boolean ack() {
+        PriorityMessageQueue.Node node = lastMessage;
+        lastMessage = null;
+        if (node != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(getId() + " ack");
+            }
+            store.acknowledge(node);
+        }
+        return true;
+    }
+
+    public List<MessageContext> receive(int count) {
+        List<MessageContext> messages = new ArrayList<MessageContext>(count);
+        synchronized (received) {
+            Set<PriorityMessageQueue.Node> skip =
+                    Collections.newSetFromMap(new IdentityHashMap<PriorityMessageQueue.Node, Boolean>());
+            skip.addAll(received.values());
+            for (PriorityMessageQueue.Node node : store.first(count, skip)) {
+                received.put(node.message, node);
+                messages.add(node.message);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " received " + messages.size() + " messages");
+        }
+        return messages;
+    }
+
+    public boolean ack(MessageContext messageContext) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " ack MessageID : " + messageContext.getMessageID());
+        }
+        PriorityMessageQueue.Node node = received.remove(messageContext);
+        if (node == null) {
+            // released in the meantime, still the message must leave the store
+            node = store.find(messageContext);
+        }
+        return node != null && store.acknowledge(node);
+    }
+
+    public void release() {
+        received.clear();
+    }
+
+    public boolean cleanup() {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " cleanup");
+        }
+        release();
+        return true;
+    }
+
+    public boolean isAlive() {
+        return true;
+    }
+
+    public void setAlive(boolean isAlive) {
+    }
+
+    public void setId(int id) {
+        idString = "[" + store.getName() + "-C-" + id + "]";
+    }
+
+    public String getId() {
+        return idString;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.store.impl.memory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.message.MessageProducer;
+
+public class PriorityInMemoryProducer implements MessageProducer {
+    private static final Log logger = LogFactory.getLog(PriorityInMemoryProducer.class.getName());
+    /** */
+    private final PriorityInMemoryStore store;
+    /** */
+    private String idString;
+
+    public PriorityInMemoryProducer(PriorityInMemoryStore store) {
+        this.store = store;
+    }
+
+    public boolean storeMessage(MessageContext synCtx) {
+        if (synCtx == null) {
+            return false;
+        }
+        synCtx.getEnvelope().buildWithAttachments();
+        boolean result = store.offer(synCtx);
+        if (logger.isDebugEnabled() && result) {
+            logger.debug(getId() + " stored MessageID: " + synCtx.getMessageID());
+        }
+        return result;
+    }
+
+    public boolean cleanup() {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " cleanup");
+        }
+        return true;
+    }
+
+    public void setId(int id) {
+        idString = "[" + store.getName() + "-P-" + id + "]";
+    }
+
+    public String getId() {
+        return idString;
+    }
+}
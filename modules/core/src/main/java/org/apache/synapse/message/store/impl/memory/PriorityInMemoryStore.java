@@ -0,0 +1,269 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.store.impl.memory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageProducer;
+import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.Constants;
+import org.apache.synapse.message.store.impl.commons.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An in memory message store which keeps the messages in a {@link PriorityMessageQueue}. Unlike
+ * {@link InMemoryStore} there is no store wide lock: the size is a counter, the messages are
+ * found by their ids through an index, and producers and consumers only meet on lock-free queues.
+ * <p>
+ * The messages are consumed by their priority, the JMS priority kept with a stored message, and
+ * in the order they were stored within a priority. The store may be bounded, in which case
+ * storing a message fails when it is full, or waits for space up to a timeout.
+ */
+public class PriorityInMemoryStore extends AbstractMessageStore {
+
+    private static final Log logger = LogFactory.getLog(PriorityInMemoryStore.class.getName());
+
+    private PriorityMessageQueue queue = new PriorityMessageQueue(0);
+
+    private boolean isBlockingWhenFull = false;
+
+    private long blockTimeout = PriorityInMemoryStoreConstants.DEFAULT_BLOCK_TIMEOUT;
+
+    @Override
+    public void init(SynapseEnvironment se) {
+        if (se == null) {
+            logger.error("Cannot initialize store.");
+            return;
+        }
+        super.init(se);
+        int capacity = (int) getLongParameter(PriorityInMemoryStoreConstants.MEMORY_CAPACITY, 0);
+        queue = new PriorityMessageQueue(capacity);
+        Object policy = parameters == null ? null : parameters.get(PriorityInMemoryStoreConstants.MEMORY_FULL_POLICY);
+        isBlockingWhenFull = policy != null
+                && PriorityInMemoryStoreConstants.FULL_POLICY_BLOCK.equalsIgnoreCase(policy.toString().trim());
+        blockTimeout = getLongParameter(PriorityInMemoryStoreConstants.MEMORY_BLOCK_TIMEOUT,
+                PriorityInMemoryStoreConstants.DEFAULT_BLOCK_TIMEOUT);
+        logger.info("Initialized " + nameString() + (capacity > 0 ? " with a capacity of " + capacity
+                + " messages" : "") + "...");
+    }
+
+    public MessageProducer getProducer() {
+        PriorityInMemoryProducer producer = new PriorityInMemoryProducer(this);
+        producer.setId(nextProducerId());
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " created a new Priority In Memory Message Producer.");
+        }
+        return producer;
+    }
+
+    public MessageConsumer getConsumer() {
+        PriorityInMemoryConsumer consumer = new PriorityInMemoryConsumer(this);
+        consumer.setId(nextConsumerId());
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " created a new Priority In Memory Message Consumer.");
+        }
+        return consumer;
+    }
+
+    public int getType() {
+        return Constants.INMEMORY_MS;
+    }
+
+    @Override
+    public boolean isAdditionNotified() {
+        return true;
+    }
+
+    /**
+     * Add a message to the store, applying the full policy of the store if it is full.
+     *
+     * @param synCtx message to store
+     * @return whether the message was stored
+     */
+    boolean offer(MessageContext synCtx) {
+        int priority = MessageConverter.getPriority(synCtx, PriorityInMemoryStoreConstants.DEFAULT_PRIORITY);
+        boolean added;
+        if (isBlockingWhenFull) {
+            try {
+                added = queue.offer(synCtx, priority, blockTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                added = false;
+            }
+        } else {
+            added = queue.offer(synCtx, priority);
+        }
+        if (added) {
+            enqueued();
+            notifyMessageAddition(synCtx.getMessageID());
+        } else {
+            logger.warn(nameString() + " is full, rejected MessageID : " + synCtx.getMessageID());
+        }
+        return added;
+    }
+
+    /**
+     * @return the first message to consume, or null if the store is empty
+     */
+    PriorityMessageQueue.Node first() {
+        return queue.peek();
+    }
+
+    /**
+     * @param count maximum number of messages
+     * @param skip  messages to leave out
+     * @return up to the given number of messages to consume, leaving out the given ones
+     */
+    List<PriorityMessageQueue.Node> first(int count, Set<PriorityMessageQueue.Node> skip) {
+        return queue.getFirst(count, skip);
+    }
+
+    /**
+     * Remove a consumed message from the store.
+     *
+     * @param node message to remove
+     * @return false if the message was removed already
+     */
+    boolean acknowledge(PriorityMessageQueue.Node node) {
+        if (queue.remove(node)) {
+            dequeued();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param message a message of the store
+     * @return the entry of the message, or null if the message is not in the store
+     */
+    PriorityMessageQueue.Node find(MessageContext message) {
+        PriorityMessageQueue.Node node = queue.get(message.getMessageID());
+        return node != null && node.message == message ? node : null;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return the capacity of the store, Integer.MAX_VALUE if it is unbounded
+     */
+    public int getCapacity() {
+        return queue.getCapacity();
+    }
+
+    /**
+     * @return the number of messages of each priority in the store, by priority
+     */
+    public Map<Integer, Integer> getSizeByPriority() {
+        Map<Integer, Integer> sizes = new TreeMap<Integer, Integer>();
+        for (int priority = 0; priority < PriorityMessageQueue.PRIORITY_COUNT; priority++) {
+            sizes.put(priority, queue.size(priority));
+        }
+        return sizes;
+    }
+
+    public MessageContext remove() throws NoSuchElementException {
+        PriorityMessageQueue.Node node = queue.poll();
+        if (node == null) {
+            throw new NoSuchElementException("Store " + getName() + " is empty");
+        }
+        dequeued();
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " removed MessageID:" + node.messageId + " => true");
+        }
+        return node.message;
+    }
+
+    public void clear() {
+        while (queue.poll() != null) {
+            dequeued();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " cleared PriorityInMemoryStore...");
+        }
+    }
+
+    public MessageContext remove(String messageID) {
+        PriorityMessageQueue.Node node = queue.get(messageID);
+        if (node == null || !acknowledge(node)) {
+            return null;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " removed MessageID:" + messageID + " => true");
+        }
+        return node.message;
+    }
+
+    public MessageContext get(int index) {
+        if (index < 0 || index >= queue.size()) {
+            return null;
+        }
+        List<PriorityMessageQueue.Node> nodes = queue.getAll();
+        return index < nodes.size() ? nodes.get(index).message : null;
+    }
+
+    public List<MessageContext> getAll() {
+        List<PriorityMessageQueue.Node> nodes = queue.getAll();
+        List<MessageContext> messages = new ArrayList<MessageContext>(nodes.size());
+        for (PriorityMessageQueue.Node node : nodes) {
+            messages.add(node.message);
+        }
+        return messages;
+    }
+
+    public MessageContext get(String messageId) {
+        PriorityMessageQueue.Node node = queue.get(messageId);
+        return node == null ? null : node.message;
+    }
+
+    @Override
+    public void destroy() {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Destroying " + nameString() + "...");
+        }
+        super.destroy();
+    }
+
+    private long getLongParameter(String name, long defaultValue) {
+        Object value = parameters == null ? null : parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn(nameString() + ". Invalid value of " + name + " : " + value + ", using the default of "
+                    + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private String nameString() {
+        return "Store [" + getName() + "]";
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.store.impl.memory;
+
+public class PriorityInMemoryStoreConstants {
+
+    /**
+     * Maximum number of messages in the store, unbounded by default
+     */
+    public static final String MEMORY_CAPACITY = "store.memory.capacity";
+
+    /**
+     * What storing a message does when the store is full, either reject or block
+     */
+    public static final String MEMORY_FULL_POLICY = "store.memory.full.policy";
+
+    /**
+     * Storing a message fails at once when the store is full, the default
+     */
+    public static final String FULL_POLICY_REJECT = "reject";
+
+    /**
+     * Storing a message waits for space when the store is full, up to the block timeout
+     */
+    public static final String FULL_POLICY_BLOCK = "block";
+
+    /**
+     * Maximum time in milliseconds storing a message waits for space with the block policy
+     */
+    public static final String MEMORY_BLOCK_TIMEOUT = "store.memory.block.timeout";
+
+    /**
+     * Default block timeout, 10 seconds
+     */
+    public static final long DEFAULT_BLOCK_TIMEOUT = 10000;
+
+    /**
+     * Priority of the messages without a priority, the default JMS priority
+     */
+    public static final int DEFAULT_PRIORITY = 4;
+}
@@ -0,0 +1,282 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.store.impl.memory;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded queue of messages with a lane per priority, the messages of a higher priority lane
+ * being taken before the ones of the lower priority lanes and the messages of a lane in the order
+ * they were added. The lanes are lock-free queues and the messages are indexed by their ids, so
+ * adding, taking, counting and finding a message by its id never locks nor walks the queue.
+ * <p>
+ * A message removed is unlinked from its lane at once, so it does not hold on to its message
+ * context. This walks the lane up to the message, which is cheap when a consumer takes it from
+ * the head of the lane.
+ */
+class PriorityMessageQueue {
+
+    /** Number of priorities, the JMS priorities from 0 to 9 */
+    static final int PRIORITY_COUNT = 10;
+
+    private final ConcurrentLinkedQueue<Node>[] lanes;
+
+    private final AtomicInteger[] laneSizes;
+
+    private final ConcurrentHashMap<String, Node> index = new ConcurrentHashMap<String, Node>();
+
+    /** Messages in the queue, including the ones being added */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int capacity;
+
+    /** Signalled when a message is taken, for the producers waiting for space */
+    private final Object spaceLock = new Object();
+
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    /**
+     * @param capacity maximum number of messages, zero or less for an unbounded queue
+     */
+    @SuppressWarnings("unchecked")
+    PriorityMessageQueue(int capacity) {
+        this.capacity = capacity > 0 ? capacity : Integer.MAX_VALUE;
+        this.lanes = new ConcurrentLinkedQueue[PRIORITY_COUNT];
+        this.laneSizes = new AtomicInteger[PRIORITY_COUNT];
+        for (int i = 0; i < PRIORITY_COUNT; i++) {
+            lanes[i] = new ConcurrentLinkedQueue<Node>();
+            laneSizes[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Add a message if the queue is not full.
+     *
+     * @param message  message to add
+     * @param priority priority of the message, limited to the range of priorities
+     * @return whether the message was added
+     */
+    boolean offer(MessageContext message, int priority) {
+        if (!reserve()) {
+            return false;
+        }
+        add(message, priority);
+        return true;
+    }
+
+    /**
+     * Add a message, waiting for space up to the given time if the queue is full.
+     *
+     * @param message  message to add
+     * @param priority priority of the message, limited to the range of priorities
+     * @param timeout  maximum time to wait in milliseconds
+     * @return whether the message was added
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean offer(MessageContext message, int priority, long timeout) throws InterruptedException {
+        if (reserve()) {
+            add(message, priority);
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        waitingProducers.incrementAndGet();
+        try {
+            synchronized (spaceLock) {
+                while (!reserve()) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    spaceLock.wait(remaining);
+                }
+            }
+        } finally {
+            waitingProducers.decrementAndGet();
+        }
+        add(message, priority);
+        return true;
+    }
+
+    /**
+     * @return the first message of the highest priority lane which is not empty, or null if the
+     * queue is empty
+     */
+    Node peek() {
+        for (int priority = PRIORITY_COUNT - 1; priority >= 0; priority--) {
+            Node node = peek(lanes[priority]);
+            if (node != null) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the first message, which is removed from the queue, or null if the queue is empty
+     */
+    Node poll() {
+        Node node;
+        while ((node = peek()) != null) {
+            if (remove(node)) {
+                return node;
+            }
+            // taken by another consumer meanwhile
+        }
+        return null;
+    }
+
+    /**
+     * Remove a message from the queue.
+     *
+     * @param node message to remove
+     * @return false if the message was removed already
+     */
+    boolean remove(Node node) {
+        if (!node.removed.compareAndSet(false, true)) {
+            return false;
+        }
+        if (node.messageId != null) {
+            index.remove(node.messageId, node);
+        }
+        laneSizes[node.priority].decrementAndGet();
+        size.decrementAndGet();
+        lanes[node.priority].remove(node);
+        if (waitingProducers.get() > 0) {
+            synchronized (spaceLock) {
+                spaceLock.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param messageId id of a message
+     * @return the message with the given id, or null if it is not in the queue
+     */
+    Node get(String messageId) {
+        return messageId == null ? null : index.get(messageId);
+    }
+
+    /**
+     * @return the messages in the order they would be taken
+     */
+    List<Node> getAll() {
+        List<Node> nodes = new ArrayList<Node>(size());
+        for (int priority = PRIORITY_COUNT - 1; priority >= 0; priority--) {
+            for (Node node : lanes[priority]) {
+                if (!node.removed.get()) {
+                    nodes.add(node);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * @param count maximum number of messages
+     * @param skip  messages to leave out
+     * @return up to the given number of messages not left out, in the order they would be taken
+     */
+    List<Node> getFirst(int count, Set<Node> skip) {
+        List<Node> nodes = new ArrayList<Node>(count);
+        for (int priority = PRIORITY_COUNT - 1; priority >= 0 && nodes.size() < count; priority--) {
+            for (Node node : lanes[priority]) {
+                if (nodes.size() == count) {
+                    break;
+                }
+                if (!node.removed.get() && !skip.contains(node)) {
+                    nodes.add(node);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * @param priority a priority
+     * @return the number of messages of the given priority
+     */
+    int size(int priority) {
+        return laneSizes[priority].get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    private boolean reserve() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void add(MessageContext message, int priority) {
+        Node node = new Node(message, Math.max(0, Math.min(PRIORITY_COUNT - 1, priority)));
+        if (node.messageId != null) {
+            index.put(node.messageId, node);
+        }
+        laneSizes[node.priority].incrementAndGet();
+        lanes[node.priority].offer(node);
+    }
+
+    private Node peek(ConcurrentLinkedQueue<Node> lane) {
+        Node node;
+        while ((node = lane.peek()) != null && node.removed.get()) {
+            lane.remove(node);
+        }
+        return node;
+    }
+
+    /**
+     * A message of the queue.
+     */
+    static final class Node {
+
+        final MessageContext message;
+
+        final String messageId;
+
+        final int priority;
+
+        final AtomicBoolean removed = new AtomicBoolean();
+
+        private Node(MessageContext message, int priority) {
+            this.message = message;
+            this.messageId = message.getMessageID();
+            this.priority = priority;
+        }
+    }
+}
@@ -187,6 +187,17 @@ public class ResequenceMessageStore extends JDBCMessageStore {
         super.setParameters(parameters);
     }
 
+    /**
+     * Messages are consumed in the order of their sequence ids, hence they are not prefetched in
+     * the order of their index.
+     *
+     * @return 1, each message is fetched when it is received
+     */
+    @Override
+    protected int getConsumerBatchSize() {
+        return 1;
+    }
+
     /**
      * {@inheritDoc}
      */
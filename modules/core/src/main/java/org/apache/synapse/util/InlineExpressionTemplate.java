@@ -0,0 +1,172 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.xml.SynapsePath;
+import org.jaxen.JaxenException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * Compiled form of a text containing inline expressions, e.g. {$ctx:vendor} or
+ * {json-eval($.store.name)}. The text is parsed once into literal segments and compiled
+ * {@link SynapsePath} instances, so that rendering it against a message is a single pass
+ * over the segments without any regular expression matching or path compilation.
+ */
+public final class InlineExpressionTemplate {
+
+    private static final String EXPRESSION_JSON_EVAL = "json-eval(";
+
+    private final String text;
+
+    private final List<Segment> segments;
+
+    private final int literalLength;
+
+    private InlineExpressionTemplate(String text, List<Segment> segments, int literalLength) {
+        this.text = text;
+        this.segments = segments;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Parse the given text into a template.
+     *
+     * @param text Text containing inline expressions
+     * @return compiled template
+     */
+    public static InlineExpressionTemplate compile(String text) {
+        List<Segment> segments = new ArrayList<Segment>();
+        int literalLength = 0;
+        int start = 0;
+        Matcher matcher = InlineExpressionUtil.EXPRESSION_PATTERN.matcher(text);
+        while (matcher.find()) {
+            if (matcher.start() > start) {
+                segments.add(new Segment(text.substring(start, matcher.start())));
+                literalLength += matcher.start() - start;
+            }
+            String matchSeq = matcher.group();
+            segments.add(new Segment(matchSeq.substring(1, matchSeq.length() - 1),
+                    matchSeq.contains(EXPRESSION_JSON_EVAL)));
+            start = matcher.end();
+        }
+        if (start < text.length()) {
+            segments.add(new Segment(text.substring(start)));
+            literalLength += text.length() - start;
+        }
+        return new InlineExpressionTemplate(text, segments, literalLength);
+    }
+
+    /**
+     * Checks whether the template contains any expressions.
+     *
+     * @return true if at least one expression was found in the text
+     */
+    public boolean hasExpressions() {
+        for (Segment segment : segments) {
+            if (segment.path != null || segment.error != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Render the template against the given message.
+     *
+     * @param messageContext Message Context
+     * @param isInline       whether the values are substituted into an inline payload, in which
+     *                       case plain text values are wrapped in double quotes
+     * @return text with the expressions replaced by their values
+     */
+    public String render(MessageContext messageContext, boolean isInline) {
+        StringBuilder builder = new StringBuilder(literalLength + 16 * segments.size());
+        for (Segment segment : segments) {
+            if (segment.literal != null) {
+                builder.append(segment.literal);
+                continue;
+            }
+            String value = segment.evaluate(messageContext);
+            if (value == null) {
+                value = "";
+            }
+            // If the string is neither XML or JSON, it is considered a String and must be wrapped in double quotes
+            // If it is an empty string returned from a json-eval expression it must be wrapped in double quotes
+            if (isInline && ((value.isEmpty() && segment.jsonEval) || InlineExpressionUtil.isPlainText(value))) {
+                builder.append('"').append(value).append('"');
+            } else {
+                builder.append(value);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static final class Segment {
+
+        private final String literal;
+
+        private final SynapsePath path;
+
+        private final boolean jsonEval;
+
+        /**
+         * Error raised while compiling the expression. It is reported when the expression is
+         * evaluated, the same way it would have been if the expression was compiled on demand.
+         */
+        private final RuntimeException error;
+
+        private Segment(String literal) {
+            this.literal = literal;
+            this.path = null;
+            this.jsonEval = false;
+            this.error = null;
+        }
+
+        private Segment(String expression, boolean jsonEval) {
+            SynapsePath compiledPath = null;
+            RuntimeException compileError = null;
+            try {
+                compiledPath = InlineExpressionUtil.compileExpression(expression);
+            } catch (RuntimeException e) {
+                compileError = e;
+            } catch (JaxenException e) {
+                compileError = new SynapseException("Invalid expression for inline source format.");
+            }
+            this.literal = null;
+            this.path = compiledPath;
+            this.jsonEval = jsonEval;
+            this.error = compileError;
+        }
+
+        private String evaluate(MessageContext messageContext) {
+            if (error != null) {
+                throw error;
+            }
+            return path.stringValueOf(messageContext);
+        }
+    }
+}
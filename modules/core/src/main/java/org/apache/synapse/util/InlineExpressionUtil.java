@@ -34,6 +34,8 @@ import org.apache.synapse.util.xpath.SynapseJsonPath;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.xml.stream.XMLStreamException;
@@ -47,7 +49,13 @@ public final class InlineExpressionUtil {
     private static final String EXPRESSION_JSON_EVAL = "json-eval(";
 
     // Regex to identify expressions in inline text
-    private static final Pattern EXPRESSION_PATTERN = Pattern.compile("(\\{[^\\s\"][^,<>\n}\\]]*})");
+    static final Pattern EXPRESSION_PATTERN = Pattern.compile("(\\{[^\\s\"][^,<>\n}\\]]*})");
+
+    // Upper bound for the number of distinct texts for which compiled templates are cached
+    private static final int MAX_CACHED_TEMPLATES = 1000;
+
+    private static final Map<String, InlineExpressionTemplate> templateCache =
+            new ConcurrentHashMap<String, InlineExpressionTemplate>();
 
     private InlineExpressionUtil() {
 
@@ -89,22 +97,26 @@ public final class InlineExpressionUtil {
      */
     private static String replaceValue(MessageContext messageContext, String text, boolean isInline) {
 
-        Matcher matcher = EXPRESSION_PATTERN.matcher(text);
-        while (matcher.find()) {
-            String matchSeq = matcher.group();
-            String value = getDynamicValue(messageContext, matchSeq.substring(1, matchSeq.length() - 1));
-            if (value == null) {
-                value = StringUtils.EMPTY;
-            }
-            // If the string is neither XML or JSON, it is considered a String and must be wrapped in double quotes
-            // If it is an empty string returned from a json-eval expression it must be wrapped in double quotes
-            if (isInline && ((value.isEmpty() && matchSeq.contains(EXPRESSION_JSON_EVAL))
-                    || (!isValidXML(value) && !isValidJson(value)))) {
-                value = "\"" + value + "\"";
+        return getTemplate(text).render(messageContext, isInline);
+    }
+
+    /**
+     * Get the compiled template for the given text. Templates are cached, since the texts passed
+     * in here come from the mediation configuration and are therefore limited in number.
+     *
+     * @param text Text value containing the expressions.
+     * @return compiled template for the text.
+     */
+    public static InlineExpressionTemplate getTemplate(String text) {
+
+        InlineExpressionTemplate template = templateCache.get(text);
+        if (template == null) {
+            template = InlineExpressionTemplate.compile(text);
+            if (templateCache.size() < MAX_CACHED_TEMPLATES) {
+                templateCache.put(text, template);
             }
-            text = text.replace(matchSeq, value);
         }
-        return text;
+        return template;
     }
 
     /**
@@ -133,17 +145,79 @@ public final class InlineExpressionUtil {
 
         SynapsePath path;
         try {
-            if (expression.startsWith(EXPRESSION_JSON_EVAL)) {
-                path = new SynapseJsonPath(expression.substring(10, expression.length() - 1));
-            } else {
-                path = new SynapseXPath(expression);
-            }
+            path = compileExpression(expression);
         } catch (JaxenException e) {
             throw new SynapseException("Invalid expression for inline source format.");
         }
         return path.stringValueOf(messageContext);
     }
 
+    /**
+     * Compile an inline expression into a JSON path or an XPath
+     *
+     * @param expression Expression without the enclosing braces
+     * @return compiled path
+     * @throws JaxenException if the expression is not a valid path
+     */
+    static SynapsePath compileExpression(String expression) throws JaxenException {
+
+        if (expression.startsWith(EXPRESSION_JSON_EVAL)) {
+            return new SynapseJsonPath(expression.substring(10, expression.length() - 1));
+        }
+        return new SynapseXPath(expression);
+    }
+
+    /**
+     * Identify whether a resolved value is plain text, i.e. it is neither a valid JSON nor a valid XML
+     * string. Common values such as numbers, single words and sentences are classified by looking
+     * at the characters alone, and the value is parsed only if it may be a JSON or XML structure.
+     *
+     * @param value Resolved value of an expression
+     * @return true if the value is plain text
+     */
+    static boolean isPlainText(String value) {
+
+        if (value.isEmpty()) {
+            return true;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && isJsonWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && isJsonWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        boolean hasInnerWhitespace = false;
+        for (int i = start; i < end; i++) {
+            char ch = value.charAt(i);
+            if (isJsonWhitespace(ch)) {
+                hasInnerWhitespace = true;
+            } else if (!isLiteralCharacter(ch)) {
+                // may be a JSON or XML structure, or a quoted string
+                return !isValidXML(value) && !isValidJson(value);
+            }
+        }
+        if (start == end) {
+            // only whitespace, which parses to neither JSON nor XML
+            return true;
+        }
+        // A single word or number is a valid lenient JSON primitive, while a sequence of
+        // words is not a single JSON value
+        return hasInnerWhitespace;
+    }
+
+    private static boolean isJsonWhitespace(char ch) {
+
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r';
+    }
+
+    private static boolean isLiteralCharacter(char ch) {
+
+        return Character.isLetterOrDigit(ch) || ch == '.' || ch == '-' || ch == '_' || ch == '+' || ch == '@'
+                || ch == '$' || ch == '%';
+    }
+
     /**
      * Parse string and identify whether it is a valid JSON string or not
      *
@@ -31,6 +31,7 @@ public class SynapseThreadPool extends ThreadPoolExecutor {
     public static final int SYNAPSE_MAX_THREADS   = 100;
     public static final int SYNAPSE_KEEP_ALIVE    = 5;
     public static final int SYNAPSE_THREAD_QLEN   = -1;
+    public static final int SYNAPSE_MAX_CONCURRENCY = 1000;
     public static final String SYNAPSE_THREAD_GROUP     = "synapse-thread-group";
     public static final String SYNAPSE_THREAD_ID_PREFIX = "SynapseWorker";
 
@@ -41,6 +42,8 @@ public class SynapseThreadPool extends ThreadPoolExecutor {
     public static final String SYN_THREAD_QLEN     = "synapse.threads.qlen";
     public static final String SYN_THREAD_GROUP    = "synapse.threads.group";
     public static final String SYN_THREAD_IDPREFIX = "synapse.threads.idprefix";
+    public static final String SYN_THREAD_VIRTUAL  = "synapse.threads.virtual";
+    public static final String SYN_THREAD_CONCURRENCY = "synapse.threads.concurrency";
 
     /**
      * Constructor for the Synapse thread poll
@@ -81,6 +81,45 @@ public class StreamingXPATH {
         return null;
     }
 
+    /**
+     * This will return the XPATH expression's result as a node set, a Double or a Boolean, in the same form
+     * as the result returned by Jaxen
+     *
+     * @param inputStream for a XML
+     * @return Result of the XPATH expression
+     * @throws javax.xml.stream.XMLStreamException
+     */
+    public Object evaluate(InputStream inputStream) throws XMLStreamException {
+        if (streamingParser != null) {
+            return getStreamingParser().evaluate(inputStream);
+        }
+        return null;
+    }
+
+    /**
+     * This will return the XPATH expression's result as a node set, a Double or a Boolean, in the same form
+     * as the result returned by Jaxen
+     *
+     * @param documentElement for a XML
+     * @return Result of the XPATH expression
+     */
+    public Object evaluate(OMElement documentElement) {
+        if (streamingParser != null) {
+            return getStreamingParser().evaluate(documentElement);
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the expression can be evaluated with the namespaces known so far. An
+     * expression using an unknown prefix must be evaluated by Jaxen, which reports the prefix.
+     *
+     * @return true if all the namespace prefixes of the expression are mapped to a namespace
+     */
+    public boolean isNameSpaceResolved() {
+        return streamingParser != null && streamingParser.isNameSpaceResolved();
+    }
+
     public String getxPath() {
         return xPath;
     }
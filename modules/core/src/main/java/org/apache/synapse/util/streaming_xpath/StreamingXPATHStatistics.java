@@ -0,0 +1,90 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath;
+
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how many XPath expressions could be compiled for streaming evaluation and how many
+ * evaluations were served by the streaming parser rather than falling back to Jaxen over the
+ * built envelope. The counts are exposed over JMX through {@link StreamingXPATHView}.
+ */
+public class StreamingXPATHStatistics {
+
+    private static final StreamingXPATHStatistics instance = new StreamingXPATHStatistics();
+
+    static {
+        MBeanRegistrar.getInstance().registerMBean(new StreamingXPATHView(instance), "XPath", "StreamingStatistics");
+    }
+
+    private final AtomicLong compiledCount = new AtomicLong();
+
+    private final AtomicLong unsupportedCount = new AtomicLong();
+
+    private final AtomicLong streamingEvaluationCount = new AtomicLong();
+
+    private final AtomicLong fallbackEvaluationCount = new AtomicLong();
+
+    private StreamingXPATHStatistics() {
+    }
+
+    public static StreamingXPATHStatistics getInstance() {
+        return instance;
+    }
+
+    public void compiled() {
+        compiledCount.incrementAndGet();
+    }
+
+    public void unsupported() {
+        unsupportedCount.incrementAndGet();
+    }
+
+    public void streamingEvaluation() {
+        streamingEvaluationCount.incrementAndGet();
+    }
+
+    public void fallbackEvaluation() {
+        fallbackEvaluationCount.incrementAndGet();
+    }
+
+    public long getCompiledCount() {
+        return compiledCount.get();
+    }
+
+    public long getUnsupportedCount() {
+        return unsupportedCount.get();
+    }
+
+    public long getStreamingEvaluationCount() {
+        return streamingEvaluationCount.get();
+    }
+
+    public long getFallbackEvaluationCount() {
+        return fallbackEvaluationCount.get();
+    }
+
+    public void reset() {
+        compiledCount.set(0);
+        unsupportedCount.set(0);
+        streamingEvaluationCount.set(0);
+        fallbackEvaluationCount.set(0);
+    }
+}
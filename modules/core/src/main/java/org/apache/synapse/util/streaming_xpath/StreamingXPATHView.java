@@ -0,0 +1,53 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath;
+
+public class StreamingXPATHView implements StreamingXPATHViewMBean {
+
+    private StreamingXPATHStatistics statistics;
+
+    public StreamingXPATHView(StreamingXPATHStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public long getCompiledCount() {
+        return statistics.getCompiledCount();
+    }
+
+    public long getUnsupportedCount() {
+        return statistics.getUnsupportedCount();
+    }
+
+    public long getStreamingEvaluationCount() {
+        return statistics.getStreamingEvaluationCount();
+    }
+
+    public long getFallbackEvaluationCount() {
+        return statistics.getFallbackEvaluationCount();
+    }
+
+    public double getStreamingRatio() {
+        long streaming = statistics.getStreamingEvaluationCount();
+        long total = streaming + statistics.getFallbackEvaluationCount();
+        return total == 0 ? 0 : (double) streaming / total;
+    }
+
+    public void reset() {
+        statistics.reset();
+    }
+}
@@ -23,17 +23,27 @@ import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.tree.CommonTree;
 import org.antlr.runtime.tree.CommonTreeNodeStream;
+import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
 import org.apache.synapse.util.streaming_xpath.custom.StreamingParser;
 
 public class StreamingXPATHCompiler {
     /**
      * This will create the Custom XPATH Parser Components for a given XPATH. This will Use the Antlr Grammar XPATH1.0 for this process.
+     * Expressions with predicates or function calls are first given to the {@link StreamingXPATHExpressionParser},
+     * which selects complete node sets, and only go through the grammar if that parser does not support them.
      *
      * @param source is the String for XPATH Expression
      * @return A Custom XPATH Parser Component Chain
      * @throws RecognitionException
      */
     public static StreamingParser parse(String source) throws RecognitionException {
+        if (source.indexOf('[') != -1 || source.indexOf('(') != -1) {
+            try {
+                return StreamingXPATHExpressionParser.parse(source);
+            } catch (StreamingXPATHCompilerException e) {
+                // not a location path with predicates, let the grammar decide
+            }
+        }
 
         XPath1Lexer lexer = new XPath1Lexer();
         lexer.setCharStream(new ANTLRStringStream(source));
@@ -0,0 +1,331 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath.compiler;
+
+import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
+import org.apache.synapse.util.streaming_xpath.custom.StreamingParser;
+import org.apache.synapse.util.streaming_xpath.custom.StreamingPredicate;
+import org.apache.synapse.util.streaming_xpath.custom.components.FunctionParserComponent;
+import org.apache.synapse.util.streaming_xpath.custom.components.LocationStepParserComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles absolute location paths with predicates, and count(), contains() and starts-with()
+ * calls over them, into a chain of {@link LocationStepParserComponent}s. The supported
+ * expressions are of the form
+ * <pre>
+ *   /a/b[2]/c, //item[@type='book'][price &gt; 10]/@id, /a/b[contains(name, 'x')]/text(),
+ *   count(//item), contains(/a/b, 'x'), starts-with(/a/@id, 'x')
+ * </pre>
+ * where a predicate is a position, or the existence, comparison with a literal, contains() or
+ * starts-with() test of an attribute, a child element, the node itself or its text. Anything
+ * else is rejected with a {@link StreamingXPATHCompilerException}.
+ */
+public class StreamingXPATHExpressionParser {
+
+    private static final String TEXT_NODE_TEST = "text()";
+
+    private final String source;
+
+    private final StreamingParser streamingParser = new StreamingParser();
+
+    private int index;
+
+    private StreamingXPATHExpressionParser(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Compile the given expression.
+     *
+     * @param source XPath expression
+     * @return streaming parser for the expression
+     * @throws StreamingXPATHCompilerException if the expression is not supported
+     */
+    public static StreamingParser parse(String source) {
+        StreamingXPATHExpressionParser parser = new StreamingXPATHExpressionParser(source);
+        parser.parseExpression();
+        return parser.streamingParser;
+    }
+
+    private void parseExpression() {
+        skipWhitespace();
+        FunctionParserComponent.Function function = null;
+        if (consumeFunction("count")) {
+            function = FunctionParserComponent.Function.COUNT;
+        } else if (consumeFunction("contains")) {
+            function = FunctionParserComponent.Function.CONTAINS;
+        } else if (consumeFunction("starts-with")) {
+            function = FunctionParserComponent.Function.STARTS_WITH;
+        }
+        parseLocationPath();
+        if (function != null) {
+            String literal = null;
+            if (function != FunctionParserComponent.Function.COUNT) {
+                expect(',');
+                literal = parseStringLiteral();
+            }
+            expect(')');
+            streamingParser.GetChild_Function(function, literal);
+        }
+        skipWhitespace();
+        if (index != source.length()) {
+            throw unsupported();
+        }
+    }
+
+    private void parseLocationPath() {
+        skipWhitespace();
+        boolean first = true;
+        while (index < source.length() && source.charAt(index) == '/') {
+            index++;
+            boolean descendant = false;
+            if (index < source.length() && source.charAt(index) == '/') {
+                index++;
+                descendant = true;
+            }
+            LocationStepParserComponent.Axis axis;
+            if (first) {
+                axis = descendant ? LocationStepParserComponent.Axis.DESCENDANT_OR_SELF
+                        : LocationStepParserComponent.Axis.SELF;
+            } else {
+                axis = descendant ? LocationStepParserComponent.Axis.DESCENDANT
+                        : LocationStepParserComponent.Axis.CHILD;
+            }
+            if (source.startsWith(TEXT_NODE_TEST, index) && !first && !descendant) {
+                index += TEXT_NODE_TEST.length();
+                streamingParser.GetChild_LocationStep(LocationStepParserComponent.Axis.TEXT, null, null,
+                        new ArrayList<StreamingPredicate>());
+                return;
+            }
+            if (index < source.length() && source.charAt(index) == '@' && !first && !descendant) {
+                index++;
+                String[] name = parseName(true);
+                streamingParser.GetChild_LocationStep(LocationStepParserComponent.Axis.ATTRIBUTE, name[1], name[0],
+                        new ArrayList<StreamingPredicate>());
+                return;
+            }
+            String[] name = parseName(true);
+            List<StreamingPredicate> predicates = new ArrayList<StreamingPredicate>();
+            while (index < source.length() && source.charAt(index) == '[') {
+                index++;
+                predicates.add(parsePredicate());
+                expect(']');
+            }
+            streamingParser.GetChild_LocationStep(axis, name[1], name[0], predicates);
+            first = false;
+        }
+        if (first) {
+            // relative paths and other expressions
+            throw unsupported();
+        }
+    }
+
+    private StreamingPredicate parsePredicate() {
+        skipWhitespace();
+        if (index < source.length() && Character.isDigit(source.charAt(index))) {
+            int start = index;
+            while (index < source.length() && Character.isDigit(source.charAt(index))) {
+                index++;
+            }
+            int position = Integer.parseInt(source.substring(start, index));
+            if (position < 1) {
+                throw unsupported();
+            }
+            skipWhitespace();
+            return StreamingPredicate.position(position);
+        }
+        StreamingPredicate.Test function = null;
+        if (consumeFunction("contains")) {
+            function = StreamingPredicate.Test.CONTAINS;
+        } else if (consumeFunction("starts-with")) {
+            function = StreamingPredicate.Test.STARTS_WITH;
+        }
+        StreamingPredicate.Operand operand;
+        String[] name = new String[2];
+        skipWhitespace();
+        if (source.startsWith(TEXT_NODE_TEST, index)) {
+            index += TEXT_NODE_TEST.length();
+            operand = StreamingPredicate.Operand.TEXT;
+        } else if (index < source.length() && source.charAt(index) == '.'
+                && (index + 1 == source.length() || source.charAt(index + 1) != '.')) {
+            index++;
+            operand = StreamingPredicate.Operand.SELF;
+        } else if (index < source.length() && source.charAt(index) == '@') {
+            index++;
+            name = parseName(false);
+            operand = StreamingPredicate.Operand.ATTRIBUTE;
+        } else {
+            name = parseName(false);
+            operand = StreamingPredicate.Operand.CHILD;
+        }
+        skipWhitespace();
+        if (function != null) {
+            expect(',');
+            String literal = parseStringLiteral();
+            expect(')');
+            return StreamingPredicate.compare(function, operand, name[1], name[0], literal, false);
+        }
+        StreamingPredicate.Test test = parseComparison();
+        if (test == null) {
+            return StreamingPredicate.exists(operand, name[1], name[0]);
+        }
+        skipWhitespace();
+        if (index < source.length() && (source.charAt(index) == '\'' || source.charAt(index) == '"')) {
+            return StreamingPredicate.compare(test, operand, name[1], name[0], parseStringLiteral(), false);
+        }
+        return StreamingPredicate.compare(test, operand, name[1], name[0], parseNumericLiteral(), true);
+    }
+
+    private StreamingPredicate.Test parseComparison() {
+        if (source.startsWith("!=", index)) {
+            index += 2;
+            return StreamingPredicate.Test.NOT_EQUALS;
+        } else if (source.startsWith("<=", index)) {
+            index += 2;
+            return StreamingPredicate.Test.LESS_THAN_OR_EQUAL;
+        } else if (source.startsWith(">=", index)) {
+            index += 2;
+            return StreamingPredicate.Test.GREATER_THAN_OR_EQUAL;
+        } else if (source.startsWith("=", index)) {
+            index++;
+            return StreamingPredicate.Test.EQUALS;
+        } else if (source.startsWith("<", index)) {
+            index++;
+            return StreamingPredicate.Test.LESS_THAN;
+        } else if (source.startsWith(">", index)) {
+            index++;
+            return StreamingPredicate.Test.GREATER_THAN;
+        }
+        return null;
+    }
+
+    /**
+     * Parse a name test.
+     *
+     * @param allowWildcard whether '*' is accepted as the local name
+     * @return namespace prefix (null if the name is not prefixed) and local name
+     */
+    private String[] parseName(boolean allowWildcard) {
+        String first = parseNCName(allowWildcard);
+        if (index < source.length() && source.charAt(index) == ':' && !"*".equals(first)) {
+            index++;
+            return new String[] { first, parseNCName(allowWildcard) };
+        }
+        return new String[] { null, first };
+    }
+
+    private String parseNCName(boolean allowWildcard) {
+        if (allowWildcard && index < source.length() && source.charAt(index) == '*') {
+            index++;
+            return "*";
+        }
+        int start = index;
+        if (index < source.length() && (Character.isLetter(source.charAt(index)) || source.charAt(index) == '_')) {
+            index++;
+            while (index < source.length()) {
+                char ch = source.charAt(index);
+                if (Character.isLetterOrDigit(ch) || ch == '_' || ch == '-' || ch == '.') {
+                    index++;
+                } else {
+                    break;
+                }
+            }
+        }
+        if (start == index || (index < source.length() && source.charAt(index) == '(')) {
+            // node type tests and function calls
+            throw unsupported();
+        }
+        return source.substring(start, index);
+    }
+
+    private String parseStringLiteral() {
+        skipWhitespace();
+        if (index >= source.length()) {
+            throw unsupported();
+        }
+        char quote = source.charAt(index);
+        if (quote != '\'' && quote != '"') {
+            throw unsupported();
+        }
+        int end = source.indexOf(quote, index + 1);
+        if (end == -1) {
+            throw unsupported();
+        }
+        String literal = source.substring(index + 1, end);
+        index = end + 1;
+        skipWhitespace();
+        return literal;
+    }
+
+    private String parseNumericLiteral() {
+        int start = index;
+        if (index < source.length() && source.charAt(index) == '-') {
+            index++;
+        }
+        while (index < source.length() && (Character.isDigit(source.charAt(index)) || source.charAt(index) == '.')) {
+            index++;
+        }
+        String literal = source.substring(start, index);
+        try {
+            Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw unsupported();
+        }
+        skipWhitespace();
+        return literal;
+    }
+
+    private boolean consumeFunction(String name) {
+        int position = index;
+        if (!source.startsWith(name, position)) {
+            return false;
+        }
+        position += name.length();
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+        if (position < source.length() && source.charAt(position) == '(') {
+            index = position + 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char ch) {
+        skipWhitespace();
+        if (index >= source.length() || source.charAt(index) != ch) {
+            throw unsupported();
+        }
+        index++;
+        skipWhitespace();
+    }
+
+    private void skipWhitespace() {
+        while (index < source.length() && Character.isWhitespace(source.charAt(index))) {
+            index++;
+        }
+    }
+
+    private StreamingXPATHCompilerException unsupported() {
+        return new StreamingXPATHCompilerException("Expression " + source
+                + " is not supported for streaming evaluation");
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.synapse.util.streaming_xpath.custom.components.*;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.InputStream;
+import java.util.List;
 
 public class StreamingParser {
 
@@ -49,6 +50,49 @@ public class StreamingParser {
         return firstComp.process(documentElement);
     }
 
+    /**
+     * Evaluate the expression over the given XML stream. Unlike {@link #process(InputStream)},
+     * node sets and function values are returned as they are.
+     *
+     * @param xmlIn XML stream
+     * @return result of the expression
+     * @throws XMLStreamException if the stream could not be read
+     */
+    public Object evaluate(InputStream xmlIn) throws XMLStreamException {
+        StAXOMBuilder builder = new StAXOMBuilder(xmlIn);
+        OMElement documentElement = builder.getDocumentElement();
+        return firstComp.evaluate(documentElement);
+    }
+
+    public Object evaluate(OMElement documentElement) {
+        return firstComp.evaluate(documentElement);
+    }
+
+    public StreamingParser GetChild_LocationStep(LocationStepParserComponent.Axis axis, String localName,
+                                                 String nameSpace, List<StreamingPredicate> predicates) {
+        ParserComponent newComp = new LocationStepParserComponent(axis, localName, nameSpace, predicates);
+        if (firstComp == null) {
+            firstComp = newComp;
+            currentComp = newComp;
+
+        } else {
+            currentComp.setNext(newComp);
+            currentComp = newComp;
+        }
+        return this;
+    }
+
+    /**
+     * Wrap the location path built so far into a function call.
+     */
+    public StreamingParser GetChild_Function(FunctionParserComponent.Function function, String literal) {
+        ParserComponent newComp = new FunctionParserComponent(function, (LocationStepParserComponent) firstComp,
+                literal);
+        firstComp = newComp;
+        currentComp = newComp;
+        return this;
+    }
+
     public StreamingParser GetChild_GetCurrent() {
         ParserComponent newComp = new GetCurrentParserComponent();
         if (firstComp == null) {
@@ -178,6 +222,13 @@ public class StreamingParser {
         return firstComp;
     }
 
+    /**
+     * @return true if all the namespace prefixes of the expression are mapped to a namespace
+     */
+    public boolean isNameSpaceResolved() {
+        return firstComp.isNameSpaceResolved();
+    }
+
     public void processOM(OMElement om) {
         firstComp.process(om);
     }
@@ -0,0 +1,232 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath.custom;
+
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.OMText;
+import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Predicate of a streaming location step. A predicate is either a position, e.g. [2], or a
+ * test over a single operand of the candidate node, which can be an attribute (@id), a child
+ * element (name), the node itself (.) or its text (text()). Supported tests are existence,
+ * comparison with a literal (=, !=, &lt;, &lt;=, &gt;, &gt;=) and the contains() and
+ * starts-with() functions.
+ */
+public class StreamingPredicate {
+
+    public enum Operand {
+        ATTRIBUTE, CHILD, SELF, TEXT
+    }
+
+    public enum Test {
+        POSITION, EXISTS, EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN,
+        GREATER_THAN_OR_EQUAL, CONTAINS, STARTS_WITH
+    }
+
+    private final Test test;
+
+    private final int position;
+
+    private final Operand operand;
+
+    private final String localName;
+
+    private final String nameSpacePrefix;
+
+    private final String literal;
+
+    private final boolean numericLiteral;
+
+    private StreamingPredicate(Test test, int position, Operand operand, String localName,
+                               String nameSpacePrefix, String literal, boolean numericLiteral) {
+        this.test = test;
+        this.position = position;
+        this.operand = operand;
+        this.localName = localName;
+        this.nameSpacePrefix = nameSpacePrefix;
+        this.literal = literal;
+        this.numericLiteral = numericLiteral;
+    }
+
+    public static StreamingPredicate position(int position) {
+        return new StreamingPredicate(Test.POSITION, position, null, null, null, null, false);
+    }
+
+    public static StreamingPredicate exists(Operand operand, String localName, String nameSpacePrefix) {
+        return new StreamingPredicate(Test.EXISTS, 0, operand, localName, nameSpacePrefix, null, false);
+    }
+
+    public static StreamingPredicate compare(Test test, Operand operand, String localName, String nameSpacePrefix,
+                                             String literal, boolean numericLiteral) {
+        return new StreamingPredicate(test, 0, operand, localName, nameSpacePrefix, literal, numericLiteral);
+    }
+
+    public boolean isPositional() {
+        return test == Test.POSITION;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return false if the predicate uses a namespace prefix which is not mapped to a namespace
+     */
+    public boolean isNameSpaceResolved() {
+        return nameSpacePrefix == null || ParserComponent.getPrefixNameSpaceMap().containsKey(nameSpacePrefix);
+    }
+
+    /**
+     * Checks whether the given node, at the given position among the nodes selected so far by
+     * the step, satisfies this predicate.
+     *
+     * @param node     candidate element
+     * @param position 1 based position of the candidate
+     * @return true if the candidate is accepted
+     */
+    public boolean matches(OMElement node, int position) {
+        if (test == Test.POSITION) {
+            return this.position == position;
+        }
+        List<String> values = getOperandValues(node);
+        if (test == Test.EXISTS) {
+            return !values.isEmpty();
+        }
+        // a comparison with a node set is true if it holds for any of the nodes
+        for (String value : values) {
+            if (compare(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean compare(String value) {
+        switch (test) {
+            case CONTAINS:
+                return value.contains(literal);
+            case STARTS_WITH:
+                return value.startsWith(literal);
+            case EQUALS:
+            case NOT_EQUALS:
+                boolean equal;
+                if (numericLiteral) {
+                    equal = toNumber(value) == Double.parseDouble(literal);
+                } else {
+                    equal = value.equals(literal);
+                }
+                return (test == Test.EQUALS) == equal;
+            default:
+                double left = toNumber(value);
+                double right = numericLiteral ? Double.parseDouble(literal) : toNumber(literal);
+                switch (test) {
+                    case LESS_THAN:
+                        return left < right;
+                    case LESS_THAN_OR_EQUAL:
+                        return left <= right;
+                    case GREATER_THAN:
+                        return left > right;
+                    default:
+                        return left >= right;
+                }
+        }
+    }
+
+    private List<String> getOperandValues(OMElement node) {
+        List<String> values = new ArrayList<String>(1);
+        switch (operand) {
+            case ATTRIBUTE:
+                OMAttribute attribute = node.getAttribute(getQName());
+                if (attribute != null) {
+                    values.add(attribute.getAttributeValue());
+                }
+                break;
+            case CHILD:
+                Iterator children = node.getChildrenWithName(getQName());
+                while (children.hasNext()) {
+                    values.add(getStringValue((OMElement) children.next()));
+                }
+                break;
+            case SELF:
+                values.add(getStringValue(node));
+                break;
+            case TEXT:
+                Iterator nodes = node.getChildren();
+                while (nodes.hasNext()) {
+                    Object child = nodes.next();
+                    if (child instanceof OMText) {
+                        values.add(((OMText) child).getText());
+                    }
+                }
+                break;
+        }
+        return values;
+    }
+
+    private QName getQName() {
+        if (nameSpacePrefix == null) {
+            return new QName("", localName);
+        }
+        String nameSpace = ParserComponent.getPrefixNameSpaceMap().get(nameSpacePrefix);
+        if (nameSpace == null) {
+            throw new IllegalStateException("Namespace prefix " + nameSpacePrefix + " is not mapped to a namespace");
+        }
+        return new QName(nameSpace, localName);
+    }
+
+    /**
+     * Returns the XPath string value of an element, i.e. the concatenation of all its
+     * descendant text nodes.
+     *
+     * @param element element
+     * @return string value of the element
+     */
+    public static String getStringValue(OMElement element) {
+        StringBuilder builder = new StringBuilder();
+        appendText(element, builder);
+        return builder.toString();
+    }
+
+    private static void appendText(OMElement element, StringBuilder builder) {
+        Iterator children = element.getChildren();
+        while (children.hasNext()) {
+            OMNode child = (OMNode) children.next();
+            if (child instanceof OMText) {
+                builder.append(((OMText) child).getText());
+            } else if (child instanceof OMElement) {
+                appendText((OMElement) child, builder);
+            }
+        }
+    }
+
+    private static double toNumber(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath.custom.components;
+
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMText;
+import org.apache.synapse.util.streaming_xpath.custom.StreamingPredicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Top level count(), contains() and starts-with() calls over a location path. The values are
+ * returned in the same form as by Jaxen, i.e. count() returns a Double and the string
+ * functions return a Boolean.
+ */
+public class FunctionParserComponent extends ParserComponent {
+
+    public enum Function {
+        COUNT, CONTAINS, STARTS_WITH
+    }
+
+    Function function;
+    LocationStepParserComponent path;
+    String literal;
+
+    public FunctionParserComponent(Function function, LocationStepParserComponent path, String literal) {
+        this.function = function;
+        this.path = path;
+        this.literal = literal;
+    }
+
+    @Override
+    public String process(OMElement node) {
+        return String.valueOf(evaluate(node));
+    }
+
+    @Override
+    public Object evaluate(OMElement node) {
+        List<Object> nodes = new ArrayList<Object>();
+        path.select(node, nodes);
+        if (function == Function.COUNT) {
+            return (double) nodes.size();
+        }
+        // string value of a node set is the string value of its first node
+        String value = nodes.isEmpty() ? "" : getStringValue(nodes.get(0));
+        if (function == Function.CONTAINS) {
+            return value.contains(literal);
+        }
+        return value.startsWith(literal);
+    }
+
+    @Override
+    public boolean isNameSpaceResolved() {
+        return path.isNameSpaceResolved();
+    }
+
+    private String getStringValue(Object node) {
+        if (node instanceof OMAttribute) {
+            return ((OMAttribute) node).getAttributeValue();
+        } else if (node instanceof OMText) {
+            return ((OMText) node).getText();
+        }
+        return StreamingPredicate.getStringValue((OMElement) node);
+    }
+
+    @Override
+    public void setNext(ParserComponent parserComponent) {
+        throw new IllegalArgumentException("A function call can not be followed by another component");
+    }
+
+    @Override
+    public ParserComponent getNext() {
+        return null;
+    }
+}
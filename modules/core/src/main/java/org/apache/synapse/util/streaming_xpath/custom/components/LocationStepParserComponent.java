@@ -0,0 +1,320 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath.custom.components;
+
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMText;
+import org.apache.synapse.util.streaming_xpath.custom.StreamingPredicate;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Location step selecting a node set. Unlike the other components, which follow the first
+ * matching child only, a location step selects every node matched by its name test and
+ * predicates and passes each of them to the next step, so that the complete node set of the
+ * expression is returned in document order. Since AXIOM builds the tree on demand, a
+ * positional predicate stops the step, and the building of the siblings, as soon as the
+ * node at that position has been found.
+ * <p>
+ * A node reached from several context nodes, e.g. a b element nested in two a elements with
+ * //a//b, is selected only once, and when the context nodes of a step may be nested in each
+ * other the node set is put back in document order, as returned by Jaxen.
+ */
+public class LocationStepParserComponent extends ParserComponent {
+
+    public enum Axis {
+        /**
+         * The context node itself, used for the first step of an absolute path
+         */
+        SELF,
+        /**
+         * The context node and its descendants, used for the first step of a path starting with //
+         */
+        DESCENDANT_OR_SELF,
+        CHILD,
+        DESCENDANT,
+        ATTRIBUTE,
+        TEXT
+    }
+
+    private static final String ANY_NAME = "*";
+
+    ParserComponent nextParserComponent;
+    Axis axis;
+    String localName;
+    String nameSpacePrefix;
+    List<StreamingPredicate> predicates;
+
+    public LocationStepParserComponent(Axis axis, String localName, String nameSpacePrefix,
+                                       List<StreamingPredicate> predicates) {
+        this.axis = axis;
+        this.localName = localName;
+        this.nameSpacePrefix = nameSpacePrefix;
+        this.predicates = predicates;
+    }
+
+    @Override
+    public String process(OMElement node) {
+        List<Object> nodes = new ArrayList<Object>();
+        select(node, nodes);
+        if (nodes.isEmpty()) {
+            return "";
+        }
+        Object first = nodes.get(0);
+        if (first instanceof OMAttribute) {
+            return ((OMAttribute) first).getAttributeValue();
+        } else if (first instanceof OMText) {
+            return ((OMText) first).getText();
+        }
+        return first.toString();
+    }
+
+    @Override
+    public Object evaluate(OMElement node) {
+        List<Object> nodes = new ArrayList<Object>();
+        select(node, nodes);
+        return nodes;
+    }
+
+    /**
+     * Add the nodes selected by this step, and the steps following it, from the given context
+     * node to the given list.
+     *
+     * @param node  context node
+     * @param nodes list of selected nodes
+     */
+    public void select(OMElement node, List<Object> nodes) {
+        Selection selection = new Selection(nodes);
+        select(node, selection);
+        if (nodes.size() > 1 && hasNestedContexts()) {
+            selection.sortInDocumentOrder(node);
+        }
+    }
+
+    /*
+     * Whether a step selecting descendants is followed by another step, whose context nodes may
+     * then be nested in each other, so that the nodes are not found in document order.
+     */
+    private boolean hasNestedContexts() {
+        for (LocationStepParserComponent step = this; step.nextParserComponent != null;
+             step = (LocationStepParserComponent) step.nextParserComponent) {
+            if (step.axis == Axis.DESCENDANT || step.axis == Axis.DESCENDANT_OR_SELF) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isNameSpaceResolved() {
+        if (nameSpacePrefix != null && !prefixNameSpaceMap.containsKey(nameSpacePrefix)) {
+            return false;
+        }
+        for (StreamingPredicate predicate : predicates) {
+            if (!predicate.isNameSpaceResolved()) {
+                return false;
+            }
+        }
+        return nextParserComponent == null || nextParserComponent.isNameSpaceResolved();
+    }
+
+    private void select(OMElement node, Selection nodes) {
+        switch (axis) {
+            case SELF:
+                if (matchesName(node) && acceptsSingle(node)) {
+                    selectNext(node, nodes);
+                }
+                break;
+            case DESCENDANT_OR_SELF:
+                if (matchesName(node) && acceptsSingle(node)) {
+                    selectNext(node, nodes);
+                }
+                selectChildren(node, nodes, true);
+                break;
+            case CHILD:
+                selectChildren(node, nodes, false);
+                break;
+            case DESCENDANT:
+                selectChildren(node, nodes, true);
+                break;
+            case ATTRIBUTE:
+                Iterator attributes = node.getAllAttributes();
+                while (attributes.hasNext()) {
+                    OMAttribute attribute = (OMAttribute) attributes.next();
+                    if (matchesName(attribute.getQName())) {
+                        nodes.add(attribute);
+                    }
+                }
+                break;
+            case TEXT:
+                Iterator children = node.getChildren();
+                while (children.hasNext()) {
+                    Object child = children.next();
+                    if (child instanceof OMText) {
+                        nodes.add(child);
+                    }
+                }
+                break;
+        }
+    }
+
+    private void selectChildren(OMElement node, Selection nodes, boolean descendants) {
+        int[] positions = new int[predicates.size()];
+        Iterator children = node.getChildElements();
+        while (children.hasNext()) {
+            OMElement child = (OMElement) children.next();
+            if (matchesName(child) && accept(child, positions)) {
+                selectNext(child, nodes);
+            }
+            if (descendants) {
+                selectChildren(child, nodes, true);
+            } else if (isPositionPassed(positions)) {
+                // none of the following siblings can be at the requested position
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run the predicates over a candidate, the position used by each predicate being the
+     * position of the candidate among the nodes accepted by the preceding predicates.
+     */
+    private boolean accept(OMElement candidate, int[] positions) {
+        for (int i = 0; i < predicates.size(); i++) {
+            positions[i]++;
+            if (!predicates.get(i).matches(candidate, positions[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean acceptsSingle(OMElement node) {
+        for (StreamingPredicate predicate : predicates) {
+            if (!predicate.matches(node, 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isPositionPassed(int[] positions) {
+        return !predicates.isEmpty() && predicates.get(0).isPositional()
+                && positions[0] >= predicates.get(0).getPosition();
+    }
+
+    private void selectNext(OMElement node, Selection nodes) {
+        if (nextParserComponent == null) {
+            nodes.add(node);
+        } else {
+            ((LocationStepParserComponent) nextParserComponent).select(node, nodes);
+        }
+    }
+
+    private boolean matchesName(OMElement element) {
+        return matchesName(element.getQName());
+    }
+
+    private boolean matchesName(QName qName) {
+        if (!ANY_NAME.equals(localName) && !localName.equals(qName.getLocalPart())) {
+            return false;
+        }
+        if (nameSpacePrefix == null) {
+            // as in XPath 1.0, unprefixed names only match nodes which are not in a namespace
+            return ANY_NAME.equals(localName) || qName.getNamespaceURI().isEmpty();
+        }
+        String nameSpace = prefixNameSpaceMap.get(nameSpacePrefix);
+        if (nameSpace == null) {
+            throw new IllegalStateException("Namespace prefix " + nameSpacePrefix + " is not mapped to a namespace");
+        }
+        return nameSpace.equals(qName.getNamespaceURI());
+    }
+
+    @Override
+    public void setNext(ParserComponent parserComponent) {
+        if (!(parserComponent instanceof LocationStepParserComponent)) {
+            throw new IllegalArgumentException("A location step can only be followed by another location step");
+        }
+        this.nextParserComponent = parserComponent;
+    }
+
+    @Override
+    public ParserComponent getNext() {
+        return this.nextParserComponent;
+    }
+
+    /**
+     * Nodes selected by a path, each of them once, in the order they are found.
+     */
+    private static final class Selection {
+
+        private final List<Object> nodes;
+
+        // AXIOM attributes are equal when their names and values are, hence nodes are compared by identity
+        private final Map<Object, Boolean> selected = new IdentityHashMap<Object, Boolean>();
+
+        private Selection(List<Object> nodes) {
+            this.nodes = nodes;
+        }
+
+        private void add(Object node) {
+            if (selected.put(node, Boolean.TRUE) == null) {
+                nodes.add(node);
+            }
+        }
+
+        /**
+         * Reorder the selected nodes by walking the tree of the context node in document order,
+         * until all of them are found.
+         */
+        private void sortInDocumentOrder(OMElement root) {
+            List<Object> ordered = new ArrayList<Object>(nodes.size());
+            collect(root, ordered);
+            nodes.clear();
+            nodes.addAll(ordered);
+        }
+
+        private void collect(OMElement element, List<Object> ordered) {
+            if (selected.containsKey(element)) {
+                ordered.add(element);
+            }
+            Iterator attributes = element.getAllAttributes();
+            while (attributes.hasNext()) {
+                Object attribute = attributes.next();
+                if (selected.containsKey(attribute)) {
+                    ordered.add(attribute);
+                }
+            }
+            Iterator children = element.getChildren();
+            while (children.hasNext() && ordered.size() < nodes.size()) {
+                Object child = children.next();
+                if (child instanceof OMElement) {
+                    collect((OMElement) child, ordered);
+                } else if (selected.containsKey(child)) {
+                    ordered.add(child);
+                }
+            }
+        }
+    }
+}
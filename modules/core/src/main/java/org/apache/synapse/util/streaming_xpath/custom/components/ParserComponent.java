@@ -38,6 +38,29 @@ public abstract class ParserComponent {
 
     public abstract String process(OMElement nodes);
 
+    /**
+     * Evaluate the component against the given node. Components which select node sets or
+     * compute function values return them as is, while the others return the same value as
+     * {@link #process(OMElement)}.
+     *
+     * @param node context node
+     * @return result of the evaluation
+     */
+    public Object evaluate(OMElement node) {
+        return process(node);
+    }
+
+    /**
+     * Check whether all the namespace prefixes used by the component, and the components
+     * following it, are mapped to a namespace. Components which resolve their names when they
+     * are created always return true.
+     *
+     * @return true if the component can be evaluated with the known namespaces
+     */
+    public boolean isNameSpaceResolved() {
+        return true;
+    }
+
     public abstract void setNext(ParserComponent parserComponent);
 
     public abstract ParserComponent getNext();
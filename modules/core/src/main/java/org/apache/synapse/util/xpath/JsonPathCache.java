@@ -0,0 +1,226 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.xpath;
+
+import com.jayway.jsonpath.JsonPath;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.commons.json.StreamingJsonPath;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of compiled {@link JsonPath} instances, keyed by the resolved expression. It is
+ * used by {@link SynapseJsonPath} to avoid compiling the same path for every message when the
+ * expression contains dynamic parts, e.g. json-eval($.store.{$ctx:prop1}). Each entry also holds
+ * the {@link StreamingJsonPath} form of the expression, so neither form is compiled again.
+ * <p>
+ * The cache is split into a number of segments, each of which is an LRU map guarded by its own
+ * lock, so that concurrent lookups of different expressions rarely contend. Hit, miss and
+ * eviction counts are exposed over JMX through {@link JsonPathCacheView}.
+ */
+public final class JsonPathCache {
+
+    private static final Log log = LogFactory.getLog(JsonPathCache.class);
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private static final JsonPathCache instance = new JsonPathCache(getConfiguredMaxSize());
+
+    static {
+        MBeanRegistrar.getInstance().registerMBean(new JsonPathCacheView(instance), "JsonPath", "CompiledPathCache");
+    }
+
+    private final Segment[] segments;
+
+    private final int maxSize;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    JsonPathCache(int maxSize) {
+        this.maxSize = maxSize;
+        int segmentCount = Math.max(1, Math.min(SEGMENT_COUNT, maxSize));
+        int segmentSize = Math.max(1, maxSize / segmentCount);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    public static JsonPathCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the compiled path for the given expression, compiling and caching it if required.
+     *
+     * @param expression resolved json path expression
+     * @return compiled json path
+     */
+    public JsonPath getJsonPath(String expression) {
+        return getCompiledPath(expression).getJsonPath();
+    }
+
+    /**
+     * Get both compiled forms of the given expression, compiling and caching them if required.
+     *
+     * @param expression resolved json path expression
+     * @return compiled json path and its streaming form
+     */
+    public CompiledPath getCompiledPath(String expression) {
+        if (maxSize <= 0) {
+            missCount.incrementAndGet();
+            return new CompiledPath(expression);
+        }
+        Segment segment = segmentFor(expression);
+        CompiledPath compiledPath;
+        synchronized (segment) {
+            compiledPath = segment.get(expression);
+        }
+        if (compiledPath != null) {
+            hitCount.incrementAndGet();
+            return compiledPath;
+        }
+        missCount.incrementAndGet();
+        // compile outside the lock, a concurrent miss for the same expression only costs a compilation
+        compiledPath = new CompiledPath(expression);
+        synchronized (segment) {
+            segment.put(expression, compiledPath);
+        }
+        return compiledPath;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Remove all the cached paths and reset the statistics.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+
+    private Segment segmentFor(String expression) {
+        int hash = expression.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static int getConfiguredMaxSize() {
+        String value = SynapsePropertiesLoader.getPropertyValue(SynapseConstants.JSONPATH_CACHE_SIZE,
+                String.valueOf(DEFAULT_MAX_SIZE));
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value " + value + " for " + SynapseConstants.JSONPATH_CACHE_SIZE +
+                    ". Using the default value " + DEFAULT_MAX_SIZE);
+            return DEFAULT_MAX_SIZE;
+        }
+    }
+
+    /**
+     * A json path expression compiled for Jayway JsonPath and, if the expression is supported, for
+     * the streaming evaluation.
+     */
+    public static final class CompiledPath {
+
+        private final JsonPath jsonPath;
+
+        private final StreamingJsonPath streamingJsonPath;
+
+        CompiledPath(String expression) {
+            this(JsonPath.compile(expression), StreamingJsonPath.compile(expression));
+        }
+
+        CompiledPath(JsonPath jsonPath, StreamingJsonPath streamingJsonPath) {
+            this.jsonPath = jsonPath;
+            this.streamingJsonPath = streamingJsonPath;
+        }
+
+        public JsonPath getJsonPath() {
+            return jsonPath;
+        }
+
+        /**
+         * @return streaming form of the path, null if it can only be evaluated over the complete payload
+         */
+        public StreamingJsonPath getStreamingJsonPath() {
+            return streamingJsonPath;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, CompiledPath> {
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledPath> eldest) {
+            if (size() > capacity) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
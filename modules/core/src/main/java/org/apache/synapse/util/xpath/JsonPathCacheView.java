@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.xpath;
+
+public class JsonPathCacheView implements JsonPathCacheViewMBean {
+
+    private JsonPathCache cache;
+
+    public JsonPathCacheView(JsonPathCache cache) {
+        this.cache = cache;
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public double getHitRatio() {
+        long hits = cache.getHitCount();
+        long total = hits + cache.getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public int getSize() {
+        return cache.getSize();
+    }
+
+    public int getMaxSize() {
+        return cache.getMaxSize();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -25,6 +25,11 @@ import com.google.gson.JsonObject;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.SequenceInputStream;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -36,11 +41,13 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.commons.json.StreamingJsonPath;
 import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.config.xml.SynapsePath;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.eip.EIPUtils;
 import org.apache.synapse.util.InlineExpressionUtil;
+import org.apache.synapse.util.xpath.JsonPathCache.CompiledPath;
 import org.jaxen.JaxenException;
 
 import java.io.IOException;
@@ -54,6 +61,12 @@ public class SynapseJsonPath extends SynapsePath {
 
     private static final String EXTRACT_PROP_REGEX = "^(\\$ctx|\\$trp|\\$axis2):([a-zA-Z0-9]+)";
 
+    /** Bytes of a stream which can not be reset kept aside for a fallback evaluation */
+    private static final int MAX_RECORDED_BYTES = 64 * 1024;
+
+    private static final boolean STREAMING_EVALUATION_ENABLED = Boolean.parseBoolean(
+            SynapsePropertiesLoader.getPropertyValue(SynapseConstants.STREAMING_JSONPATH_EVALUATION, "true"));
+
     private String propertyExpression;
 
     private String enableStreamingJsonPath = SynapsePropertiesLoader.loadSynapseProperties().
@@ -81,10 +94,14 @@ public class SynapseJsonPath extends SynapsePath {
 
     public void setJsonPath(JsonPath jsonPath) {
         this.jsonPath = jsonPath;
+        this.compiledPath = new CompiledPath(jsonPath, StreamingJsonPath.compile(jsonPath.getPath()));
     }
 
     private JsonPath jsonPath;
 
+    // The json path together with its streaming form, used when the expression has no dynamic values
+    private CompiledPath compiledPath;
+
     private boolean isWholeBody = false;
 
     // JSON path has expressions that need to be processed. Ex: json-eval($.store.{$ctx:prop1})
@@ -124,11 +141,18 @@ public class SynapseJsonPath extends SynapsePath {
         // Check if the JSON path expression has dynamic values
         if (InlineExpressionUtil.checkForInlineExpressions(expression)) {
             isJSONPathNeedsProcessing = true;
+            compiledPath = new CompiledPath(jsonPath, null);
+        } else {
+            compiledPath = new CompiledPath(jsonPath, StreamingJsonPath.compile(expression));
         }
         this.setPathType(SynapsePath.JSON_PATH);
     }
 
     public String stringValueOf(final String jsonString) {
+        return stringValueOf(jsonPath, jsonString);
+    }
+
+    private String stringValueOf(JsonPath jsonPath, final String jsonString) {
         if (jsonString == null) {
             return "";
         }
@@ -141,17 +165,14 @@ public class SynapseJsonPath extends SynapsePath {
     }
 
     public String stringValueOf(MessageContext synCtx) {
-        if (isJSONPathNeedsProcessing) {
-            // Create new JSON path by replacing dynamic values with content.
-            jsonPath = JsonPath.compile(InlineExpressionUtil.replaceDynamicValuesForJSONPath(synCtx, expression));
-        }
+        CompiledPath compiledPath = resolveJsonPath(synCtx);
 
         // evaluating the jsonPath against a property
         if (propertyExpression != null) {
             try {
                 SynapseXPath xPath = new SynapseXPath(propertyExpression);
                 String result = xPath.stringValueOf(synCtx);
-                return stringValueOf(result);
+                return stringValueOf(compiledPath.getJsonPath(), result);
             } catch (JaxenException e) {
                 log.error("Xpath evaluation failed : " + propertyExpression, e);
                 return "";
@@ -170,13 +191,19 @@ public class SynapseJsonPath extends SynapsePath {
                         stream = JsonUtil.getJsonPayload(amc);
                     } else {
                         JsonUtil.getNewJsonPayload(amc, stream, true, true);
+                        // the payload stream reads the pipe on demand, so a definite path is only
+                        // read up to its match, and it can be reset for a fallback evaluation
+                        InputStream payload = JsonUtil.getJsonPayload(amc);
+                        if (payload != null) {
+                            stream = payload;
+                        }
                     }
                 } else {
                     // Message Already built.
                     stream = JsonUtil.toJsonStream(amc.getEnvelope().getBody().getFirstElement());
                 }
                 if(stream != null) {
-                    return stringValueOf(stream);
+                    return stringValueOf(compiledPath, stream, true);
                 }else{
                     log.warn("Json Payload is empty.");
                     return "";
@@ -186,12 +213,35 @@ public class SynapseJsonPath extends SynapsePath {
             }
         } else {
             stream = JsonUtil.getJsonPayload(amc);
-            return stringValueOf(stream);
+            return stringValueOf(compiledPath, stream, true);
         }
         return "";
     }
 
+    /**
+     * Get the json path to be evaluated against the given message. If the expression has dynamic
+     * values, they are resolved and the resulting path, with its streaming form, is looked up from
+     * the {@link JsonPathCache}. The resolved path is never stored in this instance, since it is
+     * shared between messages.
+     *
+     * @param synCtx message context
+     * @return json path to be evaluated
+     */
+    private CompiledPath resolveJsonPath(MessageContext synCtx) {
+        if (isJSONPathNeedsProcessing) {
+            // Create new JSON path by replacing dynamic values with content.
+            return JsonPathCache.getInstance().getCompiledPath(
+                    InlineExpressionUtil.replaceDynamicValuesForJSONPath(synCtx, expression));
+        }
+        return compiledPath;
+    }
+
     public String stringValueOf(final InputStream jsonStream) {
+        return stringValueOf(compiledPath, jsonStream, false);
+    }
+
+    private String stringValueOf(CompiledPath compiledPath, final InputStream jsonStream, boolean resettable) {
+        JsonPath jsonPath = compiledPath.getJsonPath();
         if (jsonStream == null) {
             return "";
         }
@@ -205,7 +255,7 @@ public class SynapseJsonPath extends SynapsePath {
         }
         Object read;
         try {
-            read = formatJsonPathResponse(jsonPath.read(jsonStream));
+            read = formatJsonPathResponse(read(compiledPath, jsonStream, resettable));
             if (log.isDebugEnabled()) {
                 log.debug("#stringValueOf. Evaluated JSON path <" + jsonPath.getPath() + "> : <" + (read == null ? null : read.toString()) + ">");
             }
@@ -225,6 +275,61 @@ public class SynapseJsonPath extends SynapsePath {
         return "";
     }
 
+    /**
+     * Read the json path from the given stream. Supported paths are evaluated while the stream is
+     * being scanned, so only the matched values are built and, for definite paths, the stream is
+     * read only up to the match. Other paths, and streams the streaming evaluation cannot handle,
+     * are read with Jayway JsonPath over the complete payload.
+     * <p>
+     * The fallback reads the payload again from its start. A resettable stream, such as the JSON
+     * payload stream of a message, is reset. The bytes read from any other stream are recorded up
+     * to {@link #MAX_RECORDED_BYTES}, and a payload longer than that is not evaluated in streaming
+     * mode, so that a large payload is never held twice in memory.
+     *
+     * @param compiledPath json path to be evaluated, with its streaming form
+     * @param jsonStream   JSON payload
+     * @param resettable   whether resetting the stream goes back to the start of the payload
+     * @return result in the same form as returned by {@link JsonPath#read(InputStream)}
+     * @throws IOException if the stream could not be read
+     */
+    private Object read(CompiledPath compiledPath, InputStream jsonStream, boolean resettable) throws IOException {
+        JsonPath jsonPath = compiledPath.getJsonPath();
+        StreamingJsonPath streamingPath = STREAMING_EVALUATION_ENABLED ? compiledPath.getStreamingJsonPath() : null;
+        if (streamingPath == null) {
+            return jsonPath.read(jsonStream);
+        }
+        JsonElement result;
+        if (resettable || jsonStream instanceof ByteArrayInputStream) {
+            jsonStream.mark(Integer.MAX_VALUE);
+            try {
+                result = streamingPath.evaluate(jsonStream);
+            } catch (Exception e) {
+                logFallback(jsonPath, e);
+                jsonStream.reset();
+                return jsonPath.read(jsonStream);
+            }
+        } else {
+            RecordingInputStream recordingStream = new RecordingInputStream(jsonStream, MAX_RECORDED_BYTES);
+            try {
+                result = streamingPath.evaluate(recordingStream);
+            } catch (Exception e) {
+                logFallback(jsonPath, e);
+                return jsonPath.read(recordingStream.replay());
+            }
+        }
+        if (result == null) {
+            throw new PathNotFoundException("No results for path: " + jsonPath.getPath());
+        }
+        return result;
+    }
+
+    private static void logFallback(JsonPath jsonPath, Exception e) {
+        if (log.isDebugEnabled()) {
+            log.debug("#read. Could not evaluate JSON path <" + jsonPath.getPath() + "> in streaming mode. "
+                    + "Falling back to reading the complete payload. Error>>> " + e.getLocalizedMessage());
+        }
+    }
+
     public String getJsonPathExpression() {
         return expression;
     }
@@ -245,7 +350,7 @@ public class SynapseJsonPath extends SynapsePath {
                 MessageContext synCtx = (MessageContext) object;
                 result = listValueOf(synCtx);
             } else if (object instanceof String) {
-                result = listValueOf(IOUtils.toInputStream(object.toString()));
+                result = listValueOf(compiledPath, IOUtils.toInputStream(object.toString()), true);
             }
         }
         return result;
@@ -255,6 +360,7 @@ public class SynapseJsonPath extends SynapsePath {
      * Read JSON stream and return and object
      */
     private List listValueOf(MessageContext synCtx) {
+        CompiledPath compiledPath = resolveJsonPath(synCtx);
         org.apache.axis2.context.MessageContext amc = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
         InputStream stream;
         if (!JsonUtil.hasAJsonPayload(amc) || "true".equals(enableStreamingJsonPath)) {
@@ -266,18 +372,24 @@ public class SynapseJsonPath extends SynapsePath {
                         stream = JsonUtil.getJsonPayload(amc);
                     } else {
                         JsonUtil.getNewJsonPayload(amc, stream, true, true);
+                        // the payload stream reads the pipe on demand, so a definite path is only
+                        // read up to its match, and it can be reset for a fallback evaluation
+                        InputStream payload = JsonUtil.getJsonPayload(amc);
+                        if (payload != null) {
+                            stream = payload;
+                        }
                     }
                 } else {
                     // Message Already built.
                     stream = JsonUtil.toJsonStream(amc.getEnvelope().getBody().getFirstElement());
                 }
-                return listValueOf(stream);
+                return listValueOf(compiledPath, stream, true);
             } catch (IOException e) {
                 handleException("Could not find JSON Stream in PassThrough Pipe during JSON path evaluation.", e);
             }
         } else {
             stream = JsonUtil.getJsonPayload(amc);
-            return listValueOf(stream);
+            return listValueOf(compiledPath, stream, true);
         }
         return null;
     }
@@ -288,13 +400,14 @@ public class SynapseJsonPath extends SynapsePath {
      * contain multiple element. NULL will return if the path is invalid. Empty
      * list will return if the path points to null.
      */
-    private List listValueOf(final InputStream jsonStream) {
+    private List listValueOf(CompiledPath compiledPath, final InputStream jsonStream, boolean resettable) {
         if (jsonStream == null) {
             return null;
         }
+        JsonPath jsonPath = compiledPath.getJsonPath();
         List result = new ArrayList();
         try {
-            Object object = formatJsonPathResponse(jsonPath.read(jsonStream));
+            Object object = formatJsonPathResponse(read(compiledPath, jsonStream, resettable));
             if (object != null) {
                 if (object instanceof List && !jsonPath.isDefinite()) {
                     result = (List) object;
@@ -402,4 +515,64 @@ public class SynapseJsonPath extends SynapsePath {
     public boolean booleanValueOf(MessageContext synCtx) {
         return Boolean.parseBoolean(this.stringValueOf(synCtx));
     }
+
+    /**
+     * Keeps a copy of the bytes read from a stream, so that a partially read stream can be read
+     * again from the beginning. Reading past the limit fails, once the bytes read have been
+     * recorded, so that the evaluation falls back before the copy grows any further.
+     */
+    private static class RecordingInputStream extends FilterInputStream {
+
+        private final ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+
+        private final int limit;
+
+        private RecordingInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                recorded.write(b);
+                checkLimit();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                recorded.write(b, off, count);
+                checkLimit();
+            }
+            return count;
+        }
+
+        private void checkLimit() throws IOException {
+            if (recorded.size() > limit) {
+                throw new IOException("Payload is longer than " + limit + " bytes");
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            return Math.max(0, read(new byte[(int) Math.min(n, 8192)]));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private InputStream replay() {
+            return new SequenceInputStream(new ByteArrayInputStream(recorded.toByteArray()), in);
+        }
+    }
 }
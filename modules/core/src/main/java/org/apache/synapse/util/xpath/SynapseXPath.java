@@ -47,6 +47,7 @@ import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.util.streaming_xpath.StreamingXPATH;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHStatistics;
 import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
 import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
 import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
@@ -196,6 +197,7 @@ public class SynapseXPath extends SynapsePath {
             try {
                 this.streamingXPATH = new StreamingXPATH(xpathString);
                 contentAware = false;
+                StreamingXPATHStatistics.getInstance().compiled();
             } catch (StreamingXPATHException e) {
                 if (log.isDebugEnabled()) {
                     log.debug("Provided XPATH expression " + xpathString + " cant be evaluated custom.");
@@ -212,6 +214,9 @@ public class SynapseXPath extends SynapsePath {
                 }
                 contentAware = true;
             }
+            if (streamingXPATH == null) {
+                StreamingXPATHStatistics.getInstance().unsupported();
+            }
         }
     }
 
@@ -374,6 +379,7 @@ public class SynapseXPath extends SynapsePath {
             org.apache.axis2.context.MessageContext axis2MC =null;
 
             if (!forceDisableStreamXpath && "true".equals(enableStreamingXpath) && streamingXPATH != null &&
+                    streamingXPATH.isNameSpaceResolved() &&
                     (((Axis2MessageContext) synCtx).getEnvelope() == null ||
                             ((Axis2MessageContext) synCtx).getEnvelope().getBody().getFirstElement() == null)) {
                 try {
@@ -392,22 +398,18 @@ public class SynapseXPath extends SynapsePath {
                 }
                 if (inputStream != null) {
                     try {
-                        result = streamingXPATH.getStringValue(inputStream);
+                        result = streamingXPATH.evaluate(inputStream);
                     } catch (XMLStreamException e) {
                         handleException("Error occurred while parsing the XPATH String", e);
-                    } catch (StreamingXPATHException e) {
-                        handleException("Error occurred while parsing the XPATH String", e);
                     }
                 } else {
-                    try {
-                        result = streamingXPATH.getStringValue(synCtx.getEnvelope());
-                    } catch (XMLStreamException e) {
-                        handleException("Error occurred while parsing the XPATH String", e);
-                    } catch (StreamingXPATHException e) {
-                        handleException("Error occurred while parsing the XPATH String", e);
-                    }
+                    result = streamingXPATH.evaluate(synCtx.getEnvelope());
                 }
+                StreamingXPATHStatistics.getInstance().streamingEvaluation();
             } else {
+                if ("true".equals(enableStreamingXpath)) {
+                    StreamingXPATHStatistics.getInstance().fallbackEvaluation();
+                }
                 result = evaluate(synCtx);
             }
 
@@ -465,7 +467,7 @@ public class SynapseXPath extends SynapsePath {
                     }
                 }
 
-            }else if("true".equals(enableStreamingXpath)&& streamingXPATH != null){
+            }else if("true".equals(enableStreamingXpath)&& streamingXPATH != null && result instanceof String){
                 if(!"".equals((String) result)){
                     OMElement re=AXIOMUtil.stringToOM((String) result);
                     if(re!=null){
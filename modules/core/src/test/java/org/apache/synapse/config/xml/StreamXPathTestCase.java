@@ -19,12 +19,17 @@
 package org.apache.synapse.config.xml;
 
 import junit.framework.TestCase;
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axiom.om.xpath.AXIOMXPath;
 import org.apache.commons.io.IOUtils;
 import org.apache.synapse.util.streaming_xpath.StreamingXPATH;
+import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
 import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
 
 import javax.xml.stream.XMLStreamException;
+import java.util.List;
 
 /**
  * Tests stream xpath related operations
@@ -39,6 +44,12 @@ public class StreamXPathTestCase extends TestCase {
     private static final String XPATH1 = "/bookstore/book/title";
     private static final String XPATH2 = "/bookstore/book[1]/year";
 
+    private static final String BOOKSTORE = "<bookstore>"
+            + "<book category=\"cooking\"><title lang=\"en\">Everyday Italian</title><price>30.00</price></book>"
+            + "<book category=\"children\"><title lang=\"en\">Harry Potter</title><price>29.99</price></book>"
+            + "<book category=\"web\"><title lang=\"fr\">Learning XML</title><price>39.95</price></book>"
+            + "</bookstore>";
+
     public void testStreamValidXpath() throws StreamingXPATHException, XMLStreamException {
         StreamingXPATH parser = new StreamingXPATH(XPATH1);
         String result = parser.getStringValue(AXIOMUtil.stringToOM(ELEMENT));
@@ -61,4 +72,81 @@ public class StreamXPathTestCase extends TestCase {
         assertTrue("Invalid result from xpath execution", result.contains("Everyday Italian"));
     }
 
+    public void testPositionalPredicate() throws Exception {
+        List nodes = evaluateNodeSet("/bookstore/book[2]/title");
+        assertEquals(1, nodes.size());
+        assertEquals("Harry Potter", ((OMElement) nodes.get(0)).getText());
+    }
+
+    public void testAttributeAndChildPredicates() throws Exception {
+        List nodes = evaluateNodeSet("/bookstore/book[@category='web']/title");
+        assertEquals(1, nodes.size());
+        assertEquals("Learning XML", ((OMElement) nodes.get(0)).getText());
+
+        nodes = evaluateNodeSet("/bookstore/book[price < 35]/title/@lang");
+        assertEquals(2, nodes.size());
+        assertEquals("en", ((OMAttribute) nodes.get(0)).getAttributeValue());
+
+        nodes = evaluateNodeSet("//title[. = 'Harry Potter']");
+        assertEquals(1, nodes.size());
+    }
+
+    public void testMultipleResults() throws Exception {
+        List nodes = evaluateNodeSet("/bookstore/book/title/text()");
+        assertEquals(3, nodes.size());
+        assertTrue(evaluateNodeSet("/bookstore/book[4]").isEmpty());
+    }
+
+    public void testFunctions() throws Exception {
+        OMElement bookstore = AXIOMUtil.stringToOM(BOOKSTORE);
+        assertEquals(3.0, new StreamingXPATH("count(/bookstore/book)").evaluate(bookstore));
+        assertEquals(1.0, new StreamingXPATH("count(//book[contains(title, 'XML')])").evaluate(bookstore));
+        assertEquals(Boolean.TRUE, new StreamingXPATH("starts-with(/bookstore/book/@category, 'cook')")
+                .evaluate(bookstore));
+        assertEquals(Boolean.FALSE, new StreamingXPATH("contains(/bookstore/book[3]/title, 'Potter')")
+                .evaluate(bookstore));
+    }
+
+    public void testNestedDescendantsAreSelectedOnce() throws Exception {
+        OMElement root = AXIOMUtil.stringToOM("<root><a><b>1</b><a><b>2</b></a><b>3</b></a></root>");
+        List nodes = (List) new StreamingXPATH("//a//b").evaluate(root);
+        List expected = new AXIOMXPath("//a//b").selectNodes(root);
+        assertEquals(3, nodes.size());
+        assertEquals(expected, nodes);
+        assertEquals(3.0, new StreamingXPATH("count(//a//b)").evaluate(root));
+    }
+
+    public void testNestedContextsInDocumentOrder() throws Exception {
+        OMElement root = AXIOMUtil.stringToOM("<root><a><a><b>1</b></a><b>2</b></a></root>");
+        List nodes = (List) new StreamingXPATH("//a/b").evaluate(root);
+        List expected = new AXIOMXPath("//a/b").selectNodes(root);
+        assertEquals(2, nodes.size());
+        assertEquals(expected, nodes);
+        assertEquals("1", ((OMElement) nodes.get(0)).getText());
+        assertEquals(Boolean.TRUE, new StreamingXPATH("starts-with(//a/b, '1')").evaluate(root));
+    }
+
+    public void testUnknownPrefix() throws Exception {
+        StreamingXPATH parser = new StreamingXPATH("/bookstore/book[unmapped:title]");
+        assertFalse(parser.isNameSpaceResolved());
+        try {
+            parser.evaluate(AXIOMUtil.stringToOM(BOOKSTORE));
+            fail("An unknown prefix must not be evaluated as the empty namespace");
+        } catch (IllegalStateException expected) {
+        }
+        ParserComponent.addToNameSpaceMap("unmapped", "http://unmapped.example.org");
+        try {
+            assertTrue(parser.isNameSpaceResolved());
+            assertTrue(((List) parser.evaluate(AXIOMUtil.stringToOM(BOOKSTORE))).isEmpty());
+        } finally {
+            ParserComponent.getPrefixNameSpaceMap().remove("unmapped");
+        }
+    }
+
+    private List evaluateNodeSet(String xpath) throws Exception {
+        Object result = new StreamingXPATH(xpath).evaluate(IOUtils.toInputStream(BOOKSTORE, "UTF-8"));
+        assertTrue("Node set expected for " + xpath, result instanceof List);
+        return (List) result;
+    }
+
 }
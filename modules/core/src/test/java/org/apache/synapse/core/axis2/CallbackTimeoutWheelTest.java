@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+
+public class CallbackTimeoutWheelTest extends TestCase {
+
+    public void testExpire() {
+        long startTime = System.currentTimeMillis();
+        CallbackTimeoutWheel wheel = new CallbackTimeoutWheel(100, 16, startTime);
+        AsyncCallback callback = createCallback(1000);
+        wheel.schedule("msg1", callback);
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.expire(startTime + 500).isEmpty());
+        List<Map.Entry<String, AsyncCallback>> expired = wheel.expire(startTime + 1300);
+        assertEquals(1, expired.size());
+        assertEquals("msg1", expired.get(0).getKey());
+        assertSame(callback, expired.get(0).getValue());
+        assertEquals(0, wheel.size());
+    }
+
+    public void testCancel() {
+        long startTime = System.currentTimeMillis();
+        CallbackTimeoutWheel wheel = new CallbackTimeoutWheel(100, 16, startTime);
+        AsyncCallback callback = createCallback(500);
+        wheel.schedule("msg1", callback);
+        wheel.schedule("msg2", createCallback(500));
+        wheel.cancel("msg1", callback);
+        List<Map.Entry<String, AsyncCallback>> expired = wheel.expire(startTime + 1000);
+        assertEquals(1, expired.size());
+        assertEquals("msg2", expired.get(0).getKey());
+    }
+
+    public void testTimeoutLongerThanWheelRound() {
+        long startTime = System.currentTimeMillis();
+        CallbackTimeoutWheel wheel = new CallbackTimeoutWheel(100, 4, startTime);
+        wheel.schedule("msg1", createCallback(1000));
+        // the slot of the callback is visited in every round of the wheel
+        assertTrue(wheel.expire(startTime + 300).isEmpty());
+        assertTrue(wheel.expire(startTime + 700).isEmpty());
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.expire(startTime + 1300).size());
+    }
+
+    public void testCallbackScheduledAfterTimeout() {
+        long startTime = System.currentTimeMillis();
+        CallbackTimeoutWheel wheel = new CallbackTimeoutWheel(100, 16, startTime);
+        assertTrue(wheel.expire(startTime + 500).isEmpty());
+        // out only messages do not have a timeout, they are expired with the next passed tick
+        wheel.schedule("msg1", createCallback(0));
+        assertTrue(wheel.expire(startTime + 500).isEmpty());
+        assertEquals(1, wheel.expire(startTime + 700).size());
+    }
+
+    private static AsyncCallback createCallback(long timeout) {
+        AsyncCallback callback = new AsyncCallback(null, null);
+        if (timeout > 0) {
+            callback.setTimeout(timeout);
+        }
+        return callback;
+    }
+}
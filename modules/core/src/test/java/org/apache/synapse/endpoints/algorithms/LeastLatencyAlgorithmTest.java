@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.endpoints.algorithms;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.EndpointContext;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.endpoints.LoadbalanceEndpoint;
+import org.apache.synapse.mediators.MediatorProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LeastLatencyAlgorithmTest extends TestCase {
+
+    public void testFasterEndpointIsPreferred() {
+        LoadbalanceEndpoint endpoint = createLoadBalanceEndpoint();
+        AddressEndpoint fast = (AddressEndpoint) endpoint.getChildren().get(0);
+        AddressEndpoint slow = (AddressEndpoint) endpoint.getChildren().get(1);
+
+        complete(fast.getContext(), 10);
+        complete(slow.getContext(), 200);
+
+        MessageContext messageContext = createMessageContext();
+        for (int i = 0; i < 20; i++) {
+            assertSame(fast, endpoint.getAlgorithm().getNextEndpoint(messageContext, null));
+        }
+    }
+
+    public void testOutstandingRequestsAreTakenIntoAccount() {
+        LoadbalanceEndpoint endpoint = createLoadBalanceEndpoint();
+        AddressEndpoint fast = (AddressEndpoint) endpoint.getChildren().get(0);
+        AddressEndpoint slow = (AddressEndpoint) endpoint.getChildren().get(1);
+
+        complete(fast.getContext(), 10);
+        complete(slow.getContext(), 40);
+        for (int i = 0; i < 10; i++) {
+            fast.getContext().onRequestSent();
+        }
+        assertEquals(10, fast.getContext().getOutstandingRequests());
+
+        assertSame(slow, endpoint.getAlgorithm().getNextEndpoint(createMessageContext(), null));
+    }
+
+    public void testResponseTimeAverage() {
+        AddressEndpoint endpoint = (AddressEndpoint) createLoadBalanceEndpoint().getChildren().get(0);
+        EndpointContext context = endpoint.getContext();
+        assertEquals(-1.0, context.getAverageResponseTime());
+
+        complete(context, 100);
+        assertEquals(100.0, context.getAverageResponseTime());
+        // responses following each other closely barely move the average
+        complete(context, 1000);
+        assertTrue(context.getAverageResponseTime() < 200);
+        assertEquals(0, context.getOutstandingRequests());
+
+        // failed requests only release the outstanding request
+        context.onRequestSent();
+        context.onRequestCompleted(-1);
+        assertEquals(0, context.getOutstandingRequests());
+        assertTrue(context.getAverageResponseTime() < 200);
+    }
+
+    private void complete(EndpointContext context, long elapsedTime) {
+        context.onRequestSent();
+        context.onRequestCompleted(elapsedTime);
+    }
+
+    private LoadbalanceEndpoint createLoadBalanceEndpoint() {
+        LoadbalanceEndpoint loadbalanceEndpoint = new LoadbalanceEndpoint();
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        for (int i = 0; i < 2; i++) {
+            AddressEndpoint addressEndpoint = new AddressEndpoint();
+            EndpointDefinition definition = new EndpointDefinition();
+            definition.setAddress("http://localhost:900" + i + "/");
+            addressEndpoint.setDefinition(definition);
+            endpoints.add(addressEndpoint);
+        }
+
+        MediatorProperty property = new MediatorProperty();
+        property.setName(LeastLatencyAlgorithm.LB_LATENCY_DECAY_TIME);
+        property.setValue("60000");
+        loadbalanceEndpoint.addProperty(property);
+
+        LeastLatencyAlgorithm algorithm = new LeastLatencyAlgorithm();
+        algorithm.setEndpoints(endpoints);
+        algorithm.setLoadBalanceEndpoint(loadbalanceEndpoint);
+
+        loadbalanceEndpoint.setChildren(endpoints);
+        loadbalanceEndpoint.setAlgorithm(algorithm);
+
+        SynapseEnvironment env = new Axis2SynapseEnvironment(
+                new ConfigurationContext(new AxisConfiguration()), new SynapseConfiguration());
+        loadbalanceEndpoint.init(env);
+        return loadbalanceEndpoint;
+    }
+
+    private MessageContext createMessageContext() {
+        return new Axis2MessageContext(new org.apache.axis2.context.MessageContext(), null, null);
+    }
+}
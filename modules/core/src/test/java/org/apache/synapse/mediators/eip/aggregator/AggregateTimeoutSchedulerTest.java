@@ -0,0 +1,130 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.mediators.eip.aggregator;
+
+import junit.framework.TestCase;
+
+public class AggregateTimeoutSchedulerTest extends TestCase {
+
+    public void testTimeout() {
+        long startTime = System.currentTimeMillis();
+        AggregateTimeoutScheduler scheduler = new AggregateTimeoutScheduler(100, 16, startTime);
+        TestAggregate aggregate = new TestAggregate(1000);
+        scheduler.schedule(aggregate);
+        assertEquals(0, scheduler.expire(startTime + 500));
+        assertEquals(0, aggregate.runCount);
+        assertEquals(1, scheduler.expire(startTime + 1300));
+        assertEquals(1, aggregate.runCount);
+        // a timed out aggregate is not run again
+        assertEquals(0, scheduler.expire(startTime + 5000));
+        assertEquals(1, aggregate.runCount);
+    }
+
+    public void testCompletedAggregateIsDropped() {
+        long startTime = System.currentTimeMillis();
+        AggregateTimeoutScheduler scheduler = new AggregateTimeoutScheduler(100, 16, startTime);
+        TestAggregate aggregate = new TestAggregate(500);
+        scheduler.schedule(aggregate);
+        scheduler.expire(startTime + 100);
+        aggregate.setCompleted(true);
+        assertEquals(0, scheduler.expire(startTime + 1000));
+        assertEquals(0, aggregate.runCount);
+    }
+
+    public void testCancelledAggregateIsRemoved() {
+        long startTime = System.currentTimeMillis();
+        AggregateTimeoutScheduler scheduler = new AggregateTimeoutScheduler(100, 16, startTime);
+        TestAggregate aggregate = new TestAggregate(60000);
+        scheduler.schedule(aggregate);
+        scheduler.expire(startTime + 100);
+        assertTrue(aggregate.getTimeoutTick() >= 0);
+        aggregate.setCompleted(true);
+        aggregate.cancel();
+        scheduler.expire(startTime + 200);
+        // unlinked long before its slot is visited
+        assertEquals(-1, aggregate.getTimeoutTick());
+        assertEquals(0, scheduler.expire(startTime + 61000));
+        assertEquals(0, aggregate.runCount);
+    }
+
+    public void testBusyAggregateIsRetried() {
+        long startTime = System.currentTimeMillis();
+        AggregateTimeoutScheduler scheduler = new AggregateTimeoutScheduler(100, 16, startTime);
+        TestAggregate busy = new TestAggregate(200);
+        busy.busyCount = 2;
+        TestAggregate other = new TestAggregate(200);
+        scheduler.schedule(busy);
+        scheduler.schedule(other);
+        // a busy aggregate does not hold up the others
+        assertEquals(1, scheduler.expire(startTime + 400));
+        assertEquals(1, other.runCount);
+        assertEquals(0, scheduler.expire(startTime + 500));
+        assertEquals(1, scheduler.expire(startTime + 600));
+        assertEquals(3, busy.runCount);
+    }
+
+    public void testShutdown() {
+        long startTime = System.currentTimeMillis();
+        AggregateTimeoutScheduler scheduler = new AggregateTimeoutScheduler(100, 16, startTime);
+        TestAggregate aggregate = new TestAggregate(200);
+        scheduler.schedule(aggregate);
+        scheduler.shutdown();
+        scheduler.schedule(new TestAggregate(200));
+        assertEquals(0, scheduler.expire(startTime + 1000));
+        assertEquals(0, aggregate.runCount);
+    }
+
+    public void testTimeoutLongerThanWheelRound() {
+        long startTime = System.currentTimeMillis();
+        AggregateTimeoutScheduler scheduler = new AggregateTimeoutScheduler(100, 4, startTime);
+        TestAggregate aggregate = new TestAggregate(1000);
+        scheduler.schedule(aggregate);
+        assertEquals(0, scheduler.expire(startTime + 300));
+        assertEquals(0, scheduler.expire(startTime + 700));
+        assertEquals(1, scheduler.expire(startTime + 1300));
+    }
+
+    public void testTimeoutStatistics() {
+        long startTime = System.currentTimeMillis();
+        AggregateStatistics statistics = AggregateStatistics.getInstance();
+        long timedOut = statistics.getTimedOutCount();
+        AggregateTimeoutScheduler scheduler = new AggregateTimeoutScheduler(100, 16, startTime);
+        TestAggregate aggregate = new TestAggregate(200);
+        scheduler.schedule(aggregate);
+        scheduler.expire(startTime + 2000);
+        assertEquals(timedOut + 1, statistics.getTimedOutCount());
+        assertTrue(statistics.getMaxTimeoutLatency() >= 1700);
+    }
+
+    private static class TestAggregate extends Aggregate {
+
+        private int runCount;
+
+        private int busyCount;
+
+        TestAggregate(long timeoutMillis) {
+            super(null, "test", timeoutMillis, -1, -1, null, null);
+        }
+
+        @Override
+        boolean timeout() {
+            runCount++;
+            return runCount > busyCount;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.message.MessageBatchConsumer;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.processor.MessageProcessor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ForwardingWindowTest extends TestCase {
+
+    private MessageProcessor messageProcessor;
+
+    protected void setUp() throws Exception {
+        messageProcessor = Mockito.mock(MessageProcessor.class);
+        Mockito.when(messageProcessor.getName()).thenReturn("test");
+    }
+
+    /**
+     * Tests that with ordered acknowledgement the messages are removed from the store in the order
+     * they were received, although they are forwarded in the reverse order.
+     */
+    public void testOrderedAckWithOutOfOrderCompletion() throws Exception {
+        final MessageContext[] messages = createMessages(3);
+        final TestConsumer consumer = new TestConsumer(messages);
+        final CountDownLatch thirdForwarded = new CountDownLatch(1);
+        final CountDownLatch secondForwarded = new CountDownLatch(1);
+        final List<MessageContext> forwarded = Collections.synchronizedList(new ArrayList<MessageContext>());
+        final List<Integer> ackedOnForward = Collections.synchronizedList(new ArrayList<Integer>());
+        Forwarder forwarder = new Forwarder() {
+            public void forward(MessageContext message, MessageConsumer slot) throws Exception {
+                if (message == messages[0]) {
+                    assertTrue(secondForwarded.await(10, TimeUnit.SECONDS));
+                } else if (message == messages[1]) {
+                    assertTrue(thirdForwarded.await(10, TimeUnit.SECONDS));
+                }
+                forwarded.add(message);
+                slot.ack();
+                ackedOnForward.add(consumer.getAcked().size());
+                if (message == messages[2]) {
+                    thirdForwarded.countDown();
+                } else if (message == messages[1]) {
+                    secondForwarded.countDown();
+                }
+            }
+        };
+        ForwardingWindow window = createWindow(consumer, 3, forwarder, true);
+
+        assertEquals(3, window.dispatch(System.currentTimeMillis() + 10000));
+
+        assertEquals(Arrays.asList(messages[2], messages[1], messages[0]), forwarded);
+        assertEquals(Arrays.asList(0, 0, 3), ackedOnForward);
+        assertEquals(Arrays.asList(messages), consumer.getAcked());
+        assertEquals(1, consumer.getReleases());
+        window.destroy();
+    }
+
+    /**
+     * Tests that a lane which fails unexpectedly is free again on the next run.
+     */
+    public void testLanesAreFreeAfterFailure() throws Exception {
+        final MessageContext[] messages = createMessages(4);
+        TestConsumer consumer = new TestConsumer(messages[0], messages[1]);
+        Forwarder forwarder = new Forwarder() {
+            public void forward(MessageContext message, MessageConsumer slot) {
+                if (message == messages[0]) {
+                    throw new IllegalStateException("Unexpected failure");
+                }
+                slot.ack();
+            }
+        };
+        ForwardingWindow window = createWindow(consumer, 2, forwarder, false);
+
+        assertEquals(2, window.dispatch(System.currentTimeMillis() + 10000));
+        assertEquals(1, consumer.getReleases());
+        consumer.add(messages[2], messages[3]);
+        int receives = consumer.getReceives().size();
+        assertEquals(2, window.dispatch(System.currentTimeMillis() + 10000));
+
+        // both lanes take a message at once
+        assertEquals(Integer.valueOf(2), consumer.getReceives().get(receives));
+        assertEquals(Arrays.asList(messages[1], messages[2], messages[3]), consumer.getAcked());
+        assertEquals(2, consumer.getReleases());
+        window.destroy();
+    }
+
+    /**
+     * Tests that an interrupted run stops the retries of the lanes, and gives the messages back to
+     * the store only once the lanes are done.
+     */
+    public void testInterruptedDispatchWaitsForLanes() throws Exception {
+        final MessageContext[] messages = createMessages(2);
+        final TestConsumer consumer = new TestConsumer(messages);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch terminated = new CountDownLatch(2);
+        Forwarder forwarder = new Forwarder() {
+            public void forward(MessageContext message, MessageConsumer slot) throws Exception {
+                started.countDown();
+                assertTrue(terminated.await(10, TimeUnit.SECONDS));
+                Thread.sleep(100);
+                slot.ack();
+            }
+        };
+        final ForwardingWindow window = createWindow(consumer, 2, forwarder, false, terminated);
+        final boolean[] isInterrupted = new boolean[1];
+        Thread dispatcher = new Thread(new Runnable() {
+            public void run() {
+                window.dispatch(System.currentTimeMillis() + 10000);
+                isInterrupted[0] = Thread.currentThread().isInterrupted();
+            }
+        });
+        dispatcher.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.interrupt();
+        dispatcher.join(10000);
+
+        assertFalse(dispatcher.isAlive());
+        assertTrue(isInterrupted[0]);
+        assertEquals(1, consumer.getReleases());
+        assertEquals(Integer.valueOf(2), consumer.getAckedOnRelease());
+        window.destroy();
+    }
+
+    private ForwardingWindow createWindow(TestConsumer consumer, int size, Forwarder forwarder,
+                                          boolean isOrderedAck) {
+        return createWindow(consumer, size, forwarder, isOrderedAck, new CountDownLatch(size));
+    }
+
+    private ForwardingWindow createWindow(TestConsumer consumer, int size, Forwarder forwarder,
+                                          boolean isOrderedAck, CountDownLatch terminated) {
+        List<ForwardingService> lanes = new ArrayList<ForwardingService>();
+        for (int i = 0; i < size; i++) {
+            lanes.add(new TestLane(messageProcessor, forwarder, terminated));
+        }
+        return new ForwardingWindow(messageProcessor, consumer, lanes, isOrderedAck);
+    }
+
+    private MessageContext[] createMessages(int count) {
+        MessageContext[] messages = new MessageContext[count];
+        for (int i = 0; i < count; i++) {
+            messages[i] = Mockito.mock(MessageContext.class);
+        }
+        return messages;
+    }
+
+    private interface Forwarder {
+
+        void forward(MessageContext message, MessageConsumer slot) throws Exception;
+    }
+
+    private static class TestLane extends ForwardingService {
+
+        private final Forwarder forwarder;
+
+        private final CountDownLatch terminated;
+
+        private TestLane(MessageProcessor messageProcessor, Forwarder forwarder, CountDownLatch terminated) {
+            super(messageProcessor, null, null, 1000);
+            this.forwarder = forwarder;
+            this.terminated = terminated;
+        }
+
+        void dispatchInWindow(MessageContext messageContext, MessageConsumer consumer) {
+            try {
+                forwarder.forward(messageContext, consumer);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public boolean terminate() {
+            terminated.countDown();
+            return true;
+        }
+    }
+
+    private static class TestConsumer implements MessageBatchConsumer {
+
+        private final LinkedList<MessageContext> messages;
+
+        private final List<MessageContext> acked = new ArrayList<MessageContext>();
+
+        private final List<Integer> receives = new ArrayList<Integer>();
+
+        private int releases = 0;
+
+        private Integer ackedOnRelease;
+
+        private TestConsumer(MessageContext... messages) {
+            this.messages = new LinkedList<MessageContext>(Arrays.asList(messages));
+        }
+
+        private synchronized void add(MessageContext... messages) {
+            this.messages.addAll(Arrays.asList(messages));
+        }
+
+        public synchronized List<MessageContext> receive(int count) {
+            receives.add(count);
+            List<MessageContext> received = new ArrayList<MessageContext>();
+            while (received.size() < count && !messages.isEmpty()) {
+                received.add(messages.removeFirst());
+            }
+            return received;
+        }
+
+        public synchronized boolean ack(MessageContext messageContext) {
+            acked.add(messageContext);
+            return true;
+        }
+
+        public synchronized void release() {
+            releases++;
+            ackedOnRelease = acked.size();
+        }
+
+        public MessageContext receive() {
+            List<MessageContext> received = receive(1);
+            return received.isEmpty() ? null : received.get(0);
+        }
+
+        public boolean ack() {
+            return false;
+        }
+
+        public boolean cleanup() {
+            return true;
+        }
+
+        public boolean isAlive() {
+            return true;
+        }
+
+        public void setAlive(boolean isAlive) {
+        }
+
+        public void setId(int i) {
+        }
+
+        public String getId() {
+            return "test";
+        }
+
+        private synchronized List<MessageContext> getAcked() {
+            return new ArrayList<MessageContext>(acked);
+        }
+
+        private synchronized List<Integer> getReceives() {
+            return new ArrayList<Integer>(receives);
+        }
+
+        private synchronized int getReleases() {
+            return releases;
+        }
+
+        private synchronized Integer getAckedOnRelease() {
+            return ackedOnRelease;
+        }
+    }
+}
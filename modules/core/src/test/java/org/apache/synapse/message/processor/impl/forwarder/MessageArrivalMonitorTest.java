@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.message.store.MessageStore;
+import org.apache.synapse.message.store.impl.memory.InMemoryStore;
+
+public class MessageArrivalMonitorTest extends TestCase {
+
+    public void testWakeUpOnMessageStored() throws Exception {
+        final MessageStore store = new InMemoryStore();
+        MessageArrivalMonitor monitor = new MessageArrivalMonitor();
+        monitor.register(store);
+        assertTrue(monitor.isObservingAllMessages());
+
+        long mark = monitor.getArrivals();
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                    store.getProducer().storeMessage(createMessageContext("ID1"));
+                } catch (Exception ignored) {
+                }
+            }
+        });
+        long start = System.currentTimeMillis();
+        producer.start();
+        monitor.await(mark, 10000);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(1, store.size());
+        producer.join();
+    }
+
+    public void testMessageStoredBeforeWaiting() throws Exception {
+        MessageStore store = new InMemoryStore();
+        MessageArrivalMonitor monitor = new MessageArrivalMonitor();
+        monitor.register(store);
+        long mark = monitor.getArrivals();
+        store.getProducer().storeMessage(createMessageContext("ID1"));
+        long start = System.currentTimeMillis();
+        // a message stored after taking the mark is not waited for
+        monitor.await(mark, 10000);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    public void testWaitTimesOut() throws Exception {
+        MessageArrivalMonitor monitor = new MessageArrivalMonitor();
+        monitor.register(new InMemoryStore());
+        long start = System.currentTimeMillis();
+        monitor.await(monitor.getArrivals(), 100);
+        assertTrue(System.currentTimeMillis() - start >= 90);
+    }
+
+    public void testStoreToForwardLatency() throws Exception {
+        MessageStore store = new InMemoryStore();
+        MessageArrivalMonitor monitor = new MessageArrivalMonitor();
+        monitor.register(store);
+        store.getProducer().storeMessage(createMessageContext("ID1"));
+        Thread.sleep(50);
+        monitor.forwarded("ID1");
+        // messages not observed are not measured
+        monitor.forwarded("ID2");
+        assertEquals(1, monitor.getLatencies().getSnapshot().getCount());
+        assertTrue(monitor.getLatencies().getMax() >= 45);
+
+        monitor.close();
+        assertFalse(monitor.isObservingAllMessages());
+        store.getProducer().storeMessage(createMessageContext("ID3"));
+        monitor.forwarded("ID3");
+        assertEquals(1, monitor.getLatencies().getSnapshot().getCount());
+    }
+
+    private MessageContext createMessageContext(String identifier) throws Exception {
+        MessageContext msg = TestUtils.createLightweightSynapseMessageContext("<test/>");
+        msg.setMessageID(identifier);
+        return msg;
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.synapse.message.store;
 import junit.framework.TestCase;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.message.MessageBatchConsumer;
 import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.store.impl.memory.InMemoryStore;
 
@@ -116,6 +117,33 @@ public class InMemoryMessageStoreTest extends TestCase {
         assertEquals("BAR", msg.getMessageID());
 
     }
+
+    public void testBatchDelivery() throws Exception {
+        System.out.println("Testing InMemoryStore Batch Delivery...");
+        MessageStore store = new InMemoryStore();
+        populateStore(store, 5);
+        MessageBatchConsumer consumer = (MessageBatchConsumer) store.getConsumer();
+        List<MessageContext> first = consumer.receive(2);
+        assertEquals(2, first.size());
+        assertEquals("ID0", first.get(0).getMessageID());
+        // each batch follows the messages received and not acknowledged
+        List<MessageContext> second = consumer.receive(2);
+        assertEquals("ID2", second.get(0).getMessageID());
+        assertEquals("ID3", second.get(1).getMessageID());
+
+        // messages may be acknowledged in any order
+        assertTrue(consumer.ack(second.get(0)));
+        assertTrue(consumer.ack(first.get(1)));
+        assertEquals(3, store.size());
+
+        // released messages are received again
+        consumer.release();
+        List<MessageContext> remaining = consumer.receive(5);
+        assertEquals(3, remaining.size());
+        assertEquals("ID0", remaining.get(0).getMessageID());
+        assertEquals("ID3", remaining.get(1).getMessageID());
+        assertEquals("ID4", remaining.get(2).getMessageID());
+    }
     
     private MessageContext createMessageContext(String identifier) throws Exception {
         MessageContext msg = TestUtils.createLightweightSynapseMessageContext("<test/>");
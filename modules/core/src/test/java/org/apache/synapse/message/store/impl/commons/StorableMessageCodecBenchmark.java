@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+
+/**
+ * Compares the size of the messages and the time taken to write and read them with the binary
+ * codec and with Java serialization. This is not a unit test, run it with the test classpath,
+ * optionally giving the number of iterations.
+ */
+public class StorableMessageCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        StringBuilder body = new StringBuilder("<soapenv:Envelope><soapenv:Body>");
+        for (int i = 0; i < 100; i++) {
+            body.append("<item><id>").append(i).append("</id><name>item</name></item>");
+        }
+        body.append("</soapenv:Body></soapenv:Envelope>");
+        StorableMessage message = StorableMessageCodecTest.createMessage(body.toString());
+        StorableMessageCodec codec = new StorableMessageCodec();
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        System.out.println("Binary codec : " + codec.encode(message).length + " bytes");
+        System.out.println("Java serialization : " + StorableMessageCodecTest.serialize(message).length + " bytes");
+        // the first round warms up
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                codec.decode(codec.encode(message));
+            }
+            long binary = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                deserialize(StorableMessageCodecTest.serialize(message));
+            }
+            long java = System.nanoTime() - start;
+            System.out.println("Binary codec : " + binary / iterations + " ns per message, "
+                    + "Java serialization : " + java / iterations + " ns per message");
+        }
+    }
+
+    private static StorableMessage deserialize(byte[] bytes) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return (StorableMessage) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import junit.framework.TestCase;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class StorableMessageCodecTest extends TestCase {
+
+    private static final String ENVELOPE = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+            + "<soapenv:Body><order><id>1</id><item>caf\u00e9</item></order></soapenv:Body></soapenv:Envelope>";
+
+    public void testRoundTrip() throws Exception {
+        StorableMessage message = createMessage(ENVELOPE);
+        StorableMessage decoded = new StorableMessageCodec().decode(new StorableMessageCodec().encode(message));
+        assertMessage(message, decoded);
+    }
+
+    public void testLegacyMessage() throws Exception {
+        StorableMessage message = createMessage(ENVELOPE);
+        byte[] legacy = serialize(message);
+        assertTrue(StorableMessageCodec.isJavaSerialized(legacy));
+        assertMessage(message, new StorableMessageCodec().decode(legacy));
+    }
+
+    public void testCompression() throws Exception {
+        StringBuilder body = new StringBuilder("<soapenv:Envelope><soapenv:Body>");
+        for (int i = 0; i < 1000; i++) {
+            body.append("<item><id>").append(i).append("</id><name>item</name></item>");
+        }
+        body.append("</soapenv:Body></soapenv:Envelope>");
+        StorableMessage message = createMessage(body.toString());
+        message.getAxis2message().setJsonStream(body.toString().getBytes("UTF-8"));
+
+        byte[] compressed = new StorableMessageCodec().encode(message);
+        byte[] uncompressed = new StorableMessageCodec(-1).encode(message);
+        assertTrue(compressed.length * 4 < uncompressed.length);
+        assertMessage(message, new StorableMessageCodec().decode(compressed));
+        assertMessage(message, new StorableMessageCodec(-1).decode(compressed));
+        assertMessage(message, new StorableMessageCodec().decode(uncompressed));
+    }
+
+    public void testEmptyMessage() throws Exception {
+        StorableMessage message = new StorableMessage();
+        StorableMessage decoded = new StorableMessageCodec().decode(new StorableMessageCodec().encode(message));
+        assertNull(decoded.getAxis2message());
+        assertNull(decoded.getSynapseMessage());
+        assertEquals(-1, decoded.getPriority(-1));
+    }
+
+    public void testInvalidMessage() throws Exception {
+        try {
+            new StorableMessageCodec().decode(new byte[]{'S', 'M', 99});
+            fail("An unsupported version must not be decoded");
+        } catch (IOException e) {
+            // expected
+        }
+        byte[] encoded = new StorableMessageCodec().encode(createMessage(ENVELOPE));
+        byte[] truncated = new byte[encoded.length / 2];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+        try {
+            new StorableMessageCodec().decode(truncated);
+            fail("A truncated message must not be decoded");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testSmallerThanJavaSerialization() throws Exception {
+        StorableMessage message = createMessage(ENVELOPE);
+        assertTrue(new StorableMessageCodec().encode(message).length < serialize(message).length / 2);
+    }
+
+    static StorableMessage createMessage(String envelope) {
+        Axis2Message axis2Message = new Axis2Message();
+        axis2Message.setMessageID("urn:uuid:7b1e7c2a-2b8f-4c55-a5d2-2f0e1c2b1a10");
+        axis2Message.setAction("urn:placeOrder");
+        axis2Message.setService("OrderService");
+        axis2Message.setOperationName(new QName("http://services.samples", "placeOrder", "ns"));
+        axis2Message.setToAddress("http://localhost:9000/services/OrderService");
+        axis2Message.setTransportInName("http");
+        axis2Message.setDoingPOX(true);
+        axis2Message.setFLOW(1);
+        axis2Message.setSoapEnvelope(envelope);
+        Map<String, String> headers = new TreeMap<String, String>();
+        headers.put("Content-Type", "text/xml");
+        headers.put("Host", "localhost:8280");
+        axis2Message.addProperty("TRANSPORT_HEADERS", headers);
+        Map<String, Object> abstractProperties = new HashMap<String, Object>();
+        abstractProperties.put("messageType", "text/xml");
+        abstractProperties.put("retries", 3);
+        abstractProperties.put("ratio", 0.5);
+        abstractProperties.put("flag", Boolean.TRUE);
+        abstractProperties.put("separator", ';');
+        abstractProperties.put("empty", null);
+        axis2Message.addProperty("ABSTRACT_MC_PROPERTIES", abstractProperties);
+        axis2Message.addProperty("serialized", new StringBuilder("not a simple value"));
+
+        SynapseMessage synapseMessage = new SynapseMessage();
+        synapseMessage.setResponse(true);
+        synapseMessage.setTracingState(2);
+        synapseMessage.addLocalEntry("entry");
+        synapseMessage.addProperty("name", "value");
+        synapseMessage.addPropertyObject("object", new byte[]{1, 2, 3});
+
+        StorableMessage message = new StorableMessage();
+        message.setAxis2message(axis2Message);
+        message.setSynapseMessage(synapseMessage);
+        message.setPriority(4);
+        return message;
+    }
+
+    private static void assertMessage(StorableMessage expected, StorableMessage actual) {
+        assertEquals(expected.getPriority(), actual.getPriority());
+        Axis2Message axis2Expected = expected.getAxis2message();
+        Axis2Message axis2Actual = actual.getAxis2message();
+        assertEquals(axis2Expected.getMessageID(), axis2Actual.getMessageID());
+        assertEquals(axis2Expected.getAction(), axis2Actual.getAction());
+        assertEquals(axis2Expected.getService(), axis2Actual.getService());
+        assertEquals(axis2Expected.getOperationName(), axis2Actual.getOperationName());
+        assertEquals(axis2Expected.getOperationName().getPrefix(), axis2Actual.getOperationName().getPrefix());
+        assertEquals(axis2Expected.getToAddress(), axis2Actual.getToAddress());
+        assertNull(axis2Actual.getReplyToAddress());
+        assertEquals(axis2Expected.getTransportInName(), axis2Actual.getTransportInName());
+        assertEquals(axis2Expected.isDoingPOX(), axis2Actual.isDoingPOX());
+        assertEquals(axis2Expected.isDoingMTOM(), axis2Actual.isDoingMTOM());
+        assertEquals(axis2Expected.getFLOW(), axis2Actual.getFLOW());
+        assertEquals(axis2Expected.getSoapEnvelope(), axis2Actual.getSoapEnvelope());
+        if (axis2Expected.getJsonStream() == null) {
+            assertNull(axis2Actual.getJsonStream());
+        } else {
+            assertEquals(new String(axis2Expected.getJsonStream()), new String(axis2Actual.getJsonStream()));
+        }
+        assertEquals(axis2Expected.getProperties().get("TRANSPORT_HEADERS"),
+                axis2Actual.getProperties().get("TRANSPORT_HEADERS"));
+        assertTrue(axis2Actual.getProperties().get("TRANSPORT_HEADERS") instanceof TreeMap);
+        assertEquals(axis2Expected.getProperties().get("ABSTRACT_MC_PROPERTIES"),
+                axis2Actual.getProperties().get("ABSTRACT_MC_PROPERTIES"));
+        assertEquals(axis2Expected.getProperties().get("serialized").toString(),
+                axis2Actual.getProperties().get("serialized").toString());
+
+        SynapseMessage synapseExpected = expected.getSynapseMessage();
+        SynapseMessage synapseActual = actual.getSynapseMessage();
+        assertEquals(synapseExpected.isResponse(), synapseActual.isResponse());
+        assertEquals(synapseExpected.isFaultResponse(), synapseActual.isFaultResponse());
+        assertEquals(synapseExpected.getTracingState(), synapseActual.getTracingState());
+        assertEquals(synapseExpected.getLocalEntries(), synapseActual.getLocalEntries());
+        assertEquals(synapseExpected.getProperties(), synapseActual.getProperties());
+        assertEquals(3, synapseActual.getPropertyObjects().get("object").length);
+    }
+
+    static byte[] serialize(StorableMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(message);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.jdbc;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class JDBCConsumerTest extends TestCase {
+
+    public void testMessagesAreReceivedInOrder() throws Exception {
+        TableStore store = new TableStore(5);
+        JDBCConsumer consumer = new JDBCConsumer(store, 2);
+        for (int i = 1; i <= 5; i++) {
+            assertEquals("msg-" + i, consumer.receive().getMessageID());
+            assertTrue(consumer.ack());
+        }
+        assertNull(consumer.receive());
+        assertTrue(store.rows.isEmpty());
+        // two batches of two messages, one of a single message and an empty one
+        assertEquals(4, store.fetches);
+        assertEquals(3, store.removals);
+    }
+
+    public void testMessageNotAcknowledgedIsReceivedAgain() throws Exception {
+        TableStore store = new TableStore(3);
+        JDBCConsumer consumer = new JDBCConsumer(store, 3);
+        assertEquals("msg-1", consumer.receive().getMessageID());
+        assertEquals("msg-1", consumer.receive().getMessageID());
+        assertTrue(consumer.ack());
+        assertEquals("msg-2", consumer.receive().getMessageID());
+        assertEquals(1, store.fetches);
+        // acknowledged messages are removed once the whole batch is acknowledged
+        assertEquals(3, store.rows.size());
+    }
+
+    public void testCleanupRemovesAcknowledgedMessages() throws Exception {
+        TableStore store = new TableStore(3);
+        JDBCConsumer consumer = new JDBCConsumer(store, 3);
+        consumer.receive();
+        consumer.ack();
+        assertTrue(consumer.cleanup());
+        assertEquals(2, store.rows.size());
+        assertEquals("msg-2", consumer.receive().getMessageID());
+        assertEquals(2, store.fetches);
+    }
+
+    public void testAcknowledgedMessagesAreNotFetchedAgainAfterFailedRemoval() throws Exception {
+        TableStore store = new TableStore(2);
+        JDBCConsumer consumer = new JDBCConsumer(store, 2);
+        consumer.receive();
+        consumer.ack();
+        consumer.receive();
+        store.failRemovals = true;
+        assertFalse(consumer.ack());
+        assertNull(consumer.receive());
+        store.failRemovals = false;
+        assertNull(consumer.receive());
+        assertTrue(store.rows.isEmpty());
+    }
+
+    /**
+     * A store keeping its rows in memory instead of a database table.
+     */
+    private static class TableStore extends JDBCMessageStore {
+
+        private final TreeMap<Long, MessageContext> rows = new TreeMap<Long, MessageContext>();
+
+        private int fetches;
+
+        private int removals;
+
+        private boolean failRemovals;
+
+        private TableStore(int messages) throws Exception {
+            for (long i = 1; i <= messages; i++) {
+                MessageContext messageContext = TestUtils.createLightweightSynapseMessageContext("<test/>");
+                messageContext.setMessageID("msg-" + i);
+                rows.put(i, messageContext);
+            }
+        }
+
+        @Override
+        public List<Map> peek(int count) {
+            fetches++;
+            List<Map> result = new ArrayList<Map>();
+            for (Map.Entry<Long, MessageContext> row : rows.entrySet()) {
+                if (result.size() == count) {
+                    break;
+                }
+                Map<String, Object> rowData = new HashMap<String, Object>();
+                rowData.put(INDEX_COLUMN_NAME, row.getKey());
+                rowData.put(MESSAGE_COLUMN_NAME, row.getValue());
+                result.add(rowData);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean removeByIndex(List<Long> indexIds) {
+            if (failRemovals) {
+                throw new SynapseException("Removal failed");
+            }
+            removals++;
+            for (Long indexId : indexIds) {
+                rows.remove(indexId);
+            }
+            return true;
+        }
+    }
+}
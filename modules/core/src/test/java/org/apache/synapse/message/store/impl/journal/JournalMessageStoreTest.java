@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.journal;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+public class JournalMessageStoreTest extends TestCase {
+
+    private File directory;
+
+    private JournalMessageStore store;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("journal", "");
+        assertTrue(directory.delete());
+        store = new JournalMessageStore();
+        store.setName("JournalStore");
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(JournalMessageStoreConstants.JOURNAL_DIRECTORY, directory.getPath());
+        parameters.put(JournalMessageStoreConstants.JOURNAL_SEGMENT_SIZE, String.valueOf(1024 * 1024));
+        parameters.put(JournalMessageStoreConstants.JOURNAL_SYNC, "false");
+        store.setParameters(parameters);
+        store.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        store.destroy();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testStoreAndReceive() throws Exception {
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID0")));
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID1")));
+        assertEquals(2, store.size());
+        assertEquals("ID0", store.getConsumer().receive().getMessageID());
+    }
+
+    public void testMessageWithoutId() throws Exception {
+        try {
+            store.store(createMessageContext(null));
+            fail("A message without a message ID is stored");
+        } catch (SynapseException e) {
+            assertEquals("Store [JournalStore] can not store a message without a message ID", e.getMessage());
+        }
+        assertFalse(store.getProducer().storeMessage(createMessageContext(null)));
+        assertEquals(0, store.size());
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID0")));
+        assertEquals(1, store.size());
+    }
+
+    private MessageContext createMessageContext(String identifier) throws Exception {
+        MessageContext msg = TestUtils.createLightweightSynapseMessageContext("<test/>");
+        msg.setMessageID(identifier);
+        return msg;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.journal;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JournalTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("journal", "");
+        assertTrue(directory.delete());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testAppendAndAcknowledge() throws Exception {
+        Journal journal = open(1024 * 1024);
+        journal.append("msg-1", "one".getBytes("UTF-8"));
+        journal.append("msg-2", "two".getBytes("UTF-8"));
+        assertEquals(2, journal.size());
+        Journal.Entry first = journal.first();
+        assertEquals("msg-1", first.getMessageId());
+        assertEquals(1, journal.getEntriesAfter(first.getSequence()).size());
+        assertEquals("one", new String(journal.read(first), "UTF-8"));
+        assertTrue(journal.acknowledge(first.getSequence()));
+        assertFalse(journal.acknowledge(first.getSequence()));
+        assertEquals("msg-2", journal.first().getMessageId());
+        assertEquals("two", new String(journal.read(journal.get("msg-2")), "UTF-8"));
+        assertNull(journal.get("msg-1"));
+        journal.close();
+    }
+
+    public void testRecovery() throws Exception {
+        Journal journal = open(1024 * 1024);
+        long first = journal.append("msg-1", "one".getBytes("UTF-8"));
+        journal.append("msg-2", "two".getBytes("UTF-8"));
+        long last = journal.append("msg-3", "three".getBytes("UTF-8"));
+        journal.acknowledge(first);
+        journal.close();
+
+        journal = open(1024 * 1024);
+        assertEquals(2, journal.size());
+        assertEquals("msg-2", journal.first().getMessageId());
+        assertEquals("three", new String(journal.read(journal.get("msg-3")), "UTF-8"));
+        assertTrue(journal.append("msg-4", new byte[0]) > last);
+        journal.close();
+    }
+
+    public void testTornRecordEndsTheJournal() throws Exception {
+        Journal journal = open(1024 * 1024);
+        journal.append("msg-1", "one".getBytes("UTF-8"));
+        journal.append("msg-2", "two".getBytes("UTF-8"));
+        journal.close();
+
+        File[] segments = directory.listFiles();
+        assertEquals(1, segments.length);
+        RandomAccessFile file = new RandomAccessFile(segments[0], "rw");
+        try {
+            // corrupt the last byte of the content of the second message
+            long offset = findLast(file, (byte) 'o');
+            file.seek(offset);
+            file.write('x');
+        } finally {
+            file.close();
+        }
+
+        journal = open(1024 * 1024);
+        assertEquals(1, journal.size());
+        journal.append("msg-3", "three".getBytes("UTF-8"));
+        journal.close();
+
+        journal = open(1024 * 1024);
+        assertEquals(2, journal.size());
+        assertNull(journal.get("msg-2"));
+        assertEquals("three", new String(journal.read(journal.get("msg-3")), "UTF-8"));
+        journal.close();
+    }
+
+    public void testCompaction() throws Exception {
+        Journal journal = open(1024);
+        List<Long> sequences = new ArrayList<Long>();
+        for (int i = 0; i < 40; i++) {
+            sequences.add(journal.append("msg-" + i, new byte[100]));
+        }
+        assertTrue(journal.getSegmentCount() > 4);
+        // keep a single message of the first segment
+        for (int i = 1; i < 39; i++) {
+            journal.acknowledge(sequences.get(i));
+        }
+        journal.append("msg-40", new byte[100]);
+        // the live messages are copied forward and the first segments are deleted
+        waitForSegments(journal, 2);
+        journal.close();
+
+        journal = open(1024);
+        assertEquals(3, journal.size());
+        assertEquals("msg-0", journal.first().getMessageId());
+        assertEquals(100, journal.read(journal.first()).length);
+        assertNotNull(journal.get("msg-39"));
+        assertNotNull(journal.get("msg-40"));
+        journal.close();
+    }
+
+    public void testConcurrentAppends() throws Exception {
+        final Journal journal = open(64 * 1024);
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            final int producer = i;
+            executorService.submit(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 200; j++) {
+                            journal.append("msg-" + producer + "-" + j, new byte[64]);
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        assertEquals(1600, journal.size());
+        journal.close();
+
+        assertEquals(1600, open(64 * 1024).size());
+    }
+
+    public void testConcurrentAppendsAreConsumedInOrder() throws Exception {
+        final Journal journal = open(64 * 1024);
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            final int producer = i;
+            executorService.submit(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 200; j++) {
+                            journal.append("msg-" + producer + "-" + j, new byte[64]);
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+
+        // walk the journal as the consumers do, a message becoming visible behind one already
+        // walked past would be skipped
+        long last = 0;
+        int consumed = 0;
+        boolean producersDone;
+        do {
+            producersDone = executorService.isTerminated();
+            for (Journal.Entry entry : journal.getEntriesAfter(last)) {
+                assertTrue(entry.getSequence() > last);
+                last = entry.getSequence();
+                consumed++;
+            }
+        } while (!producersDone);
+        assertEquals(0, failures.get());
+        assertEquals(1600, consumed);
+
+        // the first message is always the oldest one
+        long previous = 0;
+        Journal.Entry first;
+        while ((first = journal.first()) != null) {
+            assertTrue(first.getSequence() > previous);
+            previous = first.getSequence();
+            journal.acknowledge(previous);
+        }
+        journal.close();
+    }
+
+    private Journal open(int segmentSize) throws IOException {
+        Journal journal = new Journal(directory, segmentSize, true);
+        journal.open();
+        return journal;
+    }
+
+    private static void waitForSegments(Journal journal, int count) throws InterruptedException {
+        for (int i = 0; i < 100 && journal.getSegmentCount() > count; i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(journal.getSegmentCount() <= count);
+    }
+
+    private static long findLast(RandomAccessFile file, byte value) throws IOException {
+        byte[] content = new byte[(int) file.length()];
+        file.readFully(content);
+        for (int i = content.length - 1; i >= 0; i--) {
+            if (content[i] == value) {
+                return i;
+            }
+        }
+        throw new IOException("Value not found");
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.store.impl.memory;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.message.MessageBatchConsumer;
+import org.apache.synapse.message.MessageConsumer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PriorityInMemoryStoreTest extends TestCase {
+
+    public void testPriorityOrder() throws Exception {
+        PriorityInMemoryStore store = new PriorityInMemoryStore();
+        store.getProducer().storeMessage(createMessageContext("ID0", null));
+        store.getProducer().storeMessage(createMessageContext("ID1", 9));
+        store.getProducer().storeMessage(createMessageContext("ID2", "1"));
+        store.getProducer().storeMessage(createMessageContext("ID3", 9));
+        assertEquals(4, store.size());
+        assertEquals(Integer.valueOf(2), store.getSizeByPriority().get(9));
+        assertEquals(Integer.valueOf(1), store.getSizeByPriority().get(4));
+
+        // highest priority first, in the order stored within a priority
+        MessageConsumer consumer = store.getConsumer();
+        String[] expected = {"ID1", "ID3", "ID0", "ID2"};
+        for (String id : expected) {
+            assertEquals(id, consumer.receive().getMessageID());
+            consumer.ack();
+        }
+        assertNull(consumer.receive());
+        assertEquals(0, store.size());
+    }
+
+    public void testGetAndRemoveById() throws Exception {
+        PriorityInMemoryStore store = new PriorityInMemoryStore();
+        for (int i = 0; i < 5; i++) {
+            store.getProducer().storeMessage(createMessageContext("ID" + i, null));
+        }
+        assertEquals("ID3", store.get("ID3").getMessageID());
+        assertEquals("ID3", store.remove("ID3").getMessageID());
+        assertNull(store.get("ID3"));
+        assertNull(store.remove("ID3"));
+        assertEquals(4, store.size());
+
+        List<MessageContext> all = store.getAll();
+        assertEquals(4, all.size());
+        assertEquals("ID4", all.get(3).getMessageID());
+        assertEquals("ID1", store.get(1).getMessageID());
+
+        assertEquals("ID0", store.remove().getMessageID());
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.getAll().size());
+    }
+
+    public void testBatchDelivery() throws Exception {
+        PriorityInMemoryStore store = new PriorityInMemoryStore();
+        for (int i = 0; i < 5; i++) {
+            store.getProducer().storeMessage(createMessageContext("ID" + i, null));
+        }
+        MessageBatchConsumer consumer = (MessageBatchConsumer) store.getConsumer();
+        List<MessageContext> first = consumer.receive(3);
+        assertEquals(3, first.size());
+        List<MessageContext> second = consumer.receive(3);
+        assertEquals(2, second.size());
+        assertEquals("ID3", second.get(0).getMessageID());
+
+        // acknowledged out of order
+        assertTrue(consumer.ack(first.get(1)));
+        assertFalse(consumer.ack(first.get(1)));
+        consumer.release();
+        assertEquals(4, consumer.receive(5).size());
+        assertTrue(consumer.ack(first.get(0)));
+        assertEquals(3, store.size());
+    }
+
+    public void testRejectWhenFull() throws Exception {
+        PriorityInMemoryStore store = createStore(2, PriorityInMemoryStoreConstants.FULL_POLICY_REJECT);
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID0", null)));
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID1", null)));
+        assertFalse(store.getProducer().storeMessage(createMessageContext("ID2", null)));
+        assertEquals(2, store.size());
+        store.remove();
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID2", null)));
+    }
+
+    public void testBlockWhenFull() throws Exception {
+        final PriorityInMemoryStore store = createStore(1, PriorityInMemoryStoreConstants.FULL_POLICY_BLOCK);
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID0", null)));
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+                store.remove();
+            }
+        });
+        consumer.start();
+        long start = System.currentTimeMillis();
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID1", null)));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        consumer.join();
+        assertEquals("ID1", store.get(0).getMessageID());
+    }
+
+    public void testMessageWithoutId() throws Exception {
+        PriorityInMemoryStore store = createStore(1, PriorityInMemoryStoreConstants.FULL_POLICY_REJECT);
+        assertTrue(store.getProducer().storeMessage(createMessageContext(null, null)));
+        MessageConsumer consumer = store.getConsumer();
+        assertNotNull(consumer.receive());
+        assertTrue(consumer.ack());
+        assertEquals(0, store.size());
+        // the space taken by the message is given back
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID1", null)));
+    }
+
+    public void testRemoveByIdUnlinksMessage() throws Exception {
+        PriorityInMemoryStore store = createStore(3, PriorityInMemoryStoreConstants.FULL_POLICY_REJECT);
+        for (int i = 0; i < 3; i++) {
+            store.getProducer().storeMessage(createMessageContext("ID" + i, null));
+        }
+        assertEquals("ID1", store.remove("ID1").getMessageID());
+        assertEquals(2, store.getAll().size());
+        assertTrue(store.getProducer().storeMessage(createMessageContext("ID3", null)));
+        assertFalse(store.getProducer().storeMessage(createMessageContext("ID4", null)));
+
+        MessageConsumer consumer = store.getConsumer();
+        String[] expected = {"ID0", "ID2", "ID3"};
+        for (String id : expected) {
+            assertEquals(id, consumer.receive().getMessageID());
+            consumer.ack();
+        }
+        assertNull(consumer.receive());
+    }
+
+    private PriorityInMemoryStore createStore(int capacity, String policy) {
+        PriorityInMemoryStore store = new PriorityInMemoryStore();
+        store.setName("PriorityStore");
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(PriorityInMemoryStoreConstants.MEMORY_CAPACITY, String.valueOf(capacity));
+        parameters.put(PriorityInMemoryStoreConstants.MEMORY_FULL_POLICY, policy);
+        parameters.put(PriorityInMemoryStoreConstants.MEMORY_BLOCK_TIMEOUT, "5000");
+        store.setParameters(parameters);
+        store.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+        return store;
+    }
+
+    private MessageContext createMessageContext(String identifier, Object priority) throws Exception {
+        MessageContext msg = TestUtils.createLightweightSynapseMessageContext("<test/>");
+        msg.setMessageID(identifier);
+        if (priority != null) {
+            ((Axis2MessageContext) msg).getAxis2MessageContext().setProperty("JMS_PRIORITY", priority);
+        }
+        return msg;
+    }
+}
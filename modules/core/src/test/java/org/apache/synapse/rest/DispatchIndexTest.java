@@ -0,0 +1,137 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.rest;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.api.API;
+import org.apache.synapse.api.ApiConstants;
+import org.apache.synapse.api.Resource;
+import org.apache.synapse.api.dispatch.ApiDispatchIndex;
+import org.apache.synapse.api.dispatch.ResourceDispatchIndex;
+import org.apache.synapse.api.dispatch.URITemplateHelper;
+import org.apache.synapse.api.dispatch.URLMappingHelper;
+import org.apache.synapse.config.SynapseConfiguration;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DispatchIndexTest extends RESTMediationTestCase {
+
+    private static final String PROP_NAME = "prop.name";
+
+    public void testApiCandidates() throws Exception {
+        API root = new API("Root", "/");
+        API foo = new API("Foo", "/foo");
+        API fooBar = new API("FooBar", "/foo/bar");
+        API other = new API("Other", "/other");
+
+        ApiDispatchIndex index = new ApiDispatchIndex();
+        index.addAPI(root);
+        index.addAPI(foo);
+        index.addAPI(fooBar);
+        index.addAPI(other);
+
+        assertEquals(Arrays.asList(fooBar, foo, root), index.getCandidateAPIs("/foo/bar/baz?a=b"));
+        assertEquals(Arrays.asList(foo, root), index.getCandidateAPIs("/foo?a=b"));
+        assertEquals(Arrays.asList(foo, root), index.getCandidateAPIs("/foo/barbaz"));
+        assertEquals(Arrays.asList(root), index.getCandidateAPIs("/foobar"));
+
+        index.removeAPI(foo);
+        assertEquals(Arrays.asList(fooBar, root), index.getCandidateAPIs("/foo/bar"));
+        index.removeAPI(root);
+        assertTrue(index.getCandidateAPIs("/foo").isEmpty());
+    }
+
+    public void testApiIndexFollowsConfiguration() throws Exception {
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        API api = new API("TestAPI", "/test");
+        synapseConfig.addAPI(api.getName(), api);
+
+        ApiDispatchIndex index = synapseConfig.getApiDispatchIndex(ApiConstants.DEFAULT_BINDING_ENDPOINT_NAME);
+        assertNotNull(index);
+        assertEquals(Arrays.asList(api), index.getCandidateAPIs("/test/foo"));
+
+        API updated = new API("TestAPI", "/test2");
+        synapseConfig.updateAPI(updated.getName(), updated);
+        index = synapseConfig.getApiDispatchIndex(ApiConstants.DEFAULT_BINDING_ENDPOINT_NAME);
+        assertTrue(index.getCandidateAPIs("/test/foo").isEmpty());
+        assertEquals(Arrays.asList(updated), index.getCandidateAPIs("/test2/foo"));
+
+        synapseConfig.removeAPI(updated.getName());
+        assertNull(synapseConfig.getApiDispatchIndex(ApiConstants.DEFAULT_BINDING_ENDPOINT_NAME));
+    }
+
+    public void testResourceCandidates() throws Exception {
+        Resource items = createResource("/orders/{id}/items");
+        Resource order = createResource("/orders/{id}");
+        Resource customers = createResource("/customers/*");
+        Resource wildcard = createResource("/{+path}");
+        Resource mapping = new Resource();
+        mapping.setDispatcherHelper(new URLMappingHelper("/legacy/*"));
+
+        ResourceDispatchIndex index = new ResourceDispatchIndex(
+                Arrays.asList(items, order, customers, wildcard, mapping));
+
+        List<Resource> candidates = index.getCandidateResources("/orders/10/items?a=b");
+        assertEquals(Arrays.asList(items, order, wildcard, mapping), candidates);
+
+        candidates = index.getCandidateResources("/orders/10");
+        assertEquals(Arrays.asList(order, wildcard, mapping), candidates);
+
+        candidates = index.getCandidateResources("/customers/10");
+        assertEquals(Arrays.asList(customers, wildcard, mapping), candidates);
+
+        candidates = index.getCandidateResources("/invoices/10");
+        assertEquals(Arrays.asList(wildcard, mapping), candidates);
+    }
+
+    public void testIndexedResourceDispatch() throws Exception {
+        API api = new API("TestAPI", "/shop");
+        Resource order = createResource("/orders/{id}");
+        order.setInSequence(getTestSequence(PROP_NAME, "order"));
+        api.addResource(order);
+        Resource customer = createResource("/customers/{id}");
+        customer.addMethod(RESTConstants.METHOD_POST);
+        customer.setInSequence(getTestSequence(PROP_NAME, "customer"));
+        api.addResource(customer);
+
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        synapseConfig.addAPI(api.getName(), api);
+        RESTRequestHandler handler = new RESTRequestHandler();
+
+        MessageContext synCtx = getMessageContext(synapseConfig, false, "/shop/orders/10", "GET");
+        handler.process(synCtx);
+        assertEquals("order", synCtx.getProperty(PROP_NAME));
+        assertEquals("10", synCtx.getProperty(RESTConstants.REST_URI_VARIABLE_PREFIX + "id"));
+
+        synCtx = getMessageContext(synapseConfig, false, "/shop/customers/5", "POST");
+        handler.process(synCtx);
+        assertEquals("customer", synCtx.getProperty(PROP_NAME));
+
+        synCtx = getMessageContext(synapseConfig, false, "/shop/invoices/5", "GET");
+        handler.process(synCtx);
+        assertNull(synCtx.getProperty(PROP_NAME));
+    }
+
+    private Resource createResource(String template) {
+        Resource resource = new Resource();
+        resource.setDispatcherHelper(new URITemplateHelper(template));
+        return resource;
+    }
+}
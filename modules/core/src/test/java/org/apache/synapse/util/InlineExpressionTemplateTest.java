@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.mediators.TestUtils;
+
+/**
+ * Tests the compiled form of inline expressions.
+ */
+public class InlineExpressionTemplateTest extends TestCase {
+
+    public void testRenderInlineText() throws Exception {
+
+        MessageContext mc = TestUtils.getTestContextJson("{\"name\":\"WSO2\",\"id\":12}", null);
+        mc.setProperty("vendor", "Acme Corp");
+        mc.setProperty("code", "A12");
+
+        InlineExpressionTemplate template = InlineExpressionTemplate.compile(
+                "{\"vendor\":{$ctx:vendor},\"code\":{$ctx:code},\"name\":{json-eval($.name)},\"id\":{json-eval($.id)}}");
+        Assert.assertTrue(template.hasExpressions());
+        Assert.assertEquals("{\"vendor\":\"Acme Corp\",\"code\":A12,\"name\":WSO2,\"id\":12}",
+                template.render(mc, true));
+        Assert.assertEquals("{\"vendor\":Acme Corp,\"code\":A12,\"name\":WSO2,\"id\":12}",
+                template.render(mc, false));
+    }
+
+    public void testTextWithoutExpressions() throws Exception {
+
+        MessageContext mc = TestUtils.getTestContextJson("{}", null);
+        InlineExpressionTemplate template = InlineExpressionTemplate.compile("{\"static\":\"value\"}");
+        Assert.assertFalse(template.hasExpressions());
+        Assert.assertEquals("{\"static\":\"value\"}", template.render(mc, true));
+    }
+
+    public void testValueClassification() {
+
+        Assert.assertTrue(InlineExpressionUtil.isPlainText(""));
+        Assert.assertTrue(InlineExpressionUtil.isPlainText("   "));
+        Assert.assertTrue(InlineExpressionUtil.isPlainText("hello world"));
+        Assert.assertTrue(InlineExpressionUtil.isPlainText("{not json"));
+        Assert.assertFalse(InlineExpressionUtil.isPlainText("hello"));
+        Assert.assertFalse(InlineExpressionUtil.isPlainText(" 12.5 "));
+        Assert.assertFalse(InlineExpressionUtil.isPlainText("null"));
+        Assert.assertFalse(InlineExpressionUtil.isPlainText("{\"a\":1}"));
+        Assert.assertFalse(InlineExpressionUtil.isPlainText("[1, 2]"));
+        Assert.assertFalse(InlineExpressionUtil.isPlainText("<a>b</a>"));
+    }
+}
@@ -17,14 +17,20 @@
  */
 package org.apache.synapse.util;
 
+import com.jayway.jsonpath.JsonPath;
 import junit.framework.Assert;
 import junit.framework.TestCase;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.config.xml.XMLConfigConstants;
 import org.apache.synapse.mediators.TestUtils;
 import org.apache.synapse.mediators.builtin.PropertyMediator;
+import org.apache.synapse.util.xpath.JsonPathCache;
 import org.apache.synapse.util.xpath.SynapseJsonPath;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+
 /**
  * This class is testing dynamic json-path capabilities.
  */
@@ -93,4 +99,64 @@ public class SynapseJSONPathTest extends TestCase {
         Assert.assertEquals("Didn't receive the expected result", "J. R. R. Tolkien",
                 synapseJsonPath.stringValueOf(mc));
     }
+
+    public void testDynamicJSONPathIsCached() throws Exception {
+
+        MessageContext mc = TestUtils.getTestContextJson(payload, null);
+        mc.setProperty("field", "author");
+        SynapseJsonPath synapseJsonPath = new SynapseJsonPath("$.store.book[1].{$ctx:field}");
+        JsonPath compiledPath = synapseJsonPath.getJsonPath();
+        JsonPathCache cache = JsonPathCache.getInstance();
+
+        Assert.assertEquals("Evelyn Waugh", synapseJsonPath.stringValueOf(mc));
+        long hits = cache.getHitCount();
+        Assert.assertEquals("Evelyn Waugh", synapseJsonPath.stringValueOf(mc));
+        Assert.assertEquals("Compiled path is not reused", hits + 1, cache.getHitCount());
+
+        mc.setProperty("field", "title");
+        Assert.assertEquals("Sword of Honour", synapseJsonPath.stringValueOf(mc));
+        Assert.assertSame("Resolved path must not replace the shared path", compiledPath,
+                synapseJsonPath.getJsonPath());
+    }
+
+    public void testStreamingFormOfDynamicJSONPathIsCached() throws Exception {
+
+        JsonPathCache cache = JsonPathCache.getInstance();
+        JsonPathCache.CompiledPath compiledPath = cache.getCompiledPath("$.store.book[2].isbn");
+        Assert.assertNotNull("Streaming form is not compiled", compiledPath.getStreamingJsonPath());
+        Assert.assertSame("Streaming form is compiled again", compiledPath.getStreamingJsonPath(),
+                cache.getCompiledPath("$.store.book[2].isbn").getStreamingJsonPath());
+        Assert.assertSame(compiledPath.getJsonPath(), cache.getJsonPath("$.store.book[2].isbn"));
+    }
+
+    public void testStreamingEvaluation() throws Exception {
+
+        MessageContext mc = TestUtils.getTestContextJson(payload, null);
+        Assert.assertEquals("Nigel Rees", new SynapseJsonPath("$.store.book[0].author").stringValueOf(mc));
+        Assert.assertEquals("[\"Sayings of the Century\",\"Moby Dick\"]",
+                new SynapseJsonPath("$.store.book[?(@.price < 10)].title").stringValueOf(mc));
+        Assert.assertEquals("", new SynapseJsonPath("$.store.book[7].author").stringValueOf(mc));
+    }
+
+    public void testStreamingEvaluationFallback() throws Exception {
+
+        // nested arrays are not supported by the streaming evaluation
+        MessageContext mc = TestUtils.getTestContextJson("{\"matrix\":[[1,2],[3,4]]}", null);
+        Assert.assertEquals("[3,4]", new SynapseJsonPath("$.matrix[1]").stringValueOf(mc));
+        // the payload stream is reset for the fallback, and can be read again afterwards
+        Assert.assertEquals("[1,2]", new SynapseJsonPath("$.matrix[0]").stringValueOf(mc));
+    }
+
+    public void testStreamingEvaluationFallbackOverLargeStream() throws Exception {
+
+        // a stream which can not be reset, longer than the bytes kept aside for the fallback
+        StringBuilder json = new StringBuilder("{\"padding\":[");
+        for (int i = 0; i < 20000; i++) {
+            json.append(i).append(',');
+        }
+        json.append("0],\"matrix\":[[1,2],[3,4]]}");
+        InputStream stream = new FilterInputStream(new ByteArrayInputStream(json.toString().getBytes("UTF-8"))) {
+        };
+        Assert.assertEquals("[3,4]", new SynapseJsonPath("$.matrix[1]").stringValueOf(stream));
+    }
 }
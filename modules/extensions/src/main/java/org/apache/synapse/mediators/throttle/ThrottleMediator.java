@@ -32,6 +32,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCol
 import org.apache.synapse.aspects.flow.statistics.data.artifact.ArtifactHolder;
 import org.apache.synapse.config.Entry;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.continuation.ContinuationStackManager;
 import org.apache.synapse.continuation.ReliantContinuationState;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
@@ -46,6 +47,7 @@ import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.commons.throttle.core.AccessRateController;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessController;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessReplicator;
+import org.apache.synapse.commons.throttle.core.StripedAccessRateController;
 import org.apache.synapse.commons.throttle.core.Throttle;
 import org.apache.synapse.commons.throttle.core.ThrottleConstants;
 import org.apache.synapse.commons.throttle.core.ThrottleDataHolder;
@@ -637,7 +639,14 @@ public class ThrottleMediator extends AbstractMediator implements ManagedLifecyc
             }
         }
         //access rate controller initialization
-        accessControler = new AccessRateController();
+        String rateController = SynapsePropertiesLoader.getPropertyValue(
+                ThrottleConstants.ACCESS_RATE_CONTROLLER, ThrottleConstants.DEFAULT_ACCESS_RATE_CONTROLLER);
+        if (ThrottleConstants.STRIPED_ACCESS_RATE_CONTROLLER.equals(rateController) && !isClusteringEnable) {
+            //caller states of the striped controller are not replicated, hence only used in standalone mode
+            accessControler = new StripedAccessRateController();
+        } else {
+            accessControler = new AccessRateController();
+        }
         //replicator for global concurrent state maintenance
         if (isClusteringEnable) {
             concurrentAccessReplicator = new ConcurrentAccessReplicator(configContext);
@@ -39,19 +39,27 @@ import org.apache.synapse.transport.passthru.util.TargetRequestFactory;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class acts as a gateway for differed delivery of the messages. When a message is to be
  * delivered it is submitted to this class. If a connection is available to the target this
  * class will try to deliver the message immediately over that connection. If a connection is
  * not available it will queue the message and request a connection from the pool. When a new
- * connection is available a queued message will be sent through it. 
+ * connection is available a queued message will be sent through it.
+ * <p>
+ * The messages of each route wait in a bounded {@link RouteQueue}. A message is rejected when the
+ * queue of its route is full and, if a queue timeout is configured, it is dropped once it has
+ * waited longer than the timeout. Rejected and dropped messages are failed with
+ * {@link ErrorCodes#CONNECTION_TIMEOUT}, or {@link ErrorCodes#SERVICE_UNAVAILABLE} if configured
+ * so, which lets the fault sequence respond with a 503 instead of waiting on a slow backend.
  */
 public class DeliveryAgent {
 
@@ -62,8 +70,8 @@ public class DeliveryAgent {
      * number of connections to the host:pair is being used. So these messages has to wait
      * until a new connection is available.
      */
-    private Map<HttpRoute, Queue<MessageContext>> waitingMessages =
-            new ConcurrentHashMap<HttpRoute, Queue<MessageContext>>();
+    private ConcurrentMap<HttpRoute, RouteQueue> waitingMessages =
+            new ConcurrentHashMap<HttpRoute, RouteQueue>();
 
     /** The connection management */
     private TargetConnections targetConnections;
@@ -77,10 +85,16 @@ public class DeliveryAgent {
     /** The maximum number of messages that can wait for a connection */
     private int maxWaitingMessages;
 
+    /** The maximum time in milliseconds a message can wait for a connection, 0 if not limited */
+    private long queueTimeout;
+
+    /** The error code of the messages rejected or dropped from the queues */
+    private int queueErrorCode;
+
     private TargetErrorHandler targetErrorHandler;
 
-    /** Lock for synchronizing access */
-    private Lock lock = new ReentrantLock();
+    /** Drops the messages waited longer than the queue timeout */
+    private ScheduledExecutorService queueSweeper;
 
     /**
      * Create a delivery agent with the target configuration and connection management.
@@ -98,6 +112,43 @@ public class DeliveryAgent {
         PassThroughConfiguration conf = PassThroughConfiguration.getInstance();
         this.maxWaitingMessages = conf.getIntProperty(PassThroughConfigPNames.MAX_MESSAGES_PER_HOST_PORT,
                 Integer.MAX_VALUE);
+        this.queueTimeout = conf.getMessageQueueTimeout();
+        this.queueErrorCode = conf.isMessageQueueRejectUnavailable() ?
+                ErrorCodes.SERVICE_UNAVAILABLE : ErrorCodes.CONNECTION_TIMEOUT;
+        if (queueTimeout > 0) {
+            startQueueSweeper(Math.max(queueTimeout / 2, 100));
+        }
+        if (targetConfiguration.getMetrics() != null) {
+            targetConfiguration.getMetrics().setDeliveryAgent(this);
+        }
+    }
+
+    private void startQueueSweeper(long interval) {
+        queueSweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PassThroughMessageQueueSweeper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        queueSweeper.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    dropExpiredMessages();
+                } catch (Throwable t) {
+                    log.error("Error while dropping the expired messages", t);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop dropping the expired messages in the background.
+     */
+    public void destroy() {
+        if (queueSweeper != null) {
+            queueSweeper.shutdownNow();
+        }
     }
 
 
@@ -146,38 +197,26 @@ public class DeliveryAgent {
             }
 
             // first we queue the message
-            Queue<MessageContext> queue = null;
-            NHttpClientConnection conn = null;
-            lock.lock();
-            try {
-                queue = waitingMessages.get(route);
-                if (queue == null) {
-                    queue = new ConcurrentLinkedQueue<MessageContext>();
-                    waitingMessages.put(route, queue);
-                }
-                if (queue.size() >= maxWaitingMessages) {
-                    msgContext.setProperty(PassThroughConstants.INTERNAL_EXCEPTION_ORIGIN,
-                            PassThroughConstants.INTERNAL_ORIGIN_ERROR_HANDLER);
-                    log.warn("Delivery agent queue length exceeds the maximum number of waiting messages");
-                    if (msgContext != null) {
-                        targetErrorHandler.handleError(msgContext, ErrorCodes.CONNECTION_TIMEOUT,
-                                "Number of queued messages exceeds the limit",
-                                null, ProtocolState.REQUEST_READY);
-                    }
-                    return false;
-                }
-
-                queue.add(msgContext);
-                conn = targetConnections.getConnection(route, msgContext, targetErrorHandler, queue);
-                if (conn == null && msgContext != null && "true".equalsIgnoreCase(
-                        (String) msgContext.getProperty(PassThroughConstants.CONNECTION_LIMIT_EXCEEDS))) {
-                    msgContext.removeProperty(PassThroughConstants.CONNECTION_LIMIT_EXCEEDS);
-                    return false;
-                }
-
+            RouteQueue queue = getQueue(route);
+            msgContext.setProperty(PassThroughConstants.CONNECTION_WAIT_START_TIME, System.currentTimeMillis());
+            if (!queue.offer(msgContext)) {
+                msgContext.removeProperty(PassThroughConstants.CONNECTION_WAIT_START_TIME);
+                msgContext.setProperty(PassThroughConstants.INTERNAL_EXCEPTION_ORIGIN,
+                        PassThroughConstants.INTERNAL_ORIGIN_ERROR_HANDLER);
+                log.warn("Delivery agent queue length exceeds the maximum number of waiting messages for "
+                        + route);
+                targetErrorHandler.handleError(msgContext, queueErrorCode,
+                        "Number of queued messages exceeds the limit",
+                        null, ProtocolState.REQUEST_READY);
+                return false;
+            }
 
-            } finally {
-                lock.unlock();
+            NHttpClientConnection conn =
+                    targetConnections.getConnection(route, msgContext, targetErrorHandler, queue);
+            if (conn == null && "true".equalsIgnoreCase(
+                    (String) msgContext.getProperty(PassThroughConstants.CONNECTION_LIMIT_EXCEEDS))) {
+                msgContext.removeProperty(PassThroughConstants.CONNECTION_LIMIT_EXCEEDS);
+                return false;
             }
 
             if (conn != null) {
@@ -187,10 +226,13 @@ public class DeliveryAgent {
                 }
             	conn.resetInput();
             	conn.resetOutput();
-                MessageContext messageContext = queue.poll();
+                MessageContext messageContext = pollMessage(queue);
 
                 if (messageContext != null) {
                     tryNextMessage(messageContext, route, conn);
+                } else {
+                    // the message was sent over a connection established in the meantime
+                    targetConfiguration.getConnections().releaseConnection(conn);
                 }
             }
 
@@ -201,9 +243,9 @@ public class DeliveryAgent {
     }
 
     public void errorConnecting(HttpRoute route, int errorCode, String message, Exception exceptionToRaise) {
-        Queue<MessageContext> queue = waitingMessages.get(route);
+        RouteQueue queue = waitingMessages.get(route);
         if (queue != null) {
-            MessageContext msgCtx = queue.poll();
+            MessageContext msgCtx = pollMessage(queue);
 
             if (msgCtx != null) {
                 msgCtx.setProperty(PassThroughConstants.INTERNAL_EXCEPTION_ORIGIN,
@@ -237,24 +279,20 @@ public class DeliveryAgent {
         if (log.isDebugEnabled()) {
             log.debug("Connection established conn: " + conn.toString());
         }
-        Queue<MessageContext> queue = null;
-        lock.lock();
-        try {
-            queue = waitingMessages.get(route);
-        } finally {
-            lock.unlock();
-        }
+        RouteQueue queue = getQueue(route);
 
         while (queue.size() > 0) {
             if(conn == null) {
                 conn = targetConnections.getExistingConnection(route);
             }
             if (conn != null) {
-                MessageContext messageContext = queue.poll();
+                MessageContext messageContext = pollMessage(queue);
 
                 if (messageContext != null) {
                     tryNextMessage(messageContext, route, conn);
                     conn = null;
+                } else {
+                    break;
                 }
             } else {
                 break;
@@ -267,8 +305,95 @@ public class DeliveryAgent {
         }
     }
 
+    private RouteQueue getQueue(HttpRoute route) {
+        RouteQueue queue = waitingMessages.get(route);
+        if (queue == null) {
+            RouteQueue newQueue = new RouteQueue(maxWaitingMessages);
+            queue = waitingMessages.putIfAbsent(route, newQueue);
+            if (queue == null) {
+                queue = newQueue;
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Take the next message from the queue, failing the messages waited longer than the queue
+     * timeout on the way.
+     *
+     * @param queue queue of the route
+     * @return the next message to be sent, or null if there is none
+     */
+    private MessageContext pollMessage(RouteQueue queue) {
+        MessageContext msgContext;
+        while ((msgContext = queue.poll()) != null) {
+            long waitTime = getWaitTime(msgContext, System.currentTimeMillis());
+            if (queueTimeout > 0 && waitTime > queueTimeout) {
+                expire(queue, msgContext, waitTime);
+            } else {
+                queue.messageDequeued(waitTime);
+                return msgContext;
+            }
+        }
+        return null;
+    }
+
+    private void dropExpiredMessages() {
+        long currentTime = System.currentTimeMillis();
+        for (RouteQueue queue : waitingMessages.values()) {
+            // messages are queued in the order of arrival, hence only the head may have expired
+            MessageContext msgContext;
+            while ((msgContext = queue.peek()) != null) {
+                long waitTime = getWaitTime(msgContext, currentTime);
+                if (waitTime <= queueTimeout) {
+                    break;
+                }
+                if (queue.remove(msgContext)) {
+                    expire(queue, msgContext, waitTime);
+                }
+            }
+        }
+    }
+
+    private long getWaitTime(MessageContext msgContext, long currentTime) {
+        Object waitStartTime = msgContext.getProperty(PassThroughConstants.CONNECTION_WAIT_START_TIME);
+        return waitStartTime instanceof Long ? currentTime - (Long) waitStartTime : 0;
+    }
+
+    private void expire(RouteQueue queue, MessageContext msgContext, long waitTime) {
+        queue.messageExpired();
+        log.warn("Dropping the message " + msgContext.getMessageID() + " after waiting " + waitTime
+                + " ms for a connection");
+        msgContext.removeProperty(PassThroughConstants.CONNECTION_WAIT_START_TIME);
+        msgContext.setProperty(PassThroughConstants.INTERNAL_EXCEPTION_ORIGIN,
+                PassThroughConstants.INTERNAL_ORIGIN_ERROR_HANDLER);
+        targetErrorHandler.handleError(msgContext, queueErrorCode,
+                "Timed out waiting for a connection to the back end", null, ProtocolState.REQUEST_READY);
+        synchronized (msgContext) {
+            msgContext.setProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE, Boolean.TRUE);
+            msgContext.notifyAll();
+        }
+    }
+
+    /**
+     * Return the queues of the routes, for reporting the queue statistics.
+     *
+     * @return an unmodifiable view of the queues by route
+     */
+    public Map<HttpRoute, RouteQueue> getQueues() {
+        return Collections.unmodifiableMap(waitingMessages);
+    }
+
     private void tryNextMessage(MessageContext messageContext, HttpRoute route, NHttpClientConnection conn) {
         if (conn != null) {
+            Object waitStartTime = messageContext.getProperty(PassThroughConstants.CONNECTION_WAIT_START_TIME);
+            if (waitStartTime instanceof Long) {
+                messageContext.removeProperty(PassThroughConstants.CONNECTION_WAIT_START_TIME);
+                if (targetConfiguration.getMetrics() != null) {
+                    targetConfiguration.getMetrics().connectionAcquired(
+                            System.currentTimeMillis() - (Long) waitStartTime);
+                }
+            }
             try {
                 HttpContext ctx = conn.getContext();
                 ctx.setAttribute(CorrelationConstants.CORRELATION_ID,
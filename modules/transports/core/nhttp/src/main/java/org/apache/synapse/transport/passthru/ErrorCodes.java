@@ -38,5 +38,7 @@ public class ErrorCodes {
 
     public static final int CONNECT_CANCEL     = 101507;
 
-    public static final int CONNECT_TIMEOUT    = 101508;    
+    public static final int CONNECT_TIMEOUT    = 101508;
+
+    public static final int SERVICE_UNAVAILABLE = 101511;
 }
\ No newline at end of file
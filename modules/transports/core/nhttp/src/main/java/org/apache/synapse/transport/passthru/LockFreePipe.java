@@ -0,0 +1,674 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru;
+
+import org.apache.http.MalformedChunkCodingException;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.NHttpServerConnection;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.synapse.transport.passthru.config.BaseConfiguration;
+import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pipe for exactly one producer and one consumer, which does not take a lock. The content is
+ * kept in a ring over the buffer of the pipe, whose read and write positions are published through
+ * atomic counters, so that the producer and the consumer never wait for each other while there is
+ * free space and content in the ring.
+ * <p>
+ * The producer suspends its input only when the ring is full, and the consumer its output only when
+ * the ring is empty. Each side raises a flag before suspending itself and checks the ring again
+ * afterwards, while the other side checks the flag after updating the ring, so that a side is
+ * always resumed by one of the two. Threads reading or writing through the streams of the pipe
+ * park in the same way, only while they cannot make any progress.
+ */
+public class LockFreePipe extends Pipe {
+
+    private static long socketTimeOut = PassThroughConfiguration.getInstance()
+            .getIntProperty(HttpConnectionParams.SO_TIMEOUT, DEFAULT_TIME_OUT_VALUE);
+
+    /** IOControl of the reader */
+    private final IOControl producerIoControl;
+
+    /** IOControl of the consumer */
+    private volatile IOControl consumerIoControl;
+
+    private final BaseConfiguration baseConfig;
+
+    private final boolean hasHttpProducer;
+
+    /** Content produced by the HTTP producer */
+    private final Ring input;
+
+    /** Content written through the output stream, if any */
+    private volatile Ring output;
+
+    private volatile boolean producerCompleted = false;
+
+    private volatile boolean producerError = false;
+
+    private volatile boolean consumerError = false;
+
+    private volatile boolean serializationComplete = false;
+
+    private volatile boolean rawSerializationComplete = false;
+
+    private InputStream inputStream;
+
+    private OutputStream outputStream;
+
+    public LockFreePipe(IOControl producerIoControl, ControlledByteBuffer buffer,
+                        String name, BaseConfiguration baseConfig) {
+        super(name);
+        this.producerIoControl = producerIoControl;
+        this.input = new Ring(buffer);
+        this.baseConfig = baseConfig;
+        this.hasHttpProducer = true;
+    }
+
+    public LockFreePipe(ControlledByteBuffer buffer, String name, BaseConfiguration baseConfig) {
+        super(name);
+        this.producerIoControl = null;
+        this.input = new Ring(buffer);
+        this.baseConfig = baseConfig;
+        this.hasHttpProducer = false;
+    }
+
+    @Override
+    public boolean isProducerCompleted() {
+        return producerCompleted;
+    }
+
+    @Override
+    public void attachConsumer(IOControl consumerIoControl) {
+        this.consumerIoControl = consumerIoControl;
+    }
+
+    private Ring getConsumerRing() {
+        Ring ring = output;
+        return ring != null ? ring : input;
+    }
+
+    @Override
+    public int consume(final ContentEncoder encoder) throws IOException {
+        checkConsumer();
+        // if producer at error we have to stop the encoding and return immediately
+        if (producerError) {
+            encoder.complete();
+            return -1;
+        }
+        return write(getConsumerRing(), encoder, null);
+    }
+
+    @Override
+    public ByteBuffer copyAndConsume(final ContentEncoder encoder) throws IOException {
+        checkConsumer();
+        // if producer at error we have to stop the encoding and return immediately
+        if (producerError) {
+            encoder.complete();
+            return null;
+        }
+        Ring ring = getConsumerRing();
+        ByteBuffer copy = ByteBuffer.allocate(ring.capacity);
+        write(ring, encoder, copy);
+        copy.flip();
+        return copy;
+    }
+
+    private void checkConsumer() {
+        if (consumerIoControl == null) {
+            throw new IllegalStateException("Consumer cannot be null when calling consume");
+        }
+        if (hasHttpProducer && producerIoControl == null) {
+            throw new IllegalStateException("Producer cannot be null when calling consume");
+        }
+    }
+
+    private int write(Ring ring, ContentEncoder encoder, ByteBuffer copy) throws IOException {
+        int bytesWritten = 0;
+        // the content may wrap around the end of the buffer
+        for (int i = 0; i < 2 && ring.available() > 0; i++) {
+            ByteBuffer content = ring.readable();
+            int start = content.position();
+            encoder.write(content);
+            int written = content.position() - start;
+            if (copy != null) {
+                copy(content, start, written, copy);
+            }
+            ring.commitRead(written);
+            bytesWritten += written;
+            if (content.hasRemaining()) {
+                break;
+            }
+        }
+        consumePostActions(ring, encoder, bytesWritten);
+        return bytesWritten;
+    }
+
+    private void consumePostActions(Ring ring, ContentEncoder encoder, int bytesWritten) throws IOException {
+        if (ring.available() == 0) {
+            if (isContentComplete(ring)) {
+                encoder.complete();
+            } else {
+                // ring is empty. Wait until the producer fills it up
+                ring.consumerWaiting = true;
+                consumerIoControl.suspendOutput();
+                if (ring.available() > 0 || isContentComplete(ring)) {
+                    ring.consumerWaiting = false;
+                    consumerIoControl.requestOutput();
+                }
+            }
+        }
+        if (bytesWritten > 0 && !encoder.isCompleted()) {
+            resumeProducer(ring);
+        }
+    }
+
+    private boolean isContentComplete(Ring ring) {
+        if (ring == input) {
+            return producerCompleted;
+        }
+        return serializationComplete || rawSerializationComplete;
+    }
+
+    @Override
+    public int produce(final ContentDecoder decoder) throws IOException {
+        if (producerIoControl == null) {
+            throw new IllegalStateException("Producer cannot be null when calling produce");
+        }
+        return read(decoder, null);
+    }
+
+    @Override
+    public ByteBuffer copyAndProduce(final ContentDecoder decoder) throws IOException {
+        if (producerIoControl == null) {
+            throw new IllegalStateException("Producer cannot be null when calling produce");
+        }
+        ByteBuffer copy = ByteBuffer.allocate(input.capacity + 4);
+        read(decoder, copy);
+        copy.flip();
+        return copy;
+    }
+
+    private int read(ContentDecoder decoder, ByteBuffer copy) throws IOException {
+        int bytesRead = 0;
+        try {
+            // the free space may wrap around the end of the buffer
+            for (int i = 0; i < 2 && input.free() > 0; i++) {
+                ByteBuffer space = input.writable();
+                int start = space.position();
+                int read = decoder.read(space);
+                int written = space.position() - start;
+                if (copy != null) {
+                    copy(space, start, written, copy);
+                }
+                input.commitWrite(written);
+                if (read < 0 && bytesRead == 0) {
+                    bytesRead = read;
+                    break;
+                }
+                bytesRead += written;
+                if (space.hasRemaining() || decoder.isCompleted()) {
+                    break;
+                }
+            }
+        } catch (MalformedChunkCodingException ignore) {
+            // we assume that this is a truncated chunk, hence simply ignore the exception
+            // https://issues.apache.org/jira/browse/HTTPCORE-195
+            // we should add the EoF character
+            if (input.free() >= 4) {
+                for (int i = 0; i < 4; i++) {
+                    input.put((byte) -1);
+                    if (copy != null) {
+                        copy.put((byte) -1);
+                    }
+                }
+            }
+            bytesRead = input.available();
+        }
+        producePostActions(decoder);
+        return bytesRead;
+    }
+
+    private void producePostActions(final ContentDecoder decoder) {
+        // if consumer is at error we have to let the producer complete
+        if (consumerError) {
+            input.discard();
+        }
+        if (decoder.isCompleted()) {
+            producerCompleted = true;
+        } else if (input.free() == 0) {
+            // ring is full. Suspend client input until the consumer frees up some space
+            input.producerWaiting = true;
+            producerIoControl.suspendInput();
+            if (input.free() > 0) {
+                input.producerWaiting = false;
+                producerIoControl.requestInput();
+            }
+        }
+        if (input.available() > 0 || producerCompleted) {
+            resumeConsumer(input);
+        }
+    }
+
+    private void resumeConsumer(Ring ring) {
+        if (ring.consumerWaiting) {
+            ring.consumerWaiting = false;
+            IOControl consumer = consumerIoControl;
+            if (consumer != null) {
+                consumer.requestOutput();
+            }
+        }
+        ring.unparkWaiter();
+    }
+
+    private void resumeProducer(Ring ring) {
+        if (ring == input && ring.producerWaiting && !producerCompleted) {
+            ring.producerWaiting = false;
+            producerIoControl.requestInput();
+        }
+        ring.unparkWaiter();
+    }
+
+    @Override
+    public void forceProducerComplete(final ContentDecoder decoder) {
+        //no need to mark EoS if decoder is completed
+        if (!decoder.isCompleted()) {
+            producerCompleted = true;
+            // the consumer may be suspended on an empty ring or waiting for the end of the stream
+            input.consumerWaiting = false;
+            IOControl consumer = consumerIoControl;
+            if (consumer != null) {
+                consumer.requestOutput();
+            }
+            input.unparkWaiter();
+        }
+    }
+
+    @Override
+    public void consumerError() {
+        this.consumerError = true;
+        Ring ring = output;
+        if (ring != null) {
+            ring.unparkWaiter();
+        }
+    }
+
+    @Override
+    public void producerError() {
+        this.producerError = true;
+        input.unparkWaiter();
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() {
+        if (inputStream == null) {
+            inputStream = new RingInputStream();
+        }
+        return inputStream;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() {
+        if (outputStream == null) {
+            output = new Ring(baseConfig.getBufferFactory().getBuffer());
+            outputStream = new RingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public synchronized OutputStream resetOutputStream() {
+        output = new Ring(baseConfig.getBufferFactory().getBuffer());
+        outputStream = new RingOutputStream();
+        return outputStream;
+    }
+
+    @Override
+    public synchronized void setSerializationComplete(boolean serializationComplete) {
+        if (!this.serializationComplete) {
+            this.serializationComplete = serializationComplete;
+            IOControl consumer = consumerIoControl;
+            if (consumer != null) {
+                Ring ring = output;
+                if (ring != null) {
+                    ring.consumerWaiting = false;
+                }
+                consumer.requestOutput();
+            }
+        }
+    }
+
+    @Override
+    public void setRawSerializationComplete(boolean rawSerializationComplete) {
+        this.rawSerializationComplete = rawSerializationComplete;
+    }
+
+    @Override
+    public void forceSetSerializationRest() {
+        // If the pipe is reused to send the message out (ex. Failover endpoint retry), need to reset
+        consumerError = false;
+        serializationComplete = false;
+    }
+
+    @Override
+    public boolean isSerializationComplete() {
+        return serializationComplete;
+    }
+
+    @Override
+    public ControlledByteBuffer getBuffer() {
+        return input.buffer;
+    }
+
+    @Override
+    public ControlledByteBuffer getRelayBuffer() {
+        return null;
+    }
+
+    @Override
+    public boolean hasHttpProducer() {
+        return hasHttpProducer;
+    }
+
+    @Override
+    public boolean isConsumeRequired() {
+        return !producerCompleted || input.available() > 0;
+    }
+
+    @Override
+    public boolean isProducerError() {
+        return producerError;
+    }
+
+    private static void copy(ByteBuffer buffer, int start, int length, ByteBuffer copy) {
+        if (length > 0) {
+            ByteBuffer content = buffer.duplicate();
+            content.limit(start + length);
+            content.position(start);
+            copy.put(content);
+        }
+    }
+
+    private boolean isConsumerStale() {
+        IOControl consumer = consumerIoControl;
+        if (consumer instanceof NHttpServerConnection) {
+            return ((NHttpServerConnection) consumer).isStale();
+        } else if (consumer instanceof NHttpClientConnection) {
+            return ((NHttpClientConnection) consumer).isStale();
+        }
+        return false;
+    }
+
+    /**
+     * A ring over a buffer, written by a single producer and read by a single consumer. The
+     * positions count all the bytes written to and read from the ring, and each of them is
+     * updated by its own side only.
+     */
+    private static final class Ring {
+
+        private final ControlledByteBuffer buffer;
+
+        private final int capacity;
+
+        /** Views of the buffer used by the producer and the consumer respectively */
+        private final ByteBuffer writeView;
+        private final ByteBuffer readView;
+
+        private final AtomicLong writePosition = new AtomicLong();
+        private final AtomicLong readPosition = new AtomicLong();
+
+        /** Whether the producer has suspended its input on a full ring */
+        private volatile boolean producerWaiting;
+
+        /** Whether the consumer has suspended its output on an empty ring */
+        private volatile boolean consumerWaiting;
+
+        /** Thread parked on the ring through a stream of the pipe */
+        private volatile Thread waiter;
+
+        private Ring(ControlledByteBuffer buffer) {
+            this.buffer = buffer;
+            ByteBuffer byteBuffer = buffer.getByteBuffer();
+            this.capacity = byteBuffer.capacity();
+            this.writeView = byteBuffer.duplicate();
+            this.readView = byteBuffer.duplicate();
+        }
+
+        private int available() {
+            return (int) (writePosition.get() - readPosition.get());
+        }
+
+        private int free() {
+            return capacity - available();
+        }
+
+        /**
+         * @return view of the free space up to the end of the buffer, to be used by the producer
+         */
+        private ByteBuffer writable() {
+            long position = writePosition.get();
+            int start = (int) (position % capacity);
+            int length = Math.min(capacity - (int) (position - readPosition.get()), capacity - start);
+            writeView.clear();
+            writeView.position(start);
+            writeView.limit(start + length);
+            return writeView;
+        }
+
+        /**
+         * @return view of the content up to the end of the buffer, to be used by the consumer
+         */
+        private ByteBuffer readable() {
+            long position = readPosition.get();
+            int start = (int) (position % capacity);
+            int length = Math.min((int) (writePosition.get() - position), capacity - start);
+            readView.clear();
+            readView.position(start);
+            readView.limit(start + length);
+            return readView;
+        }
+
+        private void commitWrite(int length) {
+            if (length > 0) {
+                writePosition.set(writePosition.get() + length);
+            }
+        }
+
+        private void commitRead(int length) {
+            if (length > 0) {
+                readPosition.set(readPosition.get() + length);
+            }
+        }
+
+        private void put(byte b) {
+            writable().put(b);
+            commitWrite(1);
+        }
+
+        private int put(byte[] b, int off, int len) {
+            int written = 0;
+            while (written < len && free() > 0) {
+                ByteBuffer space = writable();
+                int chunk = Math.min(len - written, space.remaining());
+                space.put(b, off + written, chunk);
+                commitWrite(chunk);
+                written += chunk;
+            }
+            return written;
+        }
+
+        private int get(byte[] b, int off, int len) {
+            int read = 0;
+            while (read < len && available() > 0) {
+                ByteBuffer content = readable();
+                int chunk = Math.min(len - read, content.remaining());
+                content.get(b, off + read, chunk);
+                commitRead(chunk);
+                read += chunk;
+            }
+            return read;
+        }
+
+        /**
+         * Drop the content of the ring, used by the producer when the consumer is at error
+         */
+        private void discard() {
+            readPosition.set(writePosition.get());
+        }
+
+        private void unparkWaiter() {
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    private class RingInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                return 0;
+            }
+            if (!waitForData()) {
+                return -1;
+            }
+            int chunk = input.get(b, off, len);
+            if (chunk > 0) {
+                resumeProducer(input);
+            }
+            return chunk;
+        }
+
+        /**
+         * @return false if there is no more content to read
+         */
+        private boolean waitForData() throws IOException {
+            while (input.available() == 0) {
+                if (producerError) {
+                    return false;
+                }
+                if (producerCompleted) {
+                    // content produced before the completion is visible once the completion is
+                    return input.available() > 0;
+                }
+                input.waiter = Thread.currentThread();
+                try {
+                    if (input.available() == 0 && !producerCompleted && !producerError) {
+                        producerIoControl.requestInput();
+                        LockSupport.park(this);
+                    }
+                } finally {
+                    input.waiter = null;
+                }
+                if (Thread.interrupted()) {
+                    throw new IOException("Interrupted while waiting for data");
+                }
+            }
+            return true;
+        }
+    }
+
+    private class RingOutputStream extends OutputStream {
+
+        private final Ring ring = output;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                return;
+            }
+            // if there is a consumer error or a stale connection, there is no point of trying to write.
+            // ex: when client connection is closed while writing back the response
+            if (consumerError || isStale) {
+                isStale = false;
+                throw new IOException("Consumer error or stale connection has occurred.");
+            }
+            if (isConsumerStale()) {
+                isStale = true;
+                return;
+            }
+            while (len > 0) {
+                if (ring.free() == 0) {
+                    waitForSpace();
+                    if (consumerError || isStale) {
+                        return;
+                    }
+                }
+                int chunk = ring.put(b, off, len);
+                off += chunk;
+                len -= chunk;
+                resumeConsumer(ring);
+            }
+        }
+
+        private void waitForSpace() throws IOException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(socketTimeOut);
+            while (ring.free() == 0 && !consumerError && !isStale) {
+                ring.waiter = Thread.currentThread();
+                try {
+                    if (ring.free() == 0 && !consumerError) {
+                        IOControl consumer = consumerIoControl;
+                        if (consumer != null) {
+                            ring.consumerWaiting = false;
+                            consumer.requestOutput();
+                        }
+                        if (isConsumerStale()) {
+                            isStale = true;
+                            return;
+                        }
+                        long timeout = deadline - System.nanoTime();
+                        if (timeout <= 0) {
+                            throw new IOException("Output buffer write time out exceeded");
+                        }
+                        LockSupport.parkNanos(this, timeout);
+                    }
+                } finally {
+                    ring.waiter = null;
+                }
+                if (Thread.interrupted()) {
+                    throw new IOException("Interrupted while flushing the content buffer");
+                }
+            }
+        }
+    }
+}
@@ -119,6 +119,9 @@ public class PassThroughConstants {
     public static final String CLONE_PASS_THROUGH_PIPE_REQUEST = "clone_pass-through.pipe_connected";
 
     public static final String CONNECTION_LIMIT_EXCEEDS = "CONNECTION_LIMIT_EXCEEDS";
+
+    // The time a message started waiting for a connection to the back end
+    public static final String CONNECTION_WAIT_START_TIME = "CONNECTION_WAIT_START_TIME";
     
     /**
      * Name of the .mar file
@@ -62,6 +62,7 @@ import org.apache.synapse.transport.passthru.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.jmx.TransportView;
 import org.apache.synapse.transport.passthru.util.PassThroughTransportUtils;
+import org.apache.synapse.transport.passthru.util.PipeFactory;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.transport.passthru.util.SourceResponseFactory;
 import org.apache.synapse.transport.passthru.util.StreamInterceptorsLoader;
@@ -236,6 +237,12 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
     }
 
     public void stop() {
+        if (targetConnections != null) {
+            targetConnections.destroy();
+        }
+        if (deliveryAgent != null) {
+            deliveryAgent.destroy();
+        }
         try {
             ioReactor.shutdown();
         } catch (IOException e) {
@@ -259,8 +266,7 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         if (epr != null) {
             if (!epr.hasNoneAddress()) {
                 if (msgContext.getProperty(PassThroughConstants.PASS_THROUGH_PIPE) == null) {
-                    Pipe pipe = new Pipe(targetConfiguration.getBufferFactory().getBuffer(),
-                            "Test", targetConfiguration);
+                    Pipe pipe = PipeFactory.create("Test", targetConfiguration);
                     msgContext.setProperty(PassThroughConstants.PASS_THROUGH_PIPE, pipe);
                     msgContext.setProperty(PassThroughConstants.MESSAGE_BUILDER_INVOKED, Boolean.TRUE);
                 }
@@ -535,8 +541,7 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         Pipe pipe = (Pipe) msgContext.getProperty(PassThroughConstants.PASS_THROUGH_PIPE);
         if ((noEntityBody == null || !noEntityBody) || pipe != null) {
             if (pipe == null) {
-                pipe = new Pipe(sourceConfiguration.getBufferFactory().getBuffer(),
-                        "Test", sourceConfiguration);
+                pipe = PipeFactory.create("Test", sourceConfiguration);
                 msgContext.setProperty(PassThroughConstants.PASS_THROUGH_PIPE, pipe);
                 msgContext.setProperty(PassThroughConstants.MESSAGE_BUILDER_INVOKED, Boolean.TRUE);
             }
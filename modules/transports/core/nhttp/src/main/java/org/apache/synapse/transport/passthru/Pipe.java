@@ -38,6 +38,12 @@ import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This is a buffer shared by both producers and consumers.
+ * <p>
+ * When the message is relayed as it is, i.e. nothing has read the content of the pipe or written
+ * a new content to it, the pipe works in relay mode. In relay mode the consumer drains a second
+ * buffer while the producer fills the first one, and the two buffers are swapped once the
+ * consumer has written everything out, so that the unwritten content is never compacted and the
+ * producer does not have to wait for the consumer to free up space in the buffer.
  */
 public class Pipe {
 
@@ -54,6 +60,9 @@ public class Pipe {
 
     private ControlledByteBuffer outputBuffer;
 
+    /** Buffer drained by the consumer while the producer fills the other buffer, in relay mode */
+    private ControlledByteBuffer relayBuffer;
+
     private boolean producerCompleted = false;
 
     public boolean isProducerCompleted() {
@@ -61,10 +70,10 @@ public class Pipe {
     }
 
     /** Lock to synchronize the producers and consumers */
-    private Lock lock = new ReentrantLock();
+    private Lock lock;
 
-    private Condition readCondition = lock.newCondition();
-    private Condition writeCondition = lock.newCondition();
+    private Condition readCondition;
+    private Condition writeCondition;
 
     /** Name to identify the buffer */
     private String name = "Buffer";
@@ -91,6 +100,15 @@ public class Pipe {
      * "false"- if time out exceeds
      */
     private boolean awaitInterrupted = true;
+
+    /**
+     * Whether pipes which relay the message as it is swap the buffers of the producer and the consumer
+     * instead of sharing a single buffer.
+     */
+    private static boolean relayEnabledByDefault = PassThroughConfiguration.getInstance().isPipeRelayEnabled();
+
+    private boolean relayEnabled = relayEnabledByDefault;
+
     boolean isStale = false;
 
     private BaseConfiguration baseConfig;
@@ -106,17 +124,34 @@ public class Pipe {
 
     public Pipe(IOControl producerIoControl, ControlledByteBuffer buffer,
                 String name, BaseConfiguration baseConfig) {
+        this(name);
         this.producerIoControl = producerIoControl;
         this.buffer = buffer;
-        this.name += "_" + name;
         this.baseConfig = baseConfig;
+        createLock();
     }
 
     public Pipe(ControlledByteBuffer buffer, String name, BaseConfiguration baseConfig) {
+        this(name);
         this.buffer = buffer;
-        this.name += "_" + name;
         this.baseConfig = baseConfig;
         this.hasHttpProducer = false;
+        createLock();
+    }
+
+    /**
+     * Constructor for pipes which override the buffering of this pipe and do not use its lock
+     *
+     * @param name name to identify the pipe
+     */
+    protected Pipe(String name) {
+        this.name += "_" + name;
+    }
+
+    private void createLock() {
+        lock = new ReentrantLock();
+        readCondition = lock.newCondition();
+        writeCondition = lock.newCondition();
     }
 
     /**
@@ -128,7 +163,65 @@ public class Pipe {
     }
 
     private ControlledByteBuffer getConsumerBuffer() {
-        return (outputBuffer != null ? outputBuffer : buffer);
+        if (outputBuffer != null) {
+            return outputBuffer;
+        }
+        if (isRelay()) {
+            return prepareRelayBuffer();
+        }
+        return buffer;
+    }
+
+    /**
+     * The pipe relays the content as it is, if it is fed by an HTTP producer and neither an input
+     * stream nor an output stream has been created on it.
+     */
+    private boolean isRelay() {
+        return relayEnabled && hasHttpProducer && inputStream == null && outputStream == null;
+    }
+
+    /**
+     * Returns the buffer to be drained by the consumer in relay mode. Once the consumer has written
+     * out everything in it, the buffer filled by the producer is handed over to the consumer and the
+     * drained buffer is given to the producer, without copying any content.
+     */
+    private ControlledByteBuffer prepareRelayBuffer() {
+        if (relayBuffer == null) {
+            relayBuffer = baseConfig.getBufferFactory().getBuffer();
+        }
+        setOutputMode(relayBuffer);
+        if (!relayBuffer.hasRemaining() && !isEmpty(buffer)) {
+            ControlledByteBuffer filled = buffer;
+            buffer = relayBuffer;
+            buffer.clear();
+            buffer.forceSetInputMode();
+            relayBuffer = filled;
+            setOutputMode(relayBuffer);
+            if (!producerCompleted) {
+                // the producer may have been suspended on a full buffer
+                producerIoControl.requestInput();
+            }
+        }
+        return relayBuffer;
+    }
+
+    private void relayPostActions(ContentEncoder encoder, int bytesWritten) throws IOException {
+        if (!relayBuffer.hasRemaining() && isEmpty(buffer)) {
+            if (producerCompleted) {
+                encoder.complete();
+            } else {
+                // both buffers are empty. Wait until the producer fills up the buffer
+                consumerIoControl.suspendOutput();
+            }
+        }
+        if (bytesWritten > 0 && !encoder.isCompleted() && !producerCompleted) {
+            producerIoControl.requestInput();
+        }
+        writeCondition.signalAll();
+    }
+
+    private boolean isEmpty(ControlledByteBuffer buffer) {
+        return buffer.isInputMode() ? buffer.position() == 0 : !buffer.hasRemaining();
     }
 
     /**
@@ -150,13 +243,13 @@ public class Pipe {
         }
 
         lock.lock();
-        ControlledByteBuffer consumerBuffer = getConsumerBuffer();
         try {
             // if producer at error we have to stop the encoding and return immediately
             if (producerError) {
                 encoder.complete();
                 return -1;
             }
+            ControlledByteBuffer consumerBuffer = getConsumerBuffer();
             setOutputMode(consumerBuffer);
             int bytesWritten = encoder.write(consumerBuffer.getByteBuffer());
             consumePostActions(consumerBuffer, encoder, bytesWritten);
@@ -183,13 +276,13 @@ public class Pipe {
             throw new IllegalStateException("Producer cannot be null when calling consume");
         }
         lock.lock();
-        ControlledByteBuffer consumerBuffer = getConsumerBuffer();
         try {
             // if producer at error we have to stop the encoding and return immediately
             if (producerError) {
                 encoder.complete();
                 return null;
             }
+            ControlledByteBuffer consumerBuffer = getConsumerBuffer();
             setOutputMode(consumerBuffer);
             // clone original buffer
             ByteBuffer originalBuffer = consumerBuffer.getByteBuffer();
@@ -211,6 +304,10 @@ public class Pipe {
     private void consumePostActions(ControlledByteBuffer consumerBuffer, ContentEncoder encoder, int bytesWritten)
             throws IOException {
 
+        if (consumerBuffer == relayBuffer) {
+            relayPostActions(encoder, bytesWritten);
+            return;
+        }
         setInputMode(consumerBuffer);
         if (consumerBuffer.position() == 0) {
             if (outputBuffer == null) {
@@ -453,6 +550,25 @@ public class Pipe {
         return buffer;
     }
 
+    /**
+     * Returns the buffer drained by the consumer in relay mode
+     *
+     * @return the relay buffer, or null if the pipe has not relayed any content
+     */
+    public ControlledByteBuffer getRelayBuffer() {
+        return relayBuffer;
+    }
+
+    /**
+     * Turns the relay mode of this pipe on or off, regardless of the configuration. This must be
+     * called before any content is produced into the pipe.
+     *
+     * @param relayEnabled whether to swap the buffers when relaying the message as it is
+     */
+    void setRelayEnabled(boolean relayEnabled) {
+        this.relayEnabled = relayEnabled;
+    }
+
     public boolean hasHttpProducer() {
         return hasHttpProducer;
     }
@@ -0,0 +1,184 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru;
+
+import org.apache.axis2.context.MessageContext;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The messages waiting for a connection to a route. The number of waiting messages is bounded
+ * and kept in a counter, so that neither adding a message nor reading the queue depth needs a
+ * lock or a traversal of the queue. Along with the messages this keeps the statistics of the
+ * time spent by the messages in the queue, which are reported through the JMX views.
+ */
+public class RouteQueue extends AbstractQueue<MessageContext> {
+
+    private final ConcurrentLinkedQueue<MessageContext> messages = new ConcurrentLinkedQueue<MessageContext>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int capacity;
+
+    private final LongAdder rejectedMessages = new LongAdder();
+
+    private final LongAdder expiredMessages = new LongAdder();
+
+    private final LongAdder waitCount = new LongAdder();
+
+    private final LongAdder totalWaitTime = new LongAdder();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    /**
+     * @param capacity maximum number of messages allowed to wait in this queue
+     */
+    public RouteQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add a message to the queue if the queue is not full.
+     *
+     * @param msgContext message waiting for a connection
+     * @return false if the queue is full
+     */
+    public boolean offer(MessageContext msgContext) {
+        if (msgContext == null) {
+            throw new NullPointerException();
+        }
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                rejectedMessages.increment();
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        messages.offer(msgContext);
+        return true;
+    }
+
+    public MessageContext poll() {
+        MessageContext msgContext = messages.poll();
+        if (msgContext != null) {
+            size.decrementAndGet();
+        }
+        return msgContext;
+    }
+
+    public MessageContext peek() {
+        return messages.peek();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (messages.remove(o)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The number of waiting messages, which may include a message being added concurrently
+     * which is not visible to {@link #poll()} yet.
+     *
+     * @return number of waiting messages
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public Iterator<MessageContext> iterator() {
+        final Iterator<MessageContext> iterator = messages.iterator();
+        return new Iterator<MessageContext>() {
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            public MessageContext next() {
+                return iterator.next();
+            }
+
+            public void remove() {
+                iterator.remove();
+                size.decrementAndGet();
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Record the time a message waited in this queue before it got a connection.
+     *
+     * @param waitTime time waited in milliseconds
+     */
+    public void messageDequeued(long waitTime) {
+        waitCount.increment();
+        totalWaitTime.add(waitTime);
+        long max = maxWaitTime.get();
+        while (waitTime > max && !maxWaitTime.compareAndSet(max, waitTime)) {
+            max = maxWaitTime.get();
+        }
+    }
+
+    /**
+     * Record a message dropped since it waited longer than the queue timeout.
+     */
+    public void messageExpired() {
+        expiredMessages.increment();
+    }
+
+    public long getRejectedMessages() {
+        return rejectedMessages.sum();
+    }
+
+    public long getExpiredMessages() {
+        return expiredMessages.sum();
+    }
+
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    public double getAverageWaitTime() {
+        long count = waitCount.sum();
+        return count > 0 ? (double) totalWaitTime.sum() / count : 0;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    public void resetStatistics() {
+        rejectedMessages.reset();
+        expiredMessages.reset();
+        waitCount.reset();
+        totalWaitTime.reset();
+        maxWaitTime.set(0);
+    }
+}
@@ -63,6 +63,7 @@ import org.apache.synapse.transport.nhttp.util.NhttpUtil;
 import org.apache.synapse.transport.nhttp.util.RESTUtil;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.util.PipeFactory;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.transport.passthru.util.SourceResponseFactory;
 
@@ -636,8 +637,7 @@ public class ServerWorker implements Runnable {
             sourceResponse.addHeader(HTTP.CONTENT_TYPE, "text/html");
             sourceResponse.setStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR);
 
-            Pipe pipe = new Pipe(sourceConfiguration.getBufferFactory()
-                    .getBuffer(), "Test", sourceConfiguration);
+            Pipe pipe = PipeFactory.create("Test", sourceConfiguration);
             msgContext
                     .setProperty(PassThroughConstants.PASS_THROUGH_PIPE, pipe);
             msgContext.setProperty(
@@ -115,6 +115,7 @@ public class SourceContext {
 			if (!isError) {      // If there is an error we do not release the buffer to the factory
                 ControlledByteBuffer buffer = writer.getBuffer();
 				sourceConfiguration.getBufferFactory().release(buffer);
+                sourceConfiguration.getBufferFactory().release(writer.getRelayBuffer());
 			}
 		}
 
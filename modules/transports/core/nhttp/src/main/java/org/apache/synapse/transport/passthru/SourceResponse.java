@@ -25,6 +25,7 @@ import org.apache.axis2.transport.MessageFormatter;
 import org.apache.axis2.util.MessageProcessorSelector;
 import org.apache.http.ConnectionReuseStrategy;
 import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -38,6 +39,9 @@ import org.apache.http.params.DefaultedHttpParams;
 import org.apache.http.protocol.ExecutionContext;
 import org.apache.http.protocol.HTTP;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.util.CompressionPolicy;
+import org.apache.synapse.transport.passthru.util.ContentCoding;
+import org.apache.synapse.transport.passthru.util.ContentCodingEncoder;
 import org.apache.synapse.transport.passthru.util.PassThroughTransportUtils;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 
@@ -77,6 +81,10 @@ public class SourceResponse {
     
     /** If version change required default HTTP 1.1 will be overridden*/
     private boolean versionChangeRequired =false;
+    /** Whether the content length is calculated since chunking is disabled */
+    private boolean chunkingDisabled = false;
+    /** Compresses the content, if the response is compressed */
+    private ContentCodingEncoder codingEncoder = null;
 
     public SourceResponse(SourceConfiguration config, int status, SourceRequest request) {
         this(config, status, null, request);
@@ -141,6 +149,17 @@ public class SourceResponse {
                 }
             }
 
+            String coding = getResponseCoding(contentLength);
+            if (coding != null) {
+                // the length of the compressed content is not known until it is written
+                contentLength = -1;
+                addHeader(HTTP.CONTENT_ENCODING, coding);
+                addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                CompressionPolicy policy = sourceConfiguration.getCompressionPolicy();
+                codingEncoder = new ContentCodingEncoder(ContentCoding.createCompressor(coding, policy.getLevel()),
+                        true, sourceConfiguration.getIOBufferSize(), sourceConfiguration.getMetrics());
+            }
+
             if (contentLength != -1) {
                 entity.setChunked(false);
                 entity.setContentLength(contentLength);
@@ -227,6 +246,7 @@ public class SourceResponse {
         boolean isChunkingDisabled = responseMsgContext.isPropertyTrue(PassThroughConstants.DISABLE_CHUNKING, false);
 
         if ("true".equals(forceHttp10) || isChunkingDisabled) {
+            chunkingDisabled = true;
             if (!responseMsgContext.isPropertyTrue(PassThroughConstants.MESSAGE_BUILDER_INVOKED,
                     false)) {
                 try {
@@ -276,6 +296,9 @@ public class SourceResponse {
      * @throws java.io.IOException if an error occurs
      */
     public int write(NHttpServerConnection conn, ContentEncoder encoder) throws IOException {
+        if (codingEncoder != null) {
+            encoder = codingEncoder.wrap(encoder);
+        }
         int bytes = 0;
         if (pipe != null) {
             bytes = pipe.consume(encoder);
@@ -299,6 +322,9 @@ public class SourceResponse {
      */
     public ByteBuffer copyAndWrite(NHttpServerConnection conn, ContentEncoder encoder) throws IOException {
 
+        if (codingEncoder != null) {
+            encoder = codingEncoder.wrap(encoder);
+        }
         ByteBuffer bytes = null;
         if (pipe != null) {
             bytes = pipe.copyAndConsume(encoder);
@@ -360,6 +386,34 @@ public class SourceResponse {
         return null;
     }
 
+    /**
+     * Select the content coding to compress this response with, if the response is to be
+     * compressed. Responses of which the content length has to be sent are not compressed.
+     *
+     * @param contentLength length of the content, -1 if not known
+     * @return the content coding, or null if the response is not compressed
+     */
+    private String getResponseCoding(long contentLength) {
+        CompressionPolicy policy = sourceConfiguration.getCompressionPolicy();
+        if (policy == null || chunkingDisabled || versionChangeRequired
+                || !request.getVersion().greaterEquals(HttpVersion.HTTP_1_1)
+                || status == HttpStatus.SC_PARTIAL_CONTENT) {
+            return null;
+        }
+        return policy.selectResponseCoding(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING),
+                getHeaderIgnoreCase(HTTP.CONTENT_TYPE), getHeaderIgnoreCase(HTTP.CONTENT_ENCODING),
+                contentLength);
+    }
+
+    private String getHeaderIgnoreCase(String name) {
+        for (Map.Entry<String, TreeSet<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                return entry.getValue().first();
+            }
+        }
+        return null;
+    }
+
     private boolean canResponseHaveBody(final HttpRequest request, final HttpResponse response) {
         if (request != null && "HEAD".equalsIgnoreCase(request.getRequestLine().getMethod())) {
             return false;
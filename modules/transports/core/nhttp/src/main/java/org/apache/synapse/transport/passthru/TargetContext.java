@@ -132,6 +132,7 @@ public class TargetContext {
             if (!isError) {      // If there is an error we do not release the buffer to the factory
                 ControlledByteBuffer buffer = writer.getBuffer();
                 targetConfiguration.getBufferFactory().release(buffer);
+                targetConfiguration.getBufferFactory().release(writer.getRelayBuffer());
             }
         }
 
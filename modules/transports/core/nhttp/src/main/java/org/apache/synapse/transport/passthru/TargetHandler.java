@@ -380,6 +380,7 @@ public class TargetHandler implements NHttpClientEventHandler {
                 return;
             }
             context.setAttribute(PassThroughConstants.RES_HEADER_ARRIVAL_TIME, System.currentTimeMillis());
+            updateBackendLatency(conn);
             connState = TargetContext.getState(conn);
             //check correlation logs enabled
             if (targetConfiguration.isCorrelationLoggingEnabled()
@@ -523,6 +524,23 @@ public class TargetHandler implements NHttpClientEventHandler {
         return false;
     }
 
+    /**
+     * Records the time from sending the request to receiving the response headers against the
+     * route of the connection.
+     *
+     * @param conn HTTP client connection reference
+     */
+    private void updateBackendLatency(NHttpClientConnection conn) {
+        HttpContext context = conn.getContext();
+        Object departure = context.getAttribute(PassThroughConstants.REQ_DEPARTURE_TIME);
+        Object arrival = context.getAttribute(PassThroughConstants.RES_HEADER_ARRIVAL_TIME);
+        Object pool = context.getAttribute(PassThroughConstants.CONNECTION_POOL);
+        if (departure != null && arrival != null && pool instanceof HostConnections) {
+            metrics.notifyBackendLatency(((HostConnections) pool).getRoute(),
+                    (Long) arrival - (Long) departure);
+        }
+    }
+
     /**
      * Closes the target side HTTP connection.
      *
@@ -45,6 +45,9 @@ import org.apache.http.protocol.HttpContext;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.nhttp.util.MessageFormatterDecoratorFactory;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.util.CompressionPolicy;
+import org.apache.synapse.transport.passthru.util.ContentCoding;
+import org.apache.synapse.transport.passthru.util.ContentCodingEncoder;
 import org.apache.synapse.transport.passthru.util.PassThroughTransportUtils;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.transport.passthru.util.TargetRequestFactory;
@@ -90,6 +93,8 @@ public class TargetRequest {
     private boolean hasEntityBody = true;
     /** Keep alive request */
     private boolean keepAlive = true;
+    /** Decompresses the content, if the request is decompressed */
+    private ContentCodingEncoder codingEncoder = null;
     /** logger for correlation.log */
     private static final Log correlationLog = LogFactory.getLog(PassThroughConstants.CORRELATION_LOGGER);
 
@@ -211,6 +216,11 @@ public class TargetRequest {
             boolean forceContentLengthCopy = requestMsgCtx.isPropertyTrue(
                                                                    PassThroughConstants.COPY_CONTENT_LENGTH_FROM_INCOMING);
 
+            if (!forceContentLength && startDecompression(requestMsgCtx)) {
+                // the length of the decompressed content is not known until it is written
+                contentLength = -1;
+            }
+
             if (forceContentLength) {
                 entity.setChunked(false);
                 if (forceContentLengthCopy && contentLength != -1) {
@@ -318,6 +328,37 @@ public class TargetRequest {
 
 
 
+    /**
+     * Decompress the content of the request while it is written, if request decompression is
+     * enabled and the content is relayed as received from the client with a supported encoding.
+     *
+     * @param requestMsgCtx message context of the request
+     * @return true if the content is decompressed
+     */
+    private boolean startDecompression(MessageContext requestMsgCtx) {
+        CompressionPolicy policy = targetConfiguration.getCompressionPolicy();
+        if (pipe == null || policy == null || !policy.isRequestDecompressionEnabled()
+                || HttpVersion.HTTP_1_0.equals(version)
+                || requestMsgCtx.isPropertyTrue(PassThroughConstants.MESSAGE_BUILDER_INVOKED)
+                || "true".equals(requestMsgCtx.getProperty(PassThroughConstants.DISABLE_CHUNKING))
+                || "true".equals(requestMsgCtx.getProperty(PassThroughConstants.FORCE_HTTP_1_0))) {
+            return false;
+        }
+        for (Map.Entry<String, LinkedHashSet<String>> entry : headers.entrySet()) {
+            if (HTTP.CONTENT_ENCODING.equalsIgnoreCase(entry.getKey()) && entry.getValue().size() == 1) {
+                String coding = entry.getValue().iterator().next().trim();
+                if (!ContentCoding.isSupported(coding)) {
+                    return false;
+                }
+                headers.remove(entry.getKey());
+                codingEncoder = new ContentCodingEncoder(ContentCoding.createDecompressor(coding), false,
+                        targetConfiguration.getIOBufferSize(), targetConfiguration.getMetrics());
+                return true;
+            }
+        }
+        return false;
+    }
+
 	/**
 	 * Handles the chuking messages in Passthough context, create a temporary buffer and calculate the message
 	 * size before writing to the external buffer, which is required the context of handling DISABLED chunking
@@ -373,6 +414,9 @@ public class TargetRequest {
      * @throws java.io.IOException if an error occurs
      */
     public int write(NHttpClientConnection conn, ContentEncoder encoder) throws IOException {
+        if (codingEncoder != null) {
+            encoder = codingEncoder.wrap(encoder);
+        }
         int bytes = 0;
         if (pipe != null) {
             bytes = pipe.consume(encoder);
@@ -393,6 +437,9 @@ public class TargetRequest {
      */
     public ByteBuffer copyAndWrite(NHttpClientConnection conn, ContentEncoder encoder) throws IOException {
 
+        if (codingEncoder != null) {
+            encoder = codingEncoder.wrap(encoder);
+        }
         ByteBuffer bufferCopy = null;
         if (pipe != null) {
             bufferCopy = pipe.copyAndConsume(encoder);
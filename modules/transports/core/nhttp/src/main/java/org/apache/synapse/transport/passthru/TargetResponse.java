@@ -31,6 +31,7 @@ import org.apache.http.nio.ContentDecoder;
 import org.apache.http.nio.NHttpClientConnection;
 import org.apache.synapse.transport.http.conn.LoggingNHttpClientConnection;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.util.PipeFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -121,7 +122,7 @@ public class TargetResponse {
 
         if (expectResponseBody) {
             pipe
-                = new Pipe(conn, targetConfiguration.getBufferFactory().getBuffer(), "target", targetConfiguration);
+                = PipeFactory.create(conn, "target", targetConfiguration);
 
             TargetContext.get(conn).setReader(pipe);
 
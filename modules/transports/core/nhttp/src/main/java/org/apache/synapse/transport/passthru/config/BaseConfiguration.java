@@ -22,6 +22,8 @@ import org.apache.axis2.description.ParameterInclude;
 import org.apache.axis2.transport.base.threads.WorkerPool;
 import org.apache.axis2.transport.base.threads.WorkerPoolFactory;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.util.ByteBufferAllocator;
+import org.apache.http.nio.util.DirectByteBufferAllocator;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
@@ -31,6 +33,8 @@ import org.apache.http.protocol.HTTP;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.util.BufferFactory;
+import org.apache.synapse.transport.passthru.util.CompressionPolicy;
+import org.apache.synapse.transport.passthru.util.VirtualThreadWorkerPool;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -59,6 +63,8 @@ public abstract class BaseConfiguration {
 
     protected BufferFactory bufferFactory = null;
 
+    protected CompressionPolicy compressionPolicy = null;
+
     /** Weather User-Agent header coming from client should be preserved */
     protected boolean preserveUserAgentHeader = false;
     /** Weather Server header coming from server should be preserved */
@@ -94,7 +100,9 @@ public abstract class BaseConfiguration {
     public void build() throws AxisFault {
         iOBufferSize = conf.getIOBufferSize();
 
-        if (workerPool == null) {
+        if (workerPool == null && conf.isWorkerPoolVirtualThreads()) {
+            workerPool = new VirtualThreadWorkerPool(PASSTHROUGH_THREAD_ID, conf.getWorkerPoolConcurrency());
+        } else if (workerPool == null) {
             workerPool = WorkerPoolFactory.getWorkerPool(
                             conf.getWorkerPoolCoreSize(),
                             conf.getWorkerPoolMaxSize(),
@@ -111,7 +119,14 @@ public abstract class BaseConfiguration {
             correlationLoggingEnabled = sysCorrelationStatus.equalsIgnoreCase("true");
         }
 
-        bufferFactory = new BufferFactory(iOBufferSize, new HeapByteBufferAllocator(), 512);
+        ByteBufferAllocator allocator = conf.isIOBufferDirect() ?
+                new DirectByteBufferAllocator() : new HeapByteBufferAllocator();
+        bufferFactory = new BufferFactory(iOBufferSize, allocator, conf.getIOBufferPoolSize(),
+                conf.getIOBufferPoolThreadCacheSize());
+        if (metrics != null) {
+            metrics.setBufferFactory(bufferFactory);
+        }
+        compressionPolicy = new CompressionPolicy(conf);
     }
 
 
@@ -189,6 +204,10 @@ public abstract class BaseConfiguration {
         return bufferFactory;
     }
 
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
     public PassThroughTransportMetricsCollector getMetrics() {
         return metrics;
     }
@@ -44,6 +44,18 @@ public interface PassThroughConfigPNames {
      */
     public String WORKER_POOL_QUEUE_LENGTH = "worker_pool_queue_length";
 
+    /**
+     * Defines whether the messages are processed on virtual threads, where the runtime supports
+     * them, instead of the worker thread pool.
+     */
+    public String WORKER_POOL_VIRTUAL_THREADS = "worker_pool_virtual_threads";
+
+    /**
+     * Defines the maximum number of messages processed at once on virtual threads. Replaces the
+     * pool sizes and the queue length of the worker thread pool.
+     */
+    public String WORKER_POOL_CONCURRENCY = "worker_pool_concurrency";
+
     /**
      * Defines the number of IO dispatcher threads used per reactor
      */
@@ -54,6 +66,31 @@ public interface PassThroughConfigPNames {
      */
     public String IO_BUFFER_SIZE = "io_buffer_size";
 
+    /**
+     * Defines whether the IO buffers are allocated in direct memory
+     */
+    public String IO_BUFFER_DIRECT = "io_buffer_direct";
+
+    /**
+     * Defines the number of released IO buffers kept in the shared buffer pool
+     */
+    public String IO_BUFFER_POOL_SIZE = "io_buffer_pool_size";
+
+    /**
+     * Defines the number of released IO buffers kept by each thread, 0 to disable the thread caches
+     */
+    public String IO_BUFFER_POOL_THREAD_CACHE_SIZE = "io_buffer_pool_thread_cache_size";
+
+    /**
+     * Defines whether pipes relaying a message as it is swap the buffers of the producer and the consumer
+     */
+    public String PIPE_RELAY_ENABLED = "pipe_relay_enabled";
+
+    /**
+     * Defines whether the pipes synchronize their single producer and consumer without a lock
+     */
+    public String PIPE_LOCK_FREE = "pipe_lock_free";
+
 
     /**
      * Defines the maximum open connection limit.
@@ -101,6 +138,16 @@ public interface PassThroughConfigPNames {
      */
     public String MAXIMUM_CONNECTION_LIFESPAN = "transport.sender.connection.maximum.lifespan";
 
+    /**
+     * Defines whether the sender uses the lock-free connection pool
+     */
+    public String CONNECTION_POOL_LOCK_FREE = "transport.sender.connection.pool.lockfree";
+
+    /**
+     * Defines the interval in milliseconds at which the lock-free connection pool closes expired connections
+     */
+    public String CONNECTION_EVICTION_INTERVAL = "transport.sender.connection.eviction.interval";
+
 
     /**
      * Defines the maximum number of connections per host port
@@ -112,6 +159,42 @@ public interface PassThroughConfigPNames {
      */
     public String MAX_MESSAGES_PER_HOST_PORT = "http.max.messages.per.host.port";
 
+    /**
+     * Defines the maximum time in milliseconds a message can wait for a connection to the host port
+     */
+    public String MESSAGE_QUEUE_TIMEOUT = "http.message.queue.timeout";
+
+    /**
+     * Defines whether the messages rejected or timed out waiting for a connection are failed as
+     * service unavailable instead of as a connection timeout
+     */
+    public String MESSAGE_QUEUE_REJECT_UNAVAILABLE = "http.message.queue.reject.unavailable";
+
+    /**
+     * Defines whether responses are compressed for the clients accepting gzip or deflate
+     */
+    public String RESPONSE_COMPRESSION_ENABLED = "http.response.compression.enabled";
+
+    /**
+     * Defines the minimum content length of a compressed response
+     */
+    public String RESPONSE_COMPRESSION_MIN_SIZE = "http.response.compression.min.size";
+
+    /**
+     * Defines the comma separated content types of the compressed responses, e.g. text/*
+     */
+    public String RESPONSE_COMPRESSION_CONTENT_TYPES = "http.response.compression.content.types";
+
+    /**
+     * Defines the compression level, from 1 (fastest) to 9 (smallest), -1 for the default level
+     */
+    public String RESPONSE_COMPRESSION_LEVEL = "http.response.compression.level";
+
+    /**
+     * Defines whether gzip or deflate encoded requests are decompressed before sent to the back end
+     */
+    public String REQUEST_DECOMPRESSION_ENABLED = "http.request.decompression.enabled";
+
     public String TRANSPORT_LISTENER_SHUTDOWN_WAIT_TIME_SEC = "transport.listener.shutdown.wait.sec";
 
     /**
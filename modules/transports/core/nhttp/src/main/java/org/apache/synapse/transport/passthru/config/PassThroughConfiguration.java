@@ -29,6 +29,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.zip.Deflater;
 
 /**
  * This class encapsulates pass-through http transport tuning configurations specified via a
@@ -43,12 +44,19 @@ public class PassThroughConfiguration {
     private static final int DEFAULT_WORKER_POOL_SIZE_MAX        = 200;
     private static final int DEFAULT_WORKER_THREAD_KEEPALIVE_SEC = 60;
     private static final int DEFAULT_WORKER_POOL_QUEUE_LENGTH    = -1;
+    private static final int DEFAULT_WORKER_POOL_CONCURRENCY     = 1000;
     private static final int DEFAULT_IO_BUFFER_SIZE              = 8 * 1024;
+    private static final int DEFAULT_IO_BUFFER_POOL_SIZE         = 512;
+    private static final int DEFAULT_IO_BUFFER_THREAD_CACHE_SIZE = 4;
     private static final int DEFAULT_IO_THREADS_PER_REACTOR      =
                                                          Runtime.getRuntime().availableProcessors();
     private static final int DEFAULT_MAX_ACTIVE_CON = -1;
     private static final int DEFAULT_LISTENER_SHUTDOWN_WAIT_TIME = 0;
     private static final int DEFAULT_CONNECTION_GRACE_TIME = 10000;
+    private static final int DEFAULT_CONNECTION_EVICTION_INTERVAL = 5000;
+    private static final int DEFAULT_RESPONSE_COMPRESSION_MIN_SIZE = 1024;
+    private static final String DEFAULT_RESPONSE_COMPRESSION_CONTENT_TYPES =
+            "application/json,application/xml,application/soap+xml,text/*";
     private Boolean isKeepAliveDisabled = null;
 
     //additional rest dispatch handlers
@@ -101,6 +109,15 @@ public class PassThroughConfiguration {
                 DEFAULT_WORKER_POOL_QUEUE_LENGTH);
     }
 
+    public boolean isWorkerPoolVirtualThreads() {
+        return getBooleanProperty(PassThroughConfigPNames.WORKER_POOL_VIRTUAL_THREADS, false);
+    }
+
+    public int getWorkerPoolConcurrency() {
+        return getIntProperty(PassThroughConfigPNames.WORKER_POOL_CONCURRENCY,
+                DEFAULT_WORKER_POOL_CONCURRENCY);
+    }
+
     public int getIOThreadsPerReactor() {
         return getIntProperty(PassThroughConfigPNames.IO_THREADS_PER_REACTOR,
                 DEFAULT_IO_THREADS_PER_REACTOR);
@@ -111,6 +128,57 @@ public class PassThroughConfiguration {
                 DEFAULT_IO_BUFFER_SIZE);
     }
 
+    public boolean isIOBufferDirect() {
+        return getBooleanProperty(PassThroughConfigPNames.IO_BUFFER_DIRECT, false);
+    }
+
+    public int getIOBufferPoolSize() {
+        return getIntProperty(PassThroughConfigPNames.IO_BUFFER_POOL_SIZE, DEFAULT_IO_BUFFER_POOL_SIZE);
+    }
+
+    public int getIOBufferPoolThreadCacheSize() {
+        return getIntProperty(PassThroughConfigPNames.IO_BUFFER_POOL_THREAD_CACHE_SIZE,
+                DEFAULT_IO_BUFFER_THREAD_CACHE_SIZE);
+    }
+
+    public boolean isPipeRelayEnabled() {
+        return getBooleanProperty(PassThroughConfigPNames.PIPE_RELAY_ENABLED, false);
+    }
+
+    public boolean isLockFreePipeEnabled() {
+        return getBooleanProperty(PassThroughConfigPNames.PIPE_LOCK_FREE, false);
+    }
+
+    public int getMessageQueueTimeout() {
+        return getIntProperty(PassThroughConfigPNames.MESSAGE_QUEUE_TIMEOUT, 0);
+    }
+
+    public boolean isMessageQueueRejectUnavailable() {
+        return getBooleanProperty(PassThroughConfigPNames.MESSAGE_QUEUE_REJECT_UNAVAILABLE, false);
+    }
+
+    public boolean isResponseCompressionEnabled() {
+        return getBooleanProperty(PassThroughConfigPNames.RESPONSE_COMPRESSION_ENABLED, false);
+    }
+
+    public int getResponseCompressionMinSize() {
+        return getIntProperty(PassThroughConfigPNames.RESPONSE_COMPRESSION_MIN_SIZE,
+                DEFAULT_RESPONSE_COMPRESSION_MIN_SIZE);
+    }
+
+    public String getResponseCompressionContentTypes() {
+        return getStringProperty(PassThroughConfigPNames.RESPONSE_COMPRESSION_CONTENT_TYPES,
+                DEFAULT_RESPONSE_COMPRESSION_CONTENT_TYPES);
+    }
+
+    public int getResponseCompressionLevel() {
+        return getIntProperty(PassThroughConfigPNames.RESPONSE_COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public boolean isRequestDecompressionEnabled() {
+        return getBooleanProperty(PassThroughConfigPNames.REQUEST_DECOMPRESSION_ENABLED, false);
+    }
+
     public boolean isKeepAliveDisabled() {
         if (isKeepAliveDisabled == null) {
             isKeepAliveDisabled = getBooleanProperty(PassThroughConfigPNames.DISABLE_KEEPALIVE, false);
@@ -173,6 +241,14 @@ public class PassThroughConfiguration {
         return getIntProperty(PassThroughConfigPNames.CONNECTION_GRACE_TIME, DEFAULT_CONNECTION_GRACE_TIME);
     }
 
+    public boolean isLockFreeConnectionPoolEnabled() {
+        return getBooleanProperty(PassThroughConfigPNames.CONNECTION_POOL_LOCK_FREE, false);
+    }
+
+    public int getConnectionEvictionInterval() {
+        return getIntProperty(PassThroughConfigPNames.CONNECTION_EVICTION_INTERVAL, DEFAULT_CONNECTION_EVICTION_INTERVAL);
+    }
+
     /**
      * For the default value, grace time is reduced to avoid connection being used at the moment it is being closed
      * @return default connection idle time
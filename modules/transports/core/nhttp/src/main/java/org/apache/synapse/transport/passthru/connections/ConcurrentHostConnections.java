@@ -0,0 +1,201 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.connections;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the connections for a particular host + port without a lock. Free connections are kept
+ * in a stack, so that the most recently used, i.e. warm, connection is reused first and the
+ * others can become idle and expire. A connection is claimed by atomically removing it from the
+ * set of free connections, which makes stale entries in the stack, left behind by connections
+ * closed while they were free, harmless. The connections in use are kept in a concurrent set
+ * and the connections in use or being established are counted with an atomic counter, which is
+ * checked against the maximum size with a CAS.
+ * <p>
+ * Expired connections are still skipped when a connection is requested, but they are closed by
+ * the background evictor of {@link TargetConnections}, through
+ * {@link #closeExpiredConnections(long)}, instead of waiting for the next request of the route.
+ */
+public class ConcurrentHostConnections extends HostConnections {
+
+    private static final Log log = LogFactory.getLog(ConcurrentHostConnections.class);
+
+    /** free connections, the most recently released first, may hold stale entries */
+    private final ConcurrentLinkedDeque<NHttpClientConnection> freeStack =
+            new ConcurrentLinkedDeque<NHttpClientConnection>();
+    /** free connections */
+    private final Set<NHttpClientConnection> freeConnections =
+            ConcurrentHashMap.<NHttpClientConnection>newKeySet();
+    /** connections in use */
+    private final Set<NHttpClientConnection> busyConnections =
+            ConcurrentHashMap.<NHttpClientConnection>newKeySet();
+    /** number of connections in use or being established */
+    private final AtomicInteger leasedConnections = new AtomicInteger();
+    /** number of connections being established */
+    private final AtomicInteger pendingConnections = new AtomicInteger();
+
+    private final PassThroughTransportMetricsCollector metrics;
+
+    public ConcurrentHostConnections(HttpRoute route, int maxSize,
+                                     ConnectionTimeoutConfiguration connectionTimeoutConfiguration,
+                                     PassThroughTransportMetricsCollector metrics) {
+        super(route, maxSize, connectionTimeoutConfiguration);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public NHttpClientConnection getConnection() {
+        NHttpClientConnection conn;
+        while ((conn = freeStack.pollFirst()) != null) {
+            if (!freeConnections.remove(conn)) {
+                // closed or claimed by another thread in the meantime
+                continue;
+            }
+            if (isExpired(conn, System.currentTimeMillis())) {
+                shutdown(conn);
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Returning an existing free connection " + getRoute());
+            }
+            leasedConnections.incrementAndGet();
+            busyConnections.add(conn);
+            return conn;
+        }
+        return null;
+    }
+
+    @Override
+    public void release(NHttpClientConnection conn) {
+        prepareForReuse(conn);
+        if (busyConnections.remove(conn)) {
+            leasedConnections.decrementAndGet();
+            freeConnections.add(conn);
+            freeStack.offerFirst(conn);
+        } else {
+            log.error("Attempted to releaseConnection connection not in the busy list");
+        }
+    }
+
+    @Override
+    public void forget(NHttpClientConnection conn) {
+        // the entry left in the stack is skipped when it is reached
+        if (!freeConnections.remove(conn) && busyConnections.remove(conn)) {
+            leasedConnections.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void addConnection(NHttpClientConnection conn) {
+        if (log.isDebugEnabled()) {
+            log.debug("New connection " + getRoute() + " is added to the free list");
+        }
+        // a pending connection becomes a busy one, the number of leased connections is unchanged
+        pendingConnections.decrementAndGet();
+        conn.getContext().setAttribute(PassThroughConstants.CONNECTION_INIT_TIME, System.currentTimeMillis());
+        busyConnections.add(conn);
+    }
+
+    @Override
+    public void pendingConnectionSucceeded() {
+        pendingConnections.decrementAndGet();
+        leasedConnections.decrementAndGet();
+    }
+
+    @Override
+    public void pendingConnectionFailed() {
+        pendingConnections.decrementAndGet();
+        leasedConnections.decrementAndGet();
+    }
+
+    @Override
+    public boolean checkAndIncrementPendingConnections() {
+        int leased;
+        do {
+            leased = leasedConnections.get();
+            if (leased >= getMaxSize()) {
+                return false;
+            }
+        } while (!leasedConnections.compareAndSet(leased, leased + 1));
+        pendingConnections.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Close the free connections which have been idle for too long or have exceeded the maximum
+     * life span, and drop the stale entries of the stack.
+     *
+     * @param currentTime the current time
+     * @return the number of connections closed
+     */
+    public int closeExpiredConnections(long currentTime) {
+        int closed = 0;
+        Iterator<NHttpClientConnection> iterator = freeStack.iterator();
+        while (iterator.hasNext()) {
+            NHttpClientConnection conn = iterator.next();
+            if (!freeConnections.contains(conn)) {
+                iterator.remove();
+            } else if (isExpired(conn, currentTime) && freeConnections.remove(conn)) {
+                iterator.remove();
+                shutdown(conn);
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    @Override
+    public int getFreeConnectionCount() {
+        return freeConnections.size();
+    }
+
+    @Override
+    public int getBusyConnectionCount() {
+        return busyConnections.size();
+    }
+
+    @Override
+    public int getPendingConnectionCount() {
+        return pendingConnections.get();
+    }
+
+    private void shutdown(NHttpClientConnection conn) {
+        if (metrics != null) {
+            metrics.connectionEvicted();
+        }
+        try {
+            conn.shutdown();
+        } catch (IOException io) {
+            log.error("Error occurred while shutting down connection." + io.getMessage(), io);
+        }
+    }
+}
@@ -109,12 +109,7 @@ public class HostConnections {
                     log.debug("Returning an existing free connection " + route);
                 }
                 NHttpClientConnection conn = freeConnections.get(0);
-                long currentTime = System.currentTimeMillis();
-                long connectionInitTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
-                                                                                        CONNECTION_INIT_TIME);
-                long expiryTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
-                        CONNECTION_EXPIRY_TIME);
-                if (isMaximumLifeSpanExceeded(currentTime, connectionInitTime) ||  currentTime >= expiryTime ) {
+                if (isExpired(conn, System.currentTimeMillis())) {
                     freeConnections.remove(conn);
                     try {
                         conn.shutdown();
@@ -133,6 +128,21 @@ public class HostConnections {
         return null;
     }
 
+    /**
+     * Whether a free connection has been idle for too long or has exceeded the maximum life span
+     *
+     * @param conn        a free connection
+     * @param currentTime the current time
+     * @return true if the connection should not be used any more
+     */
+    protected boolean isExpired(NHttpClientConnection conn, long currentTime) {
+        long connectionInitTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
+                                                                                CONNECTION_INIT_TIME);
+        long expiryTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
+                CONNECTION_EXPIRY_TIME);
+        return isMaximumLifeSpanExceeded(currentTime, connectionInitTime) || currentTime >= expiryTime;
+    }
+
     private boolean isMaximumLifeSpanExceeded(long currentTime, long connectionInitTime) {
         if (maximumConnectionLifeSpan > 0 && currentTime > maximumConnectionLifeSpan + connectionInitTime) {
             if (log.isDebugEnabled()) {
@@ -146,14 +156,7 @@ public class HostConnections {
     }
 
     public void release(NHttpClientConnection conn) {
-        conn.getMetrics().reset();
-        HttpContext ctx = conn.getContext();
-        ctx.removeAttribute(ExecutionContext.HTTP_REQUEST);
-        ctx.removeAttribute(ExecutionContext.HTTP_RESPONSE);
-        ctx.setAttribute(PassThroughConstants.CONNECTION_EXPIRY_TIME, getExpiryTime(conn));
-        ctx.removeAttribute(SynapseHTTPRequestFactory.ENDPOINT_URL);
-        ctx.removeAttribute(PassThroughConstants.REQUEST_MESSAGE_CONTEXT);
-        ctx.removeAttribute(PassThroughConstants.RESPONSE_MESSAGE_CONTEXT);
+        prepareForReuse(conn);
         lock.lock();
         try {
             if (busyConnections.remove(conn)) {
@@ -166,6 +169,22 @@ public class HostConnections {
         }
     }
 
+    /**
+     * Clear the state of the last request from a connection being released and set its expiry time
+     *
+     * @param conn connection being released to the pool
+     */
+    protected void prepareForReuse(NHttpClientConnection conn) {
+        conn.getMetrics().reset();
+        HttpContext ctx = conn.getContext();
+        ctx.removeAttribute(ExecutionContext.HTTP_REQUEST);
+        ctx.removeAttribute(ExecutionContext.HTTP_RESPONSE);
+        ctx.setAttribute(PassThroughConstants.CONNECTION_EXPIRY_TIME, getExpiryTime(conn));
+        ctx.removeAttribute(SynapseHTTPRequestFactory.ENDPOINT_URL);
+        ctx.removeAttribute(PassThroughConstants.REQUEST_MESSAGE_CONTEXT);
+        ctx.removeAttribute(PassThroughConstants.RESPONSE_MESSAGE_CONTEXT);
+    }
+
     private long getExpiryTime(NHttpClientConnection connection) {
 
         long expiryTime = System.currentTimeMillis();
@@ -239,6 +258,49 @@ public class HostConnections {
         return route;
     }
 
+    /**
+     * @return maximum number of connections allowed for this host + port
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of connections available for reuse
+     */
+    public int getFreeConnectionCount() {
+        lock.lock();
+        try {
+            return freeConnections.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of connections in use
+     */
+    public int getBusyConnectionCount() {
+        lock.lock();
+        try {
+            return busyConnections.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of connections being established
+     */
+    public int getPendingConnectionCount() {
+        lock.lock();
+        try {
+            return pendingConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public boolean checkAndIncrementPendingConnections() {
         lock.lock();
         int totalConnections = busyConnections.size() + pendingConnections;
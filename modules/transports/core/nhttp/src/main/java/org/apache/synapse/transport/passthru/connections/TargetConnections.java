@@ -32,6 +32,7 @@ import org.apache.synapse.transport.passthru.TargetErrorHandler;
 import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -39,6 +40,10 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the connection from transport to the back end servers. It keeps track of the
@@ -65,6 +70,15 @@ public class TargetConnections {
 
     private ConnectionTimeoutConfiguration connectionTimeoutConfiguration;
 
+    /** whether the lock-free connection pools are used */
+    private final boolean lockFreePool;
+
+    /** metrics collector of the sender */
+    private final PassThroughTransportMetricsCollector metrics;
+
+    /** closes the expired connections of the lock-free connection pools */
+    private ScheduledExecutorService evictor;
+
     /**
      * Create a TargetConnections with the given IO-Reactor
      *
@@ -83,6 +97,88 @@ public class TargetConnections {
         connectionTimeoutConfiguration = new ConnectionTimeoutConfiguration(PassThroughConfiguration.getInstance().
                 getConnectionIdleTime(), PassThroughConfiguration.getInstance().getMaximumConnectionLifespan(),
                 PassThroughConfiguration.getInstance().getConnectionGraceTime());
+
+        this.metrics = targetConfiguration.getMetrics();
+        this.lockFreePool = PassThroughConfiguration.getInstance().isLockFreeConnectionPoolEnabled();
+        if (lockFreePool) {
+            startEvictor(PassThroughConfiguration.getInstance().getConnectionEvictionInterval());
+        }
+        if (metrics != null) {
+            metrics.setConnectionPool(this);
+        }
+    }
+
+    private void startEvictor(long interval) {
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PassThroughConnectionEvictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    closeExpiredConnections();
+                } catch (Throwable t) {
+                    log.error("Error while closing the expired connections", t);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeExpiredConnections() {
+        long currentTime = System.currentTimeMillis();
+        for (HostConnections pool : poolMap.values()) {
+            if (pool instanceof ConcurrentHostConnections) {
+                int closed = ((ConcurrentHostConnections) pool).closeExpiredConnections(currentTime);
+                if (closed > 0 && log.isDebugEnabled()) {
+                    log.debug("Closed " + closed + " expired connections of " + pool.getRoute());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop closing the expired connections in the background.
+     */
+    public void destroy() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return number of pooled connections available for reuse, over all the routes
+     */
+    public int getFreeConnectionCount() {
+        int count = 0;
+        for (HostConnections pool : poolMap.values()) {
+            count += pool.getFreeConnectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of pooled connections in use, over all the routes
+     */
+    public int getBusyConnectionCount() {
+        int count = 0;
+        for (HostConnections pool : poolMap.values()) {
+            count += pool.getBusyConnectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of connections being established, over all the routes
+     */
+    public int getPendingConnectionCount() {
+        int count = 0;
+        for (HostConnections pool : poolMap.values()) {
+            count += pool.getPendingConnectionCount();
+        }
+        return count;
     }
 
     /**
@@ -214,11 +310,20 @@ public class TargetConnections {
 
     private HostConnections getConnectionPool(HttpRoute route) {
         // see weather a pool already exists for this host:port
+        HostConnections pool = poolMap.get(route);
+        if (pool != null) {
+            return pool;
+        }
         synchronized (poolMap) {
-            HostConnections pool = poolMap.get(route);
+            pool = poolMap.get(route);
 
             if (pool == null) {
-                pool = new HostConnections(route, maxConnections, connectionTimeoutConfiguration);
+                if (lockFreePool) {
+                    pool = new ConcurrentHostConnections(route, maxConnections, connectionTimeoutConfiguration,
+                            metrics);
+                } else {
+                    pool = new HostConnections(route, maxConnections, connectionTimeoutConfiguration);
+                }
                 poolMap.put(route, pool);
             }
             return pool;
@@ -0,0 +1,81 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.jmx;
+
+import org.apache.axis2.AxisFault;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+
+/**
+ * BufferPoolView MBean exposes the usage of the IO buffer pool of a pass-through listener or
+ * sender. A growing number of outstanding buffers while the load is steady points to buffers
+ * which are never released, and duplicate releases to buffers released by more than one pipe.
+ */
+public class BufferPoolView implements BufferPoolViewMBean {
+
+    private static final String PASS_THROUGH_BUFFER_POOL = "PassThroughBufferPool";
+
+    private BufferFactory bufferFactory;
+
+    private String name;
+
+    public BufferPoolView(String name, BufferFactory bufferFactory) throws AxisFault {
+        this.name = name;
+        this.bufferFactory = bufferFactory;
+        MBeanRegistrar.getInstance().registerMBean(this, PASS_THROUGH_BUFFER_POOL, name);
+    }
+
+    public void destroy() {
+        MBeanRegistrar.getInstance().unRegisterMBean(PASS_THROUGH_BUFFER_POOL, name);
+    }
+
+    public long getHits() {
+        return bufferFactory.getHits();
+    }
+
+    public long getMisses() {
+        return bufferFactory.getMisses();
+    }
+
+    public long getOutstandingBuffers() {
+        return bufferFactory.getOutstandingBuffers();
+    }
+
+    public int getPooledBuffers() {
+        return bufferFactory.getPooledBuffers();
+    }
+
+    public long getDuplicateReleases() {
+        return bufferFactory.getDuplicateReleases();
+    }
+
+    public long getDiscardedBuffers() {
+        return bufferFactory.getDiscardedBuffers();
+    }
+
+    public int getBufferSize() {
+        return bufferFactory.getBufferSize();
+    }
+
+    public boolean isDirect() {
+        return bufferFactory.isDirect();
+    }
+
+    public void reset() {
+        bufferFactory.resetStatistics();
+    }
+}
@@ -20,12 +20,19 @@
 package org.apache.synapse.transport.passthru.jmx;
 
 import org.apache.axis2.AxisFault;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.synapse.transport.passthru.DeliveryAgent;
+import org.apache.synapse.transport.passthru.RouteQueue;
+import org.apache.synapse.transport.passthru.connections.TargetConnections;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ConnectionsView MBean can be used to collect and monitor statistics on HTTP connections
@@ -35,7 +42,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * the last 24 hours of execution and they get updated every 5 minutes.  In addition to the
  * connection statistics this MBean also provides information on the request and response
  * sizes received over the HTTP connections. All messages are divided into six categories
- * based on their sizes and the resulting counts are made available as a table.
+ * based on their sizes and the resulting counts are made available as a table. For the
+ * sender, the percentiles of the back end latency, i.e. the time from sending a request to
+ * receiving the response headers, are made available by route as well.
  */
 public class ConnectionsView implements ConnectionsViewMBean {
 
@@ -67,6 +76,22 @@ public class ConnectionsView implements ConnectionsViewMBean {
     private AtomicInteger[] requestSizeCounters = new AtomicInteger[6];
     private AtomicInteger[] responseSizeCounters = new AtomicInteger[6];
 
+    // Connection pool of the sender, null for the listener
+    private volatile TargetConnections connectionPool;
+
+    private volatile DeliveryAgent deliveryAgent;
+
+    // Time messages have waited for a connection to the back end
+    private AtomicLong connectionWaitCount = new AtomicLong(0);
+    private AtomicLong totalConnectionWaitTime = new AtomicLong(0);
+    private AtomicLong maxConnectionWaitTime = new AtomicLong(0);
+
+    private AtomicLong evictedConnections = new AtomicLong(0);
+
+    // Back end latencies by route, recorded from the I/O reactor threads
+    private final ConcurrentMap<String,LatencyHistogram> backendLatencies =
+            new ConcurrentHashMap<String,LatencyHistogram>();
+
     private Date resetTime = Calendar.getInstance().getTime();
 
     private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
@@ -155,6 +180,49 @@ public class ConnectionsView implements ConnectionsViewMBean {
         return unservedRequests.get();
     }
 
+    protected void setConnectionPool(TargetConnections connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    protected void setDeliveryAgent(DeliveryAgent deliveryAgent) {
+        this.deliveryAgent = deliveryAgent;
+    }
+
+    protected void connectionAcquired(long waitTime) {
+        connectionWaitCount.incrementAndGet();
+        totalConnectionWaitTime.addAndGet(waitTime);
+        long max = maxConnectionWaitTime.get();
+        while (waitTime > max && !maxConnectionWaitTime.compareAndSet(max, waitTime)) {
+            max = maxConnectionWaitTime.get();
+        }
+    }
+
+    protected void connectionEvicted() {
+        evictedConnections.incrementAndGet();
+    }
+
+    protected void notifyBackendLatency(HttpRoute route, long latency) {
+        String key = route.toString();
+        LatencyHistogram histogram = backendLatencies.get(key);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = backendLatencies.putIfAbsent(key, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        histogram.record(latency);
+    }
+
+    protected Map<String,LatencyHistogram.Snapshot> getBackendLatencySnapshots(boolean reset) {
+        Map<String,LatencyHistogram.Snapshot> snapshots = new TreeMap<String,LatencyHistogram.Snapshot>();
+        for (Map.Entry<String,LatencyHistogram> entry : backendLatencies.entrySet()) {
+            snapshots.put(entry.getKey(), reset ? entry.getValue().getSnapshotAndReset() :
+                    entry.getValue().getSnapshot());
+        }
+        return snapshots;
+    }
+
     protected void notifyMessageSize(long size, boolean isRequest) {
         // This logic gets executed for each and every transaction. For a typical
         // mediation scenario this method will be called 4 times. Therefore I'm using
@@ -219,6 +287,115 @@ public class ConnectionsView implements ConnectionsViewMBean {
         return resetTime;
     }
 
+    public int getPooledFreeConnections() {
+        TargetConnections pool = connectionPool;
+        return pool != null ? pool.getFreeConnectionCount() : 0;
+    }
+
+    public int getPooledBusyConnections() {
+        TargetConnections pool = connectionPool;
+        return pool != null ? pool.getBusyConnectionCount() : 0;
+    }
+
+    public int getPendingConnections() {
+        TargetConnections pool = connectionPool;
+        return pool != null ? pool.getPendingConnectionCount() : 0;
+    }
+
+    public long getConnectionWaitCount() {
+        return connectionWaitCount.get();
+    }
+
+    public double getAverageConnectionWaitTime() {
+        long count = connectionWaitCount.get();
+        return count > 0 ? (double) totalConnectionWaitTime.get() / count : 0;
+    }
+
+    public long getMaxConnectionWaitTime() {
+        return maxConnectionWaitTime.get();
+    }
+
+    public long getEvictedConnections() {
+        return evictedConnections.get();
+    }
+
+    public Map getQueuedMessagesMap() {
+        Map<String,Integer> map = new TreeMap<String,Integer>();
+        for (Map.Entry<HttpRoute,RouteQueue> entry : getRouteQueues().entrySet()) {
+            map.put(entry.getKey().toString(), entry.getValue().size());
+        }
+        return map;
+    }
+
+    public Map getAverageQueueWaitTimeMap() {
+        Map<String,Double> map = new TreeMap<String,Double>();
+        for (Map.Entry<HttpRoute,RouteQueue> entry : getRouteQueues().entrySet()) {
+            map.put(entry.getKey().toString(), entry.getValue().getAverageWaitTime());
+        }
+        return map;
+    }
+
+    public Map getMaxQueueWaitTimeMap() {
+        Map<String,Long> map = new TreeMap<String,Long>();
+        for (Map.Entry<HttpRoute,RouteQueue> entry : getRouteQueues().entrySet()) {
+            map.put(entry.getKey().toString(), entry.getValue().getMaxWaitTime());
+        }
+        return map;
+    }
+
+    public Map getRejectedMessagesMap() {
+        Map<String,Long> map = new TreeMap<String,Long>();
+        for (Map.Entry<HttpRoute,RouteQueue> entry : getRouteQueues().entrySet()) {
+            map.put(entry.getKey().toString(), entry.getValue().getRejectedMessages());
+        }
+        return map;
+    }
+
+    public Map getExpiredMessagesMap() {
+        Map<String,Long> map = new TreeMap<String,Long>();
+        for (Map.Entry<HttpRoute,RouteQueue> entry : getRouteQueues().entrySet()) {
+            map.put(entry.getKey().toString(), entry.getValue().getExpiredMessages());
+        }
+        return map;
+    }
+
+    public Map getP50BackendLatencyMap() {
+        return getBackendLatencyMap(50);
+    }
+
+    public Map getP90BackendLatencyMap() {
+        return getBackendLatencyMap(90);
+    }
+
+    public Map getP99BackendLatencyMap() {
+        return getBackendLatencyMap(99);
+    }
+
+    public Map getP999BackendLatencyMap() {
+        return getBackendLatencyMap(99.9);
+    }
+
+    public Map getMaxBackendLatencyMap() {
+        Map<String,Long> map = new TreeMap<String,Long>();
+        for (Map.Entry<String,LatencyHistogram> entry : backendLatencies.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().getMax());
+        }
+        return map;
+    }
+
+    private Map<String,Long> getBackendLatencyMap(double percentile) {
+        Map<String,Long> map = new TreeMap<String,Long>();
+        for (Map.Entry<String,LatencyHistogram> entry : backendLatencies.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().getSnapshot().getValueAtPercentile(percentile));
+        }
+        return map;
+    }
+
+    private Map<HttpRoute,RouteQueue> getRouteQueues() {
+        DeliveryAgent agent = deliveryAgent;
+        return agent != null ? agent.getQueues() : Collections.<HttpRoute,RouteQueue>emptyMap();
+    }
+
     private Map<String,Integer> getCountersMap(AtomicInteger[] counters) {
         // This ensures that keys are returned in the same order we insert them
         // Provides better readability in the JMX consoles
@@ -237,6 +414,16 @@ public class ConnectionsView implements ConnectionsViewMBean {
         initCounters(responseSizeCounters);
         shortTermDataQueue.clear();
         longTermDataQueue.clear();
+        connectionWaitCount.set(0);
+        totalConnectionWaitTime.set(0);
+        maxConnectionWaitTime.set(0);
+        evictedConnections.set(0);
+        for (RouteQueue queue : getRouteQueues().values()) {
+            queue.resetStatistics();
+        }
+        for (LatencyHistogram histogram : backendLatencies.values()) {
+            histogram.reset();
+        }
         resetTime = Calendar.getInstance().getTime();
     }
 
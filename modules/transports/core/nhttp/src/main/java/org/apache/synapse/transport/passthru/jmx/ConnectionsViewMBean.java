@@ -34,6 +34,23 @@ public interface ConnectionsViewMBean {
     public Map getRequestSizesMap();
     public Map getResponseSizesMap();
     public Date getLastResetTime();
+    public int getPooledFreeConnections();
+    public int getPooledBusyConnections();
+    public int getPendingConnections();
+    public long getConnectionWaitCount();
+    public double getAverageConnectionWaitTime();
+    public long getMaxConnectionWaitTime();
+    public long getEvictedConnections();
+    public Map getQueuedMessagesMap();
+    public Map getAverageQueueWaitTimeMap();
+    public Map getMaxQueueWaitTimeMap();
+    public Map getRejectedMessagesMap();
+    public Map getExpiredMessagesMap();
+    public Map getP50BackendLatencyMap();
+    public Map getP90BackendLatencyMap();
+    public Map getP99BackendLatencyMap();
+    public Map getP999BackendLatencyMap();
+    public Map getMaxBackendLatencyMap();
 
     public void reset();
 
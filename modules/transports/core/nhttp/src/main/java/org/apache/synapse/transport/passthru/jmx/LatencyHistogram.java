@@ -0,0 +1,198 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.transport.passthru.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with log-linear buckets, in the manner of an HDR histogram. Values below
+ * {@link #SUB_BUCKET_COUNT} have a bucket each, larger values share a bucket with the values of
+ * the same magnitude differing in the lower bits only, so that any recorded value is reported
+ * within about 3% of itself, whatever its magnitude.
+ * <p>
+ * Recording a value is a single atomic increment plus, for a new maximum, a CAS. There are no
+ * locks, so latencies can be recorded from the I/O reactor threads. Percentiles are computed on
+ * a {@link Snapshot}, which copies the counts and can reset them at the same time; a value
+ * recorded during the copy goes into this snapshot or the next one, but is never lost.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    /** Values of this many bits or more are counted in the last bucket */
+    private static final int MAX_VALUE_BITS = 40;
+
+    private static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param value latency, negative values being counted as zero
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        long currentMax;
+        while ((currentMax = max.get()) < value && !max.compareAndSet(currentMax, value)) {
+            // retry until the maximum covers this value
+        }
+    }
+
+    /**
+     * @return highest value recorded since the last reset
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return a snapshot of the values recorded so far
+     */
+    public Snapshot getSnapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, max.get());
+    }
+
+    /**
+     * @return a snapshot of the values recorded since the previous reset, starting over
+     */
+    public Snapshot getSnapshotAndReset() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(copy, max.getAndSet(0));
+    }
+
+    public void reset() {
+        getSnapshotAndReset();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude >= MAX_VALUE_BITS) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT
+                + (int) (value >> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * @return the highest value counted in the given bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * The counts of a histogram at a point in time.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long max;
+
+        private final long count;
+
+        private Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            this.max = max;
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            this.count = total;
+        }
+
+        /**
+         * @return number of values in this snapshot
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return highest value in this snapshot
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the value below or at which the given percentage of the values in this
+         * snapshot are. The value returned is the highest value of the bucket the percentile
+         * falls in, but never more than the maximum.
+         *
+         * @param percentile percentile, between 0 and 100
+         * @return value at the percentile, 0 for an empty snapshot
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count);
+            rank = Math.max(rank, 1);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @param other another snapshot
+         * @return a snapshot holding the values of this and the other snapshot
+         */
+        public Snapshot merge(Snapshot other) {
+            long[] merged = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                merged[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(merged, Math.max(max, other.max));
+        }
+    }
+}
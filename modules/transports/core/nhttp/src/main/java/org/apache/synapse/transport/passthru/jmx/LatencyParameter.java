@@ -52,6 +52,11 @@ public class LatencyParameter {
      */
     private Queue<Long> longTermCache;
 
+    /**
+     * Histogram of all latency values reported since the last reset, for the percentiles
+     */
+    private LatencyHistogram histogram;
+
     private double allTimeAverage = 0.0;
 
     private int count = 0;
@@ -73,6 +78,7 @@ public class LatencyParameter {
         cache = new ConcurrentLinkedQueue<Long>();
         shortTermCache = new LinkedList<Long>();
         longTermCache = new LinkedList<Long>();
+        histogram = new LatencyHistogram();
     }
 
     /**
@@ -84,6 +90,7 @@ public class LatencyParameter {
         }
         lastValue.set(0);
         cache.clear();
+        histogram.reset();
         synchronized (shortTermCacheLock) {
             shortTermCache.clear();
         }
@@ -129,6 +136,33 @@ public class LatencyParameter {
         }
         lastValue.set(value);
         cache.offer(lastValue.get());
+        histogram.record(value);
+    }
+
+    /**
+     * @param percentile percentile, between 0 and 100
+     * @return latency at the given percentile of the values reported since the last reset
+     */
+    public long getPercentile(double percentile) {
+        return enabled ? histogram.getSnapshot().getValueAtPercentile(percentile) : 0L;
+    }
+
+    /**
+     * @return maximum latency reported since the last reset
+     */
+    public long getMax() {
+        return enabled ? histogram.getMax() : 0L;
+    }
+
+    /**
+     * @param reset whether to start over with the latencies reported from now on
+     * @return snapshot of the latencies reported since the last reset, null if not enabled
+     */
+    public LatencyHistogram.Snapshot getSnapshot(boolean reset) {
+        if (!enabled) {
+            return null;
+        }
+        return reset ? histogram.getSnapshotAndReset() : histogram.getSnapshot();
     }
 
     private void updateCacheQueue() {
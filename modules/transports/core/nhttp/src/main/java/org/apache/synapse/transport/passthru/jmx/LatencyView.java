@@ -24,7 +24,9 @@ import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -53,6 +55,10 @@ import java.util.concurrent.TimeUnit;
  *    Latency = (t4 - t1) - (t3 - t2)
  * </p>
  *
+ * <p>Besides the averages, every latency is recorded in a {@link LatencyHistogram}, from which
+ * the 50th, 90th, 99th and 99.9th percentiles and the maximum since the last reset are
+ * reported, so that the tail latencies are not hidden by the averages.</p>
+ *
  */
 public class LatencyView implements LatencyViewMBean {
 
@@ -470,6 +476,237 @@ public class LatencyView implements LatencyViewMBean {
         return responseMediationLatency.getAverageLatency24h();
     }
 
+    public long getP50_Latency() {
+        return lastLatency.getPercentile(50);
+    }
+
+    public long getP50_Latency_BackEnd() {
+        return lastLatencyBe.getPercentile(50);
+    }
+
+    public long getP50_Client_To_Esb_RequestReadTime() {
+        return serverDecodeLatency.getPercentile(50);
+    }
+
+    public long getP50_Esb_To_BackEnd_RequestWriteTime() {
+        return clientEncodeLatency.getPercentile(50);
+    }
+
+    public long getP50_BackEnd_To_Esb_ResponseReadTime() {
+        return clientDecodeLatency.getPercentile(50);
+    }
+
+    public long getP50_Esb_To_Client_ResponseWriteTime() {
+        return serverEncodeLatency.getPercentile(50);
+    }
+
+    public long getP50_ServerWorker_QueuedTime() {
+        return serverWorkerWaitTime.getPercentile(50);
+    }
+
+    public long getP50_ClientWorker_QueuedTime() {
+        return clientWorkerWaitTime.getPercentile(50);
+    }
+
+    public long getP50_request_Mediation_Latency() {
+        return requestMediationLatency.getPercentile(50);
+    }
+
+    public long getP50_response_Mediation_Latency() {
+        return responseMediationLatency.getPercentile(50);
+    }
+
+    public long getP90_Latency() {
+        return lastLatency.getPercentile(90);
+    }
+
+    public long getP90_Latency_BackEnd() {
+        return lastLatencyBe.getPercentile(90);
+    }
+
+    public long getP90_Client_To_Esb_RequestReadTime() {
+        return serverDecodeLatency.getPercentile(90);
+    }
+
+    public long getP90_Esb_To_BackEnd_RequestWriteTime() {
+        return clientEncodeLatency.getPercentile(90);
+    }
+
+    public long getP90_BackEnd_To_Esb_ResponseReadTime() {
+        return clientDecodeLatency.getPercentile(90);
+    }
+
+    public long getP90_Esb_To_Client_ResponseWriteTime() {
+        return serverEncodeLatency.getPercentile(90);
+    }
+
+    public long getP90_ServerWorker_QueuedTime() {
+        return serverWorkerWaitTime.getPercentile(90);
+    }
+
+    public long getP90_ClientWorker_QueuedTime() {
+        return clientWorkerWaitTime.getPercentile(90);
+    }
+
+    public long getP90_request_Mediation_Latency() {
+        return requestMediationLatency.getPercentile(90);
+    }
+
+    public long getP90_response_Mediation_Latency() {
+        return responseMediationLatency.getPercentile(90);
+    }
+
+    public long getP99_Latency() {
+        return lastLatency.getPercentile(99);
+    }
+
+    public long getP99_Latency_BackEnd() {
+        return lastLatencyBe.getPercentile(99);
+    }
+
+    public long getP99_Client_To_Esb_RequestReadTime() {
+        return serverDecodeLatency.getPercentile(99);
+    }
+
+    public long getP99_Esb_To_BackEnd_RequestWriteTime() {
+        return clientEncodeLatency.getPercentile(99);
+    }
+
+    public long getP99_BackEnd_To_Esb_ResponseReadTime() {
+        return clientDecodeLatency.getPercentile(99);
+    }
+
+    public long getP99_Esb_To_Client_ResponseWriteTime() {
+        return serverEncodeLatency.getPercentile(99);
+    }
+
+    public long getP99_ServerWorker_QueuedTime() {
+        return serverWorkerWaitTime.getPercentile(99);
+    }
+
+    public long getP99_ClientWorker_QueuedTime() {
+        return clientWorkerWaitTime.getPercentile(99);
+    }
+
+    public long getP99_request_Mediation_Latency() {
+        return requestMediationLatency.getPercentile(99);
+    }
+
+    public long getP99_response_Mediation_Latency() {
+        return responseMediationLatency.getPercentile(99);
+    }
+
+    public long getP999_Latency() {
+        return lastLatency.getPercentile(99.9);
+    }
+
+    public long getP999_Latency_BackEnd() {
+        return lastLatencyBe.getPercentile(99.9);
+    }
+
+    public long getP999_Client_To_Esb_RequestReadTime() {
+        return serverDecodeLatency.getPercentile(99.9);
+    }
+
+    public long getP999_Esb_To_BackEnd_RequestWriteTime() {
+        return clientEncodeLatency.getPercentile(99.9);
+    }
+
+    public long getP999_BackEnd_To_Esb_ResponseReadTime() {
+        return clientDecodeLatency.getPercentile(99.9);
+    }
+
+    public long getP999_Esb_To_Client_ResponseWriteTime() {
+        return serverEncodeLatency.getPercentile(99.9);
+    }
+
+    public long getP999_ServerWorker_QueuedTime() {
+        return serverWorkerWaitTime.getPercentile(99.9);
+    }
+
+    public long getP999_ClientWorker_QueuedTime() {
+        return clientWorkerWaitTime.getPercentile(99.9);
+    }
+
+    public long getP999_request_Mediation_Latency() {
+        return requestMediationLatency.getPercentile(99.9);
+    }
+
+    public long getP999_response_Mediation_Latency() {
+        return responseMediationLatency.getPercentile(99.9);
+    }
+
+    public long getMax_Latency() {
+        return lastLatency.getMax();
+    }
+
+    public long getMax_Latency_BackEnd() {
+        return lastLatencyBe.getMax();
+    }
+
+    public long getMax_Client_To_Esb_RequestReadTime() {
+        return serverDecodeLatency.getMax();
+    }
+
+    public long getMax_Esb_To_BackEnd_RequestWriteTime() {
+        return clientEncodeLatency.getMax();
+    }
+
+    public long getMax_BackEnd_To_Esb_ResponseReadTime() {
+        return clientDecodeLatency.getMax();
+    }
+
+    public long getMax_Esb_To_Client_ResponseWriteTime() {
+        return serverEncodeLatency.getMax();
+    }
+
+    public long getMax_ServerWorker_QueuedTime() {
+        return serverWorkerWaitTime.getMax();
+    }
+
+    public long getMax_ClientWorker_QueuedTime() {
+        return clientWorkerWaitTime.getMax();
+    }
+
+    public long getMax_request_Mediation_Latency() {
+        return requestMediationLatency.getMax();
+    }
+
+    public long getMax_response_Mediation_Latency() {
+        return responseMediationLatency.getMax();
+    }
+
+    /**
+     * Returns the histograms of the latencies reported since the last reset, optionally
+     * starting over without resetting the averages. Meant for collectors polling the
+     * percentiles over fixed intervals.
+     *
+     * @param reset whether to reset the histograms
+     * @return the histogram snapshots by latency name, for the latencies being recorded
+     */
+    public Map<String, LatencyHistogram.Snapshot> getSnapshots(boolean reset) {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<String, LatencyHistogram.Snapshot>();
+        addSnapshot(snapshots, "Latency", lastLatency, reset);
+        addSnapshot(snapshots, "Latency_BackEnd", lastLatencyBe, reset);
+        addSnapshot(snapshots, "Client_To_Esb_RequestReadTime", serverDecodeLatency, reset);
+        addSnapshot(snapshots, "Esb_To_BackEnd_RequestWriteTime", clientEncodeLatency, reset);
+        addSnapshot(snapshots, "BackEnd_To_Esb_ResponseReadTime", clientDecodeLatency, reset);
+        addSnapshot(snapshots, "Esb_To_Client_ResponseWriteTime", serverEncodeLatency, reset);
+        addSnapshot(snapshots, "ServerWorker_QueuedTime", serverWorkerWaitTime, reset);
+        addSnapshot(snapshots, "ClientWorker_QueuedTime", clientWorkerWaitTime, reset);
+        addSnapshot(snapshots, "request_Mediation_Latency", requestMediationLatency, reset);
+        addSnapshot(snapshots, "response_Mediation_Latency", responseMediationLatency, reset);
+        return snapshots;
+    }
+
+    private void addSnapshot(Map<String, LatencyHistogram.Snapshot> snapshots, String name,
+                             LatencyParameter latency, boolean reset) {
+        LatencyHistogram.Snapshot snapshot = latency.getSnapshot(reset);
+        if (snapshot != null) {
+            snapshots.put(name, snapshot);
+        }
+    }
+
     public void reset() {
         for (LatencyParameter latency : latencies) {
             latency.reset();
@@ -112,6 +112,66 @@ public interface LatencyViewMBean {
     public double get24h_Avg_request_Mediation_Latency();
     public double get24h_Avg_response_Mediation_Latency();
 
+    /** 50th percentiles since the last reset **/
+    public long getP50_Latency();
+    public long getP50_Latency_BackEnd();
+    public long getP50_Client_To_Esb_RequestReadTime();
+    public long getP50_Esb_To_BackEnd_RequestWriteTime();
+    public long getP50_BackEnd_To_Esb_ResponseReadTime();
+    public long getP50_Esb_To_Client_ResponseWriteTime();
+    public long getP50_ServerWorker_QueuedTime();
+    public long getP50_ClientWorker_QueuedTime();
+    public long getP50_request_Mediation_Latency();
+    public long getP50_response_Mediation_Latency();
+
+    /** 90th percentiles since the last reset **/
+    public long getP90_Latency();
+    public long getP90_Latency_BackEnd();
+    public long getP90_Client_To_Esb_RequestReadTime();
+    public long getP90_Esb_To_BackEnd_RequestWriteTime();
+    public long getP90_BackEnd_To_Esb_ResponseReadTime();
+    public long getP90_Esb_To_Client_ResponseWriteTime();
+    public long getP90_ServerWorker_QueuedTime();
+    public long getP90_ClientWorker_QueuedTime();
+    public long getP90_request_Mediation_Latency();
+    public long getP90_response_Mediation_Latency();
+
+    /** 99th percentiles since the last reset **/
+    public long getP99_Latency();
+    public long getP99_Latency_BackEnd();
+    public long getP99_Client_To_Esb_RequestReadTime();
+    public long getP99_Esb_To_BackEnd_RequestWriteTime();
+    public long getP99_BackEnd_To_Esb_ResponseReadTime();
+    public long getP99_Esb_To_Client_ResponseWriteTime();
+    public long getP99_ServerWorker_QueuedTime();
+    public long getP99_ClientWorker_QueuedTime();
+    public long getP99_request_Mediation_Latency();
+    public long getP99_response_Mediation_Latency();
+
+    /** 99.9th percentiles since the last reset **/
+    public long getP999_Latency();
+    public long getP999_Latency_BackEnd();
+    public long getP999_Client_To_Esb_RequestReadTime();
+    public long getP999_Esb_To_BackEnd_RequestWriteTime();
+    public long getP999_BackEnd_To_Esb_ResponseReadTime();
+    public long getP999_Esb_To_Client_ResponseWriteTime();
+    public long getP999_ServerWorker_QueuedTime();
+    public long getP999_ClientWorker_QueuedTime();
+    public long getP999_request_Mediation_Latency();
+    public long getP999_response_Mediation_Latency();
+
+    /** Maximums since the last reset **/
+    public long getMax_Latency();
+    public long getMax_Latency_BackEnd();
+    public long getMax_Client_To_Esb_RequestReadTime();
+    public long getMax_Esb_To_BackEnd_RequestWriteTime();
+    public long getMax_BackEnd_To_Esb_ResponseReadTime();
+    public long getMax_Esb_To_Client_ResponseWriteTime();
+    public long getMax_ServerWorker_QueuedTime();
+    public long getMax_ClientWorker_QueuedTime();
+    public long getMax_request_Mediation_Latency();
+    public long getMax_response_Mediation_Latency();
+
     /** Reset all values **/
     public void reset();
 
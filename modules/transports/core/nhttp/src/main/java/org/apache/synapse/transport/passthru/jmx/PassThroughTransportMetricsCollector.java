@@ -21,6 +21,14 @@ package org.apache.synapse.transport.passthru.jmx;
 
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.transport.base.MetricsCollector;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.synapse.transport.passthru.DeliveryAgent;
+import org.apache.synapse.transport.passthru.connections.TargetConnections;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * <p>This simple extension of the Axis2 transport MetricsCollector implementation,
@@ -36,17 +44,29 @@ import org.apache.axis2.transport.base.MetricsCollector;
 public class PassThroughTransportMetricsCollector extends MetricsCollector {
 
     private ConnectionsView view;
+    private BufferPoolView bufferPoolView;
     private boolean listener;
+    private String name;
+
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder compressionInputBytes = new LongAdder();
+    private final LongAdder compressionOutputBytes = new LongAdder();
+    private final LongAdder compressionTime = new LongAdder();
+    private final LongAdder decompressedMessages = new LongAdder();
+    private final LongAdder decompressionTime = new LongAdder();
 
     public PassThroughTransportMetricsCollector(boolean listener, String schemeName)
             throws AxisFault {
         this.listener = listener;
-        String name = schemeName + "-" + (listener ? "listener" : "sender");
+        this.name = schemeName + "-" + (listener ? "listener" : "sender");
         this.view = new ConnectionsView(name);
     }
 
     public void destroy() {
         view.destroy();
+        if (bufferPoolView != null) {
+            bufferPoolView.destroy();
+        }
     }
 
     public void connected() {
@@ -73,6 +93,130 @@ public class PassThroughTransportMetricsCollector extends MetricsCollector {
         view.exceptionOccured();
     }
 
+    /**
+     * Set the connection pool of the sender, whose occupancy is reported by the view
+     *
+     * @param connectionPool connection pool of the sender
+     */
+    public void setConnectionPool(TargetConnections connectionPool) {
+        view.setConnectionPool(connectionPool);
+    }
+
+    /**
+     * Set the delivery agent of the sender, whose queues of waiting messages are reported by the view
+     *
+     * @param deliveryAgent delivery agent of the sender
+     */
+    public void setDeliveryAgent(DeliveryAgent deliveryAgent) {
+        view.setDeliveryAgent(deliveryAgent);
+    }
+
+    /**
+     * Set the IO buffer pool, whose usage is reported by a BufferPoolView
+     *
+     * @param bufferFactory buffer pool of the listener or the sender
+     * @throws AxisFault if the view cannot be registered
+     */
+    public void setBufferFactory(BufferFactory bufferFactory) throws AxisFault {
+        if (bufferPoolView != null) {
+            bufferPoolView.destroy();
+        }
+        bufferPoolView = new BufferPoolView(name, bufferFactory);
+    }
+
+    /**
+     * A message has got a connection to the back end
+     *
+     * @param waitTime time in milliseconds the message has waited for the connection
+     */
+    public void connectionAcquired(long waitTime) {
+        view.connectionAcquired(waitTime);
+    }
+
+    /**
+     * An idle or expired connection has been closed by the connection pool
+     */
+    public void connectionEvicted() {
+        view.connectionEvicted();
+    }
+
+    /**
+     * A response has been received from the back end
+     *
+     * @param route   route of the back end
+     * @param latency time from sending the request to receiving the response headers
+     */
+    public void notifyBackendLatency(HttpRoute route, long latency) {
+        view.notifyBackendLatency(route, latency);
+    }
+
+    /**
+     * @param reset whether to start over with the latencies reported from now on
+     * @return snapshots of the back end latencies by route
+     */
+    public Map<String, LatencyHistogram.Snapshot> getBackendLatencySnapshots(boolean reset) {
+        return view.getBackendLatencySnapshots(reset);
+    }
+
+    /**
+     * A message has been compressed while passing through
+     *
+     * @param uncompressedBytes size of the message before compression
+     * @param compressedBytes   size of the message after compression
+     * @param nanos             time spent on compression in nanoseconds
+     */
+    public void notifyCompression(long uncompressedBytes, long compressedBytes, long nanos) {
+        compressedMessages.increment();
+        compressionInputBytes.add(uncompressedBytes);
+        compressionOutputBytes.add(compressedBytes);
+        compressionTime.add(nanos);
+    }
+
+    /**
+     * A message has been decompressed while passing through
+     *
+     * @param nanos time spent on decompression in nanoseconds
+     */
+    public void notifyDecompression(long nanos) {
+        decompressedMessages.increment();
+        decompressionTime.add(nanos);
+    }
+
+    public long getCompressedMessages() {
+        return compressedMessages.sum();
+    }
+
+    /**
+     * @return total size of the compressed messages over their total size before compression
+     */
+    public double getCompressionRatio() {
+        long input = compressionInputBytes.sum();
+        return input > 0 ? (double) compressionOutputBytes.sum() / input : 0;
+    }
+
+    public long getCompressionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(compressionTime.sum());
+    }
+
+    public long getDecompressedMessages() {
+        return decompressedMessages.sum();
+    }
+
+    public long getDecompressionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(decompressionTime.sum());
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        compressedMessages.reset();
+        compressionInputBytes.reset();
+        compressionOutputBytes.reset();
+        compressionTime.reset();
+        decompressedMessages.reset();
+        decompressionTime.reset();
+    }
+
     @Override
     public void notifyReceivedMessageSize(long l) {
         super.notifyReceivedMessageSize(l);
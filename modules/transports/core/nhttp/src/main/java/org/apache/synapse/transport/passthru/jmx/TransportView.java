@@ -189,6 +189,41 @@ public class TransportView implements TransportViewMBean {
         return null;
     }
 
+    public long getCompressedMessages() {
+        if (metrics != null) {
+            return metrics.getCompressedMessages();
+        }
+        return -1;
+    }
+
+    public double getCompressionRatio() {
+        if (metrics != null) {
+            return metrics.getCompressionRatio();
+        }
+        return -1;
+    }
+
+    public long getCompressionTime() {
+        if (metrics != null) {
+            return metrics.getCompressionTime();
+        }
+        return -1;
+    }
+
+    public long getDecompressedMessages() {
+        if (metrics != null) {
+            return metrics.getDecompressedMessages();
+        }
+        return -1;
+    }
+
+    public long getDecompressionTime() {
+        if (metrics != null) {
+            return metrics.getDecompressionTime();
+        }
+        return -1;
+    }
+
     public void start() throws Exception {
         if (listener != null) {
             listener.start();
@@ -41,6 +41,11 @@ public interface TransportViewMBean {
     public int  getActiveThreadCount();
     public int getQueueSize();
     public Map getResponseCodeTable();
+    public long getCompressedMessages();
+    public double getCompressionRatio();
+    public long getCompressionTime();
+    public long getDecompressedMessages();
+    public long getDecompressionTime();
 
     // JMX Operations
     public void start() throws Exception;
@@ -16,71 +16,295 @@
 
 package org.apache.synapse.transport.passthru.util;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.http.nio.util.ByteBufferAllocator;
+import org.apache.http.nio.util.DirectByteBufferAllocator;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Pools the IO buffers of the pass-through pipes. Released buffers are first kept in a small
+ * cache of the releasing thread, which is where the next buffer is most likely requested, and
+ * then in a bounded ring shared by all the threads. Neither of them takes a lock. Buffers which
+ * do not fit in the pool are left to the garbage collector.
+ * <p>
+ * Every hand-out of a pooled byte buffer is wrapped in a new {@link ControlledByteBuffer}, which is
+ * stamped with the factory and can be released only once. A buffer released more than once, e.g.
+ * by both the source and the target side of a connection, is therefore pooled only once, even if
+ * the late release comes after the byte buffer has been handed out again, so that a byte buffer is
+ * never handed out to two pipes at the same time. Buffers handed out by another factory are not
+ * pooled.
+ */
 public class BufferFactory {
 
-    private volatile ControlledByteBuffer [] buffers;
+    private static final Log log = LogFactory.getLog(BufferFactory.class);
 
-    private volatile int marker = -1;
+    private static final int DEFAULT_THREAD_CACHE_SIZE = 4;
 
     private ByteBufferAllocator allocator = null;
 
-    private Lock lock = new ReentrantLock();
-
     private int bufferSize = 1024 * 8;
 
+    private final boolean direct;
+
+    private final BufferRing ring;
+
+    private final int threadCacheSize;
+
+    private final ThreadLocal<BufferCache> threadCache = new ThreadLocal<BufferCache>() {
+        @Override
+        protected BufferCache initialValue() {
+            return new BufferCache(threadCacheSize);
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder outstanding = new LongAdder();
+
+    private final LongAdder duplicateReleases = new LongAdder();
+
+    private final LongAdder discarded = new LongAdder();
+
     public BufferFactory(int bufferSize, ByteBufferAllocator allocator, int size) {
+        this(bufferSize, allocator, size, DEFAULT_THREAD_CACHE_SIZE);
+    }
+
+    /**
+     * @param bufferSize      size of the buffers
+     * @param allocator       allocator of new buffers, heap buffers are allocated if null
+     * @param size            number of buffers kept in the shared ring
+     * @param threadCacheSize number of buffers kept by each thread, 0 to disable the thread caches
+     */
+    public BufferFactory(int bufferSize, ByteBufferAllocator allocator, int size, int threadCacheSize) {
         this.bufferSize = bufferSize;
         if (allocator != null) {
             this.allocator = allocator;
         } else {
             this.allocator = new HeapByteBufferAllocator();
         }
+        this.direct = this.allocator instanceof DirectByteBufferAllocator;
+        this.ring = new BufferRing(Math.max(size, 1));
+        this.threadCacheSize = Math.max(threadCacheSize, 0);
+    }
 
-        buffers = new ControlledByteBuffer[size];
+    public ControlledByteBuffer getBuffer() {
+        outstanding.increment();
+        ByteBuffer byteBuffer = threadCache.get().poll();
+        if (byteBuffer == null) {
+            byteBuffer = ring.poll();
+        }
+        if (byteBuffer != null) {
+            hits.increment();
+            byteBuffer.clear();
+        } else {
+            misses.increment();
+            byteBuffer = allocator.allocate(bufferSize);
+        }
+        return new ControlledByteBuffer(byteBuffer, this);
+    }
+
+    public void release(ControlledByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (!buffer.isOwnedBy(this)) {
+            discarded.increment();
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring a buffer which was not handed out by this factory");
+            }
+            return;
+        }
+        if (!buffer.markReleased()) {
+            duplicateReleases.increment();
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring a buffer which has already been released",
+                        new IllegalStateException("Buffer released more than once"));
+            }
+            return;
+        }
+        outstanding.decrement();
+        ByteBuffer byteBuffer = buffer.getByteBuffer();
+        if (!threadCache.get().offer(byteBuffer) && !ring.offer(byteBuffer)) {
+            discarded.increment();
+        }
     }
 
+    public int getBufferSize() {
+        return bufferSize;
+    }
 
-    public ControlledByteBuffer getBuffer() {
+    public boolean isDirect() {
+        return direct;
+    }
 
-        if (marker == -1) {
-            // System.out.println("allocating marker -1");
-            return new ControlledByteBuffer(allocator.allocate(bufferSize));
-        } else {
-            try {
-                lock.lock();
-                if (marker >= 0) {
-                    // System.out.println("Returning buffer");
-                    ControlledByteBuffer controlledByteBuffer = buffers[marker];
-                    controlledByteBuffer.clear();
-                    controlledByteBuffer.forceSetInputMode();
-                    buffers[marker] = null;
-                    marker--;
-                    return controlledByteBuffer;
-                }
-            } finally {
-                lock.unlock();
+    /**
+     * @return number of buffers handed out from the pool
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of buffers allocated since the pool was empty
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of buffers handed out and not released yet
+     */
+    public long getOutstandingBuffers() {
+        return outstanding.sum();
+    }
+
+    /**
+     * @return number of buffers released more than once
+     */
+    public long getDuplicateReleases() {
+        return duplicateReleases.sum();
+    }
+
+    /**
+     * @return number of released buffers which did not fit in the pool
+     */
+    public long getDiscardedBuffers() {
+        return discarded.sum();
+    }
+
+    /**
+     * @return number of buffers in the shared ring
+     */
+    public int getPooledBuffers() {
+        return ring.size();
+    }
+
+    /**
+     * Reset the hit, miss, duplicate release and discard counters
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        duplicateReleases.reset();
+        discarded.reset();
+    }
+
+    /**
+     * The buffers kept by a thread, used by that thread only
+     */
+    private static final class BufferCache {
+
+        private final ByteBuffer[] buffers;
+
+        private int count;
+
+        private BufferCache(int size) {
+            buffers = new ByteBuffer[size];
+        }
+
+        private ByteBuffer poll() {
+            if (count == 0) {
+                return null;
             }
+            ByteBuffer buffer = buffers[--count];
+            buffers[count] = null;
+            return buffer;
         }
 
-        return new ControlledByteBuffer(allocator.allocate(bufferSize));
+        private boolean offer(ByteBuffer buffer) {
+            if (count == buffers.length) {
+                return false;
+            }
+            buffers[count++] = buffer;
+            return true;
+        }
     }
 
-    public void release(ControlledByteBuffer buffer) {
-        lock.lock();
-        try {
-            if (marker < buffers.length - 1) {
-                buffer.clear();
-                buffer.forceSetInputMode();
-                buffers[++marker] = buffer;
+    /**
+     * A bounded multi producer multi consumer ring. Each cell carries a sequence number telling
+     * whether it is ready to be written or read for the current lap, and producers and consumers
+     * claim cells by advancing their position with a CAS.
+     */
+    private static final class BufferRing {
+
+        private final AtomicReferenceArray<ByteBuffer> cells;
+
+        private final AtomicLongArray sequences;
+
+        private final int mask;
+
+        private final AtomicLong enqueuePosition = new AtomicLong();
+
+        private final AtomicLong dequeuePosition = new AtomicLong();
+
+        private BufferRing(int capacity) {
+            int size = 1;
+            while (size < capacity) {
+                size <<= 1;
+            }
+            cells = new AtomicReferenceArray<ByteBuffer>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+            mask = size - 1;
+        }
+
+        private boolean offer(ByteBuffer buffer) {
+            long position = enqueuePosition.get();
+            while (true) {
+                int index = (int) (position & mask);
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (enqueuePosition.compareAndSet(position, position + 1)) {
+                        cells.lazySet(index, buffer);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                    position = enqueuePosition.get();
+                } else if (difference < 0) {
+                    // full
+                    return false;
+                } else {
+                    position = enqueuePosition.get();
+                }
             }
-        } finally {
-            lock.unlock();
+        }
+
+        private ByteBuffer poll() {
+            long position = dequeuePosition.get();
+            while (true) {
+                int index = (int) (position & mask);
+                long difference = sequences.get(index) - (position + 1);
+                if (difference == 0) {
+                    if (dequeuePosition.compareAndSet(position, position + 1)) {
+                        ByteBuffer buffer = cells.get(index);
+                        cells.lazySet(index, null);
+                        sequences.set(index, position + mask + 1);
+                        return buffer;
+                    }
+                    position = dequeuePosition.get();
+                } else if (difference < 0) {
+                    // empty
+                    return null;
+                } else {
+                    position = dequeuePosition.get();
+                }
+            }
+        }
+
+        private int size() {
+            long size = enqueuePosition.get() - dequeuePosition.get();
+            return (int) Math.max(0, Math.min(size, mask + 1));
         }
     }
 }
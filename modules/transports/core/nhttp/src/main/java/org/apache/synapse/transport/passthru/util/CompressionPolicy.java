@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decides which messages passing through are compressed or decompressed. A response is compressed
+ * if the client accepts a supported content coding, the response is not encoded already, its
+ * content type is in the allowed list and it is not known to be smaller than the minimum size. A
+ * request is decompressed before it is sent to the back end if request decompression is enabled.
+ */
+public class CompressionPolicy {
+
+    private final boolean responseCompressionEnabled;
+
+    private final boolean requestDecompressionEnabled;
+
+    private final int minimumSize;
+
+    private final int level;
+
+    /** Allowed content types in lower case, a type ending with '/*' allows all its sub types */
+    private final List<String> contentTypes = new ArrayList<String>();
+
+    public CompressionPolicy(PassThroughConfiguration conf) {
+        this.responseCompressionEnabled = conf.isResponseCompressionEnabled();
+        this.requestDecompressionEnabled = conf.isRequestDecompressionEnabled();
+        this.minimumSize = conf.getResponseCompressionMinSize();
+        this.level = conf.getResponseCompressionLevel();
+        for (String contentType : conf.getResponseCompressionContentTypes().split(",")) {
+            if (!contentType.trim().isEmpty()) {
+                contentTypes.add(contentType.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+
+    public boolean isRequestDecompressionEnabled() {
+        return requestDecompressionEnabled;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Select the content coding to compress a response with.
+     *
+     * @param acceptEncoding  Accept-Encoding header of the request
+     * @param contentType     Content-Type header of the response
+     * @param contentEncoding Content-Encoding header of the response
+     * @param contentLength   length of the response content, -1 if not known
+     * @return the content coding, or null if the response should not be compressed
+     */
+    public String selectResponseCoding(String acceptEncoding, String contentType, String contentEncoding,
+                                       long contentLength) {
+        if (!responseCompressionEnabled || acceptEncoding == null) {
+            return null;
+        }
+        if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding.trim())) {
+            return null;
+        }
+        if (contentLength != -1 && contentLength < minimumSize) {
+            return null;
+        }
+        if (!isCompressible(contentType)) {
+            return null;
+        }
+        return negotiate(acceptEncoding);
+    }
+
+    /**
+     * Select the supported content coding preferred by the client, gzip being preferred over
+     * deflate for the same quality.
+     *
+     * @param acceptEncoding Accept-Encoding header of the request
+     * @return the content coding, or null if none of the supported ones is acceptable
+     */
+    static String negotiate(String acceptEncoding) {
+        float gzip = 0;
+        float deflate = 0;
+        float any = 0;
+        boolean gzipListed = false;
+        boolean deflateListed = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim();
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        quality = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (ContentCoding.GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                gzip = quality;
+                gzipListed = true;
+            } else if (ContentCoding.DEFLATE.equalsIgnoreCase(coding)) {
+                deflate = quality;
+                deflateListed = true;
+            } else if ("*".equals(coding)) {
+                any = quality;
+            }
+        }
+        if (!gzipListed) {
+            gzip = any;
+        }
+        if (!deflateListed) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return ContentCoding.GZIP;
+        }
+        return deflate > 0 ? ContentCoding.DEFLATE : null;
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String mediaType = contentType;
+        int index = mediaType.indexOf(';');
+        if (index != -1) {
+            mediaType = mediaType.substring(0, index);
+        }
+        mediaType = mediaType.trim().toLowerCase(Locale.ENGLISH);
+        for (String allowed : contentTypes) {
+            if (allowed.endsWith("/*")) {
+                if (mediaType.startsWith(allowed.substring(0, allowed.length() - 1))) {
+                    return true;
+                }
+            } else if (allowed.equals(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
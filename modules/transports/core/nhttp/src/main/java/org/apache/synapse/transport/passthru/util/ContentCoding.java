@@ -0,0 +1,383 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.util;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A gzip or deflate content coding applied to a stream of bytes chunk by chunk. Unlike the
+ * java.util.zip streams, a content coding never blocks for input or output: the input is given
+ * when the coding needs it and the output is taken as far as there is room for it, which lets the
+ * coding run on the IO reactor threads as the content passes through a pipe.
+ */
+public abstract class ContentCoding {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final int GZIP_TRAILER_SIZE = 8;
+
+    private final String name;
+
+    protected ContentCoding(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param coding name of the content coding
+     * @return whether the given content coding is supported
+     */
+    public static boolean isSupported(String coding) {
+        return GZIP.equalsIgnoreCase(coding) || DEFLATE.equalsIgnoreCase(coding);
+    }
+
+    /**
+     * Create a content coding compressing its input.
+     *
+     * @param coding name of the content coding, gzip or deflate
+     * @param level  compression level, from 0 to 9 or -1 for the default level
+     * @return the compressing content coding
+     */
+    public static ContentCoding createCompressor(String coding, int level) {
+        if (!isSupported(coding)) {
+            throw new IllegalArgumentException("Unsupported content coding : " + coding);
+        }
+        return new Compressor(coding, level);
+    }
+
+    /**
+     * Create a content coding decompressing its input.
+     *
+     * @param coding name of the content coding, gzip or deflate
+     * @return the decompressing content coding
+     */
+    public static ContentCoding createDecompressor(String coding) {
+        if (!isSupported(coding)) {
+            throw new IllegalArgumentException("Unsupported content coding : " + coding);
+        }
+        return new Decompressor(coding);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return whether all the input given so far has been processed, so that more can be given
+     */
+    public abstract boolean needsInput();
+
+    /**
+     * Give the next chunk of input. The array must not be modified until the input is processed.
+     *
+     * @param b   input bytes
+     * @param off offset of the input in the array
+     * @param len number of input bytes
+     */
+    public abstract void setInput(byte[] b, int off, int len);
+
+    /**
+     * Take the output available from the input given so far.
+     *
+     * @param b   array to copy the output to
+     * @param off offset in the array
+     * @param len maximum number of bytes to copy
+     * @return number of bytes copied, 0 if more input is needed or the coding is finished
+     * @throws IOException if the input is not valid for this coding
+     */
+    public abstract int getOutput(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Signal the end of the input.
+     */
+    public abstract void finish();
+
+    /**
+     * @return whether all the output has been taken after the end of the input
+     */
+    public abstract boolean isFinished();
+
+    /**
+     * Release the native resources of the coding.
+     */
+    public abstract void end();
+
+    private static final class Compressor extends ContentCoding {
+
+        private final Deflater deflater;
+
+        private final CRC32 crc;
+
+        private int headerPosition;
+
+        private byte[] trailer;
+
+        private int trailerPosition;
+
+        private Compressor(String coding, int level) {
+            super(coding);
+            boolean gzip = GZIP.equalsIgnoreCase(coding);
+            this.deflater = new Deflater(level, gzip);
+            this.crc = gzip ? new CRC32() : null;
+            this.headerPosition = gzip ? 0 : GZIP_HEADER.length;
+        }
+
+        public boolean needsInput() {
+            return deflater.needsInput();
+        }
+
+        public void setInput(byte[] b, int off, int len) {
+            deflater.setInput(b, off, len);
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+        }
+
+        public int getOutput(byte[] b, int off, int len) {
+            int count = 0;
+            if (headerPosition < GZIP_HEADER.length) {
+                int n = Math.min(len, GZIP_HEADER.length - headerPosition);
+                System.arraycopy(GZIP_HEADER, headerPosition, b, off, n);
+                headerPosition += n;
+                count += n;
+            }
+            if (!deflater.finished()) {
+                count += deflater.deflate(b, off + count, len - count);
+                if (!deflater.finished()) {
+                    return count;
+                }
+            }
+            if (crc != null) {
+                if (trailer == null) {
+                    trailer = new byte[GZIP_TRAILER_SIZE];
+                    writeInt(trailer, 0, crc.getValue());
+                    writeInt(trailer, 4, deflater.getBytesRead());
+                }
+                int n = Math.min(len - count, GZIP_TRAILER_SIZE - trailerPosition);
+                System.arraycopy(trailer, trailerPosition, b, off + count, n);
+                trailerPosition += n;
+                count += n;
+            }
+            return count;
+        }
+
+        public void finish() {
+            deflater.finish();
+        }
+
+        public boolean isFinished() {
+            return deflater.finished() && (crc == null || trailerPosition == GZIP_TRAILER_SIZE);
+        }
+
+        public void end() {
+            deflater.end();
+        }
+
+        private static void writeInt(byte[] b, int off, long value) {
+            for (int i = 0; i < 4; i++) {
+                b[off + i] = (byte) (value >> (8 * i));
+            }
+        }
+    }
+
+    private static final class Decompressor extends ContentCoding {
+
+        private static final int HEADER = 0;
+        private static final int BODY = 1;
+        private static final int TRAILER = 2;
+        private static final int DONE = 3;
+
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+
+        private final Inflater inflater;
+
+        private final CRC32 crc;
+
+        private int state;
+
+        /* input not given to the inflater, i.e. of the gzip header or trailer */
+        private byte[] input;
+        private int inputPosition;
+        private int inputEnd;
+
+        private int headerPosition;
+        private int flags;
+        private int extraLength;
+        private int extraLengthBytes;
+        private int headerCrcBytes;
+
+        private final byte[] trailer = new byte[GZIP_TRAILER_SIZE];
+        private int trailerPosition;
+
+        private Decompressor(String coding) {
+            super(coding);
+            boolean gzip = GZIP.equalsIgnoreCase(coding);
+            this.inflater = new Inflater(gzip);
+            this.crc = gzip ? new CRC32() : null;
+            this.state = gzip ? HEADER : BODY;
+        }
+
+        public boolean needsInput() {
+            if (state == BODY) {
+                return inflater.needsInput();
+            }
+            return state == DONE || inputPosition == inputEnd;
+        }
+
+        public void setInput(byte[] b, int off, int len) {
+            input = b;
+            inputPosition = off;
+            inputEnd = off + len;
+            if (state == BODY) {
+                inflater.setInput(b, off, len);
+                inputPosition = inputEnd;
+            }
+        }
+
+        public int getOutput(byte[] b, int off, int len) throws IOException {
+            int count = 0;
+            while (true) {
+                switch (state) {
+                    case HEADER:
+                        if (!readHeader()) {
+                            return count;
+                        }
+                        state = BODY;
+                        if (inputPosition < inputEnd) {
+                            inflater.setInput(input, inputPosition, inputEnd - inputPosition);
+                            inputPosition = inputEnd;
+                        }
+                        break;
+                    case BODY:
+                        int n;
+                        try {
+                            n = inflater.inflate(b, off + count, len - count);
+                        } catch (DataFormatException e) {
+                            throw new IOException("Invalid " + getName() + " content", e);
+                        }
+                        if (inflater.needsDictionary()) {
+                            throw new IOException("Preset dictionaries are not supported for " + getName());
+                        }
+                        if (crc != null) {
+                            crc.update(b, off + count, n);
+                        }
+                        count += n;
+                        if (!inflater.finished()) {
+                            return count;
+                        }
+                        inputPosition = inputEnd - inflater.getRemaining();
+                        state = crc != null ? TRAILER : DONE;
+                        break;
+                    case TRAILER:
+                        if (!readTrailer()) {
+                            return count;
+                        }
+                        state = DONE;
+                        break;
+                    default:
+                        return count;
+                }
+            }
+        }
+
+        private boolean readHeader() throws IOException {
+            while (inputPosition < inputEnd) {
+                int c = input[inputPosition++] & 0xff;
+                if (headerPosition < GZIP_HEADER.length) {
+                    if (headerPosition < 3 && c != (GZIP_HEADER[headerPosition] & 0xff)) {
+                        throw new IOException("Invalid gzip header");
+                    }
+                    if (headerPosition == 3) {
+                        flags = c;
+                    }
+                    headerPosition++;
+                } else if ((flags & FEXTRA) != 0) {
+                    if (extraLengthBytes < 2) {
+                        extraLength |= c << (8 * extraLengthBytes++);
+                        if (extraLengthBytes == 2 && extraLength == 0) {
+                            flags &= ~FEXTRA;
+                        }
+                    } else if (--extraLength == 0) {
+                        flags &= ~FEXTRA;
+                    }
+                } else if ((flags & FNAME) != 0) {
+                    if (c == 0) {
+                        flags &= ~FNAME;
+                    }
+                } else if ((flags & FCOMMENT) != 0) {
+                    if (c == 0) {
+                        flags &= ~FCOMMENT;
+                    }
+                } else if ((flags & FHCRC) != 0) {
+                    if (++headerCrcBytes == 2) {
+                        flags &= ~FHCRC;
+                    }
+                }
+                if (headerPosition == GZIP_HEADER.length && (flags & (FEXTRA | FNAME | FCOMMENT | FHCRC)) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean readTrailer() throws IOException {
+            int n = Math.min(inputEnd - inputPosition, GZIP_TRAILER_SIZE - trailerPosition);
+            System.arraycopy(input, inputPosition, trailer, trailerPosition, n);
+            inputPosition += n;
+            trailerPosition += n;
+            if (trailerPosition < GZIP_TRAILER_SIZE) {
+                return false;
+            }
+            if (readInt(trailer, 0) != crc.getValue()
+                    || readInt(trailer, 4) != (inflater.getBytesWritten() & 0xffffffffL)) {
+                throw new IOException("Corrupt gzip trailer");
+            }
+            return true;
+        }
+
+        public void finish() {
+            // the end of the content is marked by the coding itself
+        }
+
+        public boolean isFinished() {
+            return state == DONE;
+        }
+
+        public void end() {
+            inflater.end();
+        }
+
+        private static long readInt(byte[] b, int off) {
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (long) (b[off + i] & 0xff) << (8 * i);
+            }
+            return value;
+        }
+    }
+}
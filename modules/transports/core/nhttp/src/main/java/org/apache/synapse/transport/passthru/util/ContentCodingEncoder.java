@@ -0,0 +1,162 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.ContentEncoder;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A ContentEncoder applying a {@link ContentCoding} to the content written through it, before
+ * passing it to the ContentEncoder of the connection. The content is coded as it is consumed from
+ * the pipe, so the message is neither built nor buffered as a whole. The coded output which does
+ * not fit in the connection is held back, and no more content is accepted until it is written.
+ */
+public class ContentCodingEncoder implements ContentEncoder {
+
+    private final ContentCoding coding;
+
+    /** Whether the coding compresses the content, for the metrics */
+    private final boolean compressing;
+
+    private final PassThroughTransportMetricsCollector metrics;
+
+    private final byte[] input;
+
+    /** Coded output waiting to be written, always in the output mode */
+    private final ByteBuffer output;
+
+    private ContentEncoder encoder;
+
+    private boolean completed;
+
+    private long bytesConsumed;
+
+    private long bytesProduced;
+
+    private long codingTime;
+
+    /**
+     * @param coding      content coding to apply
+     * @param compressing whether the coding compresses the content
+     * @param bufferSize  size of the input and output buffers
+     * @param metrics     metrics collector to report the coding, may be null
+     */
+    public ContentCodingEncoder(ContentCoding coding, boolean compressing, int bufferSize,
+                                PassThroughTransportMetricsCollector metrics) {
+        this.coding = coding;
+        this.compressing = compressing;
+        this.metrics = metrics;
+        this.input = new byte[bufferSize];
+        this.output = ByteBuffer.allocate(bufferSize);
+        this.output.flip();
+    }
+
+    /**
+     * Write the coded content to the given encoder from now on.
+     *
+     * @param encoder the ContentEncoder of the connection
+     * @return this encoder
+     */
+    public ContentEncoder wrap(ContentEncoder encoder) {
+        this.encoder = encoder;
+        return this;
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        if (completed) {
+            throw new IllegalStateException("Encoding process already completed");
+        }
+        if (!flush()) {
+            return 0;
+        }
+        int count = Math.min(src.remaining(), input.length);
+        if (count == 0) {
+            return 0;
+        }
+        src.get(input, 0, count);
+        coding.setInput(input, 0, count);
+        bytesConsumed += count;
+        flush();
+        return count;
+    }
+
+    public void complete() throws IOException {
+        if (completed) {
+            return;
+        }
+        coding.finish();
+        if (!flush()) {
+            // the rest is written when the connection is ready for output again
+            return;
+        }
+        if (!coding.isFinished()) {
+            throw new IOException("Truncated " + coding.getName() + " content");
+        }
+        completed = true;
+        coding.end();
+        encoder.complete();
+        if (metrics != null) {
+            if (compressing) {
+                metrics.notifyCompression(bytesConsumed, bytesProduced, codingTime);
+            } else {
+                metrics.notifyDecompression(codingTime);
+            }
+        }
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Write the output of the coding to the connection as far as it accepts it.
+     *
+     * @return true if all the output of the input given so far has been written
+     * @throws IOException if an error occurs while coding or writing
+     */
+    private boolean flush() throws IOException {
+        while (true) {
+            if (output.hasRemaining()) {
+                encoder.write(output);
+                if (output.hasRemaining()) {
+                    return false;
+                }
+            }
+            long start = System.nanoTime();
+            int count = coding.getOutput(output.array(), 0, output.capacity());
+            codingTime += System.nanoTime() - start;
+            output.position(0);
+            output.limit(count);
+            if (count == 0) {
+                return true;
+            }
+            bytesProduced += count;
+        }
+    }
+
+    public long getBytesConsumed() {
+        return bytesConsumed;
+    }
+
+    public long getBytesProduced() {
+        return bytesProduced;
+    }
+}
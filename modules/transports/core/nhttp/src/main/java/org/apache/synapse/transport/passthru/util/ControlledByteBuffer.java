@@ -22,6 +22,11 @@ package org.apache.synapse.transport.passthru.util;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * A byte buffer handed out to a pipe. A {@link BufferFactory} creates a new instance every time it
+ * hands out a pooled byte buffer, so an instance stands for a single hand-out and can be released
+ * only once.
+ */
 public class ControlledByteBuffer {
     private ByteBuffer byteBuffer;
 
@@ -31,8 +36,19 @@ public class ControlledByteBuffer {
 
     private AtomicBoolean inputMode = new AtomicBoolean(true);
 
+    /** Factory which handed out the buffer, null if it was not handed out by a factory */
+    private final BufferFactory owner;
+
+    /** Whether this hand-out of the buffer has been released to its factory */
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
     public ControlledByteBuffer(ByteBuffer byteBuffer) {
+        this(byteBuffer, null);
+    }
+
+    ControlledByteBuffer(ByteBuffer byteBuffer, BufferFactory owner) {
         this.byteBuffer = byteBuffer;
+        this.owner = owner;
     }
 
     public ByteBuffer getByteBuffer() {
@@ -47,6 +63,23 @@ public class ControlledByteBuffer {
         return this.inputMode.compareAndSet(true, false);
     }
 
+    /**
+     * @param factory buffer factory
+     * @return true if the buffer was handed out by the given factory
+     */
+    boolean isOwnedBy(BufferFactory factory) {
+        return owner == factory;
+    }
+
+    /**
+     * Mark the buffer as released to its buffer factory
+     *
+     * @return false if the buffer had already been released
+     */
+    boolean markReleased() {
+        return released.compareAndSet(false, true);
+    }
+
     public void forceSetInputMode() {
         this.inputMode = new AtomicBoolean(true);
     }
@@ -0,0 +1,64 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.IOControl;
+import org.apache.synapse.transport.passthru.LockFreePipe;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.apache.synapse.transport.passthru.config.BaseConfiguration;
+import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
+
+/**
+ * Creates the pipes of the pass-through transport, which are lock free pipes if
+ * {@link org.apache.synapse.transport.passthru.config.PassThroughConfigPNames#PIPE_LOCK_FREE} is enabled.
+ */
+public class PipeFactory {
+
+    private static boolean lockFree = PassThroughConfiguration.getInstance().isLockFreePipeEnabled();
+
+    /**
+     * Create a pipe fed by an HTTP producer, with a buffer of the given configuration
+     *
+     * @param producerIoControl IOControl of the producer
+     * @param name              name to identify the pipe
+     * @param baseConfig        configuration of the listener or the sender
+     * @return the pipe
+     */
+    public static Pipe create(IOControl producerIoControl, String name, BaseConfiguration baseConfig) {
+        ControlledByteBuffer buffer = baseConfig.getBufferFactory().getBuffer();
+        if (lockFree) {
+            return new LockFreePipe(producerIoControl, buffer, name, baseConfig);
+        }
+        return new Pipe(producerIoControl, buffer, name, baseConfig);
+    }
+
+    /**
+     * Create a pipe without an HTTP producer, to which the content is written through its output stream
+     *
+     * @param name       name to identify the pipe
+     * @param baseConfig configuration of the listener or the sender
+     * @return the pipe
+     */
+    public static Pipe create(String name, BaseConfiguration baseConfig) {
+        ControlledByteBuffer buffer = baseConfig.getBufferFactory().getBuffer();
+        if (lockFree) {
+            return new LockFreePipe(buffer, name, baseConfig);
+        }
+        return new Pipe(buffer, name, baseConfig);
+    }
+}
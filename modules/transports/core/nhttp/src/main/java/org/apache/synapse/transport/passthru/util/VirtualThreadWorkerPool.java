@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.axis2.transport.base.threads.WorkerPool;
+import org.apache.synapse.commons.executors.VirtualThreadExecutor;
+import org.apache.synapse.commons.jmx.WorkerPoolView;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A worker pool running the messages on virtual threads, where the runtime supports them, with
+ * the number of messages processed at once capped by a concurrency limit. Workers blocked by a
+ * blocking mediator, e.g. a callout or a database lookup, then do not hold a platform thread,
+ * so the limit can be set well above the thread counts a thread pool would need. The pool is
+ * monitored through a {@link WorkerPoolView}.
+ */
+public class VirtualThreadWorkerPool implements WorkerPool {
+
+    private final VirtualThreadExecutor executor;
+
+    private final WorkerPoolView view;
+
+    public VirtualThreadWorkerPool(String threadNamePrefix, int maxConcurrency) {
+        this.executor = new VirtualThreadExecutor(threadNamePrefix, maxConcurrency);
+        this.view = new WorkerPoolView(executor);
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getPendingCount();
+    }
+
+    public void shutdown(int timeout) throws InterruptedException {
+        view.destroy();
+        executor.shutdown();
+        executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    public VirtualThreadExecutor getExecutor() {
+        return executor;
+    }
+}
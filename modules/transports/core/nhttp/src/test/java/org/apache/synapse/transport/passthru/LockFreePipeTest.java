@@ -0,0 +1,207 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.synapse.transport.passthru.config.BaseConfiguration;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+import org.apache.synapse.transport.passthru.util.PassThroughTestUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for LockFreePipe
+ */
+public class LockFreePipeTest {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    @BeforeClass
+    public static void init() {
+        PassThroughTestUtils.getPassThroughConfiguration();
+    }
+
+    /**
+     * Tests relaying content whose reads and writes wrap around the end of the buffer.
+     */
+    @Test
+    public void testRelay() throws Exception {
+        byte[] content = createContent();
+        LockFreePipe pipe = new LockFreePipe(Mockito.mock(IOControl.class), createBuffer(), "test",
+                createConfiguration());
+        pipe.attachConsumer(Mockito.mock(IOControl.class));
+        TestDecoder decoder = new TestDecoder(content, 700);
+        TestEncoder encoder = new TestEncoder(300);
+
+        int rounds = 0;
+        while (!encoder.isCompleted()) {
+            Assert.assertTrue("Content is not relayed", rounds++ < 10000);
+            if (!pipe.isProducerCompleted()) {
+                pipe.produce(decoder);
+            }
+            pipe.consume(encoder);
+        }
+        Assert.assertTrue(Arrays.equals(content, encoder.written.toByteArray()));
+    }
+
+    /**
+     * Tests reading the content through the input stream while it is produced by another thread.
+     */
+    @Test
+    public void testInputStream() throws Exception {
+        byte[] content = createContent();
+        final LockFreePipe pipe = new LockFreePipe(Mockito.mock(IOControl.class), createBuffer(), "test",
+                createConfiguration());
+        final TestDecoder decoder = new TestDecoder(content, 333);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Void> producer = executorService.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    while (!pipe.isProducerCompleted()) {
+                        pipe.produce(decoder);
+                    }
+                    return null;
+                }
+            });
+            byte[] read = IOUtils.toByteArray(pipe.getInputStream());
+            producer.get(30, TimeUnit.SECONDS);
+            Assert.assertTrue(Arrays.equals(content, read));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests consuming the content written through the output stream by another thread.
+     */
+    @Test
+    public void testOutputStream() throws Exception {
+        final byte[] content = createContent();
+        final LockFreePipe pipe = new LockFreePipe(createBuffer(), "test", createConfiguration());
+        pipe.attachConsumer(Mockito.mock(IOControl.class));
+        final OutputStream out = pipe.getOutputStream();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Void> writer = executorService.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    for (int i = 0; i < content.length; i += 500) {
+                        out.write(content, i, Math.min(500, content.length - i));
+                    }
+                    pipe.setSerializationComplete(true);
+                    return null;
+                }
+            });
+            TestEncoder encoder = new TestEncoder(200);
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!encoder.isCompleted()) {
+                Assert.assertTrue("Content is not consumed", System.currentTimeMillis() < deadline);
+                pipe.consume(encoder);
+            }
+            writer.get(30, TimeUnit.SECONDS);
+            Assert.assertTrue(Arrays.equals(content, encoder.written.toByteArray()));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static byte[] createContent() {
+        byte[] content = new byte[BUFFER_SIZE * 50 + 77];
+        new Random(11).nextBytes(content);
+        return content;
+    }
+
+    private static ControlledByteBuffer createBuffer() {
+        return new BufferFactory(BUFFER_SIZE, new HeapByteBufferAllocator(), 4).getBuffer();
+    }
+
+    private static BaseConfiguration createConfiguration() {
+        BaseConfiguration configuration = Mockito.mock(BaseConfiguration.class);
+        Mockito.when(configuration.getBufferFactory())
+                .thenReturn(new BufferFactory(BUFFER_SIZE, new HeapByteBufferAllocator(), 4));
+        return configuration;
+    }
+
+    private static class TestDecoder implements ContentDecoder {
+
+        private final ByteBuffer content;
+        private final int limit;
+
+        TestDecoder(byte[] content, int limit) {
+            this.content = ByteBuffer.wrap(content);
+            this.limit = limit;
+        }
+
+        public int read(ByteBuffer dst) {
+            int length = Math.min(limit, Math.min(dst.remaining(), content.remaining()));
+            for (int i = 0; i < length; i++) {
+                dst.put(content.get());
+            }
+            return length;
+        }
+
+        public boolean isCompleted() {
+            return !content.hasRemaining();
+        }
+    }
+
+    private static class TestEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final int limit;
+        private boolean completed;
+
+        TestEncoder(int limit) {
+            this.limit = limit;
+        }
+
+        public int write(ByteBuffer src) {
+            int length = Math.min(limit, src.remaining());
+            for (int i = 0; i < length; i++) {
+                written.write(src.get());
+            }
+            return length;
+        }
+
+        public void complete() {
+            completed = true;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
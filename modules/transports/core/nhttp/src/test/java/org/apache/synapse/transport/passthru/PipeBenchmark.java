@@ -0,0 +1,59 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru;
+
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+
+import java.util.Random;
+
+/**
+ * Compares relaying a message through a single buffer with relaying it by swapping buffers, while
+ * the consumer writes out less than the producer reads in each round. This is not a unit test, run
+ * it with the test classpath.
+ */
+public class PipeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        PipeTest.init();
+        int bufferSize = 16 * 1024;
+        byte[] content = new byte[8 * 1024 * 1024];
+        new Random(7).nextBytes(content);
+        int[][] limits = {{bufferSize, bufferSize / 2}, {bufferSize, 1460}, {4096, 1460}};
+        BufferFactory bufferFactory = new BufferFactory(bufferSize, new HeapByteBufferAllocator(), 4);
+        // the first round warms up
+        for (int round = 0; round < 2; round++) {
+            for (int[] limit : limits) {
+                long single = 0;
+                long swapped = 0;
+                int iterations = 20;
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    PipeTest.relay(PipeTest.createPipe(bufferFactory, false), content, limit[0], limit[1]);
+                    single += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    PipeTest.relay(PipeTest.createPipe(bufferFactory, true), content, limit[0], limit[1]);
+                    swapped += System.nanoTime() - start;
+                }
+                System.out.println("Read " + limit[0] + " / write " + limit[1] + " bytes a round, single buffer : "
+                        + single / iterations / 1000 + " us per message, swapped buffers : "
+                        + swapped / iterations / 1000 + " us per message");
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru;
+
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.synapse.transport.passthru.config.BaseConfiguration;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+import org.apache.synapse.transport.passthru.util.PassThroughTestUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test class for relaying the content through a Pipe
+ */
+public class PipeTest {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    @BeforeClass
+    public static void init() {
+        PassThroughTestUtils.getPassThroughConfiguration();
+    }
+
+    /**
+     * Tests that a message which is not read by anyone is relayed intact, while the consumer writes
+     * out less than what is available in each round.
+     */
+    @Test
+    public void testRelay() throws Exception {
+        byte[] content = new byte[BUFFER_SIZE * 20 + 123];
+        new Random(7).nextBytes(content);
+        BufferFactory bufferFactory = new BufferFactory(BUFFER_SIZE, new HeapByteBufferAllocator(), 4);
+        Pipe pipe = createPipe(bufferFactory, true);
+
+        byte[] relayed = relay(pipe, content, 700, 300);
+
+        Assert.assertNotNull("Content was not relayed by swapping buffers", pipe.getRelayBuffer());
+        Assert.assertTrue(Arrays.equals(content, relayed));
+    }
+
+    /**
+     * Tests that the pipe falls back to a single buffer once the content has been read.
+     */
+    @Test
+    public void testNoRelayAfterReading() throws Exception {
+        BufferFactory bufferFactory = new BufferFactory(BUFFER_SIZE, new HeapByteBufferAllocator(), 4);
+        Pipe pipe = createPipe(bufferFactory, true);
+        pipe.getInputStream();
+
+        relay(pipe, new byte[0], 1, 1);
+
+        Assert.assertNull(pipe.getRelayBuffer());
+    }
+
+    /**
+     * Tests that the relay mode is off unless it is enabled in the configuration.
+     */
+    @Test
+    public void testNoRelayByDefault() throws Exception {
+        byte[] content = new byte[BUFFER_SIZE * 3 + 17];
+        new Random(11).nextBytes(content);
+        BufferFactory bufferFactory = new BufferFactory(BUFFER_SIZE, new HeapByteBufferAllocator(), 4);
+        BaseConfiguration configuration = Mockito.mock(BaseConfiguration.class);
+        Mockito.when(configuration.getBufferFactory()).thenReturn(bufferFactory);
+        Pipe pipe = new Pipe(Mockito.mock(IOControl.class), bufferFactory.getBuffer(), "test", configuration);
+        pipe.attachConsumer(Mockito.mock(IOControl.class));
+
+        byte[] relayed = relay(pipe, content, 700, 300);
+
+        Assert.assertNull(pipe.getRelayBuffer());
+        Assert.assertTrue(Arrays.equals(content, relayed));
+    }
+
+    static Pipe createPipe(BufferFactory bufferFactory, boolean relayEnabled) {
+        BaseConfiguration configuration = Mockito.mock(BaseConfiguration.class);
+        Mockito.when(configuration.getBufferFactory()).thenReturn(bufferFactory);
+        Pipe pipe = new Pipe(Mockito.mock(IOControl.class), bufferFactory.getBuffer(), "test", configuration);
+        pipe.setRelayEnabled(relayEnabled);
+        pipe.attachConsumer(Mockito.mock(IOControl.class));
+        return pipe;
+    }
+
+    static byte[] relay(Pipe pipe, byte[] content, int readLimit, int writeLimit) throws IOException {
+        TestDecoder decoder = new TestDecoder(content, readLimit);
+        TestEncoder encoder = new TestEncoder(writeLimit);
+        int rounds = 0;
+        while (!encoder.isCompleted()) {
+            Assert.assertTrue("Content is not relayed", rounds++ < 1000000);
+            if (!pipe.isProducerCompleted()) {
+                pipe.produce(decoder);
+            }
+            pipe.consume(encoder);
+        }
+        return encoder.written.toByteArray();
+    }
+
+    private static class TestDecoder implements ContentDecoder {
+
+        private final ByteBuffer content;
+        private final int limit;
+
+        TestDecoder(byte[] content, int limit) {
+            this.content = ByteBuffer.wrap(content);
+            this.limit = limit;
+        }
+
+        public int read(ByteBuffer dst) {
+            int length = Math.min(limit, Math.min(dst.remaining(), content.remaining()));
+            ByteBuffer chunk = content.duplicate();
+            chunk.limit(content.position() + length);
+            dst.put(chunk);
+            content.position(chunk.position());
+            return length;
+        }
+
+        public boolean isCompleted() {
+            return !content.hasRemaining();
+        }
+    }
+
+    private static class TestEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final int limit;
+        private final byte[] chunk;
+        private boolean completed;
+
+        TestEncoder(int limit) {
+            this.limit = limit;
+            this.chunk = new byte[limit];
+        }
+
+        public int write(ByteBuffer src) {
+            int length = Math.min(limit, src.remaining());
+            src.get(chunk, 0, length);
+            written.write(chunk, 0, length);
+            return length;
+        }
+
+        public void complete() {
+            completed = true;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru;
+
+import org.apache.axis2.context.MessageContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RouteQueueTest {
+
+    @Test
+    public void testCapacity() {
+        RouteQueue queue = new RouteQueue(2);
+        MessageContext first = new MessageContext();
+        Assert.assertTrue(queue.offer(first));
+        Assert.assertTrue(queue.offer(new MessageContext()));
+        Assert.assertFalse(queue.offer(new MessageContext()));
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(1, queue.getRejectedMessages());
+
+        Assert.assertSame(first, queue.poll());
+        Assert.assertTrue(queue.offer(new MessageContext()));
+        Assert.assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testRemove() {
+        RouteQueue queue = new RouteQueue(10);
+        MessageContext msgContext = new MessageContext();
+        queue.offer(msgContext);
+        queue.offer(new MessageContext());
+        Assert.assertTrue(queue.remove(msgContext));
+        Assert.assertFalse(queue.remove(msgContext));
+        Assert.assertEquals(1, queue.size());
+
+        Iterator<MessageContext> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+        Assert.assertEquals(0, queue.size());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testWaitTime() {
+        RouteQueue queue = new RouteQueue(10);
+        queue.messageDequeued(10);
+        queue.messageDequeued(30);
+        Assert.assertEquals(2, queue.getWaitCount());
+        Assert.assertEquals(20, queue.getAverageWaitTime(), 0.001);
+        Assert.assertEquals(30, queue.getMaxWaitTime());
+
+        queue.resetStatistics();
+        Assert.assertEquals(0, queue.getWaitCount());
+        Assert.assertEquals(0, queue.getMaxWaitTime());
+    }
+
+    @Test
+    public void testConcurrentOffer() throws Exception {
+        final RouteQueue queue = new RouteQueue(100);
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executorService.submit(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 50; j++) {
+                        if (queue.offer(new MessageContext())) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(20, TimeUnit.SECONDS));
+        Assert.assertEquals(100, accepted.get());
+        Assert.assertEquals(100, queue.size());
+        Assert.assertEquals(300, queue.getRejectedMessages());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.connections;
+
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.mockito.Mockito.times;
+
+public class ConcurrentHostConnectionsTest {
+
+    @Test
+    public void testMaximumConnections() {
+        ConcurrentHostConnections pool = createPool(2, 60000);
+        Assert.assertTrue(pool.checkAndIncrementPendingConnections());
+        Assert.assertTrue(pool.checkAndIncrementPendingConnections());
+        Assert.assertFalse(pool.checkAndIncrementPendingConnections());
+        Assert.assertEquals(2, pool.getPendingConnectionCount());
+
+        pool.pendingConnectionFailed();
+        pool.addConnection(createConnection());
+        Assert.assertEquals(0, pool.getPendingConnectionCount());
+        Assert.assertEquals(1, pool.getBusyConnectionCount());
+        // the busy connection still counts against the maximum
+        Assert.assertTrue(pool.checkAndIncrementPendingConnections());
+        Assert.assertFalse(pool.checkAndIncrementPendingConnections());
+    }
+
+    @Test
+    public void testMostRecentlyReleasedConnectionIsReused() {
+        ConcurrentHostConnections pool = createPool(10, 60000);
+        NHttpClientConnection first = connect(pool);
+        NHttpClientConnection second = connect(pool);
+        Assert.assertNull(pool.getConnection());
+
+        pool.release(first);
+        pool.release(second);
+        Assert.assertEquals(2, pool.getFreeConnectionCount());
+        Assert.assertSame(second, pool.getConnection());
+        Assert.assertSame(first, pool.getConnection());
+        Assert.assertNull(pool.getConnection());
+        Assert.assertEquals(2, pool.getBusyConnectionCount());
+    }
+
+    @Test
+    public void testForgottenConnectionIsNotReused() {
+        ConcurrentHostConnections pool = createPool(10, 60000);
+        NHttpClientConnection conn = connect(pool);
+        pool.release(conn);
+        pool.forget(conn);
+        Assert.assertEquals(0, pool.getFreeConnectionCount());
+        Assert.assertNull(pool.getConnection());
+
+        NHttpClientConnection busy = connect(pool);
+        pool.forget(busy);
+        Assert.assertEquals(0, pool.getBusyConnectionCount());
+        Assert.assertTrue(pool.checkAndIncrementPendingConnections());
+    }
+
+    @Test
+    public void testExpiredConnectionsAreClosed() throws Exception {
+        ConcurrentHostConnections pool = createPool(10, 0);
+        NHttpClientConnection conn = connect(pool);
+        pool.release(conn);
+
+        Assert.assertEquals(1, pool.closeExpiredConnections(System.currentTimeMillis() + 1));
+        Mockito.verify(conn, times(1)).shutdown();
+        Assert.assertEquals(0, pool.getFreeConnectionCount());
+        Assert.assertNull(pool.getConnection());
+    }
+
+    private ConcurrentHostConnections createPool(int maxSize, int connectionIdleTime) {
+        ConnectionTimeoutConfiguration conf = new ConnectionTimeoutConfiguration(connectionIdleTime,
+                Integer.MAX_VALUE, 0);
+        return new ConcurrentHostConnections(null, maxSize, conf, null);
+    }
+
+    private NHttpClientConnection connect(ConcurrentHostConnections pool) {
+        Assert.assertTrue(pool.checkAndIncrementPendingConnections());
+        NHttpClientConnection conn = createConnection();
+        pool.addConnection(conn);
+        return conn;
+    }
+
+    private NHttpClientConnection createConnection() {
+        NHttpClientConnection conn = Mockito.mock(NHttpClientConnection.class);
+        Mockito.when(conn.getContext()).thenReturn(new BasicHttpContext());
+        Mockito.when(conn.getMetrics()).thenReturn(Mockito.mock(HttpConnectionMetrics.class));
+        conn.getContext().setAttribute(PassThroughConstants.CONNECTION_INIT_TIME, System.currentTimeMillis());
+        return conn;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.jmx;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value = 0; value < 1000000; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            Assert.assertTrue(highest >= value);
+            // reported within about 3% of the value
+            Assert.assertTrue(highest - value <= value / 32);
+            if (bucket > 0) {
+                Assert.assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(1000, snapshot.getMax());
+        assertNear(500, snapshot.getValueAtPercentile(50));
+        assertNear(900, snapshot.getValueAtPercentile(90));
+        assertNear(990, snapshot.getValueAtPercentile(99));
+        Assert.assertEquals(1000, snapshot.getValueAtPercentile(99.9));
+        Assert.assertEquals(1000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testTailLatency() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 990; i++) {
+            histogram.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(10, snapshot.getValueAtPercentile(99));
+        assertNear(5000, snapshot.getValueAtPercentile(99.9));
+        Assert.assertEquals(5000, snapshot.getMax());
+    }
+
+    @Test
+    public void testSnapshotAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(-5);
+        LatencyHistogram.Snapshot first = histogram.getSnapshotAndReset();
+        Assert.assertEquals(2, first.getCount());
+        Assert.assertEquals(0, first.getValueAtPercentile(50));
+        Assert.assertEquals(0, histogram.getSnapshot().getCount());
+        Assert.assertEquals(0, histogram.getMax());
+
+        histogram.record(200);
+        LatencyHistogram.Snapshot merged = first.merge(histogram.getSnapshot());
+        Assert.assertEquals(3, merged.getCount());
+        Assert.assertEquals(200, merged.getMax());
+        Assert.assertEquals(0, new LatencyHistogram().getSnapshot().getValueAtPercentile(99));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue("Expected about " + expected + " but was " + actual,
+                actual >= expected && actual - expected <= expected / 32);
+    }
+}
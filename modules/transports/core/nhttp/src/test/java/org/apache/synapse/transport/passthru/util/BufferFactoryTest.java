@@ -0,0 +1,167 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.util.DirectByteBufferAllocator;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class BufferFactoryTest {
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        BufferFactory bufferFactory = new BufferFactory(1024, new HeapByteBufferAllocator(), 8);
+        ControlledByteBuffer buffer = bufferFactory.getBuffer();
+        buffer.put((byte) 1);
+        bufferFactory.release(buffer);
+
+        ControlledByteBuffer reused = bufferFactory.getBuffer();
+        Assert.assertSame(buffer.getByteBuffer(), reused.getByteBuffer());
+        Assert.assertNotSame("A hand-out must not be shared with an earlier one", buffer, reused);
+        Assert.assertEquals("Reused buffer is not cleared", 0, reused.position());
+        Assert.assertTrue(reused.isInputMode());
+        Assert.assertEquals(1, bufferFactory.getHits());
+        Assert.assertEquals(1, bufferFactory.getMisses());
+        Assert.assertEquals(1, bufferFactory.getOutstandingBuffers());
+    }
+
+    @Test
+    public void testDuplicateReleaseIsIgnored() {
+        BufferFactory bufferFactory = new BufferFactory(1024, new HeapByteBufferAllocator(), 8, 0);
+        ControlledByteBuffer buffer = bufferFactory.getBuffer();
+        bufferFactory.release(buffer);
+        bufferFactory.release(buffer);
+
+        Assert.assertEquals(1, bufferFactory.getDuplicateReleases());
+        Assert.assertEquals(1, bufferFactory.getPooledBuffers());
+        Assert.assertEquals(0, bufferFactory.getOutstandingBuffers());
+        Assert.assertSame(buffer.getByteBuffer(), bufferFactory.getBuffer().getByteBuffer());
+        Assert.assertNotSame("A buffer released twice is handed out twice", buffer.getByteBuffer(),
+                bufferFactory.getBuffer().getByteBuffer());
+    }
+
+    @Test
+    public void testLateReleaseOfHandedOutBufferIsIgnored() {
+        BufferFactory bufferFactory = new BufferFactory(1024, new HeapByteBufferAllocator(), 8, 0);
+        ControlledByteBuffer buffer = bufferFactory.getBuffer();
+        bufferFactory.release(buffer);
+        ControlledByteBuffer reused = bufferFactory.getBuffer();
+        Assert.assertSame(buffer.getByteBuffer(), reused.getByteBuffer());
+
+        // e.g. the other side of the connection releasing the buffer after it has been handed out again
+        bufferFactory.release(buffer);
+        Assert.assertEquals(1, bufferFactory.getDuplicateReleases());
+        Assert.assertEquals(0, bufferFactory.getPooledBuffers());
+        Assert.assertEquals(1, bufferFactory.getOutstandingBuffers());
+        Assert.assertNotSame("A buffer in use is handed out again", reused.getByteBuffer(),
+                bufferFactory.getBuffer().getByteBuffer());
+    }
+
+    @Test
+    public void testPoolCapacity() {
+        BufferFactory bufferFactory = new BufferFactory(1024, new HeapByteBufferAllocator(), 2, 1);
+        List<ControlledByteBuffer> buffers = new ArrayList<ControlledByteBuffer>();
+        for (int i = 0; i < 5; i++) {
+            buffers.add(bufferFactory.getBuffer());
+        }
+        for (ControlledByteBuffer buffer : buffers) {
+            bufferFactory.release(buffer);
+        }
+        // one in the thread cache and two in the shared ring
+        Assert.assertEquals(2, bufferFactory.getPooledBuffers());
+        Assert.assertEquals(2, bufferFactory.getDiscardedBuffers());
+        Assert.assertEquals(0, bufferFactory.getOutstandingBuffers());
+    }
+
+    @Test
+    public void testForeignBufferIsNotPooled() {
+        BufferFactory bufferFactory = new BufferFactory(1024, new HeapByteBufferAllocator(), 8, 0);
+        bufferFactory.release(new ControlledByteBuffer(ByteBuffer.allocate(512)));
+        Assert.assertEquals(0, bufferFactory.getPooledBuffers());
+        Assert.assertEquals(1, bufferFactory.getDiscardedBuffers());
+    }
+
+    @Test
+    public void testBufferOfAnotherFactoryIsNotPooled() {
+        BufferFactory sourceFactory = new BufferFactory(1024, new HeapByteBufferAllocator(), 8, 0);
+        BufferFactory targetFactory = new BufferFactory(1024, new HeapByteBufferAllocator(), 8, 0);
+        ControlledByteBuffer buffer = sourceFactory.getBuffer();
+
+        targetFactory.release(buffer);
+        Assert.assertEquals(0, targetFactory.getPooledBuffers());
+        Assert.assertEquals(1, targetFactory.getDiscardedBuffers());
+
+        // the release to the other factory does not stop the buffer going back to its own factory
+        sourceFactory.release(buffer);
+        Assert.assertEquals(1, sourceFactory.getPooledBuffers());
+        Assert.assertEquals(0, sourceFactory.getOutstandingBuffers());
+    }
+
+    @Test
+    public void testDirectBuffers() {
+        BufferFactory bufferFactory = new BufferFactory(1024, new DirectByteBufferAllocator(), 8);
+        Assert.assertTrue(bufferFactory.isDirect());
+        Assert.assertTrue(bufferFactory.getBuffer().getByteBuffer().isDirect());
+    }
+
+    @Test
+    public void testConcurrentReuse() throws Exception {
+        final BufferFactory bufferFactory = new BufferFactory(64, new HeapByteBufferAllocator(), 16, 2);
+        final AtomicBoolean shared = new AtomicBoolean(false);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            final byte id = (byte) i;
+            executorService.submit(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 10000; j++) {
+                        ControlledByteBuffer buffer = bufferFactory.getBuffer();
+                        buffer.put(id);
+                        Thread.yield();
+                        // a buffer handed out to two threads at once would be overwritten
+                        if (buffer.position() != 1 || buffer.getByteBuffer().get(0) != id) {
+                            shared.set(true);
+                        }
+                        bufferFactory.release(buffer);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(60, TimeUnit.SECONDS));
+        Assert.assertFalse(shared.get());
+        Assert.assertEquals(0, bufferFactory.getOutstandingBuffers());
+        Assert.assertEquals(0, bufferFactory.getDuplicateReleases());
+    }
+}
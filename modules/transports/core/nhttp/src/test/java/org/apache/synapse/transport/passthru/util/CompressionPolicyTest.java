@@ -0,0 +1,35 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressionPolicyTest {
+
+    @Test
+    public void testNegotiate() {
+        Assert.assertEquals("gzip", CompressionPolicy.negotiate("gzip, deflate, br"));
+        Assert.assertEquals("deflate", CompressionPolicy.negotiate("deflate"));
+        Assert.assertEquals("deflate", CompressionPolicy.negotiate("gzip;q=0.5, deflate"));
+        Assert.assertEquals("gzip", CompressionPolicy.negotiate("*"));
+        Assert.assertNull(CompressionPolicy.negotiate("gzip;q=0, deflate;q=0"));
+        Assert.assertNull(CompressionPolicy.negotiate("identity"));
+        Assert.assertNull(CompressionPolicy.negotiate("br"));
+    }
+}
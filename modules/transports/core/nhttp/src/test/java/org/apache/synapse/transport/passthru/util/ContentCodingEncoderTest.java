@@ -0,0 +1,147 @@
+/*
+ *  Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.ContentEncoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class ContentCodingEncoderTest {
+
+    @Test
+    public void testGzipCompression() throws Exception {
+        byte[] content = createContent(100000);
+        byte[] compressed = encode(true, ContentCoding.createCompressor(ContentCoding.GZIP, -1), content, 100);
+        Assert.assertTrue("Content is not compressed", compressed.length < content.length);
+        Assert.assertArrayEquals(content, read(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testDeflateCompression() throws Exception {
+        byte[] content = createContent(50000);
+        byte[] compressed = encode(true, ContentCoding.createCompressor(ContentCoding.DEFLATE, 9), content, 7);
+        Assert.assertArrayEquals(content, read(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testGzipDecompression() throws Exception {
+        byte[] content = createContent(100000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(compressed);
+        out.write(content);
+        out.close();
+        Assert.assertArrayEquals(content,
+                encode(false, ContentCoding.createDecompressor(ContentCoding.GZIP), compressed.toByteArray(), 50));
+    }
+
+    @Test
+    public void testEmptyContent() throws Exception {
+        byte[] compressed =
+                encode(true, ContentCoding.createCompressor(ContentCoding.GZIP, -1), new byte[0], 1000);
+        Assert.assertEquals(0, read(new GZIPInputStream(new ByteArrayInputStream(compressed))).length);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedContent() throws Exception {
+        byte[] compressed =
+                encode(true, ContentCoding.createCompressor(ContentCoding.GZIP, -1), createContent(1000), 1000);
+        byte[] truncated = new byte[compressed.length - 4];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        encode(false, ContentCoding.createDecompressor(ContentCoding.GZIP), truncated, 1000);
+    }
+
+    /**
+     * Write the content through a ContentCodingEncoder to a connection accepting at most the
+     * given number of bytes for each write, as the pipe does
+     */
+    private static byte[] encode(boolean compressing, ContentCoding coding, byte[] content, int writeLimit)
+            throws IOException {
+        LimitedContentEncoder target = new LimitedContentEncoder(writeLimit);
+        ContentCodingEncoder encoder = new ContentCodingEncoder(coding, compressing, 1024, null);
+        ByteBuffer src = ByteBuffer.wrap(content);
+        int rounds = 0;
+        while (!encoder.isCompleted()) {
+            encoder.wrap(target);
+            encoder.write(src);
+            if (!src.hasRemaining()) {
+                encoder.complete();
+            }
+            Assert.assertTrue("Encoder does not make progress", ++rounds < 1000000);
+        }
+        Assert.assertTrue(target.isCompleted());
+        return target.out.toByteArray();
+    }
+
+    private static byte[] createContent(int size) {
+        Random random = new Random(size);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < size) {
+            builder.append("{\"id\":").append(random.nextInt(1000)).append(",\"name\":\"item\"},");
+        }
+        return builder.substring(0, size).getBytes();
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static class LimitedContentEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private final int limit;
+
+        private boolean completed;
+
+        private LimitedContentEncoder(int limit) {
+            this.limit = limit;
+        }
+
+        public int write(ByteBuffer src) {
+            int n = Math.min(src.remaining(), limit);
+            for (int i = 0; i < n; i++) {
+                out.write(src.get());
+            }
+            return n;
+        }
+
+        public void complete() {
+            completed = true;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}